@@ -16,25 +16,52 @@
 
 package com.android.settings;
 
-import android.os.AsyncTask;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
 
 import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
 
-import com.android.settingslib.utils.ThreadUtils;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
 
-import java.util.concurrent.Future;
-
-/** A {@link SidecarFragment} which uses an {@link AsyncTask} to perform background work. */
+/**
+ * A {@link SidecarFragment} which performs its work on a background thread.
+ *
+ * <p>All sidecars share a small, bounded pool of threads. Starting a new run, hitting the deadline
+ * returned by {@link #getTimeoutMillis} or destroying the fragment cancels the running operation,
+ * and the result of a cancelled operation is never delivered to {@link #onPostExecute}.
+ */
 public abstract class AsyncTaskSidecar<Param, Result> extends SidecarFragment {
 
-    private Future<Result> mAsyncTask;
+    private static final String TAG = "AsyncTaskSidecar";
+
+    private static final int MAX_CONCURRENT_OPERATIONS = 3;
+
+    private static ExecutorService sSharedExecutor;
+
+    /** Replaces the shared executor when set. */
+    @VisibleForTesting
+    static Executor sExecutor;
+
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private final Runnable mTimeoutRunnable = this::handleTimeout;
+
+    private FutureTask<Void> mAsyncTask;
+    // Bumped whenever the current operation is cancelled, so that late results are dropped.
+    private int mGeneration;
+    private long mLastQueueTimeMillis = -1;
+    private long mLastRunTimeMillis = -1;
 
     @Override
     public void onDestroy() {
-        if (mAsyncTask != null) {
-            mAsyncTask.cancel(true /* mayInterruptIfRunning */);
-        }
-
+        cancelRunningTask();
         super.onDestroy();
     }
 
@@ -48,19 +75,108 @@ public abstract class AsyncTaskSidecar<Param, Result> extends SidecarFragment {
     /** Handles the background task's result. */
     protected void onPostExecute(Result result) {}
 
+    /**
+     * Returns the deadline of an operation in milliseconds, counted from {@link #run} so that it
+     * includes the time spent waiting for a thread. Zero or less means no deadline.
+     */
+    protected long getTimeoutMillis() {
+        return 0;
+    }
+
+    /**
+     * Called on the main thread once the running operation has been cancelled for exceeding
+     * {@link #getTimeoutMillis}. Sets the state to ERROR by default.
+     */
+    protected void onTimeout() {
+        setState(State.ERROR, Substate.UNUSED);
+    }
+
     /** Runs the sidecar and sets the state to RUNNING. */
     public void run(@Nullable final Param param) {
         setState(State.RUNNING, Substate.UNUSED);
+        cancelRunningTask();
 
+        final int generation = mGeneration;
+        final long submitTime = SystemClock.elapsedRealtime();
+        mAsyncTask =
+                new FutureTask<>(
+                        () -> {
+                            final long startTime = SystemClock.elapsedRealtime();
+                            final Result result = doInBackground(param);
+                            final long endTime = SystemClock.elapsedRealtime();
+                            mMainHandler.post(
+                                    () ->
+                                            deliverResult(
+                                                    generation,
+                                                    result,
+                                                    startTime - submitTime,
+                                                    endTime - startTime));
+                        },
+                        null /* result */);
+        final long timeoutMillis = getTimeoutMillis();
+        if (timeoutMillis > 0) {
+            mMainHandler.postDelayed(mTimeoutRunnable, timeoutMillis);
+        }
+        getExecutor().execute(mAsyncTask);
+    }
+
+    /** Returns how long the last completed operation waited for a thread, or -1 if none. */
+    public long getLastQueueTimeMillis() {
+        return mLastQueueTimeMillis;
+    }
+
+    /** Returns how long the last completed operation ran, or -1 if none. */
+    public long getLastRunTimeMillis() {
+        return mLastRunTimeMillis;
+    }
+
+    private void deliverResult(
+            int generation, Result result, long queueTimeMillis, long runTimeMillis) {
+        Log.i(TAG, getClass().getSimpleName() + " queued for " + queueTimeMillis + " ms, ran for "
+                + runTimeMillis + " ms" + (generation == mGeneration ? "" : ", cancelled"));
+        if (generation != mGeneration) {
+            return;
+        }
+        mMainHandler.removeCallbacks(mTimeoutRunnable);
+        mAsyncTask = null;
+        mLastQueueTimeMillis = queueTimeMillis;
+        mLastRunTimeMillis = runTimeMillis;
+        onPostExecute(result);
+    }
+
+    private void handleTimeout() {
+        Log.w(TAG, getClass().getSimpleName() + " timed out after " + getTimeoutMillis() + " ms");
+        cancelRunningTask();
+        onTimeout();
+    }
+
+    private void cancelRunningTask() {
+        mMainHandler.removeCallbacks(mTimeoutRunnable);
+        mGeneration++;
         if (mAsyncTask != null) {
             mAsyncTask.cancel(true /* mayInterruptIfRunning */);
+            mAsyncTask = null;
         }
+    }
 
-        mAsyncTask =
-                ThreadUtils.postOnBackgroundThread(
-                        () -> {
-                            Result result = doInBackground(param);
-                            ThreadUtils.postOnMainThread(() -> onPostExecute(result));
-                        });
+    private static synchronized Executor getExecutor() {
+        if (sExecutor != null) {
+            return sExecutor;
+        }
+        if (sSharedExecutor == null) {
+            final AtomicInteger threadCount = new AtomicInteger();
+            sSharedExecutor =
+                    Executors.newFixedThreadPool(
+                            MAX_CONCURRENT_OPERATIONS,
+                            runnable ->
+                                    new Thread(
+                                            () -> {
+                                                Process.setThreadPriority(
+                                                        Process.THREAD_PRIORITY_BACKGROUND);
+                                                runnable.run();
+                                            },
+                                            TAG + "-" + threadCount.incrementAndGet()));
+        }
+        return sSharedExecutor;
     }
 }
@@ -29,10 +29,12 @@ import com.android.settings.activityembedding.ActivityEmbeddingRulesController;
 import com.android.settings.activityembedding.ActivityEmbeddingUtils;
 import com.android.settings.core.instrumentation.ElapsedTimeUtils;
 import com.android.settings.fuelgauge.BatterySettingsStorage;
+import com.android.settings.homepage.HomepageSnapshot;
 import com.android.settings.homepage.SettingsHomepageActivity;
 import com.android.settings.overlay.FeatureFactory;
 import com.android.settings.overlay.FeatureFactoryImpl;
 import com.android.settings.spa.SettingsSpaEnvironment;
+import com.android.settings.users.UserTopologyCache;
 import com.android.settingslib.applications.AppIconCacheManager;
 import com.android.settingslib.datastore.BackupRestoreStorageManager;
 import com.android.settingslib.spa.framework.common.SpaEnvironmentFactory;
@@ -58,6 +60,12 @@ public class SettingsApplication extends Application {
 
         BackupRestoreStorageManager.getInstance(this).add(new BatterySettingsStorage(this));
 
+        // Profile lookups are made by many controllers on every page load, share one snapshot.
+        UserTopologyCache.start(this);
+
+        // Read the homepage snapshot before the homepage asks for it on its first frame.
+        HomepageSnapshot.preload(this);
+
         // Add null checking to avoid test case failed.
         if (getApplicationContext() != null) {
             ElapsedTimeUtils.assignSuwFinishedTimeStamp(getApplicationContext());
@@ -37,6 +37,7 @@ import android.util.Log;
 import androidx.annotation.VisibleForTesting;
 
 import com.android.settings.applications.ProcStatsData;
+import com.android.settings.core.instrumentation.PageLatencyTracer;
 import com.android.settings.datausage.lib.DataUsageLib;
 import com.android.settings.network.MobileNetworkRepository;
 import com.android.settingslib.net.DataUsageController;
@@ -48,6 +49,21 @@ import org.json.JSONObject;
 import java.io.File;
 import java.io.FileDescriptor;
 import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
 
 public class SettingsDumpService extends Service {
 
@@ -67,10 +83,29 @@ public class SettingsDumpService extends Service {
     @VisibleForTesting
     static final String KEY_ANOMALY_DETECTION = "anomaly_detection";
     @VisibleForTesting
+    static final String KEY_PAGE_LATENCY = "page_latency";
+    @VisibleForTesting
+    static final String KEY_COLLECTION_MS = "collection_ms";
+    @VisibleForTesting
+    static final String KEY_ERROR = "error";
+    @VisibleForTesting
     static final Intent BROWSER_INTENT =
             new Intent("android.intent.action.VIEW", Uri.parse("http://"));
 
+    // Sections are collected concurrently on at most this many threads.
+    private static final int MAX_COLLECTOR_THREADS = 4;
+    private static final long COLLECTOR_KEEP_ALIVE_MS = 30_000L;
+    private static final long DEFAULT_SECTION_TIMEOUT_MS = 2000L;
+    // Proc stats and per-subscription network stats can take several seconds on a busy device.
+    private static final long SLOW_SECTION_TIMEOUT_MS = 5000L;
+
+    private static ExecutorService sCollectorExecutor;
+
     private boolean mShouldShowNetworkDump = false;
+    // Clock the section deadlines are measured with, in milliseconds. Based on System.nanoTime()
+    // so that deadlines also expire under a paused test looper; tests may replace it.
+    @VisibleForTesting
+    LongSupplier mClockMs = SettingsDumpService::monotonicMillis;
 
     @Override
     public int onStartCommand(Intent intent, int flags, int startId) {
@@ -85,30 +120,267 @@ public class SettingsDumpService extends Service {
         return null;
     }
 
+    /**
+     * Dumps the settings state as a single JSON object, in the same format as before sections
+     * were introduced. Sections are collected concurrently and each is written as soon as it is
+     * ready, in completion order. A section that misses its deadline or fails is reported under
+     * {@link #KEY_ERROR} instead of holding up or dropping the rest of the dump. The time taken by each section is reported under {@link #KEY_COLLECTION_MS}.
+     *
+     * <p>Passing section names as arguments, e.g. {@code dumpsys activity service
+     * com.android.settings/.SettingsDumpService storage memory}, dumps only those sections, each
+     * printed as its own JSON object on one line as soon as it is ready.
+     */
     @Override
     protected void dump(FileDescriptor fd, PrintWriter writer, String[] args) {
         IndentingPrintWriter pw = new IndentingPrintWriter(writer, "  ");
         if (!mShouldShowNetworkDump) {
-            JSONObject dump = new JSONObject();
             pw.println(TAG + ": ");
             pw.increaseIndent();
-            try {
-                dump.put(KEY_SERVICE, "Settings State");
-                dump.put(KEY_STORAGE, dumpStorage());
-                dump.put(KEY_DATAUSAGE, dumpDataUsage());
-                dump.put(KEY_MEMORY, dumpMemory());
-                dump.put(KEY_DEFAULT_BROWSER_APP, dumpDefaultBrowser());
-            } catch (Exception e) {
-                Log.w(TAG, "exception in dump: ", e);
+            final List<DumpSection> selected = selectSections(pw, args);
+            if (selected.isEmpty()) {
+                dumpAll(pw, new ArrayList<>(getSections().values()));
+            } else {
+                dumpSections(pw, selected);
             }
-            pw.println(dump);
-            pw.flush();
             pw.decreaseIndent();
         } else {
             dumpMobileNetworkSettings(pw);
         }
     }
 
+    /** Returns the sections that can be dumped, in their default order. */
+    @VisibleForTesting
+    Map<String, DumpSection> getSections() {
+        final Map<String, DumpSection> sections = new LinkedHashMap<>();
+        sections.put(KEY_STORAGE,
+                new DumpSection(KEY_STORAGE, this::dumpStorage, DEFAULT_SECTION_TIMEOUT_MS));
+        sections.put(KEY_DATAUSAGE,
+                new DumpSection(KEY_DATAUSAGE, this::dumpDataUsage, SLOW_SECTION_TIMEOUT_MS));
+        sections.put(KEY_MEMORY,
+                new DumpSection(KEY_MEMORY, this::dumpMemory, SLOW_SECTION_TIMEOUT_MS));
+        sections.put(KEY_DEFAULT_BROWSER_APP, new DumpSection(KEY_DEFAULT_BROWSER_APP,
+                this::dumpDefaultBrowser, DEFAULT_SECTION_TIMEOUT_MS));
+        sections.put(KEY_PAGE_LATENCY, new DumpSection(KEY_PAGE_LATENCY,
+                () -> PageLatencyTracer.getInstance().toJson(), DEFAULT_SECTION_TIMEOUT_MS));
+        return sections;
+    }
+
+    /** Returns the sections named in {@code args}, or an empty list if none were named. */
+    private List<DumpSection> selectSections(IndentingPrintWriter pw, String[] args) {
+        final Map<String, DumpSection> sections = getSections();
+        final List<DumpSection> selected = new ArrayList<>();
+        if (args != null) {
+            for (String arg : args) {
+                if (arg == null || arg.startsWith("-")) {
+                    continue;
+                }
+                final DumpSection section = sections.get(arg);
+                if (section == null) {
+                    pw.println("Unknown section: " + arg);
+                } else if (!selected.contains(section)) {
+                    selected.add(section);
+                }
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * Dumps {@code sections} as one JSON object on a single line. Each section is written as soon
+     * as it completes, so the object is only closed once all of them completed or timed out.
+     */
+    @VisibleForTesting
+    void dumpAll(IndentingPrintWriter pw, List<DumpSection> sections) {
+        final JSONObject collectionMs = new JSONObject();
+        final JSONObject errors = new JSONObject();
+        pw.print("{" + member(KEY_SERVICE, "Settings State"));
+        pw.flush();
+        collectSections(sections, result -> {
+            pw.print("," + member(result.mKey,
+                    result.mValue == null ? JSONObject.NULL : result.mValue));
+            pw.flush();
+            try {
+                collectionMs.put(result.mKey, result.mCollectionMs);
+                if (result.mError != null) {
+                    errors.put(result.mKey, result.mError);
+                }
+            } catch (JSONException e) {
+                Log.w(TAG, "exception in dump: ", e);
+            }
+        });
+        pw.print("," + member(KEY_COLLECTION_MS, collectionMs));
+        if (errors.length() > 0) {
+            pw.print("," + member(KEY_ERROR, errors));
+        }
+        pw.println("}");
+        pw.flush();
+    }
+
+    /** Returns {@code "key":value} as it would appear inside a JSON object. */
+    private static String member(String key, Object value) {
+        try {
+            final String obj = new JSONObject().put(key, value).toString();
+            return obj.substring(1, obj.length() - 1);
+        } catch (JSONException e) {
+            Log.w(TAG, "exception in dump: ", e);
+            return JSONObject.quote(key) + ":null";
+        }
+    }
+
+    /** Dumps {@code sections} as one JSON object per section and line, as each completes. */
+    @VisibleForTesting
+    void dumpSections(IndentingPrintWriter pw, List<DumpSection> sections) {
+        collectSections(sections, result -> printSection(pw, result));
+    }
+
+    /**
+     * Collects {@code sections} concurrently and hands each result to {@code onResult} on the
+     * calling thread, in completion order. Sections that miss their deadline are cancelled and
+     * handed over as timed out.
+     */
+    private void collectSections(List<DumpSection> sections, Consumer<SectionResult> onResult) {
+        if (sections.isEmpty()) {
+            return;
+        }
+        final CompletionService<SectionResult> completionService =
+                new ExecutorCompletionService<>(getCollectorExecutor());
+        final long startMs = mClockMs.getAsLong();
+        final Map<Future<SectionResult>, DumpSection> pending = new LinkedHashMap<>();
+        for (DumpSection section : sections) {
+            pending.put(completionService.submit(section), section);
+        }
+
+        try {
+            while (!pending.isEmpty()) {
+                long nextDeadlineMs = Long.MAX_VALUE;
+                for (DumpSection section : pending.values()) {
+                    nextDeadlineMs = Math.min(nextDeadlineMs, startMs + section.mTimeoutMs);
+                }
+                final Future<SectionResult> done = completionService.poll(
+                        Math.max(0L, nextDeadlineMs - mClockMs.getAsLong()),
+                        TimeUnit.MILLISECONDS);
+                if (done != null) {
+                    onResult.accept(getResult(done, pending.remove(done)));
+                    continue;
+                }
+                // Give up on every section whose deadline has passed.
+                final long nowMs = mClockMs.getAsLong();
+                final List<Future<SectionResult>> expired = new ArrayList<>();
+                for (Map.Entry<Future<SectionResult>, DumpSection> entry : pending.entrySet()) {
+                    if (nowMs >= startMs + entry.getValue().mTimeoutMs) {
+                        expired.add(entry.getKey());
+                    }
+                }
+                for (Future<SectionResult> future : expired) {
+                    final DumpSection section = pending.remove(future);
+                    future.cancel(true /* mayInterruptIfRunning */);
+                    onResult.accept(SectionResult.error(section.mKey,
+                            "timed out after " + section.mTimeoutMs + "ms", nowMs - startMs));
+                }
+            }
+        } catch (InterruptedException e) {
+            Log.w(TAG, "dump interrupted", e);
+            Thread.currentThread().interrupt();
+        } finally {
+            // Do not leave anything running on the shared pool once the dump is over.
+            for (Future<SectionResult> future : pending.keySet()) {
+                future.cancel(true /* mayInterruptIfRunning */);
+            }
+        }
+    }
+
+    private static synchronized ExecutorService getCollectorExecutor() {
+        if (sCollectorExecutor == null) {
+            final ThreadPoolExecutor executor = new ThreadPoolExecutor(MAX_COLLECTOR_THREADS,
+                    MAX_COLLECTOR_THREADS, COLLECTOR_KEEP_ALIVE_MS, TimeUnit.MILLISECONDS,
+                    new LinkedBlockingQueue<>());
+            executor.allowCoreThreadTimeOut(true);
+            sCollectorExecutor = executor;
+        }
+        return sCollectorExecutor;
+    }
+
+    private static SectionResult getResult(Future<SectionResult> future, DumpSection section) {
+        try {
+            return future.get();
+        } catch (ExecutionException | InterruptedException e) {
+            // DumpSection catches collector failures, so this is not expected to happen.
+            Log.w(TAG, "exception in dump: ", e);
+            return SectionResult.error(section.mKey, String.valueOf(e), 0L);
+        }
+    }
+
+    private static void printSection(IndentingPrintWriter pw, SectionResult result) {
+        final JSONObject obj = new JSONObject();
+        try {
+            if (result.mError != null) {
+                obj.put(result.mKey, JSONObject.NULL);
+                obj.put(KEY_ERROR, result.mError);
+            } else {
+                obj.put(result.mKey, result.mValue == null ? JSONObject.NULL : result.mValue);
+            }
+            obj.put(KEY_COLLECTION_MS, result.mCollectionMs);
+        } catch (JSONException e) {
+            Log.w(TAG, "exception in dump: ", e);
+        }
+        pw.println(obj);
+        pw.flush();
+    }
+
+    private static long monotonicMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
+    }
+
+    /** Collects the value of one section of the dump. */
+    @VisibleForTesting
+    interface SectionCollector {
+        Object collect() throws Exception;
+    }
+
+    /** A named part of the dump, collected independently from the others. */
+    @VisibleForTesting
+    static class DumpSection implements Callable<SectionResult> {
+        final String mKey;
+        final long mTimeoutMs;
+        private final SectionCollector mCollector;
+
+        DumpSection(String key, SectionCollector collector, long timeoutMs) {
+            mKey = key;
+            mCollector = collector;
+            mTimeoutMs = timeoutMs;
+        }
+
+        @Override
+        public SectionResult call() {
+            final long startMs = monotonicMillis();
+            try {
+                final Object value = mCollector.collect();
+                return new SectionResult(mKey, value, null, monotonicMillis() - startMs);
+            } catch (Exception e) {
+                Log.w(TAG, "exception in dump section " + mKey, e);
+                return SectionResult.error(mKey, String.valueOf(e), monotonicMillis() - startMs);
+            }
+        }
+    }
+
+    static class SectionResult {
+        final String mKey;
+        final Object mValue;
+        final String mError;
+        final long mCollectionMs;
+
+        SectionResult(String key, Object value, String error, long collectionMs) {
+            mKey = key;
+            mValue = value;
+            mError = error;
+            mCollectionMs = collectionMs;
+        }
+
+        static SectionResult error(String key, String error, long collectionMs) {
+            return new SectionResult(key, null, error, collectionMs);
+        }
+    }
+
     private JSONObject dumpMemory() throws JSONException {
         JSONObject obj = new JSONObject();
         ProcStatsData statsManager = new ProcStatsData(this, false);
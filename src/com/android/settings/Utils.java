@@ -116,6 +116,7 @@ import com.android.settings.dashboard.profileselector.ProfileFragmentBridge;
 import com.android.settings.dashboard.profileselector.ProfileSelectFragment;
 import com.android.settings.dashboard.profileselector.ProfileSelectFragment.ProfileType;
 import com.android.settings.password.ChooseLockSettingsHelper;
+import com.android.settings.users.UserTopologyCache;
 import com.android.settingslib.widget.ActionBarShadowController;
 import com.android.settingslib.widget.AdaptiveIcon;
 
@@ -377,6 +378,16 @@ public final class Utils extends com.android.settingslib.Utils {
      * exists but it is disabled.
      */
     public static UserHandle getManagedProfile(UserManager userManager) {
+        final UserTopologyCache topology = UserTopologyCache.getInstance();
+        if (topology != null) {
+            final int userId = userManager.getProcessUserId();
+            for (UserInfo profile : topology.getProfiles(userManager, userId)) {
+                if (profile.id != userId && profile.isEnabled() && profile.isManagedProfile()) {
+                    return profile.getUserHandle();
+                }
+            }
+            return null;
+        }
         final List<UserHandle> userProfiles = userManager.getUserProfiles();
         for (UserHandle profile : userProfiles) {
             if (profile.getIdentifier() == userManager.getProcessUserId()) {
@@ -397,8 +408,19 @@ public final class Utils extends com.android.settingslib.Utils {
     @Nullable
     public static UserHandle getProfileOfType(
             @NonNull UserManager userManager, @ProfileType int userType) {
-        final List<UserHandle> userProfiles = userManager.getUserProfiles();
         String umUserType = getUmUserType(userType);
+        final UserTopologyCache topology = UserTopologyCache.getInstance();
+        if (topology != null) {
+            for (UserInfo profile :
+                    topology.getProfiles(userManager, userManager.getProcessUserId())) {
+                if (profile.id != UserHandle.myUserId() && profile.isEnabled()
+                        && Objects.equals(umUserType, profile.userType)) {
+                    return profile.getUserHandle();
+                }
+            }
+            return null;
+        }
+        final List<UserHandle> userProfiles = userManager.getUserProfiles();
         for (UserHandle profile : userProfiles) {
             if (profile.getIdentifier() == UserHandle.myUserId()) {
                 continue;
@@ -417,7 +439,7 @@ public final class Utils extends com.android.settingslib.Utils {
      */
     public static boolean doesProfileOfTypeExists(
             @NonNull UserManager userManager, @ProfileType int userType) {
-        final List<UserInfo> userProfiles = userManager.getProfiles(UserHandle.myUserId());
+        final List<UserInfo> userProfiles = getProfiles(userManager, UserHandle.myUserId());
         String umUserType = getUmUserType(userType);
         for (UserInfo profile : userProfiles) {
             if (Objects.equals(umUserType, profile.userType)) {
@@ -451,7 +473,7 @@ public final class Utils extends com.android.settingslib.Utils {
      * {@link #getManagedProfile} this method returns enabled and disabled managed profiles.
      */
     private static UserHandle getManagedProfileWithDisabled(UserManager um, int parentUserId) {
-        final List<UserInfo> profiles = um.getProfiles(parentUserId);
+        final List<UserInfo> profiles = getProfiles(um, parentUserId);
         final int count = profiles.size();
         for (int i = 0; i < count; i++) {
             final UserInfo profile = profiles.get(i);
@@ -463,6 +485,15 @@ public final class Utils extends com.android.settingslib.Utils {
         return null;
     }
 
+    /**
+     * Returns all the profiles of the given user, including disabled ones, from the process wide
+     * {@link UserTopologyCache} once it is started.
+     */
+    private static List<UserInfo> getProfiles(UserManager um, int userId) {
+        final UserTopologyCache topology = UserTopologyCache.getInstance();
+        return topology != null ? topology.getProfiles(um, userId) : um.getProfiles(userId);
+    }
+
     /**
      * Retrieves the id for the given user's managed profile.
      * Unlike {@link #getManagedProfile} this method returns enabled and disabled managed profiles.
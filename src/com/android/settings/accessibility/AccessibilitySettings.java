@@ -17,21 +17,17 @@
 package com.android.settings.accessibility;
 
 import android.accessibilityservice.AccessibilityServiceInfo;
-import android.accessibilityservice.AccessibilityShortcutInfo;
 import android.app.settings.SettingsEnums;
 import android.content.ComponentName;
 import android.content.Context;
-import android.content.pm.ActivityInfo;
-import android.content.pm.ServiceInfo;
 import android.hardware.input.InputManager;
 import android.os.Bundle;
 import android.os.Handler;
-import android.os.UserHandle;
 import android.provider.Settings;
 import android.text.TextUtils;
 import android.util.ArrayMap;
+import android.util.ArraySet;
 import android.view.InputDevice;
-import android.view.accessibility.AccessibilityManager;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.VisibleForTesting;
@@ -43,6 +39,7 @@ import com.android.internal.accessibility.util.AccessibilityUtils;
 import com.android.internal.content.PackageMonitor;
 import com.android.settings.R;
 import com.android.settings.accessibility.AccessibilityUtil.AccessibilityServiceFragmentType;
+import com.android.settings.accessibility.InstalledServiceListCache.ServiceList;
 import com.android.settings.dashboard.DashboardFragment;
 import com.android.settings.inputmethod.PhysicalKeyboardFragment;
 import com.android.settings.overlay.FeatureFactory;
@@ -51,11 +48,16 @@ import com.android.settingslib.RestrictedPreference;
 import com.android.settingslib.core.AbstractPreferenceController;
 import com.android.settingslib.search.SearchIndexable;
 import com.android.settingslib.search.SearchIndexableRaw;
+import com.android.settingslib.utils.ThreadUtils;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Executor;
 
 /** Activity with the accessibility settings. */
 @SearchIndexable(forTarget = SearchIndexable.ALL & ~SearchIndexable.ARC)
@@ -118,34 +120,51 @@ public class AccessibilitySettings extends DashboardFragment implements
     private final PackageMonitor mSettingsPackageMonitor = new PackageMonitor() {
         @Override
         public void onPackageAdded(String packageName, int uid) {
-            sendUpdate();
+            sendUpdate(packageName);
         }
 
         @Override
         public void onPackageModified(@NonNull String packageName) {
-            sendUpdate();
+            sendUpdate(packageName);
         }
 
         @Override
         public void onPackageAppeared(String packageName, int reason) {
-            sendUpdate();
+            sendUpdate(packageName);
         }
 
         @Override
         public void onPackageDisappeared(String packageName, int reason) {
-            sendUpdate();
+            sendUpdate(packageName);
         }
 
         @Override
         public void onPackageRemoved(String packageName, int uid) {
-            sendUpdate();
+            sendUpdate(packageName);
         }
 
-        private void sendUpdate() {
+        private void sendUpdate(String packageName) {
+            mChangedPackages.add(packageName);
             mHandler.postDelayed(mUpdateRunnable, DELAY_UPDATE_SERVICES_MILLIS);
         }
     };
 
+    // Packages added, changed or removed since the service preferences were last rebuilt. Rows of
+    // these packages are always replaced, other rows are only replaced when their state differs.
+    private final Set<String> mChangedPackages = new ArraySet<>();
+    // Runs the loading of installed services, which reads labels and icons of every service,
+    // away from the main thread.
+    private Executor mServiceListExecutor = ThreadUtils::postOnBackgroundThread;
+    // The snapshot the service preferences were last built from.
+    private ServiceList mAppliedServiceList;
+    // Whether the services were loaded since this page was created. Packages may have changed
+    // while no page was monitoring them, so a snapshot from before is only shown until then.
+    private boolean mServiceListLoaded;
+    private boolean mServiceListLoading;
+    // Set when services or their state changed, so the services are loaded again. A change that
+    // arrives while a load is running makes it be redone.
+    private boolean mServiceListInvalidated;
+
     @VisibleForTesting
     final AccessibilitySettingsContentObserver mSettingsContentObserver;
 
@@ -306,6 +325,7 @@ public class AccessibilitySettings extends DashboardFragment implements
 
     @VisibleForTesting
     void onContentChanged() {
+        mServiceListInvalidated = true;
         // If the fragment is visible then update preferences immediately, else set the flag then
         // wait for the fragment to show up to update preferences.
         if (mIsForeground) {
@@ -358,18 +378,80 @@ public class AccessibilitySettings extends DashboardFragment implements
         mSettingsContentObserver.unregister(getContentResolver());
     }
 
+    /**
+     * Applies the installed accessibility services to the service categories. The services are
+     * taken from the snapshot shared with earlier instances of this page, if any, and loaded
+     * again in the background once per page and whenever packages or their state changed. The
+     * rows already on screen stay until the new list is ready, and only rows whose content
+     * changed are replaced.
+     */
     protected void updateServicePreferences() {
-        // Since services category is auto generated we have to do a pass
-        // to generate it since services can come and go and then based on
-        // the global accessibility state to decided whether it is enabled.
-        final ArrayList<Preference> servicePreferences =
-                new ArrayList<>(mServicePreferenceToPreferenceCategoryMap.keySet());
-        for (int i = 0; i < servicePreferences.size(); i++) {
-            Preference service = servicePreferences.get(i);
-            PreferenceCategory category = mServicePreferenceToPreferenceCategoryMap.get(service);
-            category.removePreference(service);
+        final ServiceList cached = InstalledServiceListCache.get();
+        if (cached != null && cached != mAppliedServiceList) {
+            applyServiceList(cached, Collections.emptySet());
+        }
+        if (!mServiceListLoaded || mServiceListInvalidated || !mChangedPackages.isEmpty()) {
+            reloadServiceList();
+        }
+    }
+
+    @VisibleForTesting
+    void setServiceListExecutor(Executor executor) {
+        mServiceListExecutor = executor;
+    }
+
+    private void reloadServiceList() {
+        if (mServiceListLoading) {
+            // The running load is redone on completion if anything changed in the meantime.
+            return;
+        }
+        final Context prefContext = getPrefContext();
+        final Set<String> changedPackages = new ArraySet<>(mChangedPackages);
+        mChangedPackages.clear();
+        mServiceListInvalidated = false;
+        mServiceListLoading = true;
+        mServiceListExecutor.execute(() -> {
+            final ServiceList serviceList = InstalledServiceListCache.load(prefContext);
+            if (ThreadUtils.isMainThread()) {
+                onServiceListLoaded(serviceList, changedPackages);
+            } else {
+                ThreadUtils.postOnMainThread(
+                        () -> onServiceListLoaded(serviceList, changedPackages));
+            }
+        });
+    }
+
+    private void onServiceListLoaded(ServiceList serviceList, Set<String> changedPackages) {
+        mServiceListLoading = false;
+        if (getActivity() == null || getPreferenceScreen() == null) {
+            return;
+        }
+        if (mServiceListInvalidated || !mChangedPackages.isEmpty()) {
+            // Keep the packages to replace and load again with the latest state.
+            mChangedPackages.addAll(changedPackages);
+            reloadServiceList();
+            return;
         }
+        mServiceListLoaded = true;
+        applyServiceList(serviceList, changedPackages);
+    }
+
+    private void applyServiceList(ServiceList serviceList, Set<String> changedPackages) {
+        mAppliedServiceList = serviceList;
+        // Preferences are UI objects, so they are only ever created here on the main thread.
+        final RestrictedPreferenceHelper preferenceHelper =
+                new RestrictedPreferenceHelper(getPrefContext());
+        final List<RestrictedPreference> preferenceList = new ArrayList<>(
+                preferenceHelper.createAccessibilityActivityPreferenceList(
+                        serviceList.mShortcuts, serviceList.mLabels, serviceList.mIcons));
+        preferenceList.addAll(preferenceHelper.createAccessibilityServicePreferenceList(
+                serviceList.mServices, serviceList.mLabels, serviceList.mIcons));
+        applyServicePreferences(preferenceList, changedPackages);
+    }
 
+    @VisibleForTesting
+    void applyServicePreferences(List<RestrictedPreference> preferenceList,
+            Set<String> changedPackages) {
         initializePreBundledServicesMapFromArray(CATEGORY_SCREEN_READER,
                 R.array.config_preinstalled_screen_reader_services);
         initializePreBundledServicesMapFromArray(CATEGORY_CAPTIONS,
@@ -389,12 +471,15 @@ public class AccessibilitySettings extends DashboardFragment implements
                 AccessibilityUtils.ACCESSIBILITY_MENU_IN_SYSTEM,
                 mCategoryToPrefCategoryMap.get(CATEGORY_INTERACTION_CONTROL));
 
-        final List<RestrictedPreference> preferenceList = getInstalledAccessibilityList(
-                getPrefContext());
-
         final PreferenceCategory downloadedServicesCategory =
                 mCategoryToPrefCategoryMap.get(CATEGORY_DOWNLOADED_SERVICES);
 
+        // Index the rows currently shown so that unchanged ones can be kept as they are.
+        final Map<String, Preference> currentPreferences = new ArrayMap<>();
+        for (Preference preference : mServicePreferenceToPreferenceCategoryMap.keySet()) {
+            currentPreferences.put(preference.getKey(), preference);
+        }
+
         for (int i = 0, count = preferenceList.size(); i < count; ++i) {
             final RestrictedPreference preference = preferenceList.get(i);
             final ComponentName componentName = preference.getExtras().getParcelable(
@@ -404,10 +489,28 @@ public class AccessibilitySettings extends DashboardFragment implements
             if (mPreBundledServiceComponentToCategoryMap.containsKey(componentName)) {
                 prefCategory = mPreBundledServiceComponentToCategoryMap.get(componentName);
             }
+
+            final Preference current = currentPreferences.remove(preference.getKey());
+            if (current != null) {
+                final PreferenceCategory currentCategory =
+                        mServicePreferenceToPreferenceCategoryMap.get(current);
+                if (currentCategory == prefCategory
+                        && !changedPackages.contains(preference.getPackageName())
+                        && isSameServicePreference(current, preference)) {
+                    continue;
+                }
+                currentCategory.removePreference(current);
+                mServicePreferenceToPreferenceCategoryMap.remove(current);
+            }
             prefCategory.addPreference(preference);
             mServicePreferenceToPreferenceCategoryMap.put(preference, prefCategory);
         }
 
+        // Whatever is left is no longer installed.
+        for (Preference stale : currentPreferences.values()) {
+            mServicePreferenceToPreferenceCategoryMap.remove(stale).removePreference(stale);
+        }
+
         // Update the order of all the category according to the order defined in xml file.
         updateCategoryOrderFromArray(CATEGORY_SCREEN_READER,
                 R.array.config_order_screen_reader_services);
@@ -435,50 +538,45 @@ public class AccessibilitySettings extends DashboardFragment implements
         updatePreferenceCategoryVisibility(CATEGORY_KEYBOARD_OPTIONS);
     }
 
-    private List<RestrictedPreference> getInstalledAccessibilityList(Context context) {
-        final AccessibilityManager a11yManager = AccessibilityManager.getInstance(context);
-        final RestrictedPreferenceHelper preferenceHelper = new RestrictedPreferenceHelper(context);
-
-        final List<AccessibilityShortcutInfo> installedShortcutList =
-                a11yManager.getInstalledAccessibilityShortcutListAsUser(context,
-                        UserHandle.myUserId());
-
-        // Remove duplicate item here, new a ArrayList to copy unmodifiable list result
-        // (getInstalledAccessibilityServiceList).
-        final List<AccessibilityServiceInfo> installedServiceList = new ArrayList<>(
-                a11yManager.getInstalledAccessibilityServiceList());
-        installedServiceList.removeIf(
-                target -> containsTargetNameInList(installedShortcutList, target));
-
-        final List<RestrictedPreference> activityList =
-                preferenceHelper.createAccessibilityActivityPreferenceList(installedShortcutList);
-
-        final List<RestrictedPreference> serviceList =
-                preferenceHelper.createAccessibilityServicePreferenceList(installedServiceList);
-
-        final List<RestrictedPreference> preferenceList = new ArrayList<>();
-        preferenceList.addAll(activityList);
-        preferenceList.addAll(serviceList);
-
-        return preferenceList;
-    }
-
-    private boolean containsTargetNameInList(List<AccessibilityShortcutInfo> shortcutInfos,
-            AccessibilityServiceInfo targetServiceInfo) {
-        final ServiceInfo serviceInfo = targetServiceInfo.getResolveInfo().serviceInfo;
-        final String servicePackageName = serviceInfo.packageName;
-        final CharSequence serviceLabel = serviceInfo.loadLabel(getPackageManager());
-
-        for (int i = 0, count = shortcutInfos.size(); i < count; ++i) {
-            final ActivityInfo activityInfo = shortcutInfos.get(i).getActivityInfo();
-            final String activityPackageName = activityInfo.packageName;
-            final CharSequence activityLabel = activityInfo.loadLabel(getPackageManager());
-            if (servicePackageName.equals(activityPackageName)
-                    && serviceLabel.equals(activityLabel)) {
-                return true;
+    /**
+     * Returns whether a freshly loaded service preference shows the same thing as the one already
+     * on screen, so the existing row can be kept.
+     */
+    private static boolean isSameServicePreference(Preference current,
+            RestrictedPreference loaded) {
+        if (!(current instanceof RestrictedPreference)) {
+            return false;
+        }
+        final RestrictedPreference restricted = (RestrictedPreference) current;
+        return TextUtils.equals(restricted.getTitle(), loaded.getTitle())
+                && TextUtils.equals(restricted.getSummary(), loaded.getSummary())
+                && restricted.isEnabled() == loaded.isEnabled()
+                && restricted.isDisabledByAdmin() == loaded.isDisabledByAdmin()
+                && Objects.equals(restricted.getFragment(), loaded.getFragment())
+                && isSameExtras(restricted.getExtras(), loaded.getExtras());
+    }
+
+    private static boolean isSameExtras(Bundle current, Bundle loaded) {
+        if (current.size() != loaded.size()) {
+            return false;
+        }
+        for (String key : loaded.keySet()) {
+            // ResolveInfo has no equals(); it only changes with its package, which is covered
+            // by the changed packages.
+            if (EXTRA_RESOLVE_INFO.equals(key)) {
+                continue;
+            }
+            final Object currentValue = current.get(key);
+            final Object loadedValue = loaded.get(key);
+            if (currentValue instanceof CharSequence && loadedValue instanceof CharSequence) {
+                if (!TextUtils.equals((CharSequence) currentValue, (CharSequence) loadedValue)) {
+                    return false;
+                }
+            } else if (!Objects.equals(currentValue, loadedValue)) {
+                return false;
             }
         }
-        return false;
+        return true;
     }
 
     private void initializePreBundledServicesMapFromArray(String categoryKey, int key) {
@@ -0,0 +1,165 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.accessibility;
+
+import android.accessibilityservice.AccessibilityServiceInfo;
+import android.accessibilityservice.AccessibilityShortcutInfo;
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.pm.ActivityInfo;
+import android.content.pm.PackageManager;
+import android.content.pm.ResolveInfo;
+import android.content.pm.ServiceInfo;
+import android.graphics.drawable.Drawable;
+import android.os.UserHandle;
+import android.util.ArrayMap;
+import android.view.accessibility.AccessibilityManager;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+import androidx.annotation.WorkerThread;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Process wide snapshot of the installed accessibility shortcuts and services listed by
+ * {@link AccessibilitySettings}, together with their labels and icons.
+ *
+ * <p>Reopening the page shows the snapshot right away while it is loaded again in the background.
+ * The snapshot holds everything that has to be read from PackageManager for each row, so that the
+ * rows themselves can be built from it on the main thread.
+ */
+final class InstalledServiceListCache {
+
+    /** The installed shortcuts and services, with their labels and icons by component. */
+    static final class ServiceList {
+        final int mSequence;
+        final List<AccessibilityShortcutInfo> mShortcuts;
+        final List<AccessibilityServiceInfo> mServices;
+        final Map<ComponentName, CharSequence> mLabels;
+        // Only set for components that have an icon of their own.
+        final Map<ComponentName, Drawable> mIcons;
+
+        ServiceList(int sequence, List<AccessibilityShortcutInfo> shortcuts,
+                List<AccessibilityServiceInfo> services, Map<ComponentName, CharSequence> labels,
+                Map<ComponentName, Drawable> icons) {
+            mSequence = sequence;
+            mShortcuts = Collections.unmodifiableList(shortcuts);
+            mServices = Collections.unmodifiableList(services);
+            mLabels = Collections.unmodifiableMap(labels);
+            mIcons = Collections.unmodifiableMap(icons);
+        }
+    }
+
+    private static final Object sLock = new Object();
+
+    // Guarded by sLock.
+    private static int sLoadSequence;
+    private static ServiceList sServiceList;
+
+    private InstalledServiceListCache() {}
+
+    /** Returns the last loaded list, which may be out of date, or null if none was loaded. */
+    @Nullable
+    static ServiceList get() {
+        synchronized (sLock) {
+            return sServiceList;
+        }
+    }
+
+    /**
+     * Loads the installed shortcuts and services with their labels and icons, and keeps them as
+     * the latest snapshot.
+     */
+    @WorkerThread
+    static ServiceList load(Context context) {
+        final int sequence;
+        synchronized (sLock) {
+            sequence = ++sLoadSequence;
+        }
+
+        final AccessibilityManager a11yManager = AccessibilityManager.getInstance(context);
+        final PackageManager packageManager = context.getPackageManager();
+        final List<AccessibilityShortcutInfo> shortcuts =
+                a11yManager.getInstalledAccessibilityShortcutListAsUser(context,
+                        UserHandle.myUserId());
+        // Remove duplicate item here, new a ArrayList to copy unmodifiable list result
+        // (getInstalledAccessibilityServiceList).
+        final List<AccessibilityServiceInfo> services = new ArrayList<>(
+                a11yManager.getInstalledAccessibilityServiceList());
+        services.removeIf(target -> containsTargetNameInList(packageManager, shortcuts, target));
+
+        final Map<ComponentName, CharSequence> labels = new ArrayMap<>();
+        final Map<ComponentName, Drawable> icons = new ArrayMap<>();
+        for (int i = 0, count = shortcuts.size(); i < count; ++i) {
+            final AccessibilityShortcutInfo shortcut = shortcuts.get(i);
+            final ActivityInfo activityInfo = shortcut.getActivityInfo();
+            labels.put(shortcut.getComponentName(), activityInfo.loadLabel(packageManager));
+            if (activityInfo.getIconResource() != 0) {
+                icons.put(shortcut.getComponentName(), activityInfo.loadIcon(packageManager));
+            }
+        }
+        for (int i = 0, count = services.size(); i < count; ++i) {
+            final ResolveInfo resolveInfo = services.get(i).getResolveInfo();
+            final ComponentName componentName = new ComponentName(
+                    resolveInfo.serviceInfo.packageName, resolveInfo.serviceInfo.name);
+            labels.put(componentName, resolveInfo.loadLabel(packageManager));
+            if (resolveInfo.getIconResource() != 0) {
+                icons.put(componentName, resolveInfo.loadIcon(packageManager));
+            }
+        }
+
+        final ServiceList list = new ServiceList(sequence, new ArrayList<>(shortcuts), services,
+                labels, icons);
+        synchronized (sLock) {
+            // A load that started later must not be replaced by this one.
+            if (sServiceList == null || sServiceList.mSequence < sequence) {
+                sServiceList = list;
+            }
+        }
+        return list;
+    }
+
+    @VisibleForTesting
+    static void clear() {
+        synchronized (sLock) {
+            sServiceList = null;
+        }
+    }
+
+    private static boolean containsTargetNameInList(PackageManager packageManager,
+            List<AccessibilityShortcutInfo> shortcutInfos,
+            AccessibilityServiceInfo targetServiceInfo) {
+        final ServiceInfo serviceInfo = targetServiceInfo.getResolveInfo().serviceInfo;
+        final String servicePackageName = serviceInfo.packageName;
+        final CharSequence serviceLabel = serviceInfo.loadLabel(packageManager);
+
+        for (int i = 0, count = shortcutInfos.size(); i < count; ++i) {
+            final ActivityInfo activityInfo = shortcutInfos.get(i).getActivityInfo();
+            final String activityPackageName = activityInfo.packageName;
+            final CharSequence activityLabel = activityInfo.loadLabel(packageManager);
+            if (servicePackageName.equals(activityPackageName)
+                    && serviceLabel.equals(activityLabel)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
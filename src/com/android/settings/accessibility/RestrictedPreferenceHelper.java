@@ -33,6 +33,7 @@ import android.os.Bundle;
 import android.os.UserHandle;
 import android.text.TextUtils;
 
+import androidx.annotation.Nullable;
 import androidx.core.content.ContextCompat;
 
 import com.android.settings.R;
@@ -44,7 +45,9 @@ import com.android.settingslib.RestrictedPreference;
 import com.android.settingslib.accessibility.AccessibilityUtils;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -75,7 +78,18 @@ public class RestrictedPreferenceHelper {
      */
     public List<RestrictedPreference> createAccessibilityServicePreferenceList(
             List<AccessibilityServiceInfo> installedServices) {
+        return createAccessibilityServicePreferenceList(installedServices,
+                Collections.emptyMap(), Collections.emptyMap());
+    }
 
+    /**
+     * Creates the list of {@link RestrictedPreference} with the installedServices arguments,
+     * taking the labels and icons that were already loaded from {@code labels} and
+     * {@code icons}. Those missing are loaded here.
+     */
+    List<RestrictedPreference> createAccessibilityServicePreferenceList(
+            List<AccessibilityServiceInfo> installedServices,
+            Map<ComponentName, CharSequence> labels, Map<ComponentName, Drawable> icons) {
         final Set<ComponentName> enabledServices =
                 AccessibilityUtils.getEnabledServicesFromSettings(mContext);
         final List<String> permittedServices = mDpm.getPermittedAccessibilityServices(
@@ -93,16 +107,19 @@ public class RestrictedPreferenceHelper {
                     resolveInfo.serviceInfo.name);
 
             final String key = componentName.flattenToString();
-            final CharSequence title = resolveInfo.loadLabel(mPm);
+            final CharSequence title = labels.containsKey(componentName)
+                    ? labels.get(componentName) : resolveInfo.loadLabel(mPm);
             final boolean serviceEnabled = enabledServices.contains(componentName);
             final CharSequence summary = AccessibilitySettings.getServiceSummary(
                     mContext, info, serviceEnabled);
             final String fragment = getAccessibilityServiceFragmentTypeName(info);
 
-            Drawable icon = resolveInfo.loadIcon(mPm);
+            Drawable icon = copyIcon(icons.get(componentName));
             if (resolveInfo.getIconResource() == 0) {
                 icon = ContextCompat.getDrawable(mContext,
                         R.drawable.ic_accessibility_generic);
+            } else if (icon == null) {
+                icon = resolveInfo.loadIcon(mPm);
             }
 
             final RestrictedPreference preference = createRestrictedPreference(key, title,
@@ -143,6 +160,18 @@ public class RestrictedPreferenceHelper {
      */
     public List<RestrictedPreference> createAccessibilityActivityPreferenceList(
             List<AccessibilityShortcutInfo> installedShortcuts) {
+        return createAccessibilityActivityPreferenceList(installedShortcuts,
+                Collections.emptyMap(), Collections.emptyMap());
+    }
+
+    /**
+     * Creates the list of {@link RestrictedPreference} with the installedShortcuts arguments,
+     * taking the labels and icons that were already loaded from {@code labels} and
+     * {@code icons}. Those missing are loaded here.
+     */
+    List<RestrictedPreference> createAccessibilityActivityPreferenceList(
+            List<AccessibilityShortcutInfo> installedShortcuts,
+            Map<ComponentName, CharSequence> labels, Map<ComponentName, Drawable> icons) {
         final Set<ComponentName> enabledServices =
                 AccessibilityUtils.getEnabledServicesFromSettings(mContext);
         final List<String> permittedServices = mDpm.getPermittedAccessibilityServices(
@@ -158,14 +187,17 @@ public class RestrictedPreferenceHelper {
             final ComponentName componentName = info.getComponentName();
 
             final String key = componentName.flattenToString();
-            final CharSequence title = activityInfo.loadLabel(mPm);
+            final CharSequence title = labels.containsKey(componentName)
+                    ? labels.get(componentName) : activityInfo.loadLabel(mPm);
             final String summary = info.loadSummary(mPm);
             final String fragment =
                     LaunchAccessibilityActivityPreferenceFragment.class.getName();
 
-            Drawable icon = activityInfo.loadIcon(mPm);
+            Drawable icon = copyIcon(icons.get(componentName));
             if (activityInfo.getIconResource() == 0) {
                 icon = ContextCompat.getDrawable(mContext, R.drawable.ic_accessibility_generic);
+            } else if (icon == null) {
+                icon = activityInfo.loadIcon(mPm);
             }
 
             final RestrictedPreference preference = createRestrictedPreference(key, title,
@@ -197,6 +229,16 @@ public class RestrictedPreferenceHelper {
         return preferenceList;
     }
 
+    // Preloaded icons are shared by every page built from them, so each row gets its own copy.
+    @Nullable
+    private static Drawable copyIcon(@Nullable Drawable icon) {
+        if (icon == null) {
+            return null;
+        }
+        final Drawable.ConstantState state = icon.getConstantState();
+        return state != null ? state.newDrawable() : icon;
+    }
+
     private String getAccessibilityServiceFragmentTypeName(AccessibilityServiceInfo info) {
         final int type = AccessibilityUtil.getAccessibilityServiceFragmentType(info);
         switch (type) {
@@ -42,8 +42,6 @@ import com.android.settingslib.search.SearchIndexableRaw;
 
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
-import java.lang.reflect.Constructor;
-import java.lang.reflect.InvocationTargetException;
 import java.util.List;
 
 /**
@@ -131,18 +129,14 @@ public abstract class BasePreferenceController extends AbstractPreferenceControl
     /**
      * Instantiate a controller as specified controller type and user-defined key.
      * <p/>
-     * This is done through reflection. Do not use this method unless you know what you are doing.
+     * This goes through {@link PreferenceControllerFactories}, which falls back to reflection for
+     * unregistered controllers. Do not use this method unless you know what you are doing.
      */
     public static BasePreferenceController createInstance(Context context,
             String controllerName, String key) {
         try {
-            final Class<?> clazz = Class.forName(controllerName);
-            final Constructor<?> preferenceConstructor =
-                    clazz.getConstructor(Context.class, String.class);
-            final Object[] params = new Object[]{context, key};
-            return (BasePreferenceController) preferenceConstructor.newInstance(params);
-        } catch (ClassNotFoundException | NoSuchMethodException | InstantiationException |
-                IllegalArgumentException | InvocationTargetException | IllegalAccessException e) {
+            return PreferenceControllerFactories.create(context, controllerName, key);
+        } catch (ReflectiveOperationException | IllegalArgumentException e) {
             throw new IllegalStateException(
                     "Invalid preference controller: " + controllerName, e);
         }
@@ -151,16 +145,13 @@ public abstract class BasePreferenceController extends AbstractPreferenceControl
     /**
      * Instantiate a controller as specified controller type.
      * <p/>
-     * This is done through reflection. Do not use this method unless you know what you are doing.
+     * This goes through {@link PreferenceControllerFactories}, which falls back to reflection for
+     * unregistered controllers. Do not use this method unless you know what you are doing.
      */
     public static BasePreferenceController createInstance(Context context, String controllerName) {
         try {
-            final Class<?> clazz = Class.forName(controllerName);
-            final Constructor<?> preferenceConstructor = clazz.getConstructor(Context.class);
-            final Object[] params = new Object[]{context};
-            return (BasePreferenceController) preferenceConstructor.newInstance(params);
-        } catch (ClassNotFoundException | NoSuchMethodException | InstantiationException |
-                IllegalArgumentException | InvocationTargetException | IllegalAccessException e) {
+            return PreferenceControllerFactories.create(context, controllerName);
+        } catch (ReflectiveOperationException | IllegalArgumentException e) {
             throw new IllegalStateException(
                     "Invalid preference controller: " + controllerName, e);
         }
@@ -169,7 +160,8 @@ public abstract class BasePreferenceController extends AbstractPreferenceControl
     /**
      * Instantiate a controller as specified controller type and work profile
      * <p/>
-     * This is done through reflection. Do not use this method unless you know what you are doing.
+     * This goes through {@link PreferenceControllerFactories}, which falls back to reflection for
+     * unregistered controllers. Do not use this method unless you know what you are doing.
      *
      * @param context        application context
      * @param controllerName class name of the {@link BasePreferenceController}
@@ -178,20 +170,9 @@ public abstract class BasePreferenceController extends AbstractPreferenceControl
      */
     public static BasePreferenceController createInstance(Context context, String controllerName,
             String key, boolean isWorkProfile) {
-        try {
-            final Class<?> clazz = Class.forName(controllerName);
-            final Constructor<?> preferenceConstructor =
-                    clazz.getConstructor(Context.class, String.class);
-            final Object[] params = new Object[]{context, key};
-            final BasePreferenceController controller =
-                    (BasePreferenceController) preferenceConstructor.newInstance(params);
-            controller.setForWork(isWorkProfile);
-            return controller;
-        } catch (ClassNotFoundException | NoSuchMethodException | InstantiationException
-                | IllegalArgumentException | InvocationTargetException | IllegalAccessException e) {
-            throw new IllegalStateException(
-                    "Invalid preference controller: " + controllerName, e);
-        }
+        final BasePreferenceController controller = createInstance(context, controllerName, key);
+        controller.setForWork(isWorkProfile);
+        return controller;
     }
 
     public BasePreferenceController(Context context, String preferenceKey) {
@@ -0,0 +1,150 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.core;
+
+import android.content.Context;
+
+import androidx.annotation.VisibleForTesting;
+
+import java.lang.reflect.Constructor;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registry of the factories {@link BasePreferenceController#createInstance} builds controllers
+ * with, keyed by controller class name.
+ *
+ * <p>Pages that are built on every cold start, like the homepage, register their controllers
+ * with direct constructor references so that they never go through reflection. Any other
+ * controller is resolved through reflection the first time it is requested and the resolved
+ * constructor is kept, as is a missing constructor, so opening a page, binding a slice or indexing
+ * for search again only costs a map lookup.
+ */
+public final class PreferenceControllerFactories {
+
+    /** Creates a controller for a preference key. */
+    public interface KeyedFactory {
+        BasePreferenceController create(Context context, String key);
+    }
+
+    /** Creates a controller that defines its own preference key. */
+    public interface Factory {
+        BasePreferenceController create(Context context);
+    }
+
+    private static final Map<String, KeyedFactory> sKeyedFactories = new ConcurrentHashMap<>();
+    private static final Map<String, Factory> sFactories = new ConcurrentHashMap<>();
+    // Controllers known not to have a (Context) constructor.
+    private static final Set<String> sWithoutKeylessConstructor = ConcurrentHashMap.newKeySet();
+
+    private PreferenceControllerFactories() {}
+
+    /** Registers the factory used for {@code controllerName} with a preference key. */
+    public static void register(String controllerName, KeyedFactory factory) {
+        sKeyedFactories.put(controllerName, factory);
+    }
+
+    /** Registers the factory used for {@code controllerName} without a preference key. */
+    public static void register(String controllerName, Factory factory) {
+        sFactories.put(controllerName, factory);
+    }
+
+    /**
+     * Registers the factory used for {@code controllerName} with a preference key, for a
+     * controller that has no (Context) constructor.
+     */
+    public static void registerKeyedOnly(String controllerName, KeyedFactory factory) {
+        register(controllerName, factory);
+        sWithoutKeylessConstructor.add(controllerName);
+    }
+
+    static BasePreferenceController create(Context context, String controllerName, String key)
+            throws ReflectiveOperationException {
+        KeyedFactory factory = sKeyedFactories.get(controllerName);
+        if (factory == null) {
+            final Constructor<?> constructor =
+                    Class.forName(controllerName).getConstructor(Context.class, String.class);
+            factory = (c, k) -> newInstance(constructor, c, k);
+            sKeyedFactories.putIfAbsent(controllerName, factory);
+        }
+        try {
+            return factory.create(context, key);
+        } catch (ReflectiveFailure e) {
+            throw e.getCause();
+        }
+    }
+
+    static BasePreferenceController create(Context context, String controllerName)
+            throws ReflectiveOperationException {
+        Factory factory = sFactories.get(controllerName);
+        if (factory == null) {
+            if (sWithoutKeylessConstructor.contains(controllerName)) {
+                throw new NoSuchMethodException(controllerName + ".<init>(Context)");
+            }
+            final Constructor<?> constructor;
+            try {
+                constructor = Class.forName(controllerName).getConstructor(Context.class);
+            } catch (NoSuchMethodException e) {
+                sWithoutKeylessConstructor.add(controllerName);
+                throw e;
+            }
+            factory = c -> newInstance(constructor, c);
+            sFactories.putIfAbsent(controllerName, factory);
+        }
+        try {
+            return factory.create(context);
+        } catch (ReflectiveFailure e) {
+            throw e.getCause();
+        }
+    }
+
+    @VisibleForTesting
+    static void clear() {
+        sKeyedFactories.clear();
+        sFactories.clear();
+        sWithoutKeylessConstructor.clear();
+    }
+
+    @VisibleForTesting
+    public static boolean contains(String controllerName) {
+        return sKeyedFactories.containsKey(controllerName)
+                || sFactories.containsKey(controllerName);
+    }
+
+    // The factory interfaces cannot throw checked exceptions, so reflective failures are tunneled
+    // through ReflectiveFailure and rethrown by create().
+    private static BasePreferenceController newInstance(Constructor<?> constructor,
+            Object... params) {
+        try {
+            return (BasePreferenceController) constructor.newInstance(params);
+        } catch (ReflectiveOperationException e) {
+            throw new ReflectiveFailure(e);
+        }
+    }
+
+    private static final class ReflectiveFailure extends RuntimeException {
+        ReflectiveFailure(ReflectiveOperationException cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized ReflectiveOperationException getCause() {
+            return (ReflectiveOperationException) super.getCause();
+        }
+    }
+}
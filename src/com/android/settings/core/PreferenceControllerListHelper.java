@@ -23,12 +23,14 @@ import static com.android.settings.core.PreferenceXmlParserUtils.METADATA_KEY;
 import android.annotation.XmlRes;
 import android.content.Context;
 import android.os.Bundle;
+import android.os.SystemClock;
 import android.text.TextUtils;
 import android.util.Log;
 
 import androidx.annotation.NonNull;
 
 import com.android.settings.core.PreferenceXmlParserUtils.MetadataFlag;
+import com.android.settings.core.instrumentation.PageLatencyTracer;
 import com.android.settingslib.core.AbstractPreferenceController;
 
 import org.xmlpull.v1.XmlPullParserException;
@@ -52,6 +54,18 @@ public class PreferenceControllerListHelper {
     @NonNull
     public static List<BasePreferenceController> getPreferenceControllersFromXml(Context context,
             @XmlRes int xmlResId) {
+        return getPreferenceControllersFromXml(context, xmlResId, false /* recordCreationTime */);
+    }
+
+    /**
+     * Instantiates a list of controller based on xml definition.
+     *
+     * @param recordCreationTime whether to record how long each controller took to construct in
+     *                           {@link PageLatencyTracer}, for pages being shown to the user
+     */
+    @NonNull
+    public static List<BasePreferenceController> getPreferenceControllersFromXml(Context context,
+            @XmlRes int xmlResId, boolean recordCreationTime) {
         final List<BasePreferenceController> controllers = new ArrayList<>();
         List<Bundle> preferenceMetadata;
         try {
@@ -68,6 +82,7 @@ public class PreferenceControllerListHelper {
             if (TextUtils.isEmpty(controllerName)) {
                 continue;
             }
+            final long createStart = recordCreationTime ? SystemClock.elapsedRealtimeNanos() : 0L;
             BasePreferenceController controller;
             try {
                 controller = BasePreferenceController.createInstance(context, controllerName);
@@ -88,6 +103,10 @@ public class PreferenceControllerListHelper {
                     continue;
                 }
             }
+            if (recordCreationTime) {
+                PageLatencyTracer.getInstance().recordControllerCreation(controllerName,
+                        SystemClock.elapsedRealtimeNanos() - createStart);
+            }
             controllers.add(controller);
         }
         return controllers;
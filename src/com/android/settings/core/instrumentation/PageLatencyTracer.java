@@ -0,0 +1,332 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.core.instrumentation;
+
+import android.os.SystemClock;
+import android.os.Trace;
+import android.util.ArrayMap;
+
+import androidx.annotation.IntDef;
+import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.util.Map;
+
+/**
+ * Records where the time goes when a settings page is opened.
+ *
+ * <p>Each phase is emitted as a trace section, so it shows up in Perfetto captures, and is also
+ * folded into a small in-memory histogram per page so that the numbers can be read back from a
+ * production device through {@code dumpsys activity service SettingsDumpService}. Controller
+ * construction cost is kept the same way, and so is the updateState() time of each controller
+ * while a trace is being captured. Memory use is bounded:
+ * at most {@link #MAX_PAGES} pages and {@link #MAX_CONTROLLERS} controllers are tracked, later
+ * ones are only counted as dropped.
+ */
+public class PageLatencyTracer {
+
+    @Retention(RetentionPolicy.SOURCE)
+    @IntDef({PHASE_CREATE_CONTROLLERS, PHASE_INFLATE_XML, PHASE_DISPLAY_RESOURCE_TILES,
+            PHASE_REFRESH_DASHBOARD_TILES, PHASE_UPDATE_PREFERENCE_STATES, PHASE_FIRST_FRAME,
+            PHASE_FIRST_MEANINGFUL_FRAME, PHASE_SLICE_FIRST_CONTENT})
+    public @interface Phase {}
+
+    /** Constructing the controllers declared in code and in the preference XML. */
+    public static final int PHASE_CREATE_CONTROLLERS = 0;
+    /** Inflating the preference XML into the screen. */
+    public static final int PHASE_INFLATE_XML = 1;
+    /** Running displayPreference() on every controller. */
+    public static final int PHASE_DISPLAY_RESOURCE_TILES = 2;
+    /** Adding and binding injected tiles. */
+    public static final int PHASE_REFRESH_DASHBOARD_TILES = 3;
+    /** Running updateState() on every available controller. */
+    public static final int PHASE_UPDATE_PREFERENCE_STATES = 4;
+    /** From the page being attached until its first frame is about to draw. */
+    public static final int PHASE_FIRST_FRAME = 5;
+    /** From the homepage being created until the first frame showing its entries. */
+    public static final int PHASE_FIRST_MEANINGFUL_FRAME = 6;
+    /** From a panel requesting a Slice until the Slice first has content to show. */
+    public static final int PHASE_SLICE_FIRST_CONTENT = 7;
+
+    private static final String[] PHASE_NAMES = {
+            "createControllers",
+            "inflateXml",
+            "displayResourceTiles",
+            "refreshDashboardTiles",
+            "updatePreferenceStates",
+            "firstFrame",
+            "firstMeaningfulFrame",
+            "sliceFirstContent",
+    };
+
+    @VisibleForTesting
+    static final int MAX_PAGES = 64;
+    @VisibleForTesting
+    static final int MAX_CONTROLLERS = 512;
+    // Trace section names longer than this are rejected by the platform.
+    private static final int MAX_SECTION_NAME_LENGTH = 127;
+
+    private static PageLatencyTracer sInstance;
+
+    private final Object mLock = new Object();
+    private final Map<String, LatencyHistogram[]> mPages = new ArrayMap<>();
+    private final Map<String, LatencyHistogram> mControllers = new ArrayMap<>();
+    private final Map<String, LatencyHistogram> mControllerCreations = new ArrayMap<>();
+    private int mDroppedSamples;
+
+    /** Returns the process wide tracer. */
+    public static synchronized PageLatencyTracer getInstance() {
+        if (sInstance == null) {
+            sInstance = new PageLatencyTracer();
+        }
+        return sInstance;
+    }
+
+    @VisibleForTesting
+    PageLatencyTracer() {
+    }
+
+    /**
+     * Marks the start of a phase of the given page.
+     *
+     * @return the section to hand back to {@link #endPhase}
+     */
+    @NonNull
+    public Section beginPhase(@NonNull String page, @Phase int phase) {
+        return beginSection(page, PHASE_NAMES[phase]);
+    }
+
+    /** Marks the end of a phase started with {@link #beginPhase}. */
+    public void endPhase(@NonNull String page, @Phase int phase, @NonNull Section section) {
+        recordPhase(page, phase, section.end());
+    }
+
+    /**
+     * Records a phase measured by the caller, for phases that do not start and end in the same
+     * call stack such as {@link #PHASE_FIRST_FRAME}.
+     */
+    public void recordPhase(@NonNull String page, @Phase int phase, long durationNanos) {
+        synchronized (mLock) {
+            LatencyHistogram[] histograms = mPages.get(page);
+            if (histograms == null) {
+                if (mPages.size() >= MAX_PAGES) {
+                    mDroppedSamples++;
+                    return;
+                }
+                histograms = new LatencyHistogram[PHASE_NAMES.length];
+                mPages.put(page, histograms);
+            }
+            if (histograms[phase] == null) {
+                histograms[phase] = new LatencyHistogram();
+            }
+            histograms[phase].record(durationNanos);
+        }
+    }
+
+    /**
+     * Whether a trace is being captured. Measurements that cost more than the phases themselves,
+     * like timing every controller's updateState(), are only taken while it is.
+     */
+    public boolean isTracing() {
+        return Trace.isEnabled();
+    }
+
+    /** Marks the start of a single controller's updateState(). */
+    @NonNull
+    public Section beginControllerUpdate(@NonNull String controller) {
+        return beginSection(controller, "updateState");
+    }
+
+    /** Marks the end of a controller update started with {@link #beginControllerUpdate}. */
+    public void endControllerUpdate(@NonNull String controller, @NonNull Section section) {
+        final long durationNanos = section.end();
+        synchronized (mLock) {
+            recordLocked(mControllers, controller, durationNanos);
+        }
+    }
+
+    /**
+     * Records how long constructing a controller took. The caller measures the duration since
+     * the controller class is usually only known once it has been created.
+     */
+    public void recordControllerCreation(@NonNull String controller, long durationNanos) {
+        synchronized (mLock) {
+            recordLocked(mControllerCreations, controller, durationNanos);
+        }
+    }
+
+    private static Section beginSection(String owner, String what) {
+        final boolean traced = Trace.isEnabled();
+        if (traced) {
+            Trace.beginSection(sectionName(owner, what));
+        }
+        return new Section(SystemClock.elapsedRealtimeNanos(), traced);
+    }
+
+    private void recordLocked(Map<String, LatencyHistogram> histograms, String name,
+            long durationNanos) {
+        LatencyHistogram histogram = histograms.get(name);
+        if (histogram == null) {
+            if (histograms.size() >= MAX_CONTROLLERS) {
+                mDroppedSamples++;
+                return;
+            }
+            histogram = new LatencyHistogram();
+            histograms.put(name, histogram);
+        }
+        histogram.record(durationNanos);
+    }
+
+    /** Returns a snapshot of everything recorded so far, for dumpsys. */
+    public JSONObject toJson() throws JSONException {
+        final JSONObject obj = new JSONObject();
+        synchronized (mLock) {
+            final JSONObject pages = new JSONObject();
+            for (Map.Entry<String, LatencyHistogram[]> entry : mPages.entrySet()) {
+                final JSONObject phases = new JSONObject();
+                final LatencyHistogram[] histograms = entry.getValue();
+                for (int phase = 0; phase < histograms.length; phase++) {
+                    if (histograms[phase] != null) {
+                        phases.put(PHASE_NAMES[phase], histograms[phase].toJson());
+                    }
+                }
+                pages.put(entry.getKey(), phases);
+            }
+            obj.put("pages", pages);
+
+            obj.put("controllers", toJson(mControllers));
+            obj.put("controllerCreation", toJson(mControllerCreations));
+            obj.put("dropped", mDroppedSamples);
+        }
+        return obj;
+    }
+
+    private static JSONObject toJson(Map<String, LatencyHistogram> histograms)
+            throws JSONException {
+        final JSONObject obj = new JSONObject();
+        for (Map.Entry<String, LatencyHistogram> entry : histograms.entrySet()) {
+            obj.put(entry.getKey(), entry.getValue().toJson());
+        }
+        return obj;
+    }
+
+    @VisibleForTesting
+    LatencyHistogram getPhaseHistogram(String page, @Phase int phase) {
+        synchronized (mLock) {
+            final LatencyHistogram[] histograms = mPages.get(page);
+            return histograms == null ? null : histograms[phase];
+        }
+    }
+
+    @VisibleForTesting
+    LatencyHistogram getControllerHistogram(String controller) {
+        synchronized (mLock) {
+            return mControllers.get(controller);
+        }
+    }
+
+    @VisibleForTesting
+    LatencyHistogram getControllerCreationHistogram(String controller) {
+        synchronized (mLock) {
+            return mControllerCreations.get(controller);
+        }
+    }
+
+    private static String sectionName(String owner, String what) {
+        final String name = owner + "#" + what;
+        return name.length() > MAX_SECTION_NAME_LENGTH
+                ? name.substring(name.length() - MAX_SECTION_NAME_LENGTH) : name;
+    }
+
+    /**
+     * A phase or controller update in progress. Whether a trace section was opened is decided once
+     * at begin, so that tracing being toggled in between cannot unbalance the sections.
+     */
+    public static final class Section {
+        private final long mStartNanos;
+        private final boolean mTraced;
+
+        private Section(long startNanos, boolean traced) {
+            mStartNanos = startNanos;
+            mTraced = traced;
+        }
+
+        // Closes the trace section if one was opened and returns the elapsed time.
+        private long end() {
+            if (mTraced) {
+                Trace.endSection();
+            }
+            return Math.max(0, SystemClock.elapsedRealtimeNanos() - mStartNanos);
+        }
+    }
+
+    /**
+     * Histogram of durations with power-of-two millisecond buckets: [0, 1), [1, 2), [2, 4) ... and
+     * a last bucket for anything at or above 1024ms.
+     */
+    @VisibleForTesting
+    static class LatencyHistogram {
+        @VisibleForTesting
+        static final int BUCKET_COUNT = 12;
+
+        private final int[] mBuckets = new int[BUCKET_COUNT];
+        private int mCount;
+        private long mTotalNanos;
+        private long mMaxNanos;
+
+        void record(long durationNanos) {
+            final long millis = Math.max(0L, durationNanos / 1_000_000L);
+            final int bucket = millis == 0L
+                    ? 0 : Math.min(BUCKET_COUNT - 1, 64 - Long.numberOfLeadingZeros(millis));
+            mBuckets[bucket]++;
+            mCount++;
+            mTotalNanos += durationNanos;
+            mMaxNanos = Math.max(mMaxNanos, durationNanos);
+        }
+
+        int getCount() {
+            return mCount;
+        }
+
+        int getBucket(int index) {
+            return mBuckets[index];
+        }
+
+        long getMaxNanos() {
+            return mMaxNanos;
+        }
+
+        JSONObject toJson() throws JSONException {
+            final JSONObject obj = new JSONObject();
+            obj.put("count", mCount);
+            obj.put("avgMs", mCount == 0 ? 0 : mTotalNanos / mCount / 1_000_000L);
+            obj.put("maxMs", mMaxNanos / 1_000_000L);
+            final JSONArray buckets = new JSONArray();
+            for (int bucket : mBuckets) {
+                buckets.put(bucket);
+            }
+            obj.put("buckets", buckets);
+            return obj;
+        }
+    }
+}
@@ -21,6 +21,7 @@ import android.content.ContentResolver;
 import android.content.Context;
 import android.content.Intent;
 import android.os.Bundle;
+import android.os.SystemClock;
 import android.preference.PreferenceManager.OnActivityResultListener;
 import android.text.TextUtils;
 import android.util.ArrayMap;
@@ -31,6 +32,7 @@ import androidx.annotation.CallSuper;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.annotation.VisibleForTesting;
+import androidx.core.view.OneShotPreDrawListener;
 import androidx.lifecycle.LifecycleObserver;
 import androidx.lifecycle.LifecycleOwner;
 import androidx.preference.Preference;
@@ -46,6 +48,7 @@ import com.android.settings.core.BasePreferenceController;
 import com.android.settings.core.CategoryMixin.CategoryHandler;
 import com.android.settings.core.CategoryMixin.CategoryListener;
 import com.android.settings.core.PreferenceControllerListHelper;
+import com.android.settings.core.instrumentation.PageLatencyTracer;
 import com.android.settings.overlay.FeatureFactory;
 import com.android.settingslib.PrimarySwitchPreference;
 import com.android.settingslib.core.AbstractPreferenceController;
@@ -88,10 +91,16 @@ public abstract class DashboardFragment extends SettingsPreferenceFragment
     private DashboardTilePlaceholderPreferenceController mPlaceholderPreferenceController;
     private boolean mListeningToCategoryChange;
     private List<String> mSuppressInjectedTileKeys;
+    private final PageLatencyTracer mLatencyTracer = PageLatencyTracer.getInstance();
+    private long mAttachTimeNanos;
+    private boolean mFirstFrameReported;
 
     @Override
     public void onAttach(Context context) {
+        mAttachTimeNanos = SystemClock.elapsedRealtimeNanos();
         super.onAttach(context);
+        final PageLatencyTracer.Section createStart = mLatencyTracer.beginPhase(
+                getLatencyTag(), PageLatencyTracer.PHASE_CREATE_CONTROLLERS);
         mSuppressInjectedTileKeys = Arrays.asList(context.getResources().getStringArray(
                 R.array.config_suppress_injected_tile_keys));
         mDashboardFeatureProvider =
@@ -101,7 +110,8 @@ public abstract class DashboardFragment extends SettingsPreferenceFragment
                 createPreferenceControllers(context);
         // Load preference controllers from xml definition
         final List<BasePreferenceController> controllersFromXml = PreferenceControllerListHelper
-                .getPreferenceControllersFromXml(context, getPreferenceScreenResId());
+                .getPreferenceControllersFromXml(context, getPreferenceScreenResId(),
+                        true /* recordCreationTime */);
         // Filter xml-based controllers in case a similar controller is created from code already.
         final List<BasePreferenceController> uniqueControllerFromXml =
                 PreferenceControllerListHelper.filterControllers(
@@ -135,6 +145,8 @@ public abstract class DashboardFragment extends SettingsPreferenceFragment
         for (AbstractPreferenceController controller : mControllers) {
             addPreferenceController(controller);
         }
+        mLatencyTracer.endPhase(
+                getLatencyTag(), PageLatencyTracer.PHASE_CREATE_CONTROLLERS, createStart);
     }
 
     @VisibleForTesting
@@ -179,6 +191,12 @@ public abstract class DashboardFragment extends SettingsPreferenceFragment
         for (AbstractPreferenceController controller : mControllers) {
             controller.onViewCreated(viewLifecycleOwner);
         }
+        if (!mFirstFrameReported) {
+            mFirstFrameReported = true;
+            OneShotPreDrawListener.add(view, () -> mLatencyTracer.recordPhase(getLatencyTag(),
+                    PageLatencyTracer.PHASE_FIRST_FRAME,
+                    SystemClock.elapsedRealtimeNanos() - mAttachTimeNanos));
+        }
     }
 
     @Override
@@ -336,6 +354,13 @@ public abstract class DashboardFragment extends SettingsPreferenceFragment
      */
     protected abstract String getLogTag();
 
+    /**
+     * Name this page's timings are recorded under in {@link PageLatencyTracer}.
+     */
+    private String getLatencyTag() {
+        return getClass().getSimpleName();
+    }
+
     /**
      * Get a list of {@link AbstractPreferenceController} for this fragment.
      */
@@ -363,10 +388,18 @@ public abstract class DashboardFragment extends SettingsPreferenceFragment
         if (resId <= 0) {
             return;
         }
+        final String tag = getLatencyTag();
+        final PageLatencyTracer.Section inflateStart =
+                mLatencyTracer.beginPhase(tag, PageLatencyTracer.PHASE_INFLATE_XML);
         addPreferencesFromResource(resId);
+        mLatencyTracer.endPhase(tag, PageLatencyTracer.PHASE_INFLATE_XML, inflateStart);
         final PreferenceScreen screen = getPreferenceScreen();
         screen.setOnExpandButtonClickListener(this);
+        final PageLatencyTracer.Section displayStart =
+                mLatencyTracer.beginPhase(tag, PageLatencyTracer.PHASE_DISPLAY_RESOURCE_TILES);
         displayResourceTilesToScreen(screen);
+        mLatencyTracer.endPhase(
+                tag, PageLatencyTracer.PHASE_DISPLAY_RESOURCE_TILES, displayStart);
     }
 
     /**
@@ -389,6 +422,11 @@ public abstract class DashboardFragment extends SettingsPreferenceFragment
      * Update state of each preference managed by PreferenceController.
      */
     protected void updatePreferenceStates() {
+        final String tag = getLatencyTag();
+        final PageLatencyTracer.Section updateStart =
+                mLatencyTracer.beginPhase(tag, PageLatencyTracer.PHASE_UPDATE_PREFERENCE_STATES);
+        // Timing each controller is only worth its cost while a trace is being captured.
+        final boolean traceControllers = mLatencyTracer.isTracing();
         final PreferenceScreen screen = getPreferenceScreen();
         Collection<List<AbstractPreferenceController>> controllerLists =
                 mPreferenceControllers.values();
@@ -411,9 +449,19 @@ public abstract class DashboardFragment extends SettingsPreferenceFragment
                             key, controller.getClass().getSimpleName()));
                     continue;
                 }
+                if (!traceControllers) {
+                    controller.updateState(preference);
+                    continue;
+                }
+                final String controllerName = controller.getClass().getName();
+                final PageLatencyTracer.Section controllerStart =
+                        mLatencyTracer.beginControllerUpdate(controllerName);
                 controller.updateState(preference);
+                mLatencyTracer.endControllerUpdate(controllerName, controllerStart);
             }
         }
+        mLatencyTracer.endPhase(
+                tag, PageLatencyTracer.PHASE_UPDATE_PREFERENCE_STATES, updateStart);
     }
 
     /**
@@ -431,7 +479,11 @@ public abstract class DashboardFragment extends SettingsPreferenceFragment
         // Add resource based tiles.
         displayResourceTiles();
 
+        final PageLatencyTracer.Section tilesStart = mLatencyTracer.beginPhase(
+                getLatencyTag(), PageLatencyTracer.PHASE_REFRESH_DASHBOARD_TILES);
         refreshDashboardTiles(tag);
+        mLatencyTracer.endPhase(
+                getLatencyTag(), PageLatencyTracer.PHASE_REFRESH_DASHBOARD_TILES, tilesStart);
 
         final Activity activity = getActivity();
         if (activity != null) {
@@ -38,11 +38,13 @@ import android.net.Uri;
 import android.os.Bundle;
 import android.os.Handler;
 import android.os.Looper;
+import android.os.SystemClock;
 import android.os.SystemProperties;
 import android.os.UserManager;
 import android.provider.Settings;
 import android.text.TextUtils;
 import android.util.Log;
+import android.util.Pair;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -58,6 +60,7 @@ import com.android.settings.R;
 import com.android.settings.SettingsActivity;
 import com.android.settings.Utils;
 import com.android.settings.core.SubSettingLauncher;
+import com.android.settings.core.instrumentation.PageLatencyTracer;
 import com.android.settings.dashboard.RestrictedDashboardFragment;
 import com.android.settings.development.autofill.AutofillCategoryController;
 import com.android.settings.development.autofill.AutofillLoggingLevelPreferenceController;
@@ -628,7 +631,8 @@ public class DevelopmentSettingsDashboardFragment extends RestrictedDashboardFra
             @Nullable Activity activity, @Nullable Lifecycle lifecycle,
             @Nullable DevelopmentSettingsDashboardFragment fragment,
             @Nullable BluetoothA2dpConfigStore bluetoothA2dpConfigStore) {
-        final List<AbstractPreferenceController> controllers = new ArrayList<>();
+        // Only report construction cost when building the page, not for search indexing.
+        final TimedControllerList controllers = new TimedControllerList(fragment != null);
         controllers.add(new MemoryUsagePreferenceController(context));
         controllers.add(new BugReportPreferenceController(context));
         controllers.add(new BugReportHandlerPreferenceController(context));
@@ -748,8 +752,8 @@ public class DevelopmentSettingsDashboardFragment extends RestrictedDashboardFra
                 bluetoothA2dpConfigStore, fragment));
         controllers.add(new BluetoothSampleRateDialogPreferenceController(context, lifecycle,
                 bluetoothA2dpConfigStore));
-        controllers.add(new BluetoothBitPerSampleDialogPreferenceController(context, lifecycle,
-                bluetoothA2dpConfigStore));
+        controllers.add(new BluetoothBitPerSampleDialogPreferenceController(context,
+                lifecycle, bluetoothA2dpConfigStore));
         controllers.add(new BluetoothQualityDialogPreferenceController(context, lifecycle,
                 bluetoothA2dpConfigStore));
         controllers.add(new BluetoothChannelModeDialogPreferenceController(context, lifecycle,
@@ -768,7 +772,78 @@ public class DevelopmentSettingsDashboardFragment extends RestrictedDashboardFra
         controllers.add(new GrammaticalGenderPreferenceController(context));
         controllers.add(new SensitiveContentProtectionPreferenceController(context));
 
-        return controllers;
+        return controllers.finish();
+    }
+
+    /**
+     * Collects the developer options controllers and, when enabled, measures how long each one
+     * takes to construct. Many of them read system properties or talk to system services in
+     * their constructor, which makes this page slow to open; the costs are recorded in
+     * {@link PageLatencyTracer} and the slowest ones are logged.
+     */
+    @VisibleForTesting
+    static class TimedControllerList {
+        // Log the slowest controllers when constructing all of them takes longer than this.
+        private static final long SLOW_CREATION_MILLIS = 100L;
+        private static final int SLOWEST_CONTROLLERS_TO_LOG = 5;
+
+        private final List<AbstractPreferenceController> mControllers = new ArrayList<>();
+        private final boolean mTimed;
+        private final List<Pair<String, Long>> mCreationNanos = new ArrayList<>();
+        private long mTotalNanos;
+        private long mLastAddNanos;
+
+        TimedControllerList(boolean timed) {
+            mTimed = timed;
+            mLastAddNanos = timed ? SystemClock.elapsedRealtimeNanos() : 0L;
+        }
+
+        /**
+         * Adds a controller. When timed, its construction cost is taken as the time since the
+         * list was created or the previous controller was added. That is mostly the {@code new}
+         * expression passed in here, but also includes any code run between two adds, such as
+         * feature checks.
+         */
+        void add(AbstractPreferenceController controller) {
+            mControllers.add(controller);
+            if (!mTimed) {
+                return;
+            }
+            final long now = SystemClock.elapsedRealtimeNanos();
+            final long duration = now - mLastAddNanos;
+            mLastAddNanos = now;
+            mTotalNanos += duration;
+            final String name = controller.getClass().getName();
+            mCreationNanos.add(Pair.create(controller.getPreferenceKey(), duration));
+            PageLatencyTracer.getInstance().recordControllerCreation(name, duration);
+        }
+
+        List<AbstractPreferenceController> finish() {
+            if (mTimed && mTotalNanos / 1_000_000L >= SLOW_CREATION_MILLIS) {
+                Log.i(TAG, getCreationReport());
+            }
+            return mControllers;
+        }
+
+        /**
+         * Returns the total construction time and the slowest controllers by preference key. Each
+         * time is measured since the previous add, see {@link #add}.
+         */
+        @VisibleForTesting
+        String getCreationReport() {
+            final List<Pair<String, Long>> sorted = new ArrayList<>(mCreationNanos);
+            sorted.sort((lhs, rhs) -> Long.compare(rhs.second, lhs.second));
+            final StringBuilder sb = new StringBuilder()
+                    .append("Created ").append(mControllers.size()).append(" controllers in ")
+                    .append(mTotalNanos / 1_000_000L)
+                    .append("ms, slowest (time since previous add):");
+            for (int i = 0; i < Math.min(SLOWEST_CONTROLLERS_TO_LOG, sorted.size()); i++) {
+                final Pair<String, Long> entry = sorted.get(i);
+                sb.append(' ').append(entry.first).append('=')
+                        .append(entry.second / 1_000L).append("us");
+            }
+            return sb.toString();
+        }
     }
 
     @VisibleForTesting
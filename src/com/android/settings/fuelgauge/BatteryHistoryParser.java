@@ -0,0 +1,176 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.fuelgauge;
+
+import android.os.BatteryStats.HistoryItem;
+import android.os.BatteryUsageStats;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.WorkerThread;
+
+import com.android.internal.os.BatteryStatsHistoryIterator;
+
+import java.util.Arrays;
+
+/**
+ * Parses the battery history of {@link BatteryUsageStats} for {@link BatteryInfo} in a single
+ * pass.
+ *
+ * <p>While walking the history once, the wall clock anchors are tracked and the fields that
+ * {@link BatteryInfo.BatteryDataParser}s read are copied into compact arrays: time, command,
+ * current time, battery level, states and states2. The parsers are then fed from those arrays.
+ * Nothing is kept once {@link #parse} returns.
+ */
+public final class BatteryHistoryParser {
+
+    private static final int INITIAL_CAPACITY = 256;
+
+    // Copied fields of the parsed records.
+    private int mCount;
+    private long[] mTimes = new long[INITIAL_CAPACITY];
+    private long[] mCurrentTimes = new long[INITIAL_CAPACITY];
+    private int[] mStates = new int[INITIAL_CAPACITY];
+    private int[] mStates2 = new int[INITIAL_CAPACITY];
+    private byte[] mCmds = new byte[INITIAL_CAPACITY];
+    private byte[] mBatteryLevels = new byte[INITIAL_CAPACITY];
+
+    // Wall clock anchors of the parsed records.
+    private long mStartWalltime;
+    private long mHistoryStart;
+    private long mHistoryEnd;
+    private long mLastWallTime;
+    private long mLastRealtime;
+    private int mLastInteresting;
+
+    private BatteryHistoryParser() {}
+
+    /** Walks the battery history of {@code stats} once and feeds it to {@code parsers}. */
+    @WorkerThread
+    public static void parse(
+            @NonNull BatteryUsageStats stats, BatteryInfo.BatteryDataParser... parsers) {
+        final BatteryHistoryParser parser = new BatteryHistoryParser();
+        final BatteryStatsHistoryIterator iterator = stats.iterateBatteryStatsHistory();
+        HistoryItem rec;
+        while ((rec = iterator.next()) != null) {
+            parser.append(rec);
+        }
+        parser.replay(parsers);
+    }
+
+    private void append(HistoryItem rec) {
+        if (mCount == mTimes.length) {
+            final int capacity = mCount * 2;
+            mTimes = Arrays.copyOf(mTimes, capacity);
+            mCurrentTimes = Arrays.copyOf(mCurrentTimes, capacity);
+            mStates = Arrays.copyOf(mStates, capacity);
+            mStates2 = Arrays.copyOf(mStates2, capacity);
+            mCmds = Arrays.copyOf(mCmds, capacity);
+            mBatteryLevels = Arrays.copyOf(mBatteryLevels, capacity);
+        }
+        mTimes[mCount] = rec.time;
+        mCurrentTimes[mCount] = rec.currentTime;
+        mStates[mCount] = rec.states;
+        mStates2[mCount] = rec.states2;
+        mCmds[mCount] = rec.cmd;
+        mBatteryLevels[mCount] = rec.batteryLevel;
+        mCount++;
+
+        if (mCount == 1) {
+            mHistoryStart = rec.time;
+        }
+        if (rec.cmd == HistoryItem.CMD_CURRENT_TIME || rec.cmd == HistoryItem.CMD_RESET) {
+            // If there is a ridiculously large jump in time, then we won't be
+            // able to create a good chart with that data, so just ignore the
+            // times we got before and pretend like our data extends back from
+            // the time we have now.
+            // Also, if we are getting a time change and we are less than 5 minutes
+            // since the start of the history real time, then also use this new
+            // time to compute the base time, since whatever time we had before is
+            // pretty much just noise.
+            if (rec.currentTime > (mLastWallTime + (180 * 24 * 60 * 60 * 1000L))
+                    || rec.time < (mHistoryStart + (5 * 60 * 1000L))) {
+                mStartWalltime = 0;
+            }
+            mLastWallTime = rec.currentTime;
+            mLastRealtime = rec.time;
+            if (mStartWalltime == 0) {
+                mStartWalltime = mLastWallTime - (mLastRealtime - mHistoryStart);
+            }
+        }
+        if (rec.isDeltaData()) {
+            mLastInteresting = mCount;
+            mHistoryEnd = rec.time;
+        }
+    }
+
+    private void replay(BatteryInfo.BatteryDataParser... parsers) {
+        final long startWalltime = mStartWalltime;
+        final long endWalltime = mLastWallTime + mHistoryEnd - mLastRealtime;
+        long curWalltime = 0;
+        long lastRealtime = mLastRealtime;
+
+        for (int j = 0; j < parsers.length; j++) {
+            parsers[j].onParsingStarted(startWalltime, endWalltime);
+        }
+
+        if (endWalltime > startWalltime) {
+            final HistoryItem rec = new HistoryItem();
+            for (int i = 0; i < mLastInteresting; i++) {
+                rec.time = mTimes[i];
+                rec.currentTime = mCurrentTimes[i];
+                rec.states = mStates[i];
+                rec.states2 = mStates2[i];
+                rec.cmd = mCmds[i];
+                rec.batteryLevel = mBatteryLevels[i];
+                if (rec.isDeltaData()) {
+                    curWalltime += rec.time - lastRealtime;
+                    lastRealtime = rec.time;
+                    long x = (curWalltime - startWalltime);
+                    if (x < 0) {
+                        x = 0;
+                    }
+                    for (int j = 0; j < parsers.length; j++) {
+                        parsers[j].onDataPoint(x, rec);
+                    }
+                } else {
+                    long lastWalltime = curWalltime;
+                    if (rec.cmd == HistoryItem.CMD_CURRENT_TIME
+                            || rec.cmd == HistoryItem.CMD_RESET) {
+                        if (rec.currentTime >= startWalltime) {
+                            curWalltime = rec.currentTime;
+                        } else {
+                            curWalltime = startWalltime + (rec.time - mHistoryStart);
+                        }
+                        lastRealtime = rec.time;
+                    }
+
+                    if (rec.cmd != HistoryItem.CMD_OVERFLOW
+                            && (rec.cmd != HistoryItem.CMD_CURRENT_TIME
+                                    || Math.abs(lastWalltime - curWalltime) > (60 * 60 * 1000))) {
+                        for (int j = 0; j < parsers.length; j++) {
+                            parsers[j].onDataGap();
+                        }
+                    }
+                }
+            }
+        }
+
+        for (int j = 0; j < parsers.length; j++) {
+            parsers[j].onParsingDone();
+        }
+    }
+}
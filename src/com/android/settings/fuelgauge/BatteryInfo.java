@@ -33,7 +33,6 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.annotation.WorkerThread;
 
-import com.android.internal.os.BatteryStatsHistoryIterator;
 import com.android.settings.Utils;
 import com.android.settings.overlay.FeatureFactory;
 import com.android.settings.widget.UsageView;
@@ -415,6 +414,14 @@ public class BatteryInfo {
         }
     }
 
+    /**
+     * Receives the battery history from {@link #parseBatteryHistory}.
+     *
+     * <p>The {@link HistoryItem} passed to {@link #onDataPoint} only has {@code time},
+     * {@code currentTime}, {@code cmd}, {@code batteryLevel}, {@code states} and {@code states2}
+     * filled in, every other field is left at its default value. The same instance is reused for
+     * every record, so it must not be kept after the call.
+     */
     public interface BatteryDataParser {
         void onParsingStarted(long startTime, long endTime);
 
@@ -427,102 +434,9 @@ public class BatteryInfo {
 
     /**
      * Iterates over battery history included in the BatteryUsageStats that this object was
-     * initialized with.
+     * initialized with, in a single pass through {@link BatteryHistoryParser}.
      */
     public void parseBatteryHistory(BatteryDataParser... parsers) {
-        long startWalltime = 0;
-        long endWalltime = 0;
-        long historyStart = 0;
-        long historyEnd = 0;
-        long curWalltime = startWalltime;
-        long lastWallTime = 0;
-        long lastRealtime = 0;
-        int lastInteresting = 0;
-        int pos = 0;
-        boolean first = true;
-        final BatteryStatsHistoryIterator iterator1 =
-                mBatteryUsageStats.iterateBatteryStatsHistory();
-        HistoryItem rec;
-        while ((rec = iterator1.next()) != null) {
-            pos++;
-            if (first) {
-                first = false;
-                historyStart = rec.time;
-            }
-            if (rec.cmd == HistoryItem.CMD_CURRENT_TIME || rec.cmd == HistoryItem.CMD_RESET) {
-                // If there is a ridiculously large jump in time, then we won't be
-                // able to create a good chart with that data, so just ignore the
-                // times we got before and pretend like our data extends back from
-                // the time we have now.
-                // Also, if we are getting a time change and we are less than 5 minutes
-                // since the start of the history real time, then also use this new
-                // time to compute the base time, since whatever time we had before is
-                // pretty much just noise.
-                if (rec.currentTime > (lastWallTime + (180 * 24 * 60 * 60 * 1000L))
-                        || rec.time < (historyStart + (5 * 60 * 1000L))) {
-                    startWalltime = 0;
-                }
-                lastWallTime = rec.currentTime;
-                lastRealtime = rec.time;
-                if (startWalltime == 0) {
-                    startWalltime = lastWallTime - (lastRealtime - historyStart);
-                }
-            }
-            if (rec.isDeltaData()) {
-                lastInteresting = pos;
-                historyEnd = rec.time;
-            }
-        }
-
-        endWalltime = lastWallTime + historyEnd - lastRealtime;
-
-        int i = 0;
-        final int N = lastInteresting;
-
-        for (int j = 0; j < parsers.length; j++) {
-            parsers[j].onParsingStarted(startWalltime, endWalltime);
-        }
-
-        if (endWalltime > startWalltime) {
-            final BatteryStatsHistoryIterator iterator2 =
-                    mBatteryUsageStats.iterateBatteryStatsHistory();
-            while ((rec = iterator2.next()) != null && i < N) {
-                if (rec.isDeltaData()) {
-                    curWalltime += rec.time - lastRealtime;
-                    lastRealtime = rec.time;
-                    long x = (curWalltime - startWalltime);
-                    if (x < 0) {
-                        x = 0;
-                    }
-                    for (int j = 0; j < parsers.length; j++) {
-                        parsers[j].onDataPoint(x, rec);
-                    }
-                } else {
-                    long lastWalltime = curWalltime;
-                    if (rec.cmd == HistoryItem.CMD_CURRENT_TIME
-                            || rec.cmd == HistoryItem.CMD_RESET) {
-                        if (rec.currentTime >= startWalltime) {
-                            curWalltime = rec.currentTime;
-                        } else {
-                            curWalltime = startWalltime + (rec.time - historyStart);
-                        }
-                        lastRealtime = rec.time;
-                    }
-
-                    if (rec.cmd != HistoryItem.CMD_OVERFLOW
-                            && (rec.cmd != HistoryItem.CMD_CURRENT_TIME
-                                    || Math.abs(lastWalltime - curWalltime) > (60 * 60 * 1000))) {
-                        for (int j = 0; j < parsers.length; j++) {
-                            parsers[j].onDataGap();
-                        }
-                    }
-                }
-                i++;
-            }
-        }
-
-        for (int j = 0; j < parsers.length; j++) {
-            parsers[j].onParsingDone();
-        }
+        BatteryHistoryParser.parse(mBatteryUsageStats, parsers);
     }
 }
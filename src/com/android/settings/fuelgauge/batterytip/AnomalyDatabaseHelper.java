@@ -152,6 +152,8 @@ public class AnomalyDatabaseHelper extends SQLiteOpenHelper {
 
     private AnomalyDatabaseHelper(Context context) {
         super(context, DATABASE_NAME, null, DATABASE_VERSION);
+        // Lets the battery UI read while anomalies are being written.
+        setWriteAheadLoggingEnabled(true);
     }
 
     @Override
@@ -47,8 +47,9 @@ import java.util.Map;
 /**
  * Database manager for battery data. Now it only contains anomaly data stored in {@link AppInfo}.
  *
- * <p>This manager may be accessed by multi-threads. All the database related methods are
- * synchronized so each operation won't be interfered by other threads.
+ * <p>This manager may be accessed by multi-threads. The database runs in write-ahead logging mode,
+ * so queries are not synchronized and never wait for writes, while writes are synchronized so each
+ * operation won't be interfered by other threads.
  */
 public class BatteryDatabaseManager {
     private static BatteryDatabaseManager sSingleton;
@@ -97,7 +98,7 @@ public class BatteryDatabaseManager {
     /**
      * Query all the anomalies that happened after {@code timestampMsAfter} and with {@code state}.
      */
-    public synchronized List<AppInfo> queryAllAnomalies(long timestampMsAfter, int state) {
+    public List<AppInfo> queryAllAnomalies(long timestampMsAfter, int state) {
         final List<AppInfo> appInfos = new ArrayList<>();
         final SQLiteDatabase db = mDatabaseHelper.getReadableDatabase();
         final String[] projection = {PACKAGE_NAME, ANOMALY_TYPE, UID};
@@ -179,7 +180,7 @@ public class BatteryDatabaseManager {
      * @param type of action been performed
      * @return {@link SparseLongArray} where key is uid and value is timestamp
      */
-    public synchronized SparseLongArray queryActionTime(
+    public SparseLongArray queryActionTime(
             @AnomalyDatabaseHelper.ActionType int type) {
         final SparseLongArray timeStamps = new SparseLongArray();
         final SQLiteDatabase db = mDatabaseHelper.getReadableDatabase();
@@ -18,6 +18,11 @@ package com.android.settings.fuelgauge.batterytip;
 
 import android.content.Context;
 import android.os.BatteryUsageStats;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.ArrayMap;
+import android.util.Log;
 
 import androidx.annotation.VisibleForTesting;
 
@@ -26,24 +31,53 @@ import com.android.settings.fuelgauge.BatteryUtils;
 import com.android.settings.fuelgauge.batterytip.detectors.BatteryDefenderDetector;
 import com.android.settings.fuelgauge.batterytip.detectors.HighUsageDetector;
 import com.android.settings.fuelgauge.batterytip.detectors.IncompatibleChargerDetector;
+import com.android.settings.fuelgauge.batterytip.tips.BatteryDefenderTip;
 import com.android.settings.fuelgauge.batterytip.tips.BatteryTip;
+import com.android.settings.fuelgauge.batterytip.tips.HighUsageTip;
+import com.android.settings.fuelgauge.batterytip.tips.IncompatibleChargerTip;
 import com.android.settings.overlay.FeatureFactory;
 import com.android.settingslib.utils.AsyncLoaderCompat;
+import com.android.settingslib.utils.ThreadUtils;
 
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * Loader to compute and return a battery tip list. It will always return a full length list even
  * though some tips may have state {@code BaseBatteryTip.StateType.INVISIBLE}.
+ *
+ * <p>The built-in detectors run concurrently and each gets {@link #DETECTOR_BUDGET_MILLIS} to
+ * finish. A detector that misses its budget contributes an invisible tip of its type, and once it
+ * finishes its tip is kept for {@link #LATE_RESULT_TTL_MILLIS} and the loader is reloaded to merge
+ * it in. The detectors of the {@link com.android.settings.fuelgauge.BatterySettingsFeatureProvider}
+ * run last, on the merged list.
  */
 public class BatteryTipLoader extends AsyncLoaderCompat<List<BatteryTip>> {
     private static final String TAG = "BatteryTipLoader";
 
+    @VisibleForTesting static final long DETECTOR_BUDGET_MILLIS = 1000;
+    @VisibleForTesting static final long LATE_RESULT_TTL_MILLIS = 10_000;
+
+    // Name under which the latency of the feature provider detectors is logged.
+    private static final String FEATURE_PROVIDER_DETECTORS = "BatterySettingsFeatureProvider";
+
+    // Tips of detectors that finished after their budget, keyed by detector name.
+    private static final Map<String, LateResult> sLateResults = new ArrayMap<>();
+
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
     private BatteryUsageStats mBatteryUsageStats;
+    private Executor mDetectorExecutor = ThreadUtils::postOnBackgroundThread;
 
     @VisibleForTesting BatteryUtils mBatteryUtils;
+    @VisibleForTesting long mDetectorBudgetMillis = DETECTOR_BUDGET_MILLIS;
 
     public BatteryTipLoader(Context context, BatteryUsageStats batteryUsageStats) {
         super(context);
@@ -51,25 +85,148 @@ public class BatteryTipLoader extends AsyncLoaderCompat<List<BatteryTip>> {
         mBatteryUtils = BatteryUtils.getInstance(context);
     }
 
+    @VisibleForTesting
+    void setDetectorExecutor(Executor executor) {
+        mDetectorExecutor = executor;
+    }
+
     @Override
     public List<BatteryTip> loadInBackground() {
-        final List<BatteryTip> tips = new ArrayList<>();
         final BatteryTipPolicy batteryTipPolicy = new BatteryTipPolicy(getContext());
         final BatteryInfo batteryInfo = mBatteryUtils.getBatteryInfo(TAG);
         final Context context = getContext().getApplicationContext();
 
-        tips.add(
-                new HighUsageDetector(context, batteryTipPolicy, mBatteryUsageStats, batteryInfo)
-                        .detect());
-        tips.add(new BatteryDefenderDetector(batteryInfo, context).detect());
-        tips.add(new IncompatibleChargerDetector(context).detect());
+        final Map<String, Detector> detectors = new ArrayMap<>();
+        detectors.put(
+                "HighUsageDetector",
+                new Detector(
+                        () ->
+                                new HighUsageDetector(
+                                                context,
+                                                batteryTipPolicy,
+                                                mBatteryUsageStats,
+                                                batteryInfo)
+                                        .detect(),
+                        new HighUsageTip(0 /* lastFullChargeTimeMs */, Collections.emptyList())));
+        detectors.put(
+                "BatteryDefenderDetector",
+                new Detector(
+                        () -> new BatteryDefenderDetector(batteryInfo, context).detect(),
+                        new BatteryDefenderTip(
+                                BatteryTip.StateType.INVISIBLE, false /* isPluggedIn */)));
+        detectors.put(
+                "IncompatibleChargerDetector",
+                new Detector(
+                        () -> new IncompatibleChargerDetector(context).detect(),
+                        new IncompatibleChargerTip(BatteryTip.StateType.INVISIBLE)));
+
+        final List<BatteryTip> tips = runDetectors(detectors);
+        final long providerStartTime = SystemClock.elapsedRealtime();
         FeatureFactory.getFeatureFactory()
                 .getBatterySettingsFeatureProvider()
                 .addBatteryTipDetector(context, tips, batteryInfo, batteryTipPolicy);
+        logLatency(FEATURE_PROVIDER_DETECTORS, SystemClock.elapsedRealtime() - providerStartTime);
         Collections.sort(tips);
         return tips;
     }
 
+    private List<BatteryTip> runDetectors(Map<String, Detector> detectors) {
+        final long now = SystemClock.elapsedRealtime();
+        final List<BatteryTip> tips = new ArrayList<>();
+        final Map<String, FutureTask<BatteryTip>> tasks = new ArrayMap<>();
+        for (Map.Entry<String, Detector> detector : detectors.entrySet()) {
+            final String name = detector.getKey();
+            final BatteryTip lateTip = takeLateResult(name, now);
+            if (lateTip != null) {
+                tips.add(lateTip);
+                continue;
+            }
+            final FutureTask<BatteryTip> task =
+                    new FutureTask<>(() -> runDetector(name, detector.getValue().mDetect, now));
+            tasks.put(name, task);
+            mDetectorExecutor.execute(task);
+        }
+
+        final long deadline = now + mDetectorBudgetMillis;
+        boolean interrupted = false;
+        for (Map.Entry<String, FutureTask<BatteryTip>> task : tasks.entrySet()) {
+            final String name = task.getKey();
+            BatteryTip tip = null;
+            if (!interrupted) {
+                try {
+                    final long remaining = Math.max(0, deadline - SystemClock.elapsedRealtime());
+                    tip = task.getValue().get(remaining, TimeUnit.MILLISECONDS);
+                } catch (TimeoutException e) {
+                    Log.w(TAG, name + " exceeded its budget, merging its tip later");
+                } catch (ExecutionException e) {
+                    Log.e(TAG, name + " failed", e);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    interrupted = true;
+                }
+            }
+            tips.add(tip != null ? tip : detectors.get(name).mPlaceholder);
+        }
+        return tips;
+    }
+
+    private BatteryTip runDetector(String name, Callable<BatteryTip> detector, long startTime)
+            throws Exception {
+        final BatteryTip tip = detector.call();
+        final long latency = SystemClock.elapsedRealtime() - startTime;
+        logLatency(name, latency);
+        if (latency > mDetectorBudgetMillis) {
+            synchronized (sLateResults) {
+                sLateResults.put(name, new LateResult(tip, SystemClock.elapsedRealtime()));
+            }
+            mMainHandler.post(this::onContentChanged);
+        }
+        return tip;
+    }
+
+    // Logged for every detector so that slow ones, e.g. of an OEM, can be found.
+    private static void logLatency(String name, long latencyMillis) {
+        Log.d(TAG, name + " took " + latencyMillis + " ms");
+    }
+
+    private static BatteryTip takeLateResult(String name, long now) {
+        synchronized (sLateResults) {
+            final LateResult result = sLateResults.remove(name);
+            if (result == null || now - result.mFinishTime > LATE_RESULT_TTL_MILLIS) {
+                return null;
+            }
+            return result.mTip;
+        }
+    }
+
+    @VisibleForTesting
+    static void clearLateResults() {
+        synchronized (sLateResults) {
+            sLateResults.clear();
+        }
+    }
+
+    private static final class Detector {
+        final Callable<BatteryTip> mDetect;
+        // Shown in place of the detected tip when the detector misses its budget or fails.
+        final BatteryTip mPlaceholder;
+
+        Detector(Callable<BatteryTip> detect, BatteryTip placeholder) {
+            mDetect = detect;
+            mPlaceholder = placeholder;
+        }
+    }
+
+    private static final class LateResult {
+        final BatteryTip mTip;
+        final long mFinishTime;
+
+        LateResult(BatteryTip tip, long finishTime) {
+            mTip = tip;
+            mFinishTime = finishTime;
+        }
+    }
+
     @Override
     protected void onDiscardResult(List<BatteryTip> result) {}
 }
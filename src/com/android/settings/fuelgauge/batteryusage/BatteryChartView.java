@@ -33,7 +33,6 @@ import android.graphics.Path;
 import android.graphics.Rect;
 import android.graphics.drawable.Drawable;
 import android.os.Bundle;
-import android.util.ArraySet;
 import android.util.AttributeSet;
 import android.util.Log;
 import android.view.HapticFeedbackConstants;
@@ -52,14 +51,20 @@ import androidx.annotation.VisibleForTesting;
 import androidx.appcompat.widget.AppCompatImageView;
 
 import com.android.settings.R;
+import com.android.settings.widget.FrameTimeCounter;
 import com.android.settingslib.Utils;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Locale;
-import java.util.Set;
 
-/** A widget component to draw chart graph. */
+/**
+ * A widget component to draw chart graph.
+ *
+ * <p>All the geometry is computed once per view model, size or indent change by {@link
+ * #updateGeometry()}, so drawing a frame does not allocate.
+ */
 public class BatteryChartView extends AppCompatImageView implements View.OnClickListener {
     private static final String TAG = "BatteryChartView";
 
@@ -76,9 +81,10 @@ public class BatteryChartView extends AppCompatImageView implements View.OnClick
     private final Rect mIndent = new Rect();
     private final Rect[] mPercentageBounds = new Rect[] {new Rect(), new Rect(), new Rect()};
     private final List<Rect> mAxisLabelsBounds = new ArrayList<>();
-    private final Set<Integer> mLabelDrawnIndexes = new ArraySet<>();
     private final int mLayoutDirection =
             getContext().getResources().getConfiguration().getLayoutDirection();
+    private final Path mTrapezoidPath = new Path();
+    private final FrameTimeCounter mFrameTimeCounter = new FrameTimeCounter(TAG);
 
     private BatteryChartViewModel mViewModel;
     private int mHoveredIndex = BatteryChartViewModel.SELECTED_INDEX_INVALID;
@@ -106,6 +112,20 @@ public class BatteryChartView extends AppCompatImageView implements View.OnClick
     private AccessibilityNodeProvider mAccessibilityNodeProvider;
     private BatteryChartView.OnSelectListener mOnSelectListener;
 
+    // Geometry shared by every frame until the next updateGeometry().
+    private boolean mGeometryDirty = true;
+    private float mUnitWidth;
+    private float mTrapezoidBottom;
+    // The left and right top of each trapezoid, in pairs.
+    private float[] mTrapezoidTops = new float[0];
+    private int mAxisLabelCount;
+    private float mAxisLabelBaselineY;
+    private Rect[] mAxisLabelDisplayAreas = new Rect[0];
+    // Whether the axis label of each display area is drawn.
+    private boolean[] mAxisLabelVisible = new boolean[0];
+    // Whether the divider of each index is highlighted by a label next to it.
+    private boolean[] mLabelDrawnIndexes = new boolean[0];
+
     @VisibleForTesting TrapezoidSlot[] mTrapezoidSlots;
     // Records the location to calculate selected index.
     @VisibleForTesting float mTouchUpEventX = Float.MIN_VALUE;
@@ -127,6 +147,7 @@ public class BatteryChartView extends AppCompatImageView implements View.OnClick
     public void setViewModel(BatteryChartViewModel viewModel) {
         if (viewModel == null) {
             mViewModel = null;
+            mGeometryDirty = true;
             invalidate();
             return;
         }
@@ -141,8 +162,10 @@ public class BatteryChartView extends AppCompatImageView implements View.OnClick
         mViewModel = viewModel;
         initializeAxisLabelsBounds();
         initializeTrapezoidSlots(viewModel.size() - 1);
+        mGeometryDirty = true;
         setClickable(hasAnyValidTrapezoid(viewModel));
         requestLayout();
+        invalidate();
     }
 
     /** Sets the callback to monitor the selected group index. */
@@ -198,20 +221,31 @@ public class BatteryChartView extends AppCompatImageView implements View.OnClick
         } else {
             mIndent.set(0, 0, 0, 0);
         }
+        mGeometryDirty = true;
+    }
+
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        mGeometryDirty = true;
     }
 
     @Override
     public void draw(Canvas canvas) {
+        mFrameTimeCounter.onFrameStart();
         super.draw(canvas);
+        if (mGeometryDirty) {
+            updateGeometry();
+        }
         // Before mLevels initialized, the count of trapezoids is unknown. Only draws the
         // horizontal percentages and dividers.
         drawHorizontalDividers(canvas);
-        if (mViewModel == null) {
-            return;
+        if (mViewModel != null) {
+            drawVerticalDividers(canvas);
+            drawTrapezoids(canvas);
+            drawTransomLine(canvas);
         }
-        drawVerticalDividers(canvas);
-        drawTrapezoids(canvas);
-        drawTransomLine(canvas);
+        mFrameTimeCounter.onFrameEnd();
     }
 
     @Override
@@ -237,8 +271,9 @@ public class BatteryChartView extends AppCompatImageView implements View.OnClick
             case MotionEvent.ACTION_HOVER_MOVE:
                 final int trapezoidIndex = getTrapezoidIndex(event.getX());
                 if (mHoveredIndex != trapezoidIndex) {
+                    invalidateTrapezoid(mHoveredIndex);
                     mHoveredIndex = trapezoidIndex;
-                    invalidate();
+                    invalidateTrapezoid(mHoveredIndex);
                     sendAccessibilityEventForHover(AccessibilityEvent.TYPE_VIEW_HOVER_ENTER);
                 }
                 // Ignore the super.onHoverEvent() because the hovered trapezoid has already been
@@ -247,8 +282,8 @@ public class BatteryChartView extends AppCompatImageView implements View.OnClick
             case MotionEvent.ACTION_HOVER_EXIT:
                 if (mHoveredIndex != BatteryChartViewModel.SELECTED_INDEX_INVALID) {
                     sendAccessibilityEventForHover(AccessibilityEvent.TYPE_VIEW_HOVER_EXIT);
+                    invalidateTrapezoid(mHoveredIndex);
                     mHoveredIndex = BatteryChartViewModel.SELECTED_INDEX_INVALID; // reset
-                    invalidate();
                 }
                 // Ignore the super.onHoverEvent() because the hovered trapezoid has already been
                 // sent here.
@@ -262,8 +297,8 @@ public class BatteryChartView extends AppCompatImageView implements View.OnClick
     public void onHoverChanged(boolean hovered) {
         super.onHoverChanged(hovered);
         if (!hovered) {
+            invalidateTrapezoid(mHoveredIndex);
             mHoveredIndex = BatteryChartViewModel.SELECTED_INDEX_INVALID; // reset
-            invalidate();
         }
     }
 
@@ -321,11 +356,83 @@ public class BatteryChartView extends AppCompatImageView implements View.OnClick
         }
     }
 
+    /** Invalidates only the area of one trapezoid, e.g. when its hover state changes. */
+    @SuppressWarnings("deprecation")
+    private void invalidateTrapezoid(int index) {
+        if (!isTrapezoidIndexValid(mViewModel, index) || mTrapezoidSlots == null) {
+            return;
+        }
+        final TrapezoidSlot slot = mTrapezoidSlots[index];
+        invalidate(
+                (int) Math.floor(slot.mLeft - mTrapezoidHOffset),
+                0,
+                (int) Math.ceil(slot.mRight + mTrapezoidHOffset),
+                getHeight());
+    }
+
     private void initializeTrapezoidSlots(int count) {
         mTrapezoidSlots = new TrapezoidSlot[count];
         for (int index = 0; index < mTrapezoidSlots.length; index++) {
             mTrapezoidSlots[index] = new TrapezoidSlot();
         }
+        mTrapezoidTops = new float[count * 2];
+    }
+
+    /**
+     * Computes the trapezoid slots and shapes and lays out the axis labels for the current view
+     * model, size and indent, into buffers reused by every frame.
+     */
+    @VisibleForTesting
+    void updateGeometry() {
+        mGeometryDirty = false;
+        if (mViewModel == null || mTrapezoidSlots == null || mTrapezoidSlots.length == 0) {
+            return;
+        }
+        final int slotCount = mTrapezoidSlots.length;
+        final int width = getWidth() - abs(mIndent.width());
+        final float dividerSpace = (slotCount + 1) * mDividerWidth;
+        mUnitWidth = (width - dividerSpace) / (float) slotCount;
+
+        // Updates the trapezoid slots.
+        final float trapezoidSlotOffset = mTrapezoidHOffset + mDividerWidth * .5f;
+        float startX = mDividerWidth * .5f + mIndent.left;
+        for (int index = 0; index < slotCount; index++) {
+            final float nextX = startX + mDividerWidth + mUnitWidth;
+            final int trapezoidIndex = isRTL() ? slotCount - index - 1 : index;
+            mTrapezoidSlots[trapezoidIndex].mLeft = round(startX + trapezoidSlotOffset);
+            mTrapezoidSlots[trapezoidIndex].mRight = round(nextX - trapezoidSlotOffset);
+            startX = nextX;
+        }
+
+        // Updates the trapezoid heights.
+        mTrapezoidBottom =
+                getHeight() - mIndent.bottom - mDividerHeight - mDividerWidth - mTrapezoidVOffset;
+        final float availableSpace =
+                mTrapezoidBottom - mDividerWidth * .5f - mIndent.top - mTrapezoidVOffset;
+        final float unitHeight = availableSpace / 100f;
+        for (int index = 0; index < slotCount; index++) {
+            if (!isValidToDraw(mViewModel, index)) {
+                continue;
+            }
+            float leftTop =
+                    round(
+                            mTrapezoidBottom
+                                    - requireNonNull(mViewModel.getLevel(index)) * unitHeight);
+            float rightTop =
+                    round(
+                            mTrapezoidBottom
+                                    - requireNonNull(mViewModel.getLevel(index + 1)) * unitHeight);
+            // Mirror the shape of the trapezoid for RTL
+            if (isRTL()) {
+                float temp = leftTop;
+                leftTop = rightTop;
+                rightTop = temp;
+            }
+            mTrapezoidTops[index * 2] = leftTop;
+            mTrapezoidTops[index * 2 + 1] = rightTop;
+        }
+
+        layoutAxisLabels();
     }
 
     private void initializeColors(Context context) {
@@ -432,72 +539,78 @@ public class BatteryChartView extends AppCompatImageView implements View.OnClick
     }
 
     private void drawVerticalDividers(Canvas canvas) {
-        final int width = getWidth() - abs(mIndent.width());
         final int dividerCount = mTrapezoidSlots.length + 1;
-        final float dividerSpace = dividerCount * mDividerWidth;
-        final float unitWidth = (width - dividerSpace) / (float) mTrapezoidSlots.length;
         final float bottomY = getHeight() - mIndent.bottom;
         final float startY = bottomY - mDividerHeight;
-        final float trapezoidSlotOffset = mTrapezoidHOffset + mDividerWidth * .5f;
         // Draws the axis label slot information.
-        if (mViewModel != null) {
-            final float baselineY = getHeight() - mTextPadding;
-            Rect[] axisLabelDisplayAreas;
-            switch (mViewModel.axisLabelPosition()) {
-                case CENTER_OF_TRAPEZOIDS:
-                    axisLabelDisplayAreas =
-                            getAxisLabelDisplayAreas(
-                                    /* size= */ mViewModel.size() - 1,
-                                    /* baselineX= */ mIndent.left + mDividerWidth + unitWidth * .5f,
-                                    /* offsetX= */ mDividerWidth + unitWidth,
-                                    baselineY,
-                                    /* shiftFirstAndLast= */ false);
-                    break;
-                case BETWEEN_TRAPEZOIDS:
-                default:
-                    axisLabelDisplayAreas =
-                            getAxisLabelDisplayAreas(
-                                    /* size= */ mViewModel.size(),
-                                    /* baselineX= */ mIndent.left + mDividerWidth * .5f,
-                                    /* offsetX= */ mDividerWidth + unitWidth,
-                                    baselineY,
-                                    /* shiftFirstAndLast= */ true);
-                    break;
+        if (mTextPaint != null) {
+            for (int index = 0; index < mAxisLabelCount; index++) {
+                if (mAxisLabelVisible[index]) {
+                    drawAxisLabelText(canvas, index, mAxisLabelDisplayAreas[index]);
+                }
             }
-            drawAxisLabels(canvas, axisLabelDisplayAreas, baselineY);
         }
         // Draws each vertical dividers.
         float startX = mDividerWidth * .5f + mIndent.left;
         for (int index = 0; index < dividerCount; index++) {
             float dividerY = bottomY;
             if (mViewModel.axisLabelPosition() == BETWEEN_TRAPEZOIDS
-                    && mLabelDrawnIndexes.contains(index)) {
+                    && index < mLabelDrawnIndexes.length
+                    && mLabelDrawnIndexes[index]) {
                 mDividerPaint.setColor(mTrapezoidSolidColor);
                 dividerY += mDividerHeight / 4f;
             } else {
                 mDividerPaint.setColor(DIVIDER_COLOR);
             }
             canvas.drawLine(startX, startY, startX, dividerY, mDividerPaint);
-            final float nextX = startX + mDividerWidth + unitWidth;
-            // Updates the trapezoid slots for drawing.
-            if (index < mTrapezoidSlots.length) {
-                final int trapezoidIndex = isRTL() ? mTrapezoidSlots.length - index - 1 : index;
-                mTrapezoidSlots[trapezoidIndex].mLeft = round(startX + trapezoidSlotOffset);
-                mTrapezoidSlots[trapezoidIndex].mRight = round(nextX - trapezoidSlotOffset);
-            }
-            startX = nextX;
+            startX += mDividerWidth + mUnitWidth;
         }
     }
 
+    /** Decides which axis labels fit, and where they are drawn. */
+    private void layoutAxisLabels() {
+        Arrays.fill(mAxisLabelVisible, false);
+        Arrays.fill(mLabelDrawnIndexes, false);
+        mAxisLabelCount = 0;
+        if (mTextPaint == null) {
+            return;
+        }
+        mAxisLabelBaselineY = getHeight() - mTextPadding;
+        switch (mViewModel.axisLabelPosition()) {
+            case CENTER_OF_TRAPEZOIDS:
+                updateAxisLabelDisplayAreas(
+                        /* size= */ mViewModel.size() - 1,
+                        /* baselineX= */ mIndent.left + mDividerWidth + mUnitWidth * .5f,
+                        /* offsetX= */ mDividerWidth + mUnitWidth,
+                        mAxisLabelBaselineY,
+                        /* shiftFirstAndLast= */ false);
+                break;
+            case BETWEEN_TRAPEZOIDS:
+            default:
+                updateAxisLabelDisplayAreas(
+                        /* size= */ mViewModel.size(),
+                        /* baselineX= */ mIndent.left + mDividerWidth * .5f,
+                        /* offsetX= */ mDividerWidth + mUnitWidth,
+                        mAxisLabelBaselineY,
+                        /* shiftFirstAndLast= */ true);
+                break;
+        }
+        final int lastIndex = mAxisLabelCount - 1;
+        // Suppose first and last labels are always able to draw.
+        markAxisLabelVisible(0);
+        markAxisLabelVisible(lastIndex);
+        layoutAxisLabelsBetweenStartIndexAndEndIndex(0, lastIndex);
+    }
+
     /** Gets all the axis label texts displaying area positions if they are shown. */
-    private Rect[] getAxisLabelDisplayAreas(
+    private void updateAxisLabelDisplayAreas(
             final int size,
             final float baselineX,
             final float offsetX,
             final float baselineY,
             final boolean shiftFirstAndLast) {
-        final Rect[] result = new Rect[size];
-        for (int index = 0; index < result.length; index++) {
+        mAxisLabelCount = size;
+        for (int index = 0; index < size; index++) {
             final float width = mAxisLabelsBounds.get(index).width();
             float middle = baselineX + index * offsetX;
             if (shiftFirstAndLast) {
@@ -512,50 +625,33 @@ public class BatteryChartView extends AppCompatImageView implements View.OnClick
             final float right = left + width;
             final float top = baselineY + mAxisLabelsBounds.get(index).top;
             final float bottom = top + mAxisLabelsBounds.get(index).height();
-            result[index] = new Rect(round(left), round(top), round(right), round(bottom));
+            mAxisLabelDisplayAreas[index].set(
+                    round(left), round(top), round(right), round(bottom));
         }
-        return result;
-    }
-
-    private void drawAxisLabels(Canvas canvas, final Rect[] displayAreas, final float baselineY) {
-        final int lastIndex = displayAreas.length - 1;
-        mLabelDrawnIndexes.clear();
-        // Suppose first and last labels are always able to draw.
-        drawAxisLabelText(canvas, 0, displayAreas[0], baselineY);
-        mLabelDrawnIndexes.add(0);
-        drawAxisLabelText(canvas, lastIndex, displayAreas[lastIndex], baselineY);
-        mLabelDrawnIndexes.add(lastIndex);
-        drawAxisLabelsBetweenStartIndexAndEndIndex(canvas, displayAreas, 0, lastIndex, baselineY);
     }
 
     /**
-     * Recursively draws axis labels between the start index and the end index. If the inner number
-     * can be exactly divided into 2 parts, check and draw the middle index label and then
-     * recursively draw the 2 parts. Otherwise, divide into 3 parts. Check and draw the middle two
-     * labels and then recursively draw the 3 parts. If there are any overlaps, skip drawing and go
-     * back to the uplevel of the recursion.
+     * Recursively lays out axis labels between the start index and the end index. If the inner
+     * number can be exactly divided into 2 parts, check and show the middle index label and then
+     * recursively lay out the 2 parts. Otherwise, divide into 3 parts. Check and show the middle
+     * two labels and then recursively lay out the 3 parts. If there are any overlaps, skip showing
+     * and go back to the uplevel of the recursion.
      */
-    private void drawAxisLabelsBetweenStartIndexAndEndIndex(
-            Canvas canvas,
-            final Rect[] displayAreas,
-            final int startIndex,
-            final int endIndex,
-            final float baselineY) {
+    private void layoutAxisLabelsBetweenStartIndexAndEndIndex(
+            final int startIndex, final int endIndex) {
         if (endIndex - startIndex <= 1) {
             return;
         }
+        final Rect[] displayAreas = mAxisLabelDisplayAreas;
         if ((endIndex - startIndex) % 2 == 0) {
             int middleIndex = (startIndex + endIndex) / 2;
             if (hasOverlap(displayAreas, startIndex, middleIndex)
                     || hasOverlap(displayAreas, middleIndex, endIndex)) {
                 return;
             }
-            drawAxisLabelText(canvas, middleIndex, displayAreas[middleIndex], baselineY);
-            mLabelDrawnIndexes.add(middleIndex);
-            drawAxisLabelsBetweenStartIndexAndEndIndex(
-                    canvas, displayAreas, startIndex, middleIndex, baselineY);
-            drawAxisLabelsBetweenStartIndexAndEndIndex(
-                    canvas, displayAreas, middleIndex, endIndex, baselineY);
+            markAxisLabelVisible(middleIndex);
+            layoutAxisLabelsBetweenStartIndexAndEndIndex(startIndex, middleIndex);
+            layoutAxisLabelsBetweenStartIndexAndEndIndex(middleIndex, endIndex);
         } else {
             int middleIndex1 = startIndex + round((endIndex - startIndex) / 3f);
             int middleIndex2 = startIndex + round((endIndex - startIndex) * 2 / 3f);
@@ -564,19 +660,20 @@ public class BatteryChartView extends AppCompatImageView implements View.OnClick
                     || hasOverlap(displayAreas, middleIndex2, endIndex)) {
                 return;
             }
-            drawAxisLabelText(canvas, middleIndex1, displayAreas[middleIndex1], baselineY);
-            mLabelDrawnIndexes.add(middleIndex1);
-            drawAxisLabelText(canvas, middleIndex2, displayAreas[middleIndex2], baselineY);
-            mLabelDrawnIndexes.add(middleIndex2);
-            drawAxisLabelsBetweenStartIndexAndEndIndex(
-                    canvas, displayAreas, startIndex, middleIndex1, baselineY);
-            drawAxisLabelsBetweenStartIndexAndEndIndex(
-                    canvas, displayAreas, middleIndex1, middleIndex2, baselineY);
-            drawAxisLabelsBetweenStartIndexAndEndIndex(
-                    canvas, displayAreas, middleIndex2, endIndex, baselineY);
+            markAxisLabelVisible(middleIndex1);
+            markAxisLabelVisible(middleIndex2);
+            layoutAxisLabelsBetweenStartIndexAndEndIndex(startIndex, middleIndex1);
+            layoutAxisLabelsBetweenStartIndexAndEndIndex(middleIndex1, middleIndex2);
+            layoutAxisLabelsBetweenStartIndexAndEndIndex(middleIndex2, endIndex);
         }
     }
 
+    private void markAxisLabelVisible(int index) {
+        mAxisLabelVisible[index] = true;
+        mLabelDrawnIndexes[index] = true;
+        mLabelDrawnIndexes[getAxisLabelTextIndex(index)] = true;
+    }
+
     private boolean hasOverlap(
             final Rect[] displayAreas, final int leftIndex, final int rightIndex) {
         return displayAreas[leftIndex].right + mTextPadding * 2.3f > displayAreas[rightIndex].left;
@@ -586,19 +683,24 @@ public class BatteryChartView extends AppCompatImageView implements View.OnClick
         return mLayoutDirection == View.LAYOUT_DIRECTION_RTL;
     }
 
-    private void drawAxisLabelText(
-            Canvas canvas, int index, final Rect displayArea, final float baselineY) {
+    private void drawAxisLabelText(Canvas canvas, int index, final Rect displayArea) {
         mTextPaint.setColor(mTrapezoidSolidColor);
         mTextPaint.setTextAlign(Paint.Align.CENTER);
+        canvas.drawText(
+                mViewModel.getText(getAxisLabelTextIndex(index)),
+                displayArea.centerX(),
+                mAxisLabelBaselineY,
+                mTextPaint);
+    }
+
+    private int getAxisLabelTextIndex(int index) {
         // Reverse the sort of axis labels for RTL
-        if (isRTL()) {
-            index =
-                    mViewModel.axisLabelPosition() == BETWEEN_TRAPEZOIDS
-                            ? mViewModel.size() - index - 1 // for hourly
-                            : mViewModel.size() - index - 2; // for daily
+        if (!isRTL()) {
+            return index;
         }
-        canvas.drawText(mViewModel.getText(index), displayArea.centerX(), baselineY, mTextPaint);
-        mLabelDrawnIndexes.add(index);
+        return mViewModel.axisLabelPosition() == BETWEEN_TRAPEZOIDS
+                ? mViewModel.size() - index - 1 // for hourly
+                : mViewModel.size() - index - 2; // for daily
     }
 
     private void drawTrapezoids(Canvas canvas) {
@@ -606,14 +708,8 @@ public class BatteryChartView extends AppCompatImageView implements View.OnClick
         if (mViewModel == null) {
             return;
         }
-        final float trapezoidBottom =
-                getHeight() - mIndent.bottom - mDividerHeight - mDividerWidth - mTrapezoidVOffset;
-        final float availableSpace =
-                trapezoidBottom - mDividerWidth * .5f - mIndent.top - mTrapezoidVOffset;
-        final float unitHeight = availableSpace / 100f;
+        final float trapezoidBottom = mTrapezoidBottom;
         // Draws all trapezoid shapes into the canvas.
-        final Path trapezoidPath = new Path();
-        Path trapezoidCurvePath = null;
         for (int index = 0; index < mTrapezoidSlots.length; index++) {
             // Not draws the trapezoid for corner or not initialization cases.
             if (!isValidToDraw(mViewModel, index)) {
@@ -630,30 +726,18 @@ public class BatteryChartView extends AppCompatImageView implements View.OnClick
                     mHoveredIndex == index && isValidToDraw(mViewModel, mHoveredIndex);
             mTrapezoidPaint.setColor(isHoverState ? mTrapezoidHoverColor : trapezoidColor);
 
-            float leftTop =
-                    round(
-                            trapezoidBottom
-                                    - requireNonNull(mViewModel.getLevel(index)) * unitHeight);
-            float rightTop =
-                    round(
-                            trapezoidBottom
-                                    - requireNonNull(mViewModel.getLevel(index + 1)) * unitHeight);
-            // Mirror the shape of the trapezoid for RTL
-            if (isRTL()) {
-                float temp = leftTop;
-                leftTop = rightTop;
-                rightTop = temp;
-            }
-            trapezoidPath.reset();
-            trapezoidPath.moveTo(mTrapezoidSlots[index].mLeft, trapezoidBottom);
-            trapezoidPath.lineTo(mTrapezoidSlots[index].mLeft, leftTop);
-            trapezoidPath.lineTo(mTrapezoidSlots[index].mRight, rightTop);
-            trapezoidPath.lineTo(mTrapezoidSlots[index].mRight, trapezoidBottom);
+            final float leftTop = mTrapezoidTops[index * 2];
+            final float rightTop = mTrapezoidTops[index * 2 + 1];
+            mTrapezoidPath.reset();
+            mTrapezoidPath.moveTo(mTrapezoidSlots[index].mLeft, trapezoidBottom);
+            mTrapezoidPath.lineTo(mTrapezoidSlots[index].mLeft, leftTop);
+            mTrapezoidPath.lineTo(mTrapezoidSlots[index].mRight, rightTop);
+            mTrapezoidPath.lineTo(mTrapezoidSlots[index].mRight, trapezoidBottom);
             // A tricky way to make the trapezoid shape drawing the rounded corner.
-            trapezoidPath.lineTo(mTrapezoidSlots[index].mLeft, trapezoidBottom);
-            trapezoidPath.lineTo(mTrapezoidSlots[index].mLeft, leftTop);
+            mTrapezoidPath.lineTo(mTrapezoidSlots[index].mLeft, trapezoidBottom);
+            mTrapezoidPath.lineTo(mTrapezoidSlots[index].mLeft, leftTop);
             // Draws the trapezoid shape into canvas.
-            canvas.drawPath(trapezoidPath, mTrapezoidPaint);
+            canvas.drawPath(mTrapezoidPath, mTrapezoidPaint);
         }
     }
 
@@ -672,8 +756,7 @@ public class BatteryChartView extends AppCompatImageView implements View.OnClick
         mTransomLinePaint.setColor(mTransomLineDefaultColor);
         final int width = getWidth() - abs(mIndent.width());
         final float transomOffset = mTrapezoidHOffset + mDividerWidth * .5f + mTransomPadding;
-        final float trapezoidBottom =
-                getHeight() - mIndent.bottom - mDividerHeight - mDividerWidth - mTrapezoidVOffset;
+        final float trapezoidBottom = mTrapezoidBottom;
         canvas.drawLine(
                 mIndent.left + transomOffset,
                 mTransomTop,
@@ -726,10 +809,18 @@ public class BatteryChartView extends AppCompatImageView implements View.OnClick
     }
 
     private void initializeAxisLabelsBounds() {
+        final int size = mViewModel.size();
         mAxisLabelsBounds.clear();
-        for (int i = 0; i < mViewModel.size(); i++) {
+        for (int i = 0; i < size; i++) {
             mAxisLabelsBounds.add(new Rect());
         }
+        mAxisLabelCount = 0;
+        mAxisLabelDisplayAreas = new Rect[size];
+        for (int i = 0; i < size; i++) {
+            mAxisLabelDisplayAreas[i] = new Rect();
+        }
+        mAxisLabelVisible = new boolean[size];
+        mLabelDrawnIndexes = new boolean[size];
     }
 
     private static boolean isTrapezoidValid(
@@ -767,6 +858,9 @@ public class BatteryChartView extends AppCompatImageView implements View.OnClick
     }
 
     private class BatteryChartAccessibilityNodeProvider extends AccessibilityNodeProvider {
+        // Reused by every query, setBoundsInScreen() copies it.
+        private final Rect mBounds = new Rect();
+
         @Override
         public AccessibilityNodeInfo createAccessibilityNodeInfo(int virtualViewId) {
             if (virtualViewId == AccessibilityNodeProvider.HOST_VIEW_ID) {
@@ -795,7 +889,7 @@ public class BatteryChartView extends AppCompatImageView implements View.OnClick
                             slotTimeInfo,
                             batteryLevelInfo));
 
-            final Rect bounds = new Rect();
+            final Rect bounds = mBounds;
             getBoundsOnScreen(bounds, true);
             final int hostLeft = bounds.left;
             bounds.left = round(hostLeft + mTrapezoidSlots[index].mLeft);
@@ -54,6 +54,7 @@ import com.android.internal.annotations.VisibleForTesting;
 import com.android.internal.os.PowerProfile;
 import com.android.settings.Utils;
 import com.android.settings.fuelgauge.BatteryUtils;
+import com.android.settings.fuelgauge.PowerUsageFeatureProvider;
 import com.android.settings.overlay.FeatureFactory;
 import com.android.settingslib.fuelgauge.BatteryStatus;
 import com.android.settingslib.spaprivileged.model.app.AppListRepositoryUtil;
@@ -533,6 +534,8 @@ public final class DataProcessor {
                 Utils.getManagedProfile(context.getSystemService(UserManager.class));
         final int workProfileUserId =
                 userHandle != null ? userHandle.getIdentifier() : Integer.MIN_VALUE;
+        // Reused by every slot, see SlotUsageTable.
+        final SlotUsageTable slotUsageTable = new SlotUsageTable();
         // Each time slot usage diff data =
         //     sum(Math.abs(timestamp[i+1] data - timestamp[i] data));
         // since we want to aggregate every hour usage diff data into a single time slot.
@@ -578,7 +581,8 @@ public final class DataProcessor {
                                                 || appUsagePeriodMap.get(dailyIndex) == null
                                         ? null
                                         : appUsagePeriodMap.get(dailyIndex).get(hourlyIndex),
-                                slotBatteryHistoryList);
+                                slotBatteryHistoryList,
+                                slotUsageTable);
                 batteryDiffDataMap.put(startTimestamp, hourlyBatteryDiffData);
             }
         }
@@ -1337,7 +1341,8 @@ public final class DataProcessor {
             final Set<String> systemAppsPackageNames,
             final Set<Integer> systemAppsUids,
             final Map<Long, Map<String, List<AppUsagePeriod>>> appUsageMap,
-            final List<Map<String, BatteryHistEntry>> slotBatteryHistoryList) {
+            final List<Map<String, BatteryHistEntry>> slotBatteryHistoryList,
+            final SlotUsageTable slotUsageTable) {
         long slotScreenOnTime = 0L;
         if (appUsageMap != null) {
             final List<AppUsagePeriod> flatAppUsagePeriodList = new ArrayList<>();
@@ -1384,17 +1389,19 @@ public final class DataProcessor {
         }
 
         // Calculates all packages diff usage data in a specific time slot.
+        slotUsageTable.clear();
+        final BatteryHistEntry[] batteryHistEntries =
+                new BatteryHistEntry[slotBatteryHistoryList.size()];
         for (String key : allBatteryHistEntryKeys) {
             if (key == null) {
                 continue;
             }
 
             BatteryHistEntry selectedBatteryEntry = null;
-            final List<BatteryHistEntry> batteryHistEntries = new ArrayList<>();
-            for (Map<String, BatteryHistEntry> slotBatteryHistMap : slotBatteryHistoryList) {
-                BatteryHistEntry entry =
-                        slotBatteryHistMap.getOrDefault(key, EMPTY_BATTERY_HIST_ENTRY);
-                batteryHistEntries.add(entry);
+            for (int i = 0; i < batteryHistEntries.length; i++) {
+                final BatteryHistEntry entry =
+                        slotBatteryHistoryList.get(i).getOrDefault(key, EMPTY_BATTERY_HIST_ENTRY);
+                batteryHistEntries[i] = entry;
                 if (selectedBatteryEntry == null && entry != EMPTY_BATTERY_HIST_ENTRY) {
                     selectedBatteryEntry = entry;
                 }
@@ -1420,9 +1427,9 @@ public final class DataProcessor {
             double foregroundServiceUsageConsumePower = 0;
             double backgroundUsageConsumePower = 0;
             double cachedUsageConsumePower = 0;
-            for (int i = 0; i < batteryHistEntries.size() - 1; i++) {
-                final BatteryHistEntry currentEntry = batteryHistEntries.get(i);
-                final BatteryHistEntry nextEntry = batteryHistEntries.get(i + 1);
+            for (int i = 0; i < batteryHistEntries.length - 1; i++) {
+                final BatteryHistEntry currentEntry = batteryHistEntries[i];
+                final BatteryHistEntry nextEntry = batteryHistEntries[i + 1];
                 foregroundUsageTimeInMs +=
                         getDiffValue(
                                 currentEntry.mForegroundUsageTimeInMs,
@@ -1509,32 +1516,27 @@ public final class DataProcessor {
                     Math.min(
                             foregroundServiceUsageTimeInMs,
                             (long) slotDuration - screenOnTime - backgroundUsageTimeInMs);
-            final BatteryDiffEntry currentBatteryDiffEntry =
-                    new BatteryDiffEntry(
-                            context,
-                            selectedBatteryEntry.mUid,
-                            selectedBatteryEntry.mUserId,
-                            selectedBatteryEntry.getKey(),
-                            selectedBatteryEntry.mIsHidden,
-                            selectedBatteryEntry.mDrainType,
-                            selectedBatteryEntry.mPackageName,
-                            selectedBatteryEntry.mAppLabel,
-                            selectedBatteryEntry.mConsumerType,
-                            foregroundUsageTimeInMs,
-                            foregroundServiceUsageTimeInMs,
-                            backgroundUsageTimeInMs,
-                            screenOnTime,
-                            consumePower,
-                            foregroundUsageConsumePower,
-                            foregroundServiceUsageConsumePower,
-                            backgroundUsageConsumePower,
-                            cachedUsageConsumePower);
-            if (currentBatteryDiffEntry.isSystemEntry()) {
-                systemEntries.add(currentBatteryDiffEntry);
-            } else {
-                appEntries.add(currentBatteryDiffEntry);
-            }
-        }
+            slotUsageTable.add(
+                    selectedBatteryEntry,
+                    foregroundUsageTimeInMs,
+                    foregroundServiceUsageTimeInMs,
+                    backgroundUsageTimeInMs,
+                    screenOnTime,
+                    consumePower,
+                    foregroundUsageConsumePower,
+                    foregroundServiceUsageConsumePower,
+                    backgroundUsageConsumePower,
+                    cachedUsageConsumePower);
+        }
+        final PowerUsageFeatureProvider featureProvider =
+                FeatureFactory.getFeatureFactory().getPowerUsageFeatureProvider();
+        slotUsageTable.toDiffEntries(
+                context,
+                featureProvider.getBatteryUsageListScreenOnTimeThresholdInMs(),
+                featureProvider.getBatteryUsageListConsumePowerThreshold(),
+                appEntries,
+                systemEntries);
+        slotUsageTable.clear();
         return new BatteryDiffData(
                 context,
                 startTimestamp,
@@ -0,0 +1,143 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.fuelgauge.batteryusage;
+
+import android.content.Context;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Usage of every consumer in one time slot, stored as parallel primitive arrays.
+ *
+ * <p>{@link DataProcessor} fills one table per hourly slot and reuses the arrays for the next slot.
+ * Only rows that pass the list thresholds are turned into {@link BatteryDiffEntry} objects, the
+ * rest would be purged by {@link BatteryDiffData} right after being created anyway.
+ */
+final class SlotUsageTable {
+    private static final int INITIAL_CAPACITY = 64;
+
+    private BatteryHistEntry[] mHistEntries = new BatteryHistEntry[INITIAL_CAPACITY];
+    private long[] mForegroundUsageTimeInMs = new long[INITIAL_CAPACITY];
+    private long[] mForegroundServiceUsageTimeInMs = new long[INITIAL_CAPACITY];
+    private long[] mBackgroundUsageTimeInMs = new long[INITIAL_CAPACITY];
+    private long[] mScreenOnTimeInMs = new long[INITIAL_CAPACITY];
+    private double[] mConsumePower = new double[INITIAL_CAPACITY];
+    private double[] mForegroundUsageConsumePower = new double[INITIAL_CAPACITY];
+    private double[] mForegroundServiceUsageConsumePower = new double[INITIAL_CAPACITY];
+    private double[] mBackgroundUsageConsumePower = new double[INITIAL_CAPACITY];
+    private double[] mCachedUsageConsumePower = new double[INITIAL_CAPACITY];
+    private int mSize;
+
+    int size() {
+        return mSize;
+    }
+
+    /** Removes all rows, keeping the arrays for the next slot. */
+    void clear() {
+        Arrays.fill(mHistEntries, 0, mSize, null);
+        mSize = 0;
+    }
+
+    /** Appends the usage of one consumer, {@code histEntry} provides its identity. */
+    void add(
+            BatteryHistEntry histEntry,
+            long foregroundUsageTimeInMs,
+            long foregroundServiceUsageTimeInMs,
+            long backgroundUsageTimeInMs,
+            long screenOnTimeInMs,
+            double consumePower,
+            double foregroundUsageConsumePower,
+            double foregroundServiceUsageConsumePower,
+            double backgroundUsageConsumePower,
+            double cachedUsageConsumePower) {
+        if (mSize == mHistEntries.length) {
+            grow();
+        }
+        final int row = mSize++;
+        mHistEntries[row] = histEntry;
+        mForegroundUsageTimeInMs[row] = foregroundUsageTimeInMs;
+        mForegroundServiceUsageTimeInMs[row] = foregroundServiceUsageTimeInMs;
+        mBackgroundUsageTimeInMs[row] = backgroundUsageTimeInMs;
+        mScreenOnTimeInMs[row] = screenOnTimeInMs;
+        mConsumePower[row] = consumePower;
+        mForegroundUsageConsumePower[row] = foregroundUsageConsumePower;
+        mForegroundServiceUsageConsumePower[row] = foregroundServiceUsageConsumePower;
+        mBackgroundUsageConsumePower[row] = backgroundUsageConsumePower;
+        mCachedUsageConsumePower[row] = cachedUsageConsumePower;
+    }
+
+    /**
+     * Creates entries for the rows at or above either threshold and splits them into app and
+     * system entries. Rows below both thresholds are skipped, the same way
+     * {@link BatteryDiffData} purges them.
+     */
+    void toDiffEntries(
+            Context context,
+            double screenOnTimeThresholdInMs,
+            double consumePowerThreshold,
+            List<BatteryDiffEntry> appEntries,
+            List<BatteryDiffEntry> systemEntries) {
+        for (int row = 0; row < mSize; row++) {
+            if (mScreenOnTimeInMs[row] < screenOnTimeThresholdInMs
+                    && mConsumePower[row] < consumePowerThreshold) {
+                continue;
+            }
+            final BatteryHistEntry histEntry = mHistEntries[row];
+            final BatteryDiffEntry entry =
+                    new BatteryDiffEntry(
+                            context,
+                            histEntry.mUid,
+                            histEntry.mUserId,
+                            histEntry.getKey(),
+                            histEntry.mIsHidden,
+                            histEntry.mDrainType,
+                            histEntry.mPackageName,
+                            histEntry.mAppLabel,
+                            histEntry.mConsumerType,
+                            mForegroundUsageTimeInMs[row],
+                            mForegroundServiceUsageTimeInMs[row],
+                            mBackgroundUsageTimeInMs[row],
+                            mScreenOnTimeInMs[row],
+                            mConsumePower[row],
+                            mForegroundUsageConsumePower[row],
+                            mForegroundServiceUsageConsumePower[row],
+                            mBackgroundUsageConsumePower[row],
+                            mCachedUsageConsumePower[row]);
+            if (entry.isSystemEntry()) {
+                systemEntries.add(entry);
+            } else {
+                appEntries.add(entry);
+            }
+        }
+    }
+
+    private void grow() {
+        final int capacity = mHistEntries.length * 2;
+        mHistEntries = Arrays.copyOf(mHistEntries, capacity);
+        mForegroundUsageTimeInMs = Arrays.copyOf(mForegroundUsageTimeInMs, capacity);
+        mForegroundServiceUsageTimeInMs = Arrays.copyOf(mForegroundServiceUsageTimeInMs, capacity);
+        mBackgroundUsageTimeInMs = Arrays.copyOf(mBackgroundUsageTimeInMs, capacity);
+        mScreenOnTimeInMs = Arrays.copyOf(mScreenOnTimeInMs, capacity);
+        mConsumePower = Arrays.copyOf(mConsumePower, capacity);
+        mForegroundUsageConsumePower = Arrays.copyOf(mForegroundUsageConsumePower, capacity);
+        mForegroundServiceUsageConsumePower =
+                Arrays.copyOf(mForegroundServiceUsageConsumePower, capacity);
+        mBackgroundUsageConsumePower = Arrays.copyOf(mBackgroundUsageConsumePower, capacity);
+        mCachedUsageConsumePower = Arrays.copyOf(mCachedUsageConsumePower, capacity);
+    }
+}
@@ -0,0 +1,294 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.homepage;
+
+import static com.android.settings.core.PreferenceXmlParserUtils.METADATA_ICON;
+import static com.android.settings.core.PreferenceXmlParserUtils.METADATA_KEY;
+import static com.android.settings.core.PreferenceXmlParserUtils.METADATA_SUMMARY;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.graphics.drawable.Drawable;
+import android.os.Build;
+import android.os.Bundle;
+import android.text.TextUtils;
+import android.util.ArrayMap;
+import android.util.Log;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.ImageView;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+import androidx.preference.Preference;
+import androidx.preference.PreferenceScreen;
+
+import com.android.settings.R;
+import com.android.settings.Utils;
+import com.android.settings.core.PreferenceXmlParserUtils;
+import com.android.settings.core.PreferenceXmlParserUtils.MetadataFlag;
+import com.android.settingslib.utils.ThreadUtils;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.xmlpull.v1.XmlPullParserException;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The last rendered list of top level entries, kept so that a cold started homepage can draw
+ * them before {@link TopLevelSettings} has resolved its controllers, XML and injected tiles.
+ *
+ * <p>The snapshot is read in the background when the process starts, so the homepage never touches
+ * disk to draw it. Only titles, icon resources and the summaries declared in
+ * {@code top_level_settings.xml} are kept, summaries computed by controllers are only reserved a
+ * line. The snapshot is dropped when the locale or the build changes, as both would make it stale.
+ */
+public class HomepageSnapshot {
+
+    private static final String TAG = "HomepageSnapshot";
+    private static final String PREFS_NAME = "homepage_snapshot";
+    private static final String PREF_ENTRIES = "entries";
+    private static final String PREF_VERSION = "version";
+
+    private static final String FIELD_KEY = "key";
+    private static final String FIELD_TITLE = "title";
+    private static final String FIELD_SUMMARY = "summary";
+    private static final String FIELD_HAS_SUMMARY = "has_summary";
+    private static final String FIELD_ICON = "icon";
+
+    // The latest entries, read at process start and replaced on each save.
+    @Nullable
+    private static volatile Snapshot sSnapshot;
+
+    /** One row of the top level list. */
+    static class Entry {
+        final String mKey;
+        final CharSequence mTitle;
+        // The summary declared in XML, if any.
+        final CharSequence mSummary;
+        final boolean mHasSummary;
+        final int mIconResId;
+
+        Entry(String key, CharSequence title, CharSequence summary, boolean hasSummary,
+                int iconResId) {
+            mKey = key;
+            mTitle = title;
+            mSummary = summary;
+            mHasSummary = hasSummary;
+            mIconResId = iconResId;
+        }
+    }
+
+    static class Snapshot {
+        final String mVersion;
+        final List<Entry> mEntries;
+
+        Snapshot(String version, List<Entry> entries) {
+            mVersion = version;
+            mEntries = entries;
+        }
+    }
+
+    private HomepageSnapshot() {}
+
+    /** Reads the saved snapshot in the background, ahead of the first homepage. */
+    public static void preload(Context context) {
+        final Context appContext = context.getApplicationContext();
+        ThreadUtils.postOnBackgroundThread(() -> {
+            final Snapshot snapshot = load(appContext);
+            synchronized (HomepageSnapshot.class) {
+                if (sSnapshot == null) {
+                    sSnapshot = snapshot;
+                }
+            }
+        });
+    }
+
+    /**
+     * Returns the entries in display order, or an empty list if there is no snapshot for the
+     * current locale and build, or it is not read yet.
+     */
+    @NonNull
+    static List<Entry> getEntries(Context context) {
+        final Snapshot snapshot = sSnapshot;
+        if (snapshot == null || !TextUtils.equals(snapshot.mVersion, getVersion(context))) {
+            return Collections.emptyList();
+        }
+        return snapshot.mEntries;
+    }
+
+    @VisibleForTesting
+    static Snapshot load(Context context) {
+        final SharedPreferences prefs = getPrefs(context);
+        final String version = prefs.getString(PREF_VERSION, null);
+        final String json = prefs.getString(PREF_ENTRIES, null);
+        if (version == null || json == null) {
+            return new Snapshot(null, Collections.emptyList());
+        }
+        try {
+            final JSONArray array = new JSONArray(json);
+            final List<Entry> entries = new ArrayList<>(array.length());
+            for (int i = 0; i < array.length(); i++) {
+                final JSONObject obj = array.getJSONObject(i);
+                entries.add(new Entry(obj.optString(FIELD_KEY), obj.optString(FIELD_TITLE),
+                        obj.optString(FIELD_SUMMARY), obj.optBoolean(FIELD_HAS_SUMMARY),
+                        obj.optInt(FIELD_ICON)));
+            }
+            return new Snapshot(version, Collections.unmodifiableList(entries));
+        } catch (JSONException e) {
+            Log.w(TAG, "Dropping unreadable snapshot", e);
+            return new Snapshot(null, Collections.emptyList());
+        }
+    }
+
+    /**
+     * Captures the visible entries of {@code screen} and persists them in the background if they
+     * changed.
+     */
+    static void save(Context context, PreferenceScreen screen) {
+        final List<Entry> entries = new ArrayList<>();
+        final int count = screen.getPreferenceCount();
+        for (int i = 0; i < count; i++) {
+            final Preference preference = screen.getPreference(i);
+            if (preference.isVisible() && !TextUtils.isEmpty(preference.getTitle())) {
+                entries.add(new Entry(preference.getKey(), preference.getTitle(),
+                        null /* summary */, !TextUtils.isEmpty(preference.getSummary()),
+                        0 /* iconResId */));
+            }
+        }
+        final Context appContext = context.getApplicationContext();
+        ThreadUtils.postOnBackgroundThread(() -> persist(appContext, entries));
+    }
+
+    /** Inflates the entries into {@code container}, styled like the live homepage rows. */
+    static void render(Context context, ViewGroup container, List<Entry> entries) {
+        final LayoutInflater inflater = LayoutInflater.from(context);
+        final int tintColor = Utils.getHomepageIconColor(context);
+        for (Entry entry : entries) {
+            final View row = inflater.inflate(R.layout.homepage_preference, container, false);
+            ((TextView) row.findViewById(android.R.id.title)).setText(entry.mTitle);
+            final TextView summary = row.findViewById(android.R.id.summary);
+            if (!TextUtils.isEmpty(entry.mSummary)) {
+                summary.setText(entry.mSummary);
+                summary.setVisibility(View.VISIBLE);
+            } else if (entry.mHasSummary) {
+                // Keep the height of the row, the summary is only known by its controller.
+                summary.setText(" ");
+                summary.setVisibility(View.INVISIBLE);
+            } else {
+                summary.setVisibility(View.GONE);
+            }
+            if (entry.mIconResId != 0) {
+                final Drawable icon = context.getDrawable(entry.mIconResId).mutate();
+                icon.setTint(tintColor);
+                ((ImageView) row.findViewById(android.R.id.icon)).setImageDrawable(icon);
+            }
+            container.addView(row);
+        }
+    }
+
+    /** Resolves the static attributes of {@code entries} and saves them, if they changed. */
+    @VisibleForTesting
+    static boolean persist(Context context, List<Entry> entries) {
+        final Map<String, Bundle> staticAttributes = getStaticAttributes(context);
+        final List<Entry> resolvedEntries = new ArrayList<>(entries.size());
+        final JSONArray array = new JSONArray();
+        try {
+            for (Entry entry : entries) {
+                final Bundle attributes = staticAttributes.get(entry.mKey);
+                final Entry resolved = new Entry(entry.mKey, entry.mTitle,
+                        attributes != null ? attributes.getString(METADATA_SUMMARY) : null,
+                        entry.mHasSummary,
+                        attributes != null ? attributes.getInt(METADATA_ICON) : 0);
+                resolvedEntries.add(resolved);
+                array.put(new JSONObject()
+                        .put(FIELD_KEY, resolved.mKey)
+                        .put(FIELD_TITLE, toString(resolved.mTitle))
+                        .put(FIELD_SUMMARY, toString(resolved.mSummary))
+                        .put(FIELD_HAS_SUMMARY, resolved.mHasSummary)
+                        .put(FIELD_ICON, resolved.mIconResId));
+            }
+        } catch (JSONException e) {
+            Log.w(TAG, "Failed to write snapshot", e);
+            return false;
+        }
+        final String version = getVersion(context);
+        final String json = array.toString();
+        synchronized (HomepageSnapshot.class) {
+            sSnapshot = new Snapshot(version, Collections.unmodifiableList(resolvedEntries));
+        }
+        final SharedPreferences prefs = getPrefs(context);
+        if (TextUtils.equals(prefs.getString(PREF_VERSION, null), version)
+                && TextUtils.equals(prefs.getString(PREF_ENTRIES, null), json)) {
+            return false;
+        }
+        prefs.edit()
+                .putString(PREF_VERSION, version)
+                .putString(PREF_ENTRIES, json)
+                .apply();
+        return true;
+    }
+
+    @VisibleForTesting
+    static void clear() {
+        synchronized (HomepageSnapshot.class) {
+            sSnapshot = null;
+        }
+    }
+
+    // Icons and summaries of the static entries are only known by resource in the XML, so read
+    // them from there. Injected tiles carry their own icon and are saved without one.
+    private static Map<String, Bundle> getStaticAttributes(Context context) {
+        final Map<String, Bundle> attributes = new ArrayMap<>();
+        try {
+            final List<Bundle> metadata = PreferenceXmlParserUtils.extractMetadata(context,
+                    R.xml.top_level_settings, MetadataFlag.FLAG_NEED_KEY
+                            | MetadataFlag.FLAG_NEED_PREF_ICON
+                            | MetadataFlag.FLAG_NEED_PREF_SUMMARY);
+            for (Bundle bundle : metadata) {
+                attributes.put(bundle.getString(METADATA_KEY), bundle);
+            }
+        } catch (IOException | XmlPullParserException e) {
+            Log.w(TAG, "Failed to read top level attributes", e);
+        }
+        return attributes;
+    }
+
+    // Settings only changes with the build, so the build fingerprint is enough to tell that the
+    // saved entries may be outdated.
+    private static String getVersion(Context context) {
+        return context.getResources().getConfiguration().getLocales().toLanguageTags()
+                + "/" + Build.FINGERPRINT;
+    }
+
+    private static String toString(CharSequence text) {
+        return text == null ? "" : text.toString();
+    }
+
+    private static SharedPreferences getPrefs(Context context) {
+        return context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+}
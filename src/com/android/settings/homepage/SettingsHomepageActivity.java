@@ -35,6 +35,7 @@ import android.content.res.Configuration;
 import android.net.Uri;
 import android.os.Bundle;
 import android.os.Process;
+import android.os.SystemClock;
 import android.os.UserHandle;
 import android.os.UserManager;
 import android.text.TextUtils;
@@ -42,6 +43,7 @@ import android.util.ArraySet;
 import android.util.FeatureFlagUtils;
 import android.util.Log;
 import android.view.View;
+import android.view.ViewGroup;
 import android.view.Window;
 import android.view.WindowManager;
 import android.widget.FrameLayout;
@@ -51,6 +53,7 @@ import android.widget.Toolbar;
 import androidx.annotation.VisibleForTesting;
 import androidx.core.graphics.Insets;
 import androidx.core.util.Consumer;
+import androidx.core.view.OneShotPreDrawListener;
 import androidx.core.view.ViewCompat;
 import androidx.core.view.WindowCompat;
 import androidx.core.view.WindowInsetsCompat;
@@ -72,6 +75,7 @@ import com.android.settings.activityembedding.ActivityEmbeddingRulesController;
 import com.android.settings.activityembedding.ActivityEmbeddingUtils;
 import com.android.settings.core.CategoryMixin;
 import com.android.settings.core.FeatureFlags;
+import com.android.settings.core.instrumentation.PageLatencyTracer;
 import com.android.settings.homepage.contextualcards.ContextualCardsFragment;
 import com.android.settings.overlay.FeatureFactory;
 import com.android.settings.safetycenter.SafetyCenterManagerWrapper;
@@ -120,6 +124,9 @@ public class SettingsHomepageActivity extends FragmentActivity implements
     private SplitControllerCallbackAdapter mSplitControllerAdapter;
     private SplitInfoCallback mCallback;
     private boolean mAllowUpdateSuggestion = true;
+    private long mCreateTimeNanos;
+    private boolean mMeaningfulFrameReported;
+    private View mSnapshotView;
 
     /** A listener receiving homepage loaded events. */
     public interface HomepageLoadedListener {
@@ -186,6 +193,7 @@ public class SettingsHomepageActivity extends FragmentActivity implements
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
+        mCreateTimeNanos = SystemClock.elapsedRealtimeNanos();
 
         // Ensure device is provisioned in order to access Settings home
         // TODO(b/331254029): This should later be replaced in favor of an allowlist
@@ -226,6 +234,9 @@ public class SettingsHomepageActivity extends FragmentActivity implements
         updateHomepageAppBar();
         updateHomepageBackground();
         mLoadedListeners = new ArraySet<>();
+        if (savedInstanceState == null) {
+            showSnapshot();
+        }
 
         initSearchBarView();
 
@@ -246,12 +257,28 @@ public class SettingsHomepageActivity extends FragmentActivity implements
                         .getLayoutTransition().enableTransitionType(LayoutTransition.CHANGING);
             }
         }
-        mMainFragment = showFragment(() -> {
+        final FragmentCreator<TopLevelSettings> mainFragmentCreator = () -> {
             final TopLevelSettings fragment = new TopLevelSettings();
             fragment.getArguments().putString(SettingsActivity.EXTRA_FRAGMENT_ARG_KEY,
                     highlightMenuKey);
             return fragment;
-        }, R.id.main_content);
+        };
+        if (mSnapshotView != null) {
+            // Let the snapshot reach the screen before the live list starts resolving its
+            // controllers and tiles.
+            mMainFragment = mainFragmentCreator.create();
+            final TopLevelSettings mainFragment = mMainFragment;
+            final View snapshotView = mSnapshotView;
+            OneShotPreDrawListener.add(snapshotView, () -> snapshotView.post(() -> {
+                if (!isDestroyed()) {
+                    getSupportFragmentManager().beginTransaction()
+                            .add(R.id.main_content, mainFragment)
+                            .commitAllowingStateLoss();
+                }
+            }));
+        } else {
+            mMainFragment = showFragment(mainFragmentCreator, R.id.main_content);
+        }
 
         // Launch the intent from deep link for large screen devices.
         if (shouldLaunchDeepLinkIntentToRight()) {
@@ -271,6 +298,51 @@ public class SettingsHomepageActivity extends FragmentActivity implements
         enableTaskLocaleOverride();
     }
 
+    /**
+     * Called by {@link TopLevelSettings} when its list is about to draw. Replaces the snapshot, if
+     * one is shown, with the live list.
+     */
+    void onMainContentReady() {
+        if (mSnapshotView != null) {
+            mSnapshotView.setVisibility(View.GONE);
+            mSnapshotView = null;
+            findViewById(R.id.main_content).setVisibility(View.VISIBLE);
+        }
+        reportMeaningfulFrame();
+    }
+
+    @VisibleForTesting
+    boolean isShowingSnapshot() {
+        return mSnapshotView != null;
+    }
+
+    // Draws the last known top level entries right away on a cold start. The live list is laid
+    // out invisibly below and swapped in by onMainContentReady().
+    private void showSnapshot() {
+        final List<HomepageSnapshot.Entry> entries = HomepageSnapshot.getEntries(this);
+        if (entries.isEmpty()) {
+            return;
+        }
+        final ViewGroup snapshotView = findViewById(R.id.main_content_snapshot);
+        HomepageSnapshot.render(this, snapshotView, entries);
+        snapshotView.setVisibility(View.VISIBLE);
+        findViewById(R.id.main_content).setVisibility(View.INVISIBLE);
+        mSnapshotView = snapshotView;
+        OneShotPreDrawListener.add(snapshotView, this::reportMeaningfulFrame);
+    }
+
+    private void reportMeaningfulFrame() {
+        if (mMeaningfulFrameReported) {
+            return;
+        }
+        mMeaningfulFrameReported = true;
+        final long durationNanos = SystemClock.elapsedRealtimeNanos() - mCreateTimeNanos;
+        Log.i(TAG, "First meaningful frame after " + durationNanos / 1_000_000 + "ms"
+                + (mSnapshotView != null ? " from snapshot" : ""));
+        PageLatencyTracer.getInstance().recordPhase(TAG,
+                PageLatencyTracer.PHASE_FIRST_MEANINGFUL_FRAME, durationNanos);
+    }
+
     @VisibleForTesting
     void initSplitPairRules() {
         new ActivityEmbeddingRulesController(getApplicationContext()).initRules();
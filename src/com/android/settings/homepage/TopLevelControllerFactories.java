@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.homepage;
+
+import com.android.settings.accessibility.TopLevelAccessibilityPreferenceController;
+import com.android.settings.accounts.TopLevelAccountEntryPreferenceController;
+import com.android.settings.communal.CommunalPreferenceController;
+import com.android.settings.connecteddevice.TopLevelConnectedDevicesPreferenceController;
+import com.android.settings.core.PreferenceControllerFactories;
+import com.android.settings.deviceinfo.TopLevelStoragePreferenceController;
+import com.android.settings.deviceinfo.aboutphone.TopLevelAboutDevicePreferenceController;
+import com.android.settings.display.TopLevelDisplayPreferenceController;
+import com.android.settings.display.TopLevelWallpaperPreferenceController;
+import com.android.settings.fuelgauge.TopLevelBatteryPreferenceController;
+import com.android.settings.location.TopLevelLocationPreferenceController;
+import com.android.settings.network.TopLevelNetworkEntryPreferenceController;
+import com.android.settings.privacy.TopLevelPrivacyEntryPreferenceController;
+import com.android.settings.safetycenter.TopLevelSafetyCenterEntryPreferenceController;
+import com.android.settings.security.TopLevelSecurityEntryPreferenceController;
+import com.android.settings.support.SupportPreferenceController;
+
+/**
+ * Registers direct factories for the controllers declared in top_level_settings.xml, so that
+ * building the homepage on a cold start does not look up any controller through reflection.
+ * Keep it in sync with the XML; TopLevelControllerFactoriesTest fails on a missing controller.
+ */
+final class TopLevelControllerFactories {
+
+    private TopLevelControllerFactories() {}
+
+    // The top level controllers only have a (Context, String) constructor.
+    static void register() {
+        PreferenceControllerFactories.registerKeyedOnly(
+                TopLevelAccessibilityPreferenceController.class.getName(),
+                TopLevelAccessibilityPreferenceController::new);
+        PreferenceControllerFactories.registerKeyedOnly(
+                TopLevelAccountEntryPreferenceController.class.getName(),
+                TopLevelAccountEntryPreferenceController::new);
+        PreferenceControllerFactories.registerKeyedOnly(
+                CommunalPreferenceController.class.getName(), CommunalPreferenceController::new);
+        PreferenceControllerFactories.registerKeyedOnly(
+                TopLevelConnectedDevicesPreferenceController.class.getName(),
+                TopLevelConnectedDevicesPreferenceController::new);
+        PreferenceControllerFactories.registerKeyedOnly(
+                TopLevelStoragePreferenceController.class.getName(),
+                TopLevelStoragePreferenceController::new);
+        PreferenceControllerFactories.registerKeyedOnly(
+                TopLevelAboutDevicePreferenceController.class.getName(),
+                TopLevelAboutDevicePreferenceController::new);
+        PreferenceControllerFactories.registerKeyedOnly(
+                TopLevelDisplayPreferenceController.class.getName(),
+                TopLevelDisplayPreferenceController::new);
+        PreferenceControllerFactories.registerKeyedOnly(
+                TopLevelWallpaperPreferenceController.class.getName(),
+                TopLevelWallpaperPreferenceController::new);
+        PreferenceControllerFactories.registerKeyedOnly(
+                TopLevelBatteryPreferenceController.class.getName(),
+                TopLevelBatteryPreferenceController::new);
+        PreferenceControllerFactories.registerKeyedOnly(
+                TopLevelLocationPreferenceController.class.getName(),
+                TopLevelLocationPreferenceController::new);
+        PreferenceControllerFactories.registerKeyedOnly(
+                TopLevelNetworkEntryPreferenceController.class.getName(),
+                TopLevelNetworkEntryPreferenceController::new);
+        PreferenceControllerFactories.registerKeyedOnly(
+                TopLevelPrivacyEntryPreferenceController.class.getName(),
+                TopLevelPrivacyEntryPreferenceController::new);
+        PreferenceControllerFactories.registerKeyedOnly(
+                TopLevelSafetyCenterEntryPreferenceController.class.getName(),
+                TopLevelSafetyCenterEntryPreferenceController::new);
+        PreferenceControllerFactories.registerKeyedOnly(
+                TopLevelSecurityEntryPreferenceController.class.getName(),
+                TopLevelSecurityEntryPreferenceController::new);
+        PreferenceControllerFactories.registerKeyedOnly(
+                SupportPreferenceController.class.getName(), SupportPreferenceController::new);
+    }
+}
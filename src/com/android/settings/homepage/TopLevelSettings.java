@@ -28,9 +28,13 @@ import android.os.Bundle;
 import android.text.TextUtils;
 import android.util.Log;
 import android.view.LayoutInflater;
+import android.view.View;
 import android.view.ViewGroup;
 
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.annotation.VisibleForTesting;
+import androidx.core.view.OneShotPreDrawListener;
 import androidx.fragment.app.Fragment;
 import androidx.preference.Preference;
 import androidx.preference.PreferenceFragmentCompat;
@@ -61,6 +65,10 @@ public class TopLevelSettings extends DashboardFragment implements SplitLayoutLi
     private static final String SAVED_HIGHLIGHT_MIXIN = "highlight_mixin";
     private static final String PREF_KEY_SUPPORT = "top_level_support";
 
+    static {
+        TopLevelControllerFactories.register();
+    }
+
     private boolean mIsEmbeddingActivityEnabled;
     private TopLevelHighlightMixin mHighlightMixin;
     private int mPaddingHorizontal;
@@ -197,6 +205,24 @@ public class TopLevelSettings extends DashboardFragment implements SplitLayoutLi
         return taskInfo.numActivities == 1;
     }
 
+    @Override
+    public void onViewCreated(@NonNull View view, @Nullable Bundle savedInstanceState) {
+        super.onViewCreated(view, savedInstanceState);
+        if (getActivity() instanceof SettingsHomepageActivity) {
+            OneShotPreDrawListener.add(view,
+                    ((SettingsHomepageActivity) getActivity())::onMainContentReady);
+        }
+    }
+
+    @Override
+    public void onStop() {
+        super.onStop();
+        final PreferenceScreen screen = getPreferenceScreen();
+        if (screen != null && getActivity() instanceof SettingsHomepageActivity) {
+            HomepageSnapshot.save(getContext(), screen);
+        }
+    }
+
     @Override
     public void onSaveInstanceState(Bundle outState) {
         super.onSaveInstanceState(outState);
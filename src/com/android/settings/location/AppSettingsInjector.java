@@ -16,10 +16,21 @@
 
 package com.android.settings.location;
 
+import android.content.ComponentName;
 import android.content.Context;
 import android.content.Intent;
+import android.location.SettingInjectorService;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Message;
+import android.os.Messenger;
+import android.os.SystemClock;
 import android.text.TextUtils;
+import android.util.ArrayMap;
+import android.util.Log;
 
+import androidx.annotation.VisibleForTesting;
 import androidx.preference.Preference;
 
 import com.android.settings.overlay.FeatureFactory;
@@ -29,29 +40,179 @@ import com.android.settingslib.location.InjectedSetting;
 import com.android.settingslib.location.SettingsInjector;
 import com.android.settingslib.widget.AppPreference;
 
+import java.util.List;
+import java.util.Map;
+
 /**
  * Adds the preferences specified by the {@link InjectedSetting} objects to a preference group.
+ *
+ * <p>Status messages are requested from every injected service at once rather than one after the
+ * other, each with its own timeout, and every row is updated as soon as its own reply arrives.
+ * Until then a row shows the last summary its service reported in this process.
  */
 public class AppSettingsInjector extends SettingsInjector {
 
+    private static final String TAG = "AppSettingsInjector";
+
+    @VisibleForTesting
+    static final long STATUS_TIMEOUT_MILLIS = 1000;
+    private static final int MAX_CACHED_SUMMARIES = 64;
+
+    // Last known summaries, keyed by service component and user.
+    private static final Map<String, CharSequence> sSummaryCache = new ArrayMap<>();
+
     private final MetricsFeatureProvider mMetricsFeatureProvider;
     private final int mMetricsCategory;
+    private final Context mContext;
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final Map<Preference, InjectedSetting> mInjectedSettings = new ArrayMap<>();
+    private int mGeneration;
 
     public AppSettingsInjector(Context context, int metricsCategory) {
         super(context);
+        mContext = context;
         mMetricsCategory = metricsCategory;
         mMetricsFeatureProvider = FeatureFactory.getFeatureFactory().getMetricsFeatureProvider();
     }
 
+    @Override
+    public Map<Integer, List<Preference>> getInjectedSettings(Context prefContext,
+            int profileId) {
+        mInjectedSettings.clear();
+        final Map<Integer, List<Preference>> result =
+                super.getInjectedSettings(prefContext, profileId);
+        for (Map.Entry<Preference, InjectedSetting> entry : mInjectedSettings.entrySet()) {
+            final CharSequence summary = getCachedSummary(entry.getValue());
+            if (summary != null && TextUtils.isEmpty(entry.getKey().getSummary())) {
+                entry.getKey().setSummary(summary);
+            }
+        }
+        return result;
+    }
+
     @Override
     protected Preference createPreference(Context prefContext, InjectedSetting setting) {
-        return TextUtils.isEmpty(setting.userRestriction)
+        final Preference preference = TextUtils.isEmpty(setting.userRestriction)
                 ? new AppPreference(prefContext)
                 : new RestrictedAppPreference(prefContext, setting.userRestriction);
+        mInjectedSettings.put(preference, setting);
+        return preference;
     }
 
     @Override
     protected void logPreferenceClick(Intent intent) {
         mMetricsFeatureProvider.logStartedIntent(intent, mMetricsCategory);
     }
+
+    /**
+     * Asks every injected service for its current status in parallel. Replies from an earlier
+     * reload are ignored.
+     */
+    @Override
+    public void reloadStatusMessages() {
+        mGeneration++;
+        mHandler.removeCallbacksAndMessages(null);
+        for (Map.Entry<Preference, InjectedSetting> entry : mInjectedSettings.entrySet()) {
+            requestStatus(entry.getKey(), entry.getValue(), mGeneration);
+        }
+    }
+
+    private void requestStatus(Preference preference, InjectedSetting setting, int generation) {
+        final long startMillis = SystemClock.elapsedRealtime();
+        final StatusRequest request = new StatusRequest(preference, setting, generation);
+        final Intent intent = new Intent()
+                .setClassName(setting.packageName, setting.className)
+                .putExtra(SettingInjectorService.MESSENGER_KEY, new Messenger(
+                        new Handler(Looper.getMainLooper(), msg -> {
+                            onStatusReceived(request, msg, startMillis);
+                            return true;
+                        })));
+        mHandler.postDelayed(request, STATUS_TIMEOUT_MILLIS);
+        try {
+            mContext.startServiceAsUser(intent, setting.mUserHandle);
+        } catch (SecurityException | IllegalStateException e) {
+            Log.w(TAG, "Failed to request status from " + setting.className, e);
+            mHandler.removeCallbacks(request);
+        }
+    }
+
+    @VisibleForTesting
+    void onStatusReceived(StatusRequest request, Message msg, long startMillis) {
+        if (request.mGeneration != mGeneration || request.mDone) {
+            return;
+        }
+        request.mDone = true;
+        mHandler.removeCallbacks(request);
+        final Bundle bundle = msg.getData();
+        final String summary = bundle.getString(SettingInjectorService.SUMMARY_KEY);
+        final boolean enabled = bundle.getBoolean(SettingInjectorService.ENABLED_KEY, true);
+        if (Log.isLoggable(TAG, Log.DEBUG)) {
+            Log.d(TAG, request.mSetting.className + " replied in "
+                    + (SystemClock.elapsedRealtime() - startMillis) + "ms");
+        }
+        request.mPreference.setSummary(summary);
+        request.mPreference.setEnabled(enabled);
+        putCachedSummary(request.mSetting, summary);
+    }
+
+    @VisibleForTesting
+    int getGeneration() {
+        return mGeneration;
+    }
+
+    @VisibleForTesting
+    static CharSequence getCachedSummary(InjectedSetting setting) {
+        synchronized (sSummaryCache) {
+            return sSummaryCache.get(getCacheKey(setting));
+        }
+    }
+
+    @VisibleForTesting
+    static void clearSummaryCache() {
+        synchronized (sSummaryCache) {
+            sSummaryCache.clear();
+        }
+    }
+
+    private static void putCachedSummary(InjectedSetting setting, CharSequence summary) {
+        synchronized (sSummaryCache) {
+            if (summary == null) {
+                sSummaryCache.remove(getCacheKey(setting));
+                return;
+            }
+            if (sSummaryCache.size() >= MAX_CACHED_SUMMARIES) {
+                sSummaryCache.clear();
+            }
+            sSummaryCache.put(getCacheKey(setting), summary);
+        }
+    }
+
+    private static String getCacheKey(InjectedSetting setting) {
+        return new ComponentName(setting.packageName, setting.className).flattenToShortString()
+                + "/" + (setting.mUserHandle != null ? setting.mUserHandle.getIdentifier() : 0);
+    }
+
+    /** One outstanding status request; running it means the service did not reply in time. */
+    @VisibleForTesting
+    static class StatusRequest implements Runnable {
+        final Preference mPreference;
+        final InjectedSetting mSetting;
+        final int mGeneration;
+        boolean mDone;
+
+        StatusRequest(Preference preference, InjectedSetting setting, int generation) {
+            mPreference = preference;
+            mSetting = setting;
+            mGeneration = generation;
+        }
+
+        @Override
+        public void run() {
+            if (!mDone) {
+                mDone = true;
+                Log.w(TAG, mSetting.className + " did not reply within "
+                        + STATUS_TIMEOUT_MILLIS + "ms, keeping its last known summary");
+            }
+        }
+    }
 }
@@ -0,0 +1,210 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.media;
+
+import android.content.Context;
+import android.text.TextUtils;
+import android.util.ArrayMap;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import com.android.settingslib.media.LocalMediaManager;
+import com.android.settingslib.media.MediaDevice;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Process-wide owner of the {@link LocalMediaManager} scans used by the media output slices.
+ *
+ * <p>Workers that look at the same media package share a single manager and a single scan. The
+ * scan starts with the first subscriber and stops as soon as the last one leaves. Every device
+ * list update is forwarded, since the devices in an unchanged list may still have changed state,
+ * and a late subscriber immediately receives the latest list instead of waiting for the next scan
+ * result. Scans are started and stopped, and callbacks are delivered, without holding the lock of
+ * the hub.
+ */
+public final class MediaDeviceDiscoveryHub {
+
+    private static final String TAG = "MediaDeviceDiscoveryHub";
+
+    private static final MediaDeviceDiscoveryHub sInstance = new MediaDeviceDiscoveryHub();
+
+    private final Map<String, Discovery> mDiscoveries = new ArrayMap<>();
+
+    /** Returns the process-wide hub. */
+    public static MediaDeviceDiscoveryHub getInstance() {
+        return sInstance;
+    }
+
+    @VisibleForTesting
+    MediaDeviceDiscoveryHub() {}
+
+    /**
+     * Subscribes {@code callback} to the devices available to {@code packageName}, starting the
+     * scan if nobody else is scanning for that package yet.
+     *
+     * @param reusableManager a manager the caller already holds, used instead of creating a new
+     *                        one when it targets the same package and no scan is running yet
+     * @return the manager shared by every subscriber of {@code packageName}
+     */
+    public LocalMediaManager subscribe(Context context, @Nullable String packageName,
+            LocalMediaManager.DeviceCallback callback,
+            @Nullable LocalMediaManager reusableManager) {
+        final Discovery discovery;
+        synchronized (mDiscoveries) {
+            Discovery existing = mDiscoveries.get(packageName);
+            if (existing == null) {
+                final LocalMediaManager manager = reusableManager != null
+                        && TextUtils.equals(packageName, reusableManager.getPackageName())
+                        ? reusableManager
+                        : new LocalMediaManager(context, packageName, null /* notification */);
+                existing = new Discovery(manager);
+                mDiscoveries.put(packageName, existing);
+            }
+            discovery = existing;
+            if (!discovery.addSubscriber(callback)) {
+                return discovery.mManager;
+            }
+        }
+        discovery.updateScan();
+        discovery.replayTo(callback);
+        return discovery.mManager;
+    }
+
+    /**
+     * Unsubscribes {@code callback} from {@code packageName}, stopping the scan if it was the last
+     * subscriber.
+     */
+    public void unsubscribe(@Nullable String packageName,
+            LocalMediaManager.DeviceCallback callback) {
+        final Discovery discovery;
+        synchronized (mDiscoveries) {
+            discovery = mDiscoveries.get(packageName);
+            if (discovery == null || !discovery.mSubscribers.remove(callback)) {
+                return;
+            }
+        }
+        discovery.updateScan();
+        synchronized (mDiscoveries) {
+            // Only forget the discovery once its scan is stopped, so a new discovery for the same
+            // package can't start scanning on a manager that is still being stopped.
+            if (discovery.mSubscribers.isEmpty() && mDiscoveries.get(packageName) == discovery) {
+                mDiscoveries.remove(packageName);
+            }
+        }
+    }
+
+    @VisibleForTesting
+    int getSubscriberCount(@Nullable String packageName) {
+        synchronized (mDiscoveries) {
+            final Discovery discovery = mDiscoveries.get(packageName);
+            return discovery == null ? 0 : discovery.mSubscribers.size();
+        }
+    }
+
+    @VisibleForTesting
+    void reset() {
+        synchronized (mDiscoveries) {
+            mDiscoveries.clear();
+        }
+    }
+
+    /** One running scan and the subscribers it fans out to. */
+    private static class Discovery implements LocalMediaManager.DeviceCallback {
+        final LocalMediaManager mManager;
+        final List<LocalMediaManager.DeviceCallback> mSubscribers = new CopyOnWriteArrayList<>();
+
+        @Nullable
+        private volatile List<MediaDevice> mLastDevices;
+        private boolean mScanning;
+
+        Discovery(LocalMediaManager manager) {
+            mManager = manager;
+        }
+
+        boolean addSubscriber(LocalMediaManager.DeviceCallback callback) {
+            if (mSubscribers.contains(callback)) {
+                return false;
+            }
+            mSubscribers.add(callback);
+            return true;
+        }
+
+        /** Starts or stops the scan so that it runs exactly while there are subscribers. */
+        synchronized void updateScan() {
+            final boolean shouldScan = !mSubscribers.isEmpty();
+            if (shouldScan == mScanning) {
+                return;
+            }
+            mScanning = shouldScan;
+            if (shouldScan) {
+                Log.d(TAG, "start scan for " + mManager.getPackageName());
+                mManager.registerCallback(this);
+                mManager.startScan();
+            } else {
+                Log.d(TAG, "stop scan for " + mManager.getPackageName());
+                mManager.unregisterCallback(this);
+                mManager.stopScan();
+                mLastDevices = null;
+            }
+        }
+
+        void replayTo(LocalMediaManager.DeviceCallback callback) {
+            final List<MediaDevice> devices = mLastDevices;
+            if (devices != null) {
+                callback.onDeviceListUpdate(devices);
+            }
+        }
+
+        @Override
+        public void onDeviceListUpdate(List<MediaDevice> devices) {
+            final List<MediaDevice> snapshot =
+                    Collections.unmodifiableList(new ArrayList<>(devices));
+            mLastDevices = snapshot;
+            for (LocalMediaManager.DeviceCallback subscriber : mSubscribers) {
+                subscriber.onDeviceListUpdate(snapshot);
+            }
+        }
+
+        @Override
+        public void onSelectedDeviceStateChanged(MediaDevice device, int state) {
+            for (LocalMediaManager.DeviceCallback subscriber : mSubscribers) {
+                subscriber.onSelectedDeviceStateChanged(device, state);
+            }
+        }
+
+        @Override
+        public void onDeviceAttributesChanged() {
+            for (LocalMediaManager.DeviceCallback subscriber : mSubscribers) {
+                subscriber.onDeviceAttributesChanged();
+            }
+        }
+
+        @Override
+        public void onRequestFailed(int reason) {
+            for (LocalMediaManager.DeviceCallback subscriber : mSubscribers) {
+                subscriber.onRequestFailed(reason);
+            }
+        }
+    }
+}
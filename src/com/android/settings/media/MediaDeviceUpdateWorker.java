@@ -79,27 +79,22 @@ public class MediaDeviceUpdateWorker extends SliceBackgroundWorker
     protected void onSlicePinned() {
         mMediaDevices.clear();
         mIsTouched = false;
-        if (mLocalMediaManager == null || !TextUtils.equals(mPackageName,
-                mLocalMediaManager.getPackageName())) {
-            mLocalMediaManager = new LocalMediaManager(mContext, mPackageName, null);
-        }
 
         // Delaying initialization to allow mocking in Roboelectric tests.
         if (mManager == null) {
             mManager = MediaRouter2Manager.getInstance(mContext);
         }
 
-        mLocalMediaManager.registerCallback(this);
         final IntentFilter intentFilter = new IntentFilter(STREAM_DEVICES_CHANGED_ACTION);
         mContext.registerReceiver(mReceiver, intentFilter);
-        mLocalMediaManager.startScan();
+        mLocalMediaManager = MediaDeviceDiscoveryHub.getInstance().subscribe(mContext,
+                mPackageName, this, mLocalMediaManager);
     }
 
     @Override
     protected void onSliceUnpinned() {
-        mLocalMediaManager.unregisterCallback(this);
+        MediaDeviceDiscoveryHub.getInstance().unsubscribe(mPackageName, this);
         mContext.unregisterReceiver(mReceiver);
-        mLocalMediaManager.stopScan();
     }
 
     @Override
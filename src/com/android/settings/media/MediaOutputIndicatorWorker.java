@@ -62,6 +62,11 @@ public class MediaOutputIndicatorWorker extends SliceBackgroundWorker implements
     private LocalBluetoothManager mLocalBluetoothManager;
     private String mPackageName;
 
+    // Guards the hub subscription, which is made in the background after the slice is pinned.
+    private final Object mSubscriptionLock = new Object();
+    private boolean mPinned;
+    private boolean mSubscribed;
+
     @VisibleForTesting
     LocalMediaManager mLocalMediaManager;
 
@@ -83,28 +88,36 @@ public class MediaOutputIndicatorWorker extends SliceBackgroundWorker implements
         mContext.registerReceiver(mReceiver, intentFilter);
         mLocalBluetoothManager.getEventManager().registerCallback(this);
 
+        synchronized (mSubscriptionLock) {
+            mPinned = true;
+        }
         ThreadUtils.postOnBackgroundThread(() -> {
             final MediaController controller = getActiveLocalMediaController();
-            if (controller == null) {
-                mPackageName = null;
-            } else {
-                mPackageName = controller.getPackageName();
+            final String packageName = controller == null ? null : controller.getPackageName();
+            synchronized (mSubscriptionLock) {
+                // The slice may have been unpinned while looking for the media controller.
+                if (!mPinned) {
+                    return;
+                }
+                if (mSubscribed && !TextUtils.equals(mPackageName, packageName)) {
+                    MediaDeviceDiscoveryHub.getInstance().unsubscribe(mPackageName, this);
+                }
+                mPackageName = packageName;
+                mLocalMediaManager = MediaDeviceDiscoveryHub.getInstance().subscribe(mContext,
+                        mPackageName, this, mLocalMediaManager);
+                mSubscribed = true;
             }
-            if (mLocalMediaManager == null || !TextUtils.equals(mPackageName,
-                    mLocalMediaManager.getPackageName())) {
-                mLocalMediaManager = new LocalMediaManager(mContext, mPackageName,
-                        null /* notification */);
-            }
-            mLocalMediaManager.registerCallback(this);
-            mLocalMediaManager.startScan();
         });
     }
 
     @Override
     protected void onSliceUnpinned() {
-        if (mLocalMediaManager != null) {
-            mLocalMediaManager.unregisterCallback(this);
-            mLocalMediaManager.stopScan();
+        synchronized (mSubscriptionLock) {
+            mPinned = false;
+            if (mSubscribed) {
+                MediaDeviceDiscoveryHub.getInstance().unsubscribe(mPackageName, this);
+                mSubscribed = false;
+            }
         }
 
         if (mLocalBluetoothManager == null) {
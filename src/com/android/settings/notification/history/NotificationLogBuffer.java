@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.notification.history;
+
+import android.util.ArrayMap;
+
+import androidx.annotation.Nullable;
+
+import java.util.Map;
+
+/**
+ * Fixed-capacity, newest-first log of notification entries.
+ *
+ * <p>Entries are stored in a ring so that adding a new entry never shifts the existing ones, and
+ * the oldest entry is evicted once the log is full. An index from notification key to the newest
+ * entry posted with that key lets posted/removed events find their row without scanning the log.
+ */
+class NotificationLogBuffer<T> {
+
+    private final Object[] mEntries;
+    private final String[] mKeys;
+    private final Map<String, Integer> mNewestSlotByKey = new ArrayMap<>();
+    private int mHead;
+    private int mSize;
+
+    NotificationLogBuffer(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        mEntries = new Object[capacity];
+        mKeys = new String[capacity];
+    }
+
+    /**
+     * Adds an entry as the newest one in the log.
+     *
+     * @return the entry evicted to make room for it, or {@code null} if the log was not full
+     */
+    @Nullable
+    T addFirst(String key, T entry) {
+        final int capacity = mEntries.length;
+        mHead = (mHead + capacity - 1) % capacity;
+        T evicted = null;
+        if (mSize == capacity) {
+            evicted = entryAt(mHead);
+            final String evictedKey = mKeys[mHead];
+            final Integer slot = mNewestSlotByKey.get(evictedKey);
+            if (slot != null && slot == mHead) {
+                mNewestSlotByKey.remove(evictedKey);
+            }
+        } else {
+            mSize++;
+        }
+        mEntries[mHead] = entry;
+        mKeys[mHead] = key;
+        mNewestSlotByKey.put(key, mHead);
+        return evicted;
+    }
+
+    /** Returns the newest entry posted with the given key, or {@code null} if there is none. */
+    @Nullable
+    T getNewest(String key) {
+        final Integer slot = mNewestSlotByKey.get(key);
+        return slot == null ? null : entryAt(slot);
+    }
+
+    /** Returns the entry at the given position, where {@code 0} is the newest entry. */
+    T get(int index) {
+        if (index < 0 || index >= mSize) {
+            throw new IndexOutOfBoundsException("index " + index + ", size " + mSize);
+        }
+        return entryAt((mHead + index) % mEntries.length);
+    }
+
+    int size() {
+        return mSize;
+    }
+
+    boolean isEmpty() {
+        return mSize == 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    private T entryAt(int slot) {
+        return (T) mEntries[slot];
+    }
+}
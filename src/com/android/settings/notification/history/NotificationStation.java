@@ -49,6 +49,8 @@ import android.text.SpannableString;
 import android.text.SpannableStringBuilder;
 import android.text.TextUtils;
 import android.text.style.StyleSpan;
+import android.util.ArrayMap;
+import android.util.ArraySet;
 import android.util.Log;
 import android.view.View;
 import android.view.ViewGroup;
@@ -66,8 +68,9 @@ import com.android.settings.Utils;
 
 import java.util.ArrayList;
 import java.util.Comparator;
-import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 public class NotificationStation extends SettingsPreferenceFragment {
     private static final String TAG = NotificationStation.class.getSimpleName();
@@ -76,6 +79,11 @@ public class NotificationStation extends SettingsPreferenceFragment {
     private static final boolean DUMP_EXTRAS = true;
     private static final boolean DUMP_PARCEL = true;
 
+    // Number of dismissed notifications requested from the system when (re)connecting.
+    private static final int MAX_HISTORICAL_NOTIFICATIONS = 50;
+    // Upper bound of rows kept in the log; the oldest row is recycled once it is reached.
+    private static final int MAX_LOG_ENTRIES = 150;
+
     private static class HistoricalNotificationInfo {
         public String key;
         public NotificationChannel channel;
@@ -116,7 +124,11 @@ public class NotificationStation extends SettingsPreferenceFragment {
     private PackageManager mPm;
     private INotificationManager mNoMan;
     private RankingMap mRanking;
-    private LinkedList<HistoricalNotificationInfo> mNotificationInfos;
+    private NotificationLogBuffer<HistoricalNotificationInfo> mNotificationInfos;
+    private final Map<HistoricalNotificationInfo, HistoricalNotificationPreference> mPreferences =
+            new ArrayMap<>();
+    // Orders handed to new rows; decreasing so the newest row is always on top.
+    private int mNextOrder;
 
     private final NotificationListenerService mListener = new NotificationListenerService() {
         @Override
@@ -171,7 +183,9 @@ public class NotificationStation extends SettingsPreferenceFragment {
         mPm = mContext.getPackageManager();
         mNoMan = INotificationManager.Stub.asInterface(
                 ServiceManager.getService(Context.NOTIFICATION_SERVICE));
-        mNotificationInfos = new LinkedList<>();
+        mNotificationInfos = new NotificationLogBuffer<>(MAX_LOG_ENTRIES);
+        mPreferences.clear();
+        mNextOrder = 0;
     }
 
     @Override
@@ -217,35 +231,56 @@ public class NotificationStation extends SettingsPreferenceFragment {
     }
 
     /**
-     * Adds all current and historical notifications when the NLS connects.
+     * Adds all current and historical notifications when the NLS connects. The log survives the
+     * listener being unregistered while paused, so on reconnect only the notifications posted or
+     * dismissed in the meantime are applied.
      */
     private void populateNotifications() {
-        loadNotifications();
-        final int N = mNotificationInfos.size();
-        logd("adding %d infos", N);
         if (getPreferenceScreen() == null) {
             setPreferenceScreen(getPreferenceManager().createPreferenceScreen(getContext()));
         }
-        getPreferenceScreen().removeAll();
-        for (int i = 0; i < N; i++) {
-            getPreferenceScreen().addPreference(new HistoricalNotificationPreference(
-                    getPrefContext(), mNotificationInfos.get(i), i));
+        final List<HistoricalNotificationInfo> loaded = new ArrayList<>();
+        final Set<String> activeKeys = new ArraySet<>();
+        if (!loadNotifications(loaded, activeKeys)) {
+            return;
+        }
+        // Loaded infos are newest first; apply them oldest first so the newest end up on top. An
+        // active notification updated while we were not listening keeps its row, like it would
+        // in addOrUpdateNotification().
+        int added = 0;
+        for (int i = loaded.size() - 1; i >= 0; i--) {
+            final HistoricalNotificationInfo newInfo = loaded.get(i);
+            final HistoricalNotificationInfo info = mNotificationInfos.getNewest(newInfo.key);
+            if (info != null && info.active
+                    && !newInfo.alerted && !newInfo.visuallyInterruptive) {
+                info.updateFrom(newInfo);
+                updateRow(info);
+            } else {
+                addRow(newInfo);
+                added++;
+            }
+        }
+
+        // Notifications no longer active were dismissed while we were not listening.
+        final int size = mNotificationInfos.size();
+        for (int i = 0; i < size; i++) {
+            final HistoricalNotificationInfo info = mNotificationInfos.get(i);
+            if (info.active && !activeKeys.contains(info.key)) {
+                info.active = false;
+                updateRow(info);
+            }
         }
+        logd("added %d infos, %d total", added, mNotificationInfos.size());
     }
 
     /**
      * Finds and dims the given notification in the preferences list.
      */
     private void markNotificationAsDismissed(StatusBarNotification sbn) {
-        final int N = mNotificationInfos.size();
-        for (int i = 0; i < N; i++) {
-            final HistoricalNotificationInfo info = mNotificationInfos.get(i);
-            if (TextUtils.equals(info.key, sbn.getKey())) {
-                info.active = false;
-                ((HistoricalNotificationPreference) getPreferenceScreen().findPreference(
-                        sbn.getKey())).updatePreference(info);
-               break;
-            }
+        final HistoricalNotificationInfo info = mNotificationInfos.getNewest(sbn.getKey());
+        if (info != null) {
+            info.active = false;
+            updateRow(info);
         }
     }
 
@@ -255,25 +290,13 @@ public class NotificationStation extends SettingsPreferenceFragment {
      */
     private void addOrUpdateNotification(StatusBarNotification sbn) {
         HistoricalNotificationInfo newInfo = createFromSbn(sbn, true);
-        boolean needsAdd = true;
-        final int N = mNotificationInfos.size();
-        for (int i = 0; i < N; i++) {
-            final HistoricalNotificationInfo info = mNotificationInfos.get(i);
-            if (TextUtils.equals(info.key, sbn.getKey()) && info.active
-                    && !newInfo.alerted && !newInfo.visuallyInterruptive) {
-                info.updateFrom(newInfo);
-
-                ((HistoricalNotificationPreference) getPreferenceScreen().findPreference(
-                        sbn.getKey())).updatePreference(info);
-                needsAdd = false;
-                break;
-            }
-        }
-        if (needsAdd) {
-            mNotificationInfos.addFirst(newInfo);
-            getPreferenceScreen().addPreference(new HistoricalNotificationPreference(
-                    getPrefContext(), mNotificationInfos.peekFirst(),
-                    -1 * mNotificationInfos.size()));
+        final HistoricalNotificationInfo info = mNotificationInfos.getNewest(sbn.getKey());
+        if (info != null && info.active
+                && !newInfo.alerted && !newInfo.visuallyInterruptive) {
+            info.updateFrom(newInfo);
+            updateRow(info);
+        } else {
+            addRow(newInfo);
         }
     }
 
@@ -281,16 +304,35 @@ public class NotificationStation extends SettingsPreferenceFragment {
      * Updates all notifications in the list based on new information in the ranking.
      */
     private void updateNotificationsFromRanking() {
-        Ranking rank = new Ranking();
-        for (int i = 0; i < getPreferenceScreen().getPreferenceCount(); i++) {
-            final HistoricalNotificationPreference p =
-                    (HistoricalNotificationPreference) getPreferenceScreen().getPreference(i);
+        final int size = mNotificationInfos.size();
+        for (int i = 0; i < size; i++) {
             final HistoricalNotificationInfo info = mNotificationInfos.get(i);
-            mRanking.getRanking(p.getKey(), rank);
-
             updateFromRanking(info);
-            ((HistoricalNotificationPreference) getPreferenceScreen().findPreference(
-                    info.key)).updatePreference(info);
+            updateRow(info);
+        }
+    }
+
+    /**
+     * Inserts a row at the top of the list. Once the log is full the preference of the evicted
+     * oldest row is rebound to the new info instead of being removed and recreated.
+     */
+    private void addRow(HistoricalNotificationInfo info) {
+        final HistoricalNotificationInfo evicted = mNotificationInfos.addFirst(info.key, info);
+        HistoricalNotificationPreference pref =
+                evicted == null ? null : mPreferences.remove(evicted);
+        if (pref == null) {
+            pref = new HistoricalNotificationPreference(getPrefContext(), info, mNextOrder--);
+            getPreferenceScreen().addPreference(pref);
+        } else {
+            pref.bind(info, mNextOrder--);
+        }
+        mPreferences.put(info, pref);
+    }
+
+    private void updateRow(HistoricalNotificationInfo info) {
+        final HistoricalNotificationPreference pref = mPreferences.get(info);
+        if (pref != null) {
+            pref.updatePreference(info);
         }
     }
 
@@ -369,36 +411,48 @@ public class NotificationStation extends SettingsPreferenceFragment {
     /**
      * Reads all current and past notifications (up to the system limit, since the device was
      * booted), stores the data we need to present them, and sorts them chronologically for display.
+     *
+     * @param out receives the notifications, newest first
+     * @param activeKeys receives the keys of the notifications that are still active
+     * @return whether the notifications could be read
      */
-    private void loadNotifications() {
+    private boolean loadNotifications(List<HistoricalNotificationInfo> out,
+            Set<String> activeKeys) {
         try {
             StatusBarNotification[] active = mNoMan.getActiveNotificationsWithAttribution(
                     mContext.getPackageName(), mContext.getAttributionTag());
             StatusBarNotification[] dismissed = mNoMan.getHistoricalNotificationsWithAttribution(
-                    mContext.getPackageName(), mContext.getAttributionTag(), 50, false);
-
-            List<HistoricalNotificationInfo> list
-                    = new ArrayList<>(active.length + dismissed.length);
+                    mContext.getPackageName(), mContext.getAttributionTag(),
+                    MAX_HISTORICAL_NOTIFICATIONS, false);
 
+            for (StatusBarNotification sbn : active) {
+                activeKeys.add(sbn.getKey());
+            }
+            final long newestTimestamp = mNotificationInfos.isEmpty()
+                    ? Long.MIN_VALUE : mNotificationInfos.get(0).timestamp;
             for (StatusBarNotification[] resultSet
                     : new StatusBarNotification[][] { active, dismissed }) {
                 for (StatusBarNotification sbn : resultSet) {
                     if (sbn.getNotification().isGroupSummary()) {
                         continue;
                     }
+                    // Skip building rows the log already has.
+                    if (sbn.getPostTime() <= newestTimestamp) {
+                        continue;
+                    }
                     final HistoricalNotificationInfo info = createFromSbn(sbn, resultSet == active);
                     logd("   [%d] %s: %s", info.timestamp, info.pkg, info.title);
-                    list.add(info);
+                    out.add(info);
                 }
             }
 
             // notifications are given to us in the same order as the shade; sorted by inferred
             // priority. Resort chronologically for our display.
-            list.sort(mNotificationSorter);
-            mNotificationInfos = new LinkedList<>(list);
-
+            out.sort(mNotificationSorter);
+            return true;
         } catch (RemoteException e) {
             Log.e(TAG, "Cannot load Notifications: ", e);
+            return false;
         }
     }
 
@@ -669,7 +723,7 @@ public class NotificationStation extends SettingsPreferenceFragment {
     }
 
     private static class HistoricalNotificationPreference extends Preference {
-        private final HistoricalNotificationInfo mInfo;
+        private HistoricalNotificationInfo mInfo;
         private static long sLastExpandedTimestamp; // quick hack to keep things from collapsing
         public ViewGroup mItemView; // hack to update prefs fast;
         private Context mContext;
@@ -684,6 +738,14 @@ public class NotificationStation extends SettingsPreferenceFragment {
             mContext = context;
         }
 
+        /** Reuses this row for another notification. */
+        public void bind(HistoricalNotificationInfo info, int order) {
+            mInfo = info;
+            setKey(info.key);
+            setOrder(order);
+            updatePreference(info);
+        }
+
         @Override
         public void onBindViewHolder(PreferenceViewHolder row) {
             super.onBindViewHolder(row);
@@ -58,6 +58,14 @@ public interface PanelContent extends Instrumentable {
      */
     List<Uri> getSlices();
 
+    /**
+     * @return the Slices that must be loaded before the panel is shown, all of them by default.
+     * The remaining Slices keep a placeholder row until they load.
+     */
+    default List<Uri> getPrioritySlices() {
+        return getSlices();
+    }
+
     /**
      * @return an {@link Intent} to the full content in Settings that is summarized by the Panel.
      *
@@ -25,7 +25,9 @@ import android.app.settings.SettingsEnums;
 import android.net.Uri;
 import android.os.Bundle;
 import android.os.Handler;
+import android.os.SystemClock;
 import android.text.TextUtils;
+import android.util.ArraySet;
 import android.view.Gravity;
 import android.view.LayoutInflater;
 import android.view.View;
@@ -53,6 +55,7 @@ import androidx.slice.widget.SliceLiveData;
 
 import com.android.internal.annotations.VisibleForTesting;
 import com.android.settings.R;
+import com.android.settings.core.instrumentation.PageLatencyTracer;
 import com.android.settings.overlay.FeatureFactory;
 import com.android.settings.panel.PanelLoggingContract.PanelClosedKeys;
 import com.android.settingslib.core.instrumentation.MetricsFeatureProvider;
@@ -60,11 +63,11 @@ import com.android.settingslib.utils.ThreadUtils;
 
 import com.google.android.setupdesign.DividerItemDecoration;
 
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 public class PanelFragment extends Fragment {
 
@@ -109,6 +112,10 @@ public class PanelFragment extends Fragment {
     @VisibleForTesting
     PanelSlicesLoaderCountdownLatch mPanelSlicesLoaderCountdownLatch;
 
+    // Slices whose time to first content was already reported to the PageLatencyTracer.
+    private final Set<Uri> mFirstContentReported = new ArraySet<>();
+    private long mSlicesRequestedNanos;
+
     private ViewTreeObserver.OnPreDrawListener mOnPreDrawListener = () -> {
         return false;
     };
@@ -328,14 +335,18 @@ public class PanelFragment extends Fragment {
 
     private void loadAllSlices() {
         mSliceLiveData.clear();
+        mFirstContentReported.clear();
+        mSlicesRequestedNanos = SystemClock.elapsedRealtimeNanos();
         final List<Uri> sliceUris = mPanel.getSlices();
-        mPanelSlicesLoaderCountdownLatch = new PanelSlicesLoaderCountdownLatch(sliceUris.size());
+        mPanelSlicesLoaderCountdownLatch = new PanelSlicesLoaderCountdownLatch(sliceUris.size(),
+                mPanel.getPrioritySlices());
 
         for (Uri uri : sliceUris) {
             final LiveData<Slice> sliceLiveData = SliceLiveData.fromUri(getActivity(), uri,
                     (int type, Throwable source)-> {
                             removeSliceLiveData(uri);
                             mPanelSlicesLoaderCountdownLatch.markSliceLoaded(uri);
+                            updateSliceInPanel(uri);
                     });
 
             // Add slice first to make it in order.  Will remove it later if there's an error.
@@ -345,10 +356,7 @@ public class PanelFragment extends Fragment {
 
                 // If the Slice has already loaded, refresh list with slice data.
                 if (mPanelSlicesLoaderCountdownLatch.isSliceLoaded(uri)) {
-                    if (mAdapter != null) {
-                        int itemIndex = (new ArrayList<>(mSliceLiveData.keySet())).indexOf(uri);
-                        mAdapter.notifyItemChanged(itemIndex);
-                    }
+                    updateSliceInPanel(uri);
                     return;
                 }
 
@@ -366,26 +374,71 @@ public class PanelFragment extends Fragment {
                  *     it as loaded after 250ms timeout to avoid delay showing up the panel for
                  *     too long.  Since we are still having the Slice data in the list, the Slice
                  *     will show up later once it is loaded.
+                 * <p>
+                 *     If the panel is already shown, because its priority Slices loaded first, the
+                 *     placeholder row of the Slice is replaced as soon as it is marked as loaded.
                  */
                 final SliceMetadata metadata = SliceMetadata.from(getActivity(), slice);
                 if (slice == null || metadata.isErrorSlice()) {
                     removeSliceLiveData(uri);
                     mPanelSlicesLoaderCountdownLatch.markSliceLoaded(uri);
                 } else if (metadata.getLoadingState() == SliceMetadata.LOADED_ALL) {
+                    recordFirstContent(uri);
                     mPanelSlicesLoaderCountdownLatch.markSliceLoaded(uri);
                 } else {
+                    recordFirstContent(uri);
                     Handler handler = new Handler();
                     handler.postDelayed(() -> {
                         mPanelSlicesLoaderCountdownLatch.markSliceLoaded(uri);
                         loadPanelWhenReady();
+                        updateSliceInPanel(uri);
                     }, DURATION_SLICE_BINDING_TIMEOUT_MS);
                 }
 
                 loadPanelWhenReady();
+                updateSliceInPanel(uri);
             });
         }
     }
 
+    /**
+     * @return {@code true} if the Slice has not loaded yet, in which case the panel shows a
+     * placeholder row for it.
+     */
+    boolean isSlicePending(Uri uri) {
+        return mPanelSlicesLoaderCountdownLatch != null
+                && !mPanelSlicesLoaderCountdownLatch.isSliceLoaded(uri);
+    }
+
+    /**
+     * Refreshes the row of the Slice if the panel is already shown, or drops it if the Slice was
+     * removed.
+     */
+    private void updateSliceInPanel(Uri uri) {
+        if (mAdapter == null) {
+            return;
+        }
+        if (!mSliceLiveData.containsKey(uri)) {
+            if (mAdapter.getSlicePosition(uri) >= 0) {
+                mAdapter.setSliceLiveData(mSliceLiveData);
+            }
+            return;
+        }
+        final int position = mAdapter.getSlicePosition(uri);
+        if (position >= 0) {
+            mAdapter.notifyItemChanged(position);
+        }
+    }
+
+    private void recordFirstContent(Uri uri) {
+        if (!mFirstContentReported.add(uri)) {
+            return;
+        }
+        PageLatencyTracer.getInstance().recordPhase(uri.toString(),
+                PageLatencyTracer.PHASE_SLICE_FIRST_CONTENT,
+                SystemClock.elapsedRealtimeNanos() - mSlicesRequestedNanos);
+    }
+
     private void removeSliceLiveData(Uri uri) {
         final List<String> allowList = Arrays.asList(
                 getResources().getStringArray(
@@ -396,8 +449,8 @@ public class PanelFragment extends Fragment {
     }
 
     /**
-     * When all of the Slices have loaded for the first time, then we can setup the
-     * {@link RecyclerView}.
+     * When all of the Slices, or all of the priority Slices, have loaded for the first time, then
+     * we can setup the {@link RecyclerView}.
      * <p>
      * When the Recyclerview has been laid out, we can begin the animation with the
      * {@link mOnGlobalLayoutListener}, which calls {@link #animateIn()}.
@@ -58,15 +58,35 @@ public class PanelSlicesAdapter
     @VisibleForTesting
     static final int MAX_NUM_OF_SLICES = 9;
 
-    private final List<LiveData<Slice>> mSliceLiveData;
+    private final List<Uri> mSliceUris = new ArrayList<>();
+    private final List<LiveData<Slice>> mSliceLiveData = new ArrayList<>();
     private final int mMetricsCategory;
     private final PanelFragment mPanelFragment;
 
     public PanelSlicesAdapter(
             PanelFragment fragment, Map<Uri, LiveData<Slice>> sliceLiveData, int metricsCategory) {
         mPanelFragment = fragment;
-        mSliceLiveData = new ArrayList<>(sliceLiveData.values());
         mMetricsCategory = metricsCategory;
+        setSliceLiveData(sliceLiveData);
+    }
+
+    /**
+     * Replaces the Slices shown, used when a Slice is dropped after the panel is shown.
+     */
+    public void setSliceLiveData(Map<Uri, LiveData<Slice>> sliceLiveData) {
+        mSliceUris.clear();
+        mSliceUris.addAll(sliceLiveData.keySet());
+        mSliceLiveData.clear();
+        mSliceLiveData.addAll(sliceLiveData.values());
+        notifyDataSetChanged();
+    }
+
+    /**
+     * @return the position of the Slice with the given {@link Uri}, or -1 if it is not shown.
+     */
+    public int getSlicePosition(Uri uri) {
+        final int position = mSliceUris.indexOf(uri);
+        return position < getItemCount() ? position : -1;
     }
 
     @NonNull
@@ -85,7 +105,12 @@ public class PanelSlicesAdapter
 
     @Override
     public void onBindViewHolder(@NonNull SliceRowViewHolder sliceRowViewHolder, int position) {
-        sliceRowViewHolder.onBind(mSliceLiveData.get(position).getValue());
+        final Slice slice = mSliceLiveData.get(position).getValue();
+        if (slice == null && mPanelFragment.isSlicePending(mSliceUris.get(position))) {
+            sliceRowViewHolder.onBindPlaceholder();
+            return;
+        }
+        sliceRowViewHolder.onBind(slice);
     }
 
     /**
@@ -133,10 +158,21 @@ public class PanelSlicesAdapter
             mSliceSliderLayout = view.findViewById(R.id.slice_slider_layout);
         }
 
+        /**
+         * Called when the view is displayed while its Slice is still loading. Keeps the height of
+         * a row so that the Slice does not push the rows below it once it loads.
+         */
+        public void onBindPlaceholder() {
+            itemView.setMinimumHeight(itemView.getResources().getDimensionPixelSize(
+                    R.dimen.panel_slice_placeholder_height));
+            sliceView.setVisibility(View.INVISIBLE);
+        }
+
         /**
          * Called when the view is displayed.
          */
         public void onBind(Slice slice) {
+            itemView.setMinimumHeight(0);
             // Hides slice which reports with error hint or not contain any slice sub-item.
             if (slice == null || !isValidSlice(slice)) {
                 updateActionLabel();
@@ -20,6 +20,8 @@ import android.net.Uri;
 
 import androidx.slice.Slice;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
 import java.util.concurrent.CountDownLatch;
@@ -36,14 +38,23 @@ import java.util.concurrent.CountDownLatch;
  *     {@link Uri}. Then check if all of the Slices have loaded with
  *     {@link #isPanelReadyToLoad()}, which will return {@code true} the first time after all
  *     Slices have loaded.
+ * <p>
+ *     When priority Slices are given, the Panel is ready as soon as all of them have loaded,
+ *     so the remaining Slices can stream in afterwards.
  */
 public class PanelSlicesLoaderCountdownLatch {
     private final Set<Uri> mLoadedSlices;
+    private final Set<Uri> mPrioritySlices;
     private final CountDownLatch mCountDownLatch;
     private boolean slicesReadyToLoad = false;
 
     public PanelSlicesLoaderCountdownLatch(int countdownSize) {
+        this(countdownSize, Collections.emptySet());
+    }
+
+    public PanelSlicesLoaderCountdownLatch(int countdownSize, Collection<Uri> prioritySlices) {
         mLoadedSlices = new HashSet<>();
+        mPrioritySlices = new HashSet<>(prioritySlices);
         mCountDownLatch = new CountDownLatch(countdownSize);
     }
 
@@ -67,14 +78,17 @@ public class PanelSlicesLoaderCountdownLatch {
     }
 
     /**
-     * @return {@code true} when all Slices have loaded, and the Panel has not yet been loaded.
+     * @return {@code true} when all Slices, or all priority Slices, have loaded, and the Panel
+     * has not yet been loaded.
      */
     public boolean isPanelReadyToLoad() {
         /**
          * Use {@link slicesReadyToLoad} to track whether or not the Panel has been loaded. We
          * only want to animate the Panel a single time.
          */
-        if ((mCountDownLatch.getCount() == 0) && !slicesReadyToLoad) {
+        final boolean prioritySlicesLoaded =
+                !mPrioritySlices.isEmpty() && mLoadedSlices.containsAll(mPrioritySlices);
+        if ((mCountDownLatch.getCount() == 0 || prioritySlicesLoaded) && !slicesReadyToLoad) {
             slicesReadyToLoad = true;
             return true;
         }
@@ -149,6 +149,13 @@ public class VolumePanel implements PanelContent, LifecycleObserver {
         return uris;
     }
 
+    @Override
+    public List<Uri> getPrioritySlices() {
+        // The remote media Slice is the top row and is usually empty, wait for it so the rows
+        // below don't move. The output indicator Slice looks for devices, don't wait for it.
+        return List.of(REMOTE_MEDIA_SLICE_URI, VOLUME_MEDIA_URI);
+    }
+
     @Override
     public Intent getSeeMoreIntent() {
         return new Intent(Settings.ACTION_SOUND_SETTINGS).addFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
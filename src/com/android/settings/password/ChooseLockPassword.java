@@ -95,6 +95,7 @@ import com.android.settings.Utils;
 import com.android.settings.core.InstrumentedFragment;
 import com.android.settings.notification.RedactionInterstitial;
 import com.android.settingslib.utils.StringUtil;
+import com.android.settingslib.utils.ThreadUtils;
 
 import com.google.android.setupcompat.template.FooterBarMixin;
 import com.google.android.setupcompat.template.FooterButton;
@@ -104,8 +105,11 @@ import com.google.android.setupdesign.util.ThemeHelper;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executor;
 
 public class ChooseLockPassword extends SettingsActivity {
     private static final String TAG = "ChooseLockPassword";
@@ -231,6 +235,11 @@ public class ChooseLockPassword extends SettingsActivity {
 
         private static final int MIN_AUTO_PIN_REQUIREMENT_LENGTH = 6;
 
+        // How long typing has to pause before the candidate is checked against password history.
+        @VisibleForTesting
+        static final long PASSWORD_HISTORY_CHECK_DELAY_MILLIS = 300;
+        private static final int MAX_PASSWORD_HISTORY_VERDICTS = 8;
+
         private LockscreenCredential mCurrentCredential;
         private LockscreenCredential mChosenPassword;
         private boolean mRequestGatekeeperPassword;
@@ -245,6 +254,14 @@ public class ChooseLockPassword extends SettingsActivity {
         @PasswordComplexity private int mMinComplexity = PASSWORD_COMPLEXITY_NONE;
         protected int mUserId;
         private byte[] mPasswordHistoryHashFactor;
+        // Whether a candidate was found in the password history, most recently checked last.
+        // Keys are copies owned by this map and are zeroized when dropped.
+        private final Map<LockscreenCredential, Boolean> mPasswordHistoryVerdicts =
+                new LinkedHashMap<>();
+        private final Runnable mPasswordHistoryCheck = this::startPasswordHistoryCheck;
+        private LockscreenCredential mPendingHistoryCandidate;
+        private volatile int mPasswordHistoryCheckSequence;
+        private Executor mPasswordHistoryExecutor = ThreadUtils::postOnBackgroundThread;
         private int mUnificationProfileId = UserHandle.USER_NULL;
 
         private LockPatternUtils mLockPatternUtils;
@@ -636,6 +653,11 @@ public class ChooseLockPassword extends SettingsActivity {
         @Override
         public void onDestroy() {
             super.onDestroy();
+            cancelPasswordHistoryCheck();
+            for (LockscreenCredential candidate : mPasswordHistoryVerdicts.keySet()) {
+                candidate.zeroize();
+            }
+            mPasswordHistoryVerdicts.clear();
             if (mCurrentCredential != null) {
                 mCurrentCredential.zeroize();
             }
@@ -766,14 +788,125 @@ public class ChooseLockPassword extends SettingsActivity {
          */
         @VisibleForTesting
         boolean validatePassword(LockscreenCredential credential) {
+            if (!validatePasswordMetrics(credential)) {
+                return false;
+            }
+            Boolean recentlyUsed = mPasswordHistoryVerdicts.get(credential);
+            if (recentlyUsed == null) {
+                recentlyUsed = mLockPatternUtils.checkPasswordHistory(
+                        credential.getCredential(), getPasswordHistoryHashFactor(), mUserId);
+                putPasswordHistoryVerdict(credential.duplicate(), recentlyUsed);
+            }
+            return applyPasswordHistoryVerdict(recentlyUsed);
+        }
+
+        /**
+         * Runs only the local checks of {@link #validatePassword} and updates mValidationErrors.
+         */
+        private boolean validatePasswordMetrics(LockscreenCredential credential) {
             mValidationErrors = PasswordMetrics.validateCredential(mMinMetrics, mMinComplexity,
                     credential);
-            if (mValidationErrors.isEmpty() && mLockPatternUtils.checkPasswordHistory(
-                        credential.getCredential(), getPasswordHistoryHashFactor(), mUserId)) {
+            return mValidationErrors.isEmpty();
+        }
+
+        private boolean applyPasswordHistoryVerdict(boolean recentlyUsed) {
+            if (recentlyUsed) {
                 mValidationErrors =
                         Collections.singletonList(new PasswordValidationError(RECENTLY_USED));
             }
-            return mValidationErrors.isEmpty();
+            return !recentlyUsed;
+        }
+
+        /**
+         * Validates the password while it is being typed. Local checks run inline, the password
+         * history check is debounced and runs in the background; until it completes the password
+         * is treated as compliant and {@link #handleNext} does the final, blocking check.
+         */
+        private boolean validatePasswordWhileTyping(LockscreenCredential credential) {
+            if (!validatePasswordMetrics(credential)) {
+                cancelPasswordHistoryCheck();
+                return false;
+            }
+            final Boolean recentlyUsed = mPasswordHistoryVerdicts.get(credential);
+            if (recentlyUsed != null) {
+                cancelPasswordHistoryCheck();
+                return applyPasswordHistoryVerdict(recentlyUsed);
+            }
+            if (!credential.equals(mPendingHistoryCandidate)) {
+                cancelPasswordHistoryCheck();
+                mPendingHistoryCandidate = credential.duplicate();
+                mTextChangedHandler.postDelayed(mPasswordHistoryCheck,
+                        PASSWORD_HISTORY_CHECK_DELAY_MILLIS);
+            }
+            return true;
+        }
+
+        private void startPasswordHistoryCheck() {
+            if (mPendingHistoryCandidate == null) {
+                return;
+            }
+            // The background check owns its own copy, the pending one may be zeroized meanwhile.
+            final LockscreenCredential candidate = mPendingHistoryCandidate.duplicate();
+            final int sequence = mPasswordHistoryCheckSequence;
+            // Resolved here, the cached factor is only read and written on the main thread.
+            final byte[] hashFactor = getPasswordHistoryHashFactor();
+            mPasswordHistoryExecutor.execute(() -> {
+                if (sequence != mPasswordHistoryCheckSequence) {
+                    ThreadUtils.postOnMainThread(candidate::zeroize);
+                    return;
+                }
+                final boolean recentlyUsed = mLockPatternUtils.checkPasswordHistory(
+                        candidate.getCredential(), hashFactor, mUserId);
+                ThreadUtils.postOnMainThread(
+                        () -> onPasswordHistoryChecked(sequence, candidate, recentlyUsed));
+            });
+        }
+
+        private void onPasswordHistoryChecked(int sequence, LockscreenCredential candidate,
+                boolean recentlyUsed) {
+            if (sequence != mPasswordHistoryCheckSequence || getActivity() == null) {
+                candidate.zeroize();
+                return;
+            }
+            mPendingHistoryCandidate.zeroize();
+            mPendingHistoryCandidate = null;
+            putPasswordHistoryVerdict(candidate, recentlyUsed);
+            if (recentlyUsed && mUiStage == Stage.Introduction) {
+                updateUi();
+            }
+        }
+
+        @VisibleForTesting
+        void setPasswordHistoryExecutor(Executor executor) {
+            mPasswordHistoryExecutor = executor;
+        }
+
+        /** Drops the pending history check; a check already running has its result ignored. */
+        private void cancelPasswordHistoryCheck() {
+            mPasswordHistoryCheckSequence++;
+            if (mTextChangedHandler != null) {
+                mTextChangedHandler.removeCallbacks(mPasswordHistoryCheck);
+            }
+            if (mPendingHistoryCandidate != null) {
+                mPendingHistoryCandidate.zeroize();
+                mPendingHistoryCandidate = null;
+            }
+        }
+
+        private void putPasswordHistoryVerdict(LockscreenCredential candidate,
+                boolean recentlyUsed) {
+            final Boolean previous = mPasswordHistoryVerdicts.put(candidate, recentlyUsed);
+            if (previous != null) {
+                // The map kept its existing key, so the new copy is not needed.
+                candidate.zeroize();
+                return;
+            }
+            if (mPasswordHistoryVerdicts.size() > MAX_PASSWORD_HISTORY_VERDICTS) {
+                final Iterator<LockscreenCredential> eldest =
+                        mPasswordHistoryVerdicts.keySet().iterator();
+                eldest.next().zeroize();
+                eldest.remove();
+            }
         }
 
         /**
@@ -951,7 +1084,7 @@ public class ChooseLockPassword extends SettingsActivity {
             final int length = password.size();
             if (mUiStage == Stage.Introduction) {
                 mPasswordRestrictionView.setVisibility(View.VISIBLE);
-                final boolean passwordCompliant = validatePassword(password);
+                final boolean passwordCompliant = validatePasswordWhileTyping(password);
                 String[] messages = convertErrorCodeToMessages();
                 // Update the fulfillment of requirements.
                 mPasswordRequirementAdapter.setRequirements(messages);
@@ -0,0 +1,173 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.search;
+
+import android.content.Context;
+import android.content.Intent;
+import android.os.Bundle;
+import android.text.TextUtils;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.AdapterView;
+import android.widget.BaseAdapter;
+import android.widget.ListView;
+import android.widget.SearchView;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
+
+import com.android.settings.R;
+import com.android.settings.SettingsActivity;
+import com.android.settings.core.SettingsBaseActivity;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Searches settings in process with the {@link LocalSearchIndex}, used when the search app is
+ * missing or disabled.
+ *
+ * <p>Results are shown as soon as the stored index is loaded, and updated once it has been
+ * refreshed. Queries run on the main thread as the user types, they only take a few
+ * milliseconds.
+ */
+public class LocalSearchActivity extends SettingsBaseActivity
+        implements SearchView.OnQueryTextListener, AdapterView.OnItemClickListener {
+
+    @VisibleForTesting
+    static final int MAX_RESULTS = 50;
+
+    private SearchView mSearchView;
+    private TextView mNoResultsView;
+    private final ResultAdapter mAdapter = new ResultAdapter();
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.local_search_activity);
+        mSearchView = findViewById(R.id.search_view);
+        mSearchView.setOnQueryTextListener(this);
+        mNoResultsView = findViewById(R.id.search_no_results);
+        final ListView listView = findViewById(R.id.search_results);
+        listView.setAdapter(mAdapter);
+        listView.setOnItemClickListener(this);
+
+        LocalSearchIndexer.getInstance(this).refresh(index -> {
+            if (!isFinishing() && !isDestroyed()) {
+                updateResults();
+            }
+        });
+    }
+
+    // The search view takes the place of the toolbar.
+    @Override
+    protected boolean isToolbarEnabled() {
+        return false;
+    }
+
+    @Override
+    public boolean onQueryTextChange(String newText) {
+        updateResults();
+        return true;
+    }
+
+    @Override
+    public boolean onQueryTextSubmit(String query) {
+        mSearchView.clearFocus();
+        return true;
+    }
+
+    @Override
+    public void onItemClick(AdapterView<?> parent, View view, int position, long id) {
+        startActivity(buildResultIntent(this, mAdapter.getItem(position)));
+    }
+
+    private void updateResults() {
+        final LocalSearchIndex index = LocalSearchIndexer.getInstance(this).getIndex();
+        if (index == null) {
+            return;
+        }
+        final String query = mSearchView.getQuery().toString();
+        final List<LocalSearchIndex.Document> results = index.query(query, MAX_RESULTS);
+        mAdapter.setResults(results);
+        mNoResultsView.setVisibility(
+                results.isEmpty() && !TextUtils.isEmpty(query) ? View.VISIBLE : View.GONE);
+    }
+
+    /** Returns the intent opening the page of {@code result}, with the setting highlighted. */
+    @VisibleForTesting
+    static Intent buildResultIntent(Context context, @NonNull LocalSearchIndex.Document result) {
+        if (!TextUtils.isEmpty(result.mClassName)) {
+            // Same extras as the search app, so the trampoline highlights the setting.
+            return new Intent(context, SearchResultTrampoline.class)
+                    .putExtra(SettingsActivity.EXTRA_SHOW_FRAGMENT, result.mClassName)
+                    .putExtra(SettingsActivity.EXTRA_FRAGMENT_ARG_KEY, result.mKey);
+        }
+        final Intent intent = new Intent(result.mIntentAction);
+        if (!TextUtils.isEmpty(result.mIntentTargetPackage)) {
+            if (!TextUtils.isEmpty(result.mIntentTargetClass)) {
+                intent.setClassName(result.mIntentTargetPackage, result.mIntentTargetClass);
+            } else {
+                intent.setPackage(result.mIntentTargetPackage);
+            }
+        }
+        return intent;
+    }
+
+    private static class ResultAdapter extends BaseAdapter {
+        private final List<LocalSearchIndex.Document> mResults = new ArrayList<>();
+
+        void setResults(List<LocalSearchIndex.Document> results) {
+            mResults.clear();
+            mResults.addAll(results);
+            notifyDataSetChanged();
+        }
+
+        @Override
+        public int getCount() {
+            return mResults.size();
+        }
+
+        @Override
+        public LocalSearchIndex.Document getItem(int position) {
+            return mResults.get(position);
+        }
+
+        @Override
+        public long getItemId(int position) {
+            return position;
+        }
+
+        @Override
+        public View getView(int position, View convertView, ViewGroup parent) {
+            final View view = convertView != null ? convertView
+                    : LayoutInflater.from(parent.getContext()).inflate(
+                            android.R.layout.simple_list_item_2, parent, false);
+            final LocalSearchIndex.Document result = getItem(position);
+            ((TextView) view.findViewById(android.R.id.text1)).setText(result.mTitle);
+            // Tell where the setting lives, like the breadcrumbs of the search app.
+            final TextView subtitle = view.findViewById(android.R.id.text2);
+            final String where = TextUtils.isEmpty(result.mScreenTitle)
+                    ? result.mSummary : result.mScreenTitle;
+            subtitle.setText(where);
+            subtitle.setVisibility(TextUtils.isEmpty(where) ? View.GONE : View.VISIBLE);
+            return view;
+        }
+    }
+}
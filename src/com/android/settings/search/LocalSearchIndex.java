@@ -0,0 +1,506 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.search;
+
+import android.text.TextUtils;
+import android.util.ArrayMap;
+import android.util.ArraySet;
+import android.util.SparseArray;
+import android.util.SparseIntArray;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.text.BreakIterator;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An in-memory inverted index over the titles, keywords and summaries of the Settings search
+ * data, used when the search app is not available.
+ *
+ * <p>Text is lower cased, stripped of accents and split into tokens at word boundaries. Every
+ * query token must match a token of a document, either exactly, as a prefix, or within a small
+ * edit distance. Chinese and Japanese words are not separated by spaces, so every suffix of such a
+ * token is indexed as well, which lets a query match anywhere inside it. Matches in titles rank
+ * above keywords, which rank above summaries.
+ *
+ * <p>The index is immutable once built, apart from the set of keys hidden from results, and can be
+ * written to and read back from a compact binary form. Data that changes with the device state is
+ * kept in a separate, small index, see {@link #withDynamicIndex}.
+ */
+public final class LocalSearchIndex {
+
+    private static final int MAGIC = 0x53494458; // "SIDX"
+    private static final int VERSION = 3;
+
+    @VisibleForTesting
+    static final int FIELD_SUMMARY = 0;
+    @VisibleForTesting
+    static final int FIELD_KEYWORDS = 1;
+    @VisibleForTesting
+    static final int FIELD_TITLE = 2;
+    private static final int FIELD_BITS = 2;
+    private static final int FIELD_MASK = (1 << FIELD_BITS) - 1;
+    private static final float[] FIELD_WEIGHTS = {1f, 2f, 3f};
+
+    private static final float WEIGHT_EXACT = 1f;
+    private static final float WEIGHT_PREFIX = .8f;
+    private static final float WEIGHT_FUZZY = .5f;
+    // Query tokens shorter than this are only matched exactly or as a prefix.
+    private static final int MIN_FUZZY_LENGTH = 4;
+    private static final int LONG_TOKEN_LENGTH = 8;
+
+    /** One searchable setting. */
+    public static final class Document {
+        public final String mKey;
+        public final String mTitle;
+        public final String mSummary;
+        public final String mKeywords;
+        public final String mScreenTitle;
+        /** The fragment showing the setting, or {@code null} for an intent result. */
+        public final String mClassName;
+        public final String mIntentAction;
+        public final String mIntentTargetPackage;
+        public final String mIntentTargetClass;
+        public final int mIconResId;
+        /** Whether the document comes from data that changes with the device state. */
+        public final boolean mDynamic;
+
+        public Document(String key, String title, String summary, String keywords,
+                String screenTitle, String className, String intentAction,
+                String intentTargetPackage, String intentTargetClass, int iconResId,
+                boolean dynamic) {
+            mKey = key;
+            mTitle = title;
+            mSummary = summary;
+            mKeywords = keywords;
+            mScreenTitle = screenTitle;
+            mClassName = className;
+            mIntentAction = intentAction;
+            mIntentTargetPackage = intentTargetPackage;
+            mIntentTargetClass = intentTargetClass;
+            mIconResId = iconResId;
+            mDynamic = dynamic;
+        }
+    }
+
+    private static final class Match {
+        final Document mDocument;
+        final float mScore;
+        // Position among the matches, used to keep the document order between equal matches.
+        final int mOrder;
+
+        Match(Document document, float score, int order) {
+            mDocument = document;
+            mScore = score;
+            mOrder = order;
+        }
+    }
+
+    private final List<Document> mDocuments;
+    // Sorted tokens, and for each one the sorted (document << FIELD_BITS | field) postings.
+    private final String[] mTokens;
+    private final int[][] mPostings;
+    @Nullable
+    private final LocalSearchIndex mDynamicIndex;
+    private volatile Set<String> mHiddenKeys = Collections.emptySet();
+
+    private LocalSearchIndex(List<Document> documents, String[] tokens, int[][] postings,
+            @Nullable LocalSearchIndex dynamicIndex) {
+        mDocuments = documents;
+        mTokens = tokens;
+        mPostings = postings;
+        mDynamicIndex = dynamicIndex;
+    }
+
+    /** Builds an index over {@code documents}. */
+    @NonNull
+    public static LocalSearchIndex build(@NonNull List<Document> documents) {
+        final Map<String, SparseIntArray> postings = new ArrayMap<>();
+        final List<String> tokens = new ArrayList<>();
+        for (int doc = 0; doc < documents.size(); doc++) {
+            final Document document = documents.get(doc);
+            addPostings(postings, doc, FIELD_SUMMARY, document.mSummary, tokens);
+            addPostings(postings, doc, FIELD_KEYWORDS, document.mKeywords, tokens);
+            addPostings(postings, doc, FIELD_TITLE, document.mTitle, tokens);
+        }
+        final String[] sortedTokens = postings.keySet().toArray(new String[0]);
+        Arrays.sort(sortedTokens);
+        final int[][] sortedPostings = new int[sortedTokens.length][];
+        for (int i = 0; i < sortedTokens.length; i++) {
+            final SparseIntArray fields = postings.get(sortedTokens[i]);
+            final int[] entries = new int[fields.size()];
+            for (int j = 0; j < entries.length; j++) {
+                entries[j] = fields.keyAt(j) << FIELD_BITS | fields.valueAt(j);
+            }
+            sortedPostings[i] = entries;
+        }
+        return new LocalSearchIndex(
+                Collections.unmodifiableList(new ArrayList<>(documents)),
+                sortedTokens, sortedPostings, /* dynamicIndex= */ null);
+    }
+
+    /**
+     * Returns an index searching the documents of this index and of {@code dynamicIndex}, without
+     * building either again. The hidden keys of the returned index apply to both.
+     */
+    @NonNull
+    public LocalSearchIndex withDynamicIndex(@NonNull LocalSearchIndex dynamicIndex) {
+        return new LocalSearchIndex(mDocuments, mTokens, mPostings, dynamicIndex);
+    }
+
+    // Keeps the best field of each document for every token.
+    private static void addPostings(Map<String, SparseIntArray> postings, int doc, int field,
+            String text, List<String> tokens) {
+        tokens.clear();
+        tokenize(text, tokens);
+        for (String token : tokens) {
+            addPosting(postings, doc, field, token);
+            if (isUnspacedScript(token)) {
+                for (int i = token.offsetByCodePoints(0, 1); i < token.length();
+                        i = token.offsetByCodePoints(i, 1)) {
+                    addPosting(postings, doc, field, token.substring(i));
+                }
+            }
+        }
+    }
+
+    private static void addPosting(Map<String, SparseIntArray> postings, int doc, int field,
+            String token) {
+        SparseIntArray fields = postings.get(token);
+        if (fields == null) {
+            fields = new SparseIntArray(1);
+            postings.put(token, fields);
+        }
+        if (fields.get(doc, -1) < field) {
+            fields.put(doc, field);
+        }
+    }
+
+    // Scripts written without spaces between words, where word boundaries are only a guess.
+    private static boolean isUnspacedScript(String token) {
+        final Character.UnicodeScript script = Character.UnicodeScript.of(token.codePointAt(0));
+        return script == Character.UnicodeScript.HAN
+                || script == Character.UnicodeScript.HIRAGANA
+                || script == Character.UnicodeScript.KATAKANA;
+    }
+
+    /**
+     * Returns every document built into this index, including hidden ones, but not those of the
+     * dynamic index.
+     */
+    @NonNull
+    public List<Document> getDocuments() {
+        return mDocuments;
+    }
+
+    /**
+     * Hides the documents with these keys from the results, e.g. settings that are not available
+     * on this device.
+     */
+    public void setHiddenKeys(@NonNull Set<String> keys) {
+        mHiddenKeys = Collections.unmodifiableSet(new ArraySet<>(keys));
+    }
+
+    @NonNull
+    public Set<String> getHiddenKeys() {
+        return mHiddenKeys;
+    }
+
+    /** Returns up to {@code limit} documents matching every token of {@code query}, best first. */
+    @NonNull
+    public List<Document> query(@Nullable String query, int limit) {
+        final List<String> queryTokens = new ArrayList<>();
+        tokenize(query, queryTokens);
+        if (queryTokens.isEmpty()) {
+            return Collections.emptyList();
+        }
+        final Set<String> hiddenKeys = mHiddenKeys;
+        final List<Match> matches = new ArrayList<>();
+        collectMatches(queryTokens, hiddenKeys, matches);
+        if (mDynamicIndex != null) {
+            mDynamicIndex.collectMatches(queryTokens, hiddenKeys, matches);
+        }
+        matches.sort((a, b) -> {
+            final int byScore = Float.compare(b.mScore, a.mScore);
+            if (byScore != 0) {
+                return byScore;
+            }
+            final int byLength = Integer.compare(
+                    length(a.mDocument.mTitle), length(b.mDocument.mTitle));
+            return byLength != 0 ? byLength : Integer.compare(a.mOrder, b.mOrder);
+        });
+
+        final int count = Math.min(limit, matches.size());
+        final List<Document> results = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            results.add(matches.get(i).mDocument);
+        }
+        return results;
+    }
+
+    // Adds the documents of this index matching every query token, in document order.
+    private void collectMatches(List<String> queryTokens, Set<String> hiddenKeys,
+            List<Match> matches) {
+        SparseArray<Float> scores = null;
+        for (String queryToken : queryTokens) {
+            final SparseArray<Float> tokenScores = scoreToken(queryToken);
+            if (scores == null) {
+                scores = tokenScores;
+            } else {
+                // Only documents matching every token are kept.
+                for (int i = scores.size() - 1; i >= 0; i--) {
+                    final Float tokenScore = tokenScores.get(scores.keyAt(i));
+                    if (tokenScore == null) {
+                        scores.removeAt(i);
+                    } else {
+                        scores.setValueAt(i, scores.valueAt(i) + tokenScore);
+                    }
+                }
+            }
+            if (scores.size() == 0) {
+                return;
+            }
+        }
+        for (int i = 0; i < scores.size(); i++) {
+            final Document document = mDocuments.get(scores.keyAt(i));
+            if (document.mKey == null || !hiddenKeys.contains(document.mKey)) {
+                matches.add(new Match(document, scores.valueAt(i), matches.size()));
+            }
+        }
+    }
+
+    // Returns the best score of every document containing a token matched by queryToken.
+    private SparseArray<Float> scoreToken(String queryToken) {
+        final SparseArray<Float> scores = new SparseArray<>();
+        // Tokens starting with the query token are contiguous in the sorted array.
+        int index = Arrays.binarySearch(mTokens, queryToken);
+        if (index < 0) {
+            index = -index - 1;
+        }
+        for (int i = index; i < mTokens.length && mTokens[i].startsWith(queryToken); i++) {
+            addScores(scores, i,
+                    mTokens[i].length() == queryToken.length() ? WEIGHT_EXACT : WEIGHT_PREFIX);
+        }
+        if (scores.size() == 0 && queryToken.length() >= MIN_FUZZY_LENGTH) {
+            addFuzzyScores(scores, queryToken);
+        }
+        return scores;
+    }
+
+    // Only tokens sharing the first character are compared, which bounds the cost of a typo.
+    private void addFuzzyScores(SparseArray<Float> scores, String queryToken) {
+        final int maxDistance = queryToken.length() >= LONG_TOKEN_LENGTH ? 2 : 1;
+        final String first = queryToken.substring(0, 1);
+        int index = Arrays.binarySearch(mTokens, first);
+        if (index < 0) {
+            index = -index - 1;
+        }
+        for (int i = index; i < mTokens.length && mTokens[i].startsWith(first); i++) {
+            final String token = mTokens[i];
+            if (Math.abs(token.length() - queryToken.length()) <= maxDistance
+                    && editDistance(token, queryToken, maxDistance) <= maxDistance) {
+                addScores(scores, i, WEIGHT_FUZZY);
+            }
+        }
+    }
+
+    private void addScores(SparseArray<Float> scores, int tokenIndex, float matchWeight) {
+        for (int posting : mPostings[tokenIndex]) {
+            final int doc = posting >>> FIELD_BITS;
+            final float score = FIELD_WEIGHTS[posting & FIELD_MASK] * matchWeight;
+            final Float current = scores.get(doc);
+            if (current == null || current < score) {
+                scores.put(doc, score);
+            }
+        }
+    }
+
+    /**
+     * Writes the documents and postings of the index. The dynamic index and the hidden keys
+     * depend on the device state and are not written, so every document read back is static.
+     */
+    public void writeTo(@NonNull DataOutputStream out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        writeVarInt(out, mDocuments.size());
+        for (Document document : mDocuments) {
+            writeString(out, document.mKey);
+            writeString(out, document.mTitle);
+            writeString(out, document.mSummary);
+            writeString(out, document.mKeywords);
+            writeString(out, document.mScreenTitle);
+            writeString(out, document.mClassName);
+            writeString(out, document.mIntentAction);
+            writeString(out, document.mIntentTargetPackage);
+            writeString(out, document.mIntentTargetClass);
+            out.writeInt(document.mIconResId);
+        }
+        writeVarInt(out, mTokens.length);
+        for (int i = 0; i < mTokens.length; i++) {
+            out.writeUTF(mTokens[i]);
+            final int[] postings = mPostings[i];
+            writeVarInt(out, postings.length);
+            // Postings are sorted, so the deltas are small.
+            int previous = 0;
+            for (int posting : postings) {
+                writeVarInt(out, posting - previous);
+                previous = posting;
+            }
+        }
+    }
+
+    /** Reads an index written by {@link #writeTo}. */
+    @NonNull
+    public static LocalSearchIndex readFrom(@NonNull DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+            throw new IOException("Unknown search index format");
+        }
+        final int documentCount = readVarInt(in);
+        final List<Document> documents = new ArrayList<>(documentCount);
+        for (int i = 0; i < documentCount; i++) {
+            documents.add(new Document(readString(in), readString(in), readString(in),
+                    readString(in), readString(in), readString(in), readString(in),
+                    readString(in), readString(in), in.readInt(), /* dynamic= */ false));
+        }
+        final int tokenCount = readVarInt(in);
+        final String[] tokens = new String[tokenCount];
+        final int[][] postings = new int[tokenCount][];
+        for (int i = 0; i < tokenCount; i++) {
+            tokens[i] = in.readUTF();
+            final int[] entries = new int[readVarInt(in)];
+            int previous = 0;
+            for (int j = 0; j < entries.length; j++) {
+                previous += readVarInt(in);
+                entries[j] = previous;
+            }
+            postings[i] = entries;
+        }
+        return new LocalSearchIndex(Collections.unmodifiableList(documents), tokens, postings,
+                /* dynamicIndex= */ null);
+    }
+
+    /** Splits {@code text} at word boundaries into lower cased tokens without accents. */
+    @VisibleForTesting
+    static void tokenize(@Nullable String text, List<String> tokens) {
+        if (TextUtils.isEmpty(text)) {
+            return;
+        }
+        final String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD)
+                .toLowerCase(Locale.ROOT);
+        final StringBuilder normalized = new StringBuilder(decomposed.length());
+        for (int i = 0; i < decomposed.length(); i++) {
+            final char c = decomposed.charAt(i);
+            if (Character.getType(c) != Character.NON_SPACING_MARK) {
+                normalized.append(c);
+            }
+        }
+        // Word boundaries also separate the words of scripts written without spaces.
+        final BreakIterator words = BreakIterator.getWordInstance();
+        words.setText(normalized.toString());
+        final StringBuilder token = new StringBuilder();
+        for (int start = words.first(), end = words.next(); end != BreakIterator.DONE;
+                start = end, end = words.next()) {
+            for (int i = start; i < end; i++) {
+                final char c = normalized.charAt(i);
+                if (Character.isLetterOrDigit(c) || Character.isSurrogate(c)) {
+                    token.append(c);
+                } else if (token.length() > 0) {
+                    tokens.add(token.toString());
+                    token.setLength(0);
+                }
+            }
+            if (token.length() > 0) {
+                tokens.add(token.toString());
+                token.setLength(0);
+            }
+        }
+    }
+
+    /** Returns the Levenshtein distance of a and b, or more than max once it exceeds it. */
+    @VisibleForTesting
+    static int editDistance(String a, String b, int max) {
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            for (int j = 1; j <= b.length(); j++) {
+                final int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1),
+                        previous[j - 1] + cost);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (rowMin > max) {
+                return max + 1;
+            }
+            final int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[b.length()];
+    }
+
+    private static int length(String text) {
+        return text == null ? 0 : text.length();
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7f) != 0) {
+            out.writeByte((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static int readVarInt(DataInputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            final int b = in.readUnsignedByte();
+            value |= (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed search index");
+    }
+}
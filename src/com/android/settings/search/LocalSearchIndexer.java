@@ -0,0 +1,349 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.search;
+
+import static com.android.settings.core.PreferenceXmlParserUtils.METADATA_ICON;
+import static com.android.settings.core.PreferenceXmlParserUtils.METADATA_KEY;
+import static com.android.settings.core.PreferenceXmlParserUtils.METADATA_KEYWORDS;
+import static com.android.settings.core.PreferenceXmlParserUtils.METADATA_PREF_TYPE;
+import static com.android.settings.core.PreferenceXmlParserUtils.METADATA_SUMMARY;
+import static com.android.settings.core.PreferenceXmlParserUtils.METADATA_TITLE;
+import static com.android.settings.core.PreferenceXmlParserUtils.PREF_SCREEN_TAG;
+
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.content.res.Resources;
+import android.os.Build;
+import android.os.Bundle;
+import android.provider.SearchIndexableResource;
+import android.text.TextUtils;
+import android.util.ArraySet;
+import android.util.AtomicFile;
+import android.util.Log;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+import androidx.annotation.WorkerThread;
+
+import com.android.settings.core.PreferenceXmlParserUtils;
+import com.android.settings.core.PreferenceXmlParserUtils.MetadataFlag;
+import com.android.settings.overlay.FeatureFactory;
+import com.android.settingslib.search.Indexable;
+import com.android.settingslib.search.SearchIndexableData;
+import com.android.settingslib.search.SearchIndexableRaw;
+import com.android.settingslib.utils.ThreadUtils;
+
+import org.xmlpull.v1.XmlPullParserException;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Owns the {@link LocalSearchIndex} of this process, built from the same providers as
+ * {@link SettingsSearchIndexablesProvider}.
+ *
+ * <p>The index has two parts. The static part holds the XML pages and static raw data, the
+ * expensive part to build. It is stored in the no backup files directory together with the
+ * generation it was built for, made of the locale, the build fingerprint and the version code of
+ * Settings, and is only built again when that generation changes. The dynamic part holds the dynamic raw data and the
+ * non-indexable keys, which depend on the device state. On {@link #refresh} only the dynamic part
+ * is collected again, into a small separate index, and nothing is written.
+ */
+public class LocalSearchIndexer {
+
+    private static final String TAG = "LocalSearchIndexer";
+    private static final String FILE_NAME = "local_search_index";
+
+    private static LocalSearchIndexer sInstance;
+
+    private final Context mContext;
+    private final Object mLock = new Object();
+    @Nullable
+    private volatile LocalSearchIndex mIndex;
+    // The static part of mIndex and the generation it was built for, only used by the refresh
+    // thread.
+    @Nullable
+    private LocalSearchIndex mStaticIndex;
+    @Nullable
+    private String mStaticGeneration;
+    private boolean mRefreshing;
+    private final List<Consumer<LocalSearchIndex>> mPendingCallbacks = new ArrayList<>();
+
+    /** Returns the indexer of this process. */
+    @NonNull
+    public static synchronized LocalSearchIndexer getInstance(@NonNull Context context) {
+        if (sInstance == null) {
+            sInstance = new LocalSearchIndexer(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    @VisibleForTesting
+    LocalSearchIndexer(Context context) {
+        mContext = context;
+    }
+
+    /** Returns the latest index, or {@code null} before the first {@link #refresh} completes. */
+    @Nullable
+    public LocalSearchIndex getIndex() {
+        return mIndex;
+    }
+
+    /**
+     * Loads or updates the index in the background. On the first call, {@code callback} is called
+     * on the main thread with the static index as soon as it is available. It is always called
+     * once the dynamic data has been collected again.
+     */
+    @MainThread
+    public void refresh(@NonNull Consumer<LocalSearchIndex> callback) {
+        synchronized (mLock) {
+            mPendingCallbacks.add(callback);
+            if (mRefreshing) {
+                return;
+            }
+            mRefreshing = true;
+        }
+        ThreadUtils.postOnBackgroundThread(this::refreshInBackground);
+    }
+
+    @WorkerThread
+    private void refreshInBackground() {
+        final String generation = getGeneration();
+        if (mStaticIndex == null || !TextUtils.equals(generation, mStaticGeneration)) {
+            LocalSearchIndex staticIndex = readIndex(generation);
+            if (staticIndex == null) {
+                final long startTime = System.currentTimeMillis();
+                staticIndex = buildStaticIndex();
+                writeIndex(staticIndex, generation);
+                Log.d(TAG, "indexed " + staticIndex.getDocuments().size() + " documents in "
+                        + (System.currentTimeMillis() - startTime) + "ms");
+            }
+            mStaticIndex = staticIndex;
+            mStaticGeneration = generation;
+            if (mIndex == null) {
+                publish(staticIndex, /* done= */ false);
+            }
+        }
+        publish(withDynamicData(mStaticIndex), /* done= */ true);
+    }
+
+    private void publish(LocalSearchIndex index, boolean done) {
+        mIndex = index;
+        final List<Consumer<LocalSearchIndex>> callbacks;
+        synchronized (mLock) {
+            callbacks = new ArrayList<>(mPendingCallbacks);
+            if (done) {
+                mPendingCallbacks.clear();
+                mRefreshing = false;
+            }
+        }
+        ThreadUtils.postOnMainThread(() -> {
+            for (Consumer<LocalSearchIndex> callback : callbacks) {
+                callback.accept(index);
+            }
+        });
+    }
+
+    /** Builds the static part of the index by parsing every page. */
+    @VisibleForTesting
+    @WorkerThread
+    LocalSearchIndex buildStaticIndex() {
+        final List<LocalSearchIndex.Document> documents = new ArrayList<>();
+        for (SearchIndexableData bundle : getBundles()) {
+            collectStaticDocuments(bundle, documents);
+        }
+        return LocalSearchIndex.build(documents);
+    }
+
+    /** Returns {@code staticIndex} together with the current dynamic data. */
+    @VisibleForTesting
+    @WorkerThread
+    LocalSearchIndex withDynamicData(@NonNull LocalSearchIndex staticIndex) {
+        final List<LocalSearchIndex.Document> documents = new ArrayList<>();
+        final Set<String> nonIndexableKeys = new ArraySet<>();
+        for (SearchIndexableData bundle : getBundles()) {
+            collectDynamicDocuments(bundle, documents, nonIndexableKeys);
+        }
+        final LocalSearchIndex index =
+                staticIndex.withDynamicIndex(LocalSearchIndex.build(documents));
+        index.setHiddenKeys(nonIndexableKeys);
+        return index;
+    }
+
+    private static Collection<SearchIndexableData> getBundles() {
+        return FeatureFactory.getFeatureFactory().getSearchFeatureProvider()
+                .getSearchIndexableResources().getProviderValues();
+    }
+
+    private void collectStaticDocuments(SearchIndexableData bundle,
+            List<LocalSearchIndex.Document> documents) {
+        final String className = bundle.getTargetClass().getName();
+        final Indexable.SearchIndexProvider provider = bundle.getSearchIndexProvider();
+        try {
+            final List<SearchIndexableResource> resources =
+                    provider.getXmlResourcesToIndex(mContext, true /* enabled */);
+            if (resources != null) {
+                for (SearchIndexableResource resource : resources) {
+                    if (resource.xmlResId != 0) {
+                        collectXmlDocuments(resource, className, documents);
+                    }
+                }
+            }
+            addRawDocuments(provider.getRawDataToIndex(mContext, true /* enabled */),
+                    className, /* dynamic= */ false, documents);
+        } catch (Exception e) {
+            // Like the search provider, a broken page must not take down the whole index.
+            Log.e(TAG, "Error indexing " + className, e);
+        }
+    }
+
+    private void collectDynamicDocuments(SearchIndexableData bundle,
+            List<LocalSearchIndex.Document> documents, Set<String> nonIndexableKeys) {
+        final String className = bundle.getTargetClass().getName();
+        final Indexable.SearchIndexProvider provider = bundle.getSearchIndexProvider();
+        try {
+            addRawDocuments(provider.getDynamicRawDataToIndex(mContext, true /* enabled */),
+                    className, /* dynamic= */ true, documents);
+            final List<String> keys = provider.getNonIndexableKeys(mContext);
+            if (keys != null) {
+                nonIndexableKeys.addAll(keys);
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Error indexing dynamic data of " + className, e);
+        }
+    }
+
+    private void collectXmlDocuments(SearchIndexableResource resource, String fragmentName,
+            List<LocalSearchIndex.Document> documents) {
+        final String className =
+                TextUtils.isEmpty(resource.className) ? fragmentName : resource.className;
+        try {
+            final List<Bundle> metadata = PreferenceXmlParserUtils.extractMetadata(mContext,
+                    resource.xmlResId,
+                    MetadataFlag.FLAG_INCLUDE_PREF_SCREEN
+                            | MetadataFlag.FLAG_NEED_KEY
+                            | MetadataFlag.FLAG_NEED_PREF_TYPE
+                            | MetadataFlag.FLAG_NEED_PREF_TITLE
+                            | MetadataFlag.FLAG_NEED_PREF_SUMMARY
+                            | MetadataFlag.FLAG_NEED_PREF_ICON
+                            | MetadataFlag.FLAG_NEED_KEYWORDS);
+            String screenTitle = null;
+            for (Bundle bundle : metadata) {
+                final String title = bundle.getString(METADATA_TITLE);
+                if (PREF_SCREEN_TAG.equals(bundle.getString(METADATA_PREF_TYPE))) {
+                    screenTitle = title;
+                    continue;
+                }
+                if (TextUtils.isEmpty(title)) {
+                    continue;
+                }
+                documents.add(new LocalSearchIndex.Document(bundle.getString(METADATA_KEY),
+                        title, bundle.getString(METADATA_SUMMARY),
+                        bundle.getString(METADATA_KEYWORDS), screenTitle, className,
+                        resource.intentAction, resource.intentTargetPackage,
+                        resource.intentTargetClass, bundle.getInt(METADATA_ICON),
+                        /* dynamic= */ false));
+            }
+        } catch (XmlPullParserException | IOException | Resources.NotFoundException e) {
+            Log.w(TAG, "Error parsing " + className, e);
+        }
+    }
+
+    private static void addRawDocuments(@Nullable List<SearchIndexableRaw> raws,
+            String className, boolean dynamic, List<LocalSearchIndex.Document> documents) {
+        if (raws == null) {
+            return;
+        }
+        for (SearchIndexableRaw raw : raws) {
+            if (TextUtils.isEmpty(raw.title)) {
+                continue;
+            }
+            documents.add(new LocalSearchIndex.Document(raw.key, raw.title,
+                    TextUtils.isEmpty(raw.summaryOn) ? raw.summaryOff : raw.summaryOn,
+                    raw.keywords, raw.screenTitle,
+                    TextUtils.isEmpty(raw.intentAction) ? className : null,
+                    raw.intentAction, raw.intentTargetPackage, raw.intentTargetClass,
+                    raw.iconResId, dynamic));
+        }
+    }
+
+    @Nullable
+    private LocalSearchIndex readIndex(String generation) {
+        final File file = getFile();
+        if (!file.exists()) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(file)))) {
+            if (!TextUtils.equals(in.readUTF(), generation)) {
+                return null;
+            }
+            return LocalSearchIndex.readFrom(in);
+        } catch (IOException e) {
+            Log.w(TAG, "Dropping unreadable index", e);
+            return null;
+        }
+    }
+
+    private void writeIndex(LocalSearchIndex index, String generation) {
+        final AtomicFile file = new AtomicFile(getFile());
+        FileOutputStream stream = null;
+        try {
+            stream = file.startWrite();
+            final DataOutputStream out =
+                    new DataOutputStream(new BufferedOutputStream(stream));
+            out.writeUTF(generation);
+            index.writeTo(out);
+            out.flush();
+            file.finishWrite(stream);
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to write index", e);
+            file.failWrite(stream);
+        }
+    }
+
+    private File getFile() {
+        return new File(mContext.getNoBackupFilesDir(), FILE_NAME);
+    }
+
+    // The stored pages are only valid for the locale and build of Settings they were read in. The
+    // version code catches Settings being updated without a new build.
+    private String getGeneration() {
+        long versionCode = 0;
+        try {
+            versionCode = mContext.getPackageManager()
+                    .getPackageInfo(mContext.getPackageName(), 0 /* flags */).getLongVersionCode();
+        } catch (PackageManager.NameNotFoundException e) {
+            Log.w(TAG, "Settings package not found", e);
+        }
+        return mContext.getResources().getConfiguration().getLocales().toLanguageTags()
+                + "/" + Build.FINGERPRINT + "/" + versionCode;
+    }
+}
@@ -40,6 +40,7 @@ import com.android.settingslib.search.SearchIndexableResources;
 
 import com.google.android.setupcompat.util.WizardManagerHelper;
 
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -86,7 +87,6 @@ public interface SearchFeatureProvider {
         }
 
         if (!WizardManagerHelper.isDeviceProvisioned(activity)
-                || !Utils.isPackageEnabled(activity, getSettingsIntelligencePkgName(activity))
                 || WizardManagerHelper.isAnySetupWizard(activity.getIntent())) {
             final ViewGroup parent = (ViewGroup) toolbar.getParent();
             if (parent != null) {
@@ -108,9 +108,15 @@ public interface SearchFeatureProvider {
         final Intent intent = buildSearchIntent(context, pageId)
                 .addFlags(Intent.FLAG_ACTIVITY_CLEAR_TOP);
         final List<ResolveInfo> resolveInfos =
-                activity.getPackageManager().queryIntentActivities(intent,
-                        PackageManager.MATCH_DEFAULT_ONLY);
+                Utils.isPackageEnabled(activity, getSettingsIntelligencePkgName(activity))
+                        ? activity.getPackageManager().queryIntentActivities(intent,
+                                PackageManager.MATCH_DEFAULT_ONLY)
+                        : Collections.emptyList();
         if (resolveInfos.isEmpty()) {
+            // The search app is missing or disabled, search in process instead.
+            final Intent localIntent = new Intent(context, LocalSearchActivity.class);
+            toolbar.setOnClickListener(
+                    tb -> startSearchActivity(context, activity, pageId, localIntent));
             return;
         }
 
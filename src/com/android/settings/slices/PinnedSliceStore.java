@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.slices;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.net.Uri;
+import android.text.format.DateUtils;
+
+import androidx.annotation.VisibleForTesting;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Remembers the most recently pinned Settings slices across process restarts.
+ *
+ * <p>{@link SettingsSliceProvider} warms the {@link SliceData} of these slices after its first
+ * bind, so that hosts which keep pinning the same slices get a real slice on their next binds.
+ * The pin time of a slice is only rewritten once it is older than {@link #REFRESH_INTERVAL_MS}, so
+ * repeated pins do not write to disk.
+ */
+class PinnedSliceStore {
+
+    @VisibleForTesting
+    static final String PREFS_NAME = "pinned_slices";
+
+    @VisibleForTesting
+    static final int MAX_URIS = 16;
+
+    @VisibleForTesting
+    static final long REFRESH_INTERVAL_MS = DateUtils.HOUR_IN_MILLIS;
+
+    private final SharedPreferences mPrefs;
+
+    PinnedSliceStore(Context context) {
+        mPrefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    /** Records that {@code uri} has just been pinned, dropping the least recent one if needed. */
+    synchronized void add(Uri uri) {
+        final String key = uri.toString();
+        final long now = System.currentTimeMillis();
+        if (mPrefs.contains(key) && Math.abs(now - mPrefs.getLong(key, 0)) < REFRESH_INTERVAL_MS) {
+            return;
+        }
+        final SharedPreferences.Editor editor = mPrefs.edit().putLong(key, now);
+        final Map<String, ?> pinned = mPrefs.getAll();
+        if (!pinned.containsKey(key) && pinned.size() >= MAX_URIS) {
+            String oldest = null;
+            long oldestTime = Long.MAX_VALUE;
+            for (Map.Entry<String, ?> entry : pinned.entrySet()) {
+                final long time = entry.getValue() instanceof Long ? (Long) entry.getValue() : 0;
+                if (time < oldestTime) {
+                    oldest = entry.getKey();
+                    oldestTime = time;
+                }
+            }
+            editor.remove(oldest);
+        }
+        editor.apply();
+    }
+
+    /** Returns whether {@code uri} is one of the recently pinned slices. */
+    boolean contains(Uri uri) {
+        return mPrefs.contains(uri.toString());
+    }
+
+    /** Returns the recently pinned slices. */
+    List<Uri> getUris() {
+        final List<Uri> uris = new ArrayList<>();
+        for (String uri : mPrefs.getAll().keySet()) {
+            uris.add(Uri.parse(uri));
+        }
+        return uris;
+    }
+}
@@ -60,10 +60,11 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
-import java.util.WeakHashMap;
 import java.util.stream.Collectors;
 
 /**
@@ -78,10 +79,15 @@ import java.util.stream.Collectors;
  * return an stub {@link Slice} with the correct {@link Uri} immediately. In the background, the
  * data corresponding to the key in the {@link Uri} is read by {@link SlicesDatabaseAccessor}, and
  * the entire row is converted into a {@link SliceData}. Once complete, it is stored in
- * {@link #mSliceWeakDataCache}, and then an update sent via the Slice framework to the Slice.
+ * {@link #mSliceDataCache}, and then an update sent via the Slice framework to the Slice.
  * The {@link Slice} displayed by the Slice-presenter will re-query this Slice-provider and find
  * the {@link SliceData} cached to build the full {@link Slice}.
  *
+ * <p>The most recently pinned slices are remembered by {@link PinnedSliceStore}. Their
+ * {@link SliceData} is warmed in the background after the first bind, and a bind that misses the
+ * cache off the main thread reads it synchronously. {@link #mSliceDataCache} is dropped when the
+ * locale changes or the slices index is rebuilt, since it holds localized rows of the index.
+ *
  * <p>When an action is taken on that {@link Slice}, we receive the action in
  * {@link SliceBroadcastReceiver}, and use the
  * {@link com.android.settings.core.BasePreferenceController} indexed as
@@ -132,15 +138,29 @@ public class SettingsSliceProvider extends SliceProvider {
 
     private static final KeyValueListParser KEY_VALUE_LIST_PARSER = new KeyValueListParser(',');
 
+    @VisibleForTesting
+    static final int MAX_CACHED_SLICES = 64;
+
     @VisibleForTesting
     SlicesDatabaseAccessor mSlicesDatabaseAccessor;
 
     @VisibleForTesting
-    Map<Uri, SliceData> mSliceWeakDataCache;
+    Map<Uri, SliceData> mSliceDataCache;
+
+    @VisibleForTesting
+    PinnedSliceStore mPinnedSliceStore;
+
+    // Slices whose broadcast receivers and background workers are registered.
+    @VisibleForTesting
+    final Set<Uri> mLoadedUris = Collections.synchronizedSet(new ArraySet<>());
 
     @VisibleForTesting
     final Map<Uri, SliceBackgroundWorker> mPinnedWorkers = new ArrayMap<>();
 
+    // The locale and index generation mSliceDataCache was filled for.
+    private Locale mSliceDataLocale;
+    private int mSliceDataIndexGeneration;
+
     private Boolean mNightMode;
     private boolean mFirstSlicePinned;
     private boolean mFirstSliceBound;
@@ -154,7 +174,8 @@ public class SettingsSliceProvider extends SliceProvider {
     public boolean onCreateSliceProvider() {
         Log.d(TAG, "onCreateSliceProvider");
         mSlicesDatabaseAccessor = new SlicesDatabaseAccessor(getContext());
-        mSliceWeakDataCache = new WeakHashMap<>();
+        mSliceDataCache = createSliceDataCache();
+        mPinnedSliceStore = new PinnedSliceStore(getContext());
         return true;
     }
 
@@ -192,12 +213,14 @@ public class SettingsSliceProvider extends SliceProvider {
         }
 
         // Start warming the slice, we expect someone will want it soon.
+        mPinnedSliceStore.add(sliceUri);
         loadSliceInBackground(sliceUri);
     }
 
     @Override
     public void onSliceUnpinned(Uri sliceUri) {
-        mSliceWeakDataCache.remove(sliceUri);
+        // Keep the SliceData for the next pin, only the registrations are released.
+        mLoadedUris.remove(sliceUri);
         final Context context = getContext();
         if (!VolumeSliceHelper.unregisterUri(context, sliceUri)) {
             SliceBroadcastRelay.unregisterReceivers(context, sliceUri);
@@ -272,7 +295,13 @@ public class SettingsSliceProvider extends SliceProvider {
                         .createWifiCallingPreferenceSlice(sliceUri);
             }
 
-            final SliceData cachedSliceData = mSliceWeakDataCache.get(sliceUri);
+            clearSliceDataCacheIfStale();
+            SliceData cachedSliceData = mSliceDataCache.get(sliceUri);
+            if (cachedSliceData == null && !ThreadUtils.isMainThread()
+                    && mPinnedSliceStore.contains(sliceUri)) {
+                // A slice that hosts keep pinning, worth a synchronous read of its single row.
+                cachedSliceData = loadSliceData(sliceUri);
+            }
             if (cachedSliceData == null) {
                 loadSliceInBackground(sliceUri);
                 return getSliceStub(sliceUri);
@@ -283,6 +312,7 @@ public class SettingsSliceProvider extends SliceProvider {
             if (!mFirstSliceBound) {
                 Log.v(TAG, "onBindSlice end");
                 mFirstSliceBound = true;
+                ThreadUtils.postOnBackgroundThread(this::warmUpPinnedSlices);
             }
         }
     }
@@ -402,17 +432,20 @@ public class SettingsSliceProvider extends SliceProvider {
 
     @VisibleForTesting
     void loadSlice(Uri uri) {
-        if (mSliceWeakDataCache.containsKey(uri)) {
-            Log.d(TAG, uri + " loaded from cache");
+        if (!mLoadedUris.add(uri)) {
+            Log.d(TAG, uri + " already loaded");
             return;
         }
         long startBuildTime = System.currentTimeMillis();
 
-        final SliceData sliceData;
-        try {
-            sliceData = mSlicesDatabaseAccessor.getSliceDataFromUri(uri);
-        } catch (IllegalStateException e) {
-            Log.d(TAG, "Could not create slicedata for uri: " + uri, e);
+        clearSliceDataCacheIfStale();
+        SliceData sliceData = mSliceDataCache.get(uri);
+        final boolean cached = sliceData != null;
+        if (!cached) {
+            sliceData = loadSliceData(uri);
+        }
+        if (sliceData == null) {
+            mLoadedUris.remove(uri);
             return;
         }
 
@@ -432,13 +465,72 @@ public class SettingsSliceProvider extends SliceProvider {
 
         ThreadUtils.postOnMainThread(() -> startBackgroundWorker(controller, uri));
 
-        mSliceWeakDataCache.put(uri, sliceData);
-        getContext().getContentResolver().notifyChange(uri, null /* content observer */);
+        if (!cached) {
+            getContext().getContentResolver().notifyChange(uri, null /* content observer */);
+        }
 
         Log.d(TAG, "Built slice (" + uri + ") in: " +
                 (System.currentTimeMillis() - startBuildTime));
     }
 
+    /** Reads the {@link SliceData} of {@code uri} from the slices index and caches it. */
+    @Nullable
+    private SliceData loadSliceData(Uri uri) {
+        final SliceData sliceData;
+        try {
+            sliceData = mSlicesDatabaseAccessor.getSliceDataFromUri(uri);
+        } catch (IllegalStateException e) {
+            Log.d(TAG, "Could not create slicedata for uri: " + uri, e);
+            return null;
+        }
+        mSliceDataCache.put(uri, sliceData);
+        return sliceData;
+    }
+
+    /**
+     * Loads the {@link SliceData} of the recently pinned slices and resolves their controllers, so
+     * their first bind neither queries the slices index nor looks up the controller class.
+     */
+    @VisibleForTesting
+    void warmUpPinnedSlices() {
+        clearSliceDataCacheIfStale();
+        for (Uri uri : mPinnedSliceStore.getUris()) {
+            if (mSliceDataCache.containsKey(uri)) {
+                continue;
+            }
+            final SliceData sliceData = loadSliceData(uri);
+            if (sliceData != null) {
+                SliceBuilderUtils.getPreferenceController(getContext(), sliceData);
+            }
+        }
+    }
+
+    /** Drops the cached {@link SliceData} if the locale changed or the index was rebuilt. */
+    @VisibleForTesting
+    synchronized void clearSliceDataCacheIfStale() {
+        final Locale locale = Locale.getDefault();
+        final int generation = SlicesDatabaseHelper.getInstance(getContext()).getIndexGeneration();
+        if (locale.equals(mSliceDataLocale) && generation == mSliceDataIndexGeneration) {
+            return;
+        }
+        if (mSliceDataLocale != null) {
+            Log.d(TAG, "Locale or slices index changed, clear cached slice data");
+            mSliceDataCache.clear();
+        }
+        mSliceDataLocale = locale;
+        mSliceDataIndexGeneration = generation;
+    }
+
+    private static Map<Uri, SliceData> createSliceDataCache() {
+        return Collections.synchronizedMap(
+                new LinkedHashMap<Uri, SliceData>(16, 0.75f, true /* accessOrder */) {
+                    @Override
+                    protected boolean removeEldestEntry(Map.Entry<Uri, SliceData> eldest) {
+                        return size() > MAX_CACHED_SLICES;
+                    }
+                });
+    }
+
     @VisibleForTesting
     void loadSliceInBackground(Uri uri) {
         ThreadUtils.postOnBackgroundThread(() -> loadSlice(uri));
@@ -152,6 +152,10 @@ public class SlicesDatabaseHelper extends SQLiteOpenHelper {
 
     private static SlicesDatabaseHelper sSingleton;
 
+    // Bumped each time the index is marked current, so in-memory copies of its rows can tell that
+    // they are stale.
+    private volatile int mIndexGeneration;
+
     public static synchronized SlicesDatabaseHelper getInstance(Context context) {
         if (sSingleton == null) {
             sSingleton = new SlicesDatabaseHelper(context.getApplicationContext());
@@ -198,6 +202,12 @@ public class SlicesDatabaseHelper extends SQLiteOpenHelper {
     public void setIndexedState() {
         setBuildIndexed();
         setLocaleIndexed();
+        mIndexGeneration++;
+    }
+
+    /** Returns a value that changes whenever the index is rebuilt in this process. */
+    public int getIndexGeneration() {
+        return mIndexGeneration;
     }
 
     /**
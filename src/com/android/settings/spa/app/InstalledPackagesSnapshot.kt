@@ -0,0 +1,151 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.spa.app
+
+import android.content.BroadcastReceiver
+import android.content.Context
+import android.content.Intent
+import android.content.IntentFilter
+import android.content.pm.PackageInfo
+import android.content.pm.PackageManager.GET_ACTIVITIES
+import android.content.pm.PackageManager.PackageInfoFlags
+import android.os.UserHandle
+import android.util.Log
+import androidx.annotation.VisibleForTesting
+import java.util.concurrent.ConcurrentHashMap
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.SupervisorJob
+import kotlinx.coroutines.channels.Channel
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.SharedFlow
+import kotlinx.coroutines.flow.SharingStarted
+import kotlinx.coroutines.flow.channelFlow
+import kotlinx.coroutines.flow.shareIn
+
+/**
+ * Snapshot of the installed packages of each user, including their activities, shared by all the
+ * SPA app lists that need more than [android.content.pm.ApplicationInfo].
+ *
+ * The snapshot of a user is loaded once when the first list starts collecting it and is then kept
+ * up to date from package broadcasts, one package at a time. It is released [KEEP_ALIVE_MILLIS]
+ * after the last collector goes away, so moving between list pages reuses it while an idle Settings
+ * process does not keep it alive.
+ */
+class InstalledPackagesSnapshot @VisibleForTesting constructor(
+    private val context: Context,
+    private val scope: CoroutineScope = CoroutineScope(SupervisorJob() + Dispatchers.IO),
+) {
+    private val packageManager = context.packageManager
+    private val userSnapshots = ConcurrentHashMap<Int, SharedFlow<Map<String, PackageInfo>>>()
+
+    /** The installed packages of the given user, keyed by package name. */
+    fun packagesFlow(userId: Int): Flow<Map<String, PackageInfo>> =
+        userSnapshots.computeIfAbsent(userId) {
+            snapshotFlow(userId).shareIn(
+                scope = scope,
+                started = SharingStarted.WhileSubscribed(
+                    stopTimeoutMillis = KEEP_ALIVE_MILLIS,
+                    replayExpirationMillis = 0,
+                ),
+                replay = 1,
+            )
+        }
+
+    // The receiver is registered before the packages are loaded and buffers every change, so a
+    // package that changes while the snapshot loads is reloaded afterwards instead of being missed.
+    private fun snapshotFlow(userId: Int) = channelFlow {
+        val changedPackages = Channel<String>(Channel.UNLIMITED)
+        val receiver = object : BroadcastReceiver() {
+            override fun onReceive(context: Context, intent: Intent) {
+                intent.data?.schemeSpecificPart?.let { changedPackages.trySend(it) }
+            }
+        }
+        context.registerReceiverAsUser(
+            receiver, UserHandle.of(userId), PACKAGE_CHANGES, null, null,
+            Context.RECEIVER_NOT_EXPORTED,
+        )
+        try {
+            val packages = loadPackages(userId).associateByTo(mutableMapOf()) { it.packageName }
+            send(packages.toMap())
+            for (packageName in changedPackages) {
+                val packageInfo = loadPackage(packageName, userId)
+                if (packageInfo == null) {
+                    packages.remove(packageName)
+                } else {
+                    packages[packageName] = packageInfo
+                }
+                send(packages.toMap())
+            }
+        } finally {
+            context.unregisterReceiver(receiver)
+        }
+    }
+
+    // Querying with GET_ACTIVITIES could throw sometimes, e.g. when the reply is too large for a
+    // single binder transaction. Fall back to loading the packages one at a time then, rather than
+    // treating all of them as absent.
+    private fun loadPackages(userId: Int): List<PackageInfo> = try {
+        packageManager.getInstalledPackagesAsUser(GET_ACTIVITIES_FLAGS, userId)
+    } catch (e: Exception) {
+        Log.w(TAG, "Exception while getInstalledPackagesAsUser, loading packages one by one", e)
+        loadPackagesOneByOne(userId)
+    }
+
+    private fun loadPackagesOneByOne(userId: Int): List<PackageInfo> = try {
+        packageManager.getInstalledPackagesAsUser(PackageInfoFlags.of(0), userId)
+            .mapNotNull { loadPackage(it.packageName, userId) }
+    } catch (e: Exception) {
+        Log.e(TAG, "Exception while getInstalledPackagesAsUser", e)
+        emptyList()
+    }
+
+    private fun loadPackage(packageName: String, userId: Int): PackageInfo? = try {
+        packageManager.getPackageInfoAsUser(packageName, GET_ACTIVITIES_FLAGS, userId)
+    } catch (e: Exception) {
+        // Also the expected outcome once a package is removed.
+        null
+    }
+
+    companion object {
+        private const val TAG = "InstalledPackagesSnapshot"
+
+        @VisibleForTesting
+        const val KEEP_ALIVE_MILLIS = 10_000L
+
+        private val GET_ACTIVITIES_FLAGS = PackageInfoFlags.of(GET_ACTIVITIES.toLong())
+
+        private val PACKAGE_CHANGES = IntentFilter().apply {
+            addAction(Intent.ACTION_PACKAGE_ADDED)
+            addAction(Intent.ACTION_PACKAGE_CHANGED)
+            addAction(Intent.ACTION_PACKAGE_REMOVED)
+            addAction(Intent.ACTION_PACKAGE_REPLACED)
+            addDataScheme("package")
+        }
+
+        @Volatile
+        private var instance: InstalledPackagesSnapshot? = null
+
+        /** Returns the process wide snapshot. */
+        fun getInstance(context: Context): InstalledPackagesSnapshot =
+            instance ?: synchronized(this) {
+                instance ?: InstalledPackagesSnapshot(context.applicationContext).also {
+                    instance = it
+                }
+            }
+    }
+}
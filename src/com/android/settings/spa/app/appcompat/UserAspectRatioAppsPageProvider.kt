@@ -37,6 +37,7 @@ import androidx.compose.ui.res.stringResource
 import androidx.lifecycle.compose.collectAsStateWithLifecycle
 import com.android.settings.R
 import com.android.settings.applications.appcompat.UserAspectRatioManager
+import com.android.settings.spa.app.InstalledPackagesSnapshot
 import com.android.settingslib.spa.framework.common.SettingsEntryBuilder
 import com.android.settingslib.spa.framework.common.SettingsPageProvider
 import com.android.settingslib.spa.framework.common.SpaEnvironmentFactory
@@ -63,10 +64,13 @@ import com.android.settingslib.spaprivileged.template.app.AppListItemModel
 import com.android.settingslib.spaprivileged.template.app.AppListPage
 import com.google.common.annotations.VisibleForTesting
 import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.ExperimentalCoroutinesApi
 import kotlinx.coroutines.flow.Flow
 import kotlinx.coroutines.flow.combine
+import kotlinx.coroutines.flow.flatMapLatest
 import kotlinx.coroutines.flow.flow
 import kotlinx.coroutines.flow.flowOn
+import kotlinx.coroutines.flow.map
 
 object UserAspectRatioAppsPageProvider : SettingsPageProvider {
     override val name = "UserAspectRatioAppsPage"
@@ -130,8 +134,11 @@ data class UserAspectRatioAppListItemModel(
     val canDisplay: Boolean,
 ) : AppRecord
 
-class UserAspectRatioAppListModel(private val context: Context)
-    : AppListModel<UserAspectRatioAppListItemModel> {
+class UserAspectRatioAppListModel(
+    private val context: Context,
+    private val packagesSnapshot: InstalledPackagesSnapshot =
+        InstalledPackagesSnapshot.getInstance(context),
+) : AppListModel<UserAspectRatioAppListItemModel> {
 
     private val packageManager = context.packageManager
     private val userAspectRatioManager = UserAspectRatioManager(context)
@@ -169,13 +176,20 @@ class UserAspectRatioAppListModel(private val context: Context)
         )
     }
 
+    @OptIn(ExperimentalCoroutinesApi::class)
     override fun transform(userIdFlow: Flow<Int>, appListFlow: Flow<List<ApplicationInfo>>) =
-        userIdFlow.combine(appListFlow) { uid, appList ->
+        userIdFlow.flatMapLatest { uid ->
+            packagesSnapshot.packagesFlow(uid).map { packages -> uid to packages }
+        }.combine(appListFlow) { (uid, packages), appList ->
             appList.asyncMap { app ->
+                // Packages missing from the snapshot, e.g. just installed, are looked up directly.
+                val packageInfo =
+                    (if (app.userId == uid) packages[app.packageName] else null)
+                        ?: getPackageAndActivityInfo(app)
                 UserAspectRatioAppListItemModel(
                     app = app,
-                    suggested = !app.isSystemApp && getPackageAndActivityInfo(
-                                    app)?.isFixedOrientationOrAspectRatio() == true,
+                    suggested = !app.isSystemApp &&
+                        packageInfo?.isFixedOrientationOrAspectRatio() == true,
                     userOverride = userAspectRatioManager.getUserMinAspectRatioValue(
                                     app.packageName, uid),
                     canDisplay = userAspectRatioManager.canDisplayAspectRatioUi(app),
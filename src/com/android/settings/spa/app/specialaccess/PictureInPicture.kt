@@ -27,6 +27,7 @@ import android.content.pm.PackageManager.PackageInfoFlags
 import android.util.Log
 import androidx.compose.runtime.Composable
 import com.android.settings.R
+import com.android.settings.spa.app.InstalledPackagesSnapshot
 import com.android.settingslib.spa.lifecycle.collectAsCallbackWithLifecycle
 import com.android.settingslib.spaprivileged.model.app.AppOpsController
 import com.android.settingslib.spaprivileged.model.app.AppRecord
@@ -34,8 +35,10 @@ import com.android.settingslib.spaprivileged.model.app.installed
 import com.android.settingslib.spaprivileged.model.app.userId
 import com.android.settingslib.spaprivileged.template.app.TogglePermissionAppListModel
 import com.android.settingslib.spaprivileged.template.app.TogglePermissionAppListProvider
+import kotlinx.coroutines.ExperimentalCoroutinesApi
 import kotlinx.coroutines.flow.Flow
 import kotlinx.coroutines.flow.combine
+import kotlinx.coroutines.flow.flatMapLatest
 import kotlinx.coroutines.flow.map
 
 object PictureInPictureListProvider : TogglePermissionAppListProvider {
@@ -49,8 +52,11 @@ data class PictureInPictureRecord(
     val appOpsController: AppOpsController,
 ) : AppRecord
 
-class PictureInPictureListModel(private val context: Context) :
-    TogglePermissionAppListModel<PictureInPictureRecord> {
+class PictureInPictureListModel(
+    private val context: Context,
+    private val packagesSnapshot: InstalledPackagesSnapshot =
+        InstalledPackagesSnapshot.getInstance(context),
+) : TogglePermissionAppListModel<PictureInPictureRecord> {
     override val pageTitleResId = R.string.picture_in_picture_title
     override val switchTitleResId = R.string.picture_in_picture_app_detail_switch
     override val footerResId = R.string.picture_in_picture_app_detail_summary
@@ -58,13 +64,14 @@ class PictureInPictureListModel(private val context: Context) :
 
     private val packageManager = context.packageManager
 
+    @OptIn(ExperimentalCoroutinesApi::class)
     override fun transform(userIdFlow: Flow<Int>, appListFlow: Flow<List<ApplicationInfo>>) =
-        userIdFlow.map(::getPictureInPicturePackages)
-            .combine(appListFlow) { pictureInPicturePackages, appList ->
+        userIdFlow.flatMapLatest(packagesSnapshot::packagesFlow)
+            .combine(appListFlow) { packages, appList ->
                 appList.map { app ->
                     createPictureInPictureRecord(
                         app = app,
-                        isSupport = app.packageName in pictureInPicturePackages,
+                        isSupport = packages[app.packageName]?.supportsPictureInPicture() == true,
                     )
                 }
             }
@@ -100,12 +107,6 @@ class PictureInPictureListModel(private val context: Context) :
         record.appOpsController.setAllowed(newAllowed)
     }
 
-    private fun getPictureInPicturePackages(userId: Int): Set<String> =
-        getPackageAndActivityInfoList(userId)
-            .filter { it.supportsPictureInPicture() }
-            .map { it.packageName }
-            .toSet()
-
     private fun getPackageAndActivityInfo(app: ApplicationInfo): PackageInfo? = try {
         packageManager.getPackageInfoAsUser(app.packageName, GET_ACTIVITIES_FLAGS, app.userId)
     } catch (e: Exception) {
@@ -117,17 +118,6 @@ class PictureInPictureListModel(private val context: Context) :
         null
     }
 
-    private fun getPackageAndActivityInfoList(userId: Int): List<PackageInfo> = try {
-        packageManager.getInstalledPackagesAsUser(GET_ACTIVITIES_FLAGS, userId)
-    } catch (e: Exception) {
-        // Query PackageManager.getPackageInfoAsUser() with GET_ACTIVITIES_FLAGS could cause
-        // exception sometimes. Since we reply on this flag to retrieve the Picture In Picture
-        // packages, we need to catch the exception to alleviate the impact before PackageManager
-        // fixing this issue or provide a better api.
-        Log.e(TAG, "Exception while getInstalledPackagesAsUser", e)
-        emptyList()
-    }
-
     companion object {
         private const val TAG = "PictureInPictureListModel"
 
@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.spa.app.storage
+
+import android.content.Context
+import android.content.SharedPreferences
+import android.content.pm.ApplicationInfo
+import android.os.UserHandle
+
+/**
+ * Last known storage size of each app, persisted across launches so that the storage app list can
+ * be shown sorted by size right away while fresh sizes are being queried.
+ *
+ * An entry is only used while the package's version code and install location are unchanged, so a
+ * reinstall or update never shows the size of an older install. Entries of packages that are no
+ * longer installed are dropped whenever fresh sizes are stored.
+ */
+class AppStorageSizeCache(context: Context) {
+    private val prefs: SharedPreferences =
+        context.applicationContext.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE)
+
+    /** Returns the cached size of [app], or null if there is none for its current install. */
+    fun get(app: ApplicationInfo): Long? {
+        val value = prefs.getString(app.cacheKey(), null) ?: return null
+        // The install location comes last as it is a path, which could contain the separator.
+        val parts = value.split(SEPARATOR, limit = 3)
+        if (parts.size != 3) return null
+        if (parts[0].toLongOrNull() != app.longVersionCode) return null
+        // The install location is unique to each install and update of the package.
+        if (parts[2] != app.sourceDir.orEmpty()) return null
+        return parts[1].toLongOrNull()
+    }
+
+    /**
+     * Stores the given sizes with a single write.
+     *
+     * @param installedApps when given, the apps currently installed for their users: cached sizes
+     *   of other packages of these users are dropped in the same write
+     */
+    fun putAll(
+        sizes: Map<ApplicationInfo, Long>,
+        installedApps: Collection<ApplicationInfo> = emptyList(),
+    ) {
+        val editor = prefs.edit()
+        var changed = false
+        if (installedApps.isNotEmpty()) {
+            val installedKeys = installedApps.mapTo(mutableSetOf()) { it.cacheKey() }
+            val userPrefixes = installedApps.mapTo(mutableSetOf()) { it.userPrefix() }
+            for (key in prefs.all.keys) {
+                if (key !in installedKeys && userPrefixes.any { key.startsWith(it) }) {
+                    editor.remove(key)
+                    changed = true
+                }
+            }
+        }
+        for ((app, size) in sizes) {
+            editor.putString(
+                app.cacheKey(),
+                listOf(app.longVersionCode, size, app.sourceDir.orEmpty())
+                    .joinToString(SEPARATOR),
+            )
+            changed = true
+        }
+        if (changed) editor.apply()
+    }
+
+    private fun ApplicationInfo.userPrefix() = "${UserHandle.getUserId(uid)}/"
+
+    /** One entry per user and package, e.g. "10/com.example.app". */
+    private fun ApplicationInfo.cacheKey() = userPrefix() + packageName
+
+    private companion object {
+        const val PREFS_NAME = "storage_app_sizes"
+        const val SEPARATOR = ":"
+    }
+}
@@ -30,7 +30,6 @@ import com.android.settings.R
 import com.android.settings.spa.app.appinfo.AppInfoSettingsProvider
 import com.android.settingslib.spa.framework.common.SettingsPageProvider
 import com.android.settingslib.spa.framework.util.filterItem
-import com.android.settingslib.spa.framework.util.mapItem
 import com.android.settingslib.spaprivileged.model.app.AppEntry
 import com.android.settingslib.spaprivileged.model.app.AppListModel
 import com.android.settingslib.spaprivileged.model.app.AppRecord
@@ -41,7 +40,16 @@ import com.android.settingslib.spaprivileged.template.app.AppListItemModel
 import com.android.settingslib.spaprivileged.template.app.AppListPage
 import com.android.settingslib.spaprivileged.template.app.calculateSizeBytes
 import com.android.settingslib.spaprivileged.template.app.getStorageSize
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.ExperimentalCoroutinesApi
+import kotlinx.coroutines.coroutineScope
 import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.channelFlow
+import kotlinx.coroutines.flow.conflate
+import kotlinx.coroutines.flow.flatMapLatest
+import kotlinx.coroutines.launch
+import kotlinx.coroutines.sync.Mutex
+import kotlinx.coroutines.sync.withLock
 
 sealed class StorageAppListPageProvider(private val type: StorageType) : SettingsPageProvider {
     @Composable
@@ -107,12 +115,41 @@ class StorageAppListModel(
     private val type: StorageType,
     private val getStorageSummary: @Composable ApplicationInfo.() -> State<String> = {
         getStorageSize()
-    }
+    },
+    private val sizeCache: AppStorageSizeCache = AppStorageSizeCache(context),
+    private val calculateSize: (ApplicationInfo) -> Long? = { it.calculateSizeBytes(context) },
 ) : AppListModel<AppRecordWithSize> {
+    /**
+     * Emits the list with the last known sizes first, then again every time a fresh size differs
+     * from what is shown. Sizes are queried in parallel and emissions are conflated, so a slow
+     * consumer only ever sorts the latest list.
+     */
+    @OptIn(ExperimentalCoroutinesApi::class)
     override fun transform(userIdFlow: Flow<Int>, appListFlow: Flow<List<ApplicationInfo>>) =
-        appListFlow.mapItem {
-            AppRecordWithSize(it, it.calculateSizeBytes(context) ?: 0L)
+        appListFlow.flatMapLatest { apps -> sizedRecordsFlow(apps) }.conflate()
+
+    private fun sizedRecordsFlow(apps: List<ApplicationInfo>) = channelFlow {
+        val records = apps.map { AppRecordWithSize(it, sizeCache.get(it) ?: 0L) }.toMutableList()
+        send(records.toList())
+        val mutex = Mutex()
+        val freshSizes = mutableMapOf<ApplicationInfo, Long>()
+        coroutineScope {
+            apps.forEachIndexed { index, app ->
+                launch(sizeDispatcher) {
+                    // A failed lookup keeps the last known size and is not cached.
+                    val size = calculateSize(app) ?: return@launch
+                    val snapshot = mutex.withLock {
+                        freshSizes[app] = size
+                        if (records[index].size == size) return@withLock null
+                        records[index] = AppRecordWithSize(app, size)
+                        records.toList()
+                    }
+                    snapshot?.let { send(it) }
+                }
+            }
         }
+        sizeCache.putAll(freshSizes, installedApps = apps)
+    }
 
     override fun filter(
         userIdFlow: Flow<Int>,
@@ -134,4 +171,12 @@ class StorageAppListModel(
     override fun getComparator(option: Int) = compareByDescending<AppEntry<AppRecordWithSize>> {
         it.record.size
     }.then(super.getComparator(option))
+
+    private companion object {
+        /** StorageStatsManager queries are binder calls, keep a few of them in flight at once. */
+        const val SIZE_QUERY_PARALLELISM = 4
+
+        @OptIn(ExperimentalCoroutinesApi::class)
+        val sizeDispatcher = Dispatchers.IO.limitedParallelism(SIZE_QUERY_PARALLELISM)
+    }
 }
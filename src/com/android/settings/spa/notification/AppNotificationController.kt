@@ -31,20 +31,30 @@ class AppNotificationController(
 
     fun setEnabled(enabled: Boolean) {
         if (repository.setEnabled(app, enabled)) {
-            _isEnabled.postValue(enabled)
+            _isEnabled.update(enabled)
         }
     }
 
     private val _isEnabled = object : MutableLiveData<Boolean>() {
+        /**
+         * Set synchronously, unlike the posted value, so that the filter running right after
+         * onFirstLoaded() does not query every app a second time.
+         */
+        @Volatile
+        private var loaded: Boolean? = null
+
         override fun onActive() {
-            postValue(repository.isEnabled(app))
+            update(repository.isEnabled(app))
         }
 
         override fun onInactive() {
         }
 
-        fun get(): Boolean = value ?: repository.isEnabled(app).also {
-            postValue(it)
+        fun get(): Boolean = loaded ?: repository.isEnabled(app).also(::update)
+
+        fun update(enabled: Boolean) {
+            loaded = enabled
+            postValue(enabled)
         }
     }
 }
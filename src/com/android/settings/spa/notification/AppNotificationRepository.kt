@@ -37,7 +37,6 @@ import com.android.settingslib.spaprivileged.model.app.IPackageManagers
 import com.android.settingslib.spaprivileged.model.app.PackageManagers
 import com.android.settingslib.spaprivileged.model.app.userId
 import java.util.concurrent.TimeUnit
-import kotlin.math.max
 import kotlin.math.roundToInt
 import kotlinx.coroutines.flow.Flow
 import kotlinx.coroutines.flow.map
@@ -70,24 +69,23 @@ class AppNotificationRepository(
     private val userManager: IUserManager = IUserManager.Stub.asInterface(
             ServiceManager.getService(Context.USER_SERVICE)
     ),
+    private val sentAggregator: NotificationSentAggregator =
+        NotificationSentAggregator(WINDOW_MILLIS),
 ) : IAppNotificationRepository {
+    /**
+     * Gets how often and how recently each app of the user sent notifications. Only the events
+     * since the previous call are queried, see [NotificationSentAggregator].
+     */
     fun getAggregatedUsageEvents(userIdFlow: Flow<Int>): Flow<Map<String, NotificationSentState>> =
         userIdFlow.map { userId ->
-            val aggregatedStats = mutableMapOf<String, NotificationSentState>()
-            queryEventsForUser(userId).forEachNotificationEvent { event ->
-                aggregatedStats.getOrPut(event.packageName, ::NotificationSentState).apply {
-                    lastSent = max(lastSent, event.timeStamp)
-                    sentCount++
-                }
+            sentAggregator.aggregate(userId, System.currentTimeMillis()) { startTime, endTime ->
+                queryEventsForUser(userId, startTime, endTime)
             }
-            aggregatedStats
         }
 
-    private fun queryEventsForUser(userId: Int): UsageEvents? {
-        val now = System.currentTimeMillis()
-        val startTime = now - TimeUnit.DAYS.toMillis(DAYS_TO_CHECK)
+    private fun queryEventsForUser(userId: Int, startTime: Long, endTime: Long): UsageEvents? {
         return try {
-            usageStatsManager.queryEventsForUser(startTime, now, userId, context.packageName)
+            usageStatsManager.queryEventsForUser(startTime, endTime, userId, context.packageName)
         } catch (e: RemoteException) {
             Log.e(TAG, "Failed IUsageStatsManager.queryEventsForUser(): ", e)
             null
@@ -164,7 +162,7 @@ class AppNotificationRepository(
 
     private fun queryEventsForPackageForUser(app: ApplicationInfo): UsageEvents? {
         val now = System.currentTimeMillis()
-        val startTime = now - TimeUnit.DAYS.toMillis(DAYS_TO_CHECK)
+        val startTime = now - WINDOW_MILLIS
         return try {
             usageStatsManager.queryEventsForPackageForUser(
                 startTime, now, app.userId, app.packageName, context.packageName
@@ -221,7 +219,11 @@ class AppNotificationRepository(
 
         private const val DAYS_TO_CHECK = 7L
 
-        private fun UsageEvents?.forEachNotificationEvent(action: (UsageEvents.Event) -> Unit) {
+        /** How far back notification sent events are counted. */
+        val WINDOW_MILLIS = TimeUnit.DAYS.toMillis(DAYS_TO_CHECK)
+
+        /** Calls [action] for every notification sent event, in chronological order. */
+        internal fun UsageEvents?.forEachNotificationEvent(action: (UsageEvents.Event) -> Unit) {
             this ?: return
             val event = UsageEvents.Event()
             while (getNextEvent(event)) {
@@ -53,7 +53,10 @@ data class AppNotificationsRecord(
 class AppNotificationsListModel(
     private val context: Context,
 ) : AppListModel<AppNotificationsRecord> {
-    private val repository = AppNotificationRepository(context)
+    private val repository = AppNotificationRepository(
+        context = context,
+        sentAggregator = NotificationSentAggregator.shared,
+    )
     private val now = System.currentTimeMillis()
 
     override fun transform(
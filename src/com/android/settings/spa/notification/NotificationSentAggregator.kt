@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.spa.notification
+
+import android.app.usage.UsageEvents
+import com.android.settings.spa.notification.AppNotificationRepository.Companion.forEachNotificationEvent
+import kotlin.math.max
+
+/**
+ * Counts the notifications sent in the last [windowMillis] per user and package, so that
+ * refreshing the aggregate only needs the events posted since the previous refresh.
+ *
+ * The window is split into [BUCKET_COUNT] buckets, one day each for the default window, and each
+ * package only keeps a counter per bucket and its latest sent time. Buckets that leave the window
+ * are cleared on every refresh, so counts move a whole bucket at a time. A failed query leaves the
+ * aggregate as it was and is retried from the same point next time.
+ */
+class NotificationSentAggregator(private val windowMillis: Long) {
+    private val bucketMillis = windowMillis / BUCKET_COUNT
+    private val users = mutableMapOf<Int, UserAggregate>()
+
+    /**
+     * Brings the aggregate of [userId] up to [now] and returns it.
+     *
+     * @param queryEvents queries the usage events between the given start and end times
+     */
+    fun aggregate(
+        userId: Int,
+        now: Long,
+        queryEvents: (startTime: Long, endTime: Long) -> UsageEvents?,
+    ): Map<String, NotificationSentState> {
+        val user = synchronized(users) { users.getOrPut(userId, ::UserAggregate) }
+        synchronized(user) {
+            val windowStart = now - windowMillis
+            user.advanceTo(now / bucketMillis)
+            val events = queryEvents(max(user.aggregatedUntil, windowStart), now)
+            if (events != null) {
+                user.add(events, bucketMillis)
+                user.aggregatedUntil = now
+            }
+            return user.toSentStates()
+        }
+    }
+
+    private class PackageSent {
+        val counts = IntArray(BUCKET_COUNT)
+        var lastSent = 0L
+    }
+
+    private class UserAggregate {
+        var aggregatedUntil = 0L
+        // The bucket of the latest refresh, the newest one the counters hold.
+        var currentBucket = Long.MIN_VALUE
+        val packages = mutableMapOf<String, PackageSent>()
+
+        fun advanceTo(bucket: Long) {
+            if (currentBucket == Long.MIN_VALUE) {
+                currentBucket = bucket
+                return
+            }
+            val expired = (bucket - currentBucket).coerceAtMost(BUCKET_COUNT.toLong()).toInt()
+            if (expired <= 0) return
+            val iterator = packages.values.iterator()
+            while (iterator.hasNext()) {
+                val sent = iterator.next()
+                for (i in 1..expired) {
+                    sent.counts[slot(currentBucket + i)] = 0
+                }
+                if (sent.counts.all { it == 0 }) iterator.remove()
+            }
+            currentBucket = bucket
+        }
+
+        fun add(events: UsageEvents, bucketMillis: Long) {
+            events.forEachNotificationEvent { event ->
+                val bucket = event.timeStamp / bucketMillis
+                if (bucket <= currentBucket - BUCKET_COUNT || bucket > currentBucket) {
+                    return@forEachNotificationEvent
+                }
+                val sent = packages.getOrPut(event.packageName, ::PackageSent)
+                sent.counts[slot(bucket)]++
+                sent.lastSent = max(sent.lastSent, event.timeStamp)
+            }
+        }
+
+        fun toSentStates(): Map<String, NotificationSentState> =
+            packages.mapValues { (_, sent) ->
+                NotificationSentState(lastSent = sent.lastSent, sentCount = sent.counts.sum())
+            }
+
+        private fun slot(bucket: Long) = Math.floorMod(bucket, BUCKET_COUNT.toLong()).toInt()
+    }
+
+    companion object {
+        /** The number of buckets the window is split into, one per day of the default window. */
+        const val BUCKET_COUNT = 7
+
+        /** Shared by every notification app list of the process. */
+        val shared = NotificationSentAggregator(AppNotificationRepository.WINDOW_MILLIS)
+    }
+}
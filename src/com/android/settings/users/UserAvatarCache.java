@@ -0,0 +1,278 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.users;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.Drawable;
+import android.os.UserHandle;
+import android.os.UserManager;
+import android.util.ArraySet;
+import android.util.Log;
+import android.util.LruCache;
+import android.util.SparseIntArray;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import com.android.internal.util.UserIcons;
+import com.android.settings.R;
+import com.android.settingslib.drawable.CircleFramedDrawable;
+import com.android.settingslib.utils.ThreadUtils;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+/**
+ * Process wide cache of user avatars that have already been cropped into a circle.
+ *
+ * <p>Avatars are keyed by user id, icon version and pixel size. The version of a user is bumped by
+ * {@link #invalidate}, which the process wide cache calls itself whenever a user changes or is
+ * removed, whether or not a page is showing that user. A load that was started before the user
+ * changed their photo can never put the old picture back; it is started again instead. Decoding and encircling happen on a small pool of background threads,
+ * one user per task, and every loaded avatar is delivered on the main thread on its own so that
+ * callers can update just the row showing that user. Memory use is bounded by
+ * {@link #MAX_CACHE_BYTES}; least recently used avatars are dropped first.
+ */
+public class UserAvatarCache {
+
+    private static final String TAG = "UserAvatarCache";
+
+    @VisibleForTesting
+    static final int MAX_CACHE_BYTES = 4 * 1024 * 1024;
+    private static final int LOADER_THREADS = 3;
+
+    private static UserAvatarCache sInstance;
+
+    /** Receives avatars loaded by {@link #loadAsync}, always on the main thread. */
+    public interface OnAvatarLoadedListener {
+        /** Called once for every user whose avatar finished loading. */
+        void onAvatarLoaded(int userId, @NonNull Drawable avatar);
+    }
+
+    private final Object mLock = new Object();
+    private final Executor mLoaderExecutor;
+    private final LruCache<AvatarKey, Bitmap> mAvatars;
+    private final SparseIntArray mVersions = new SparseIntArray();
+    private final Set<AvatarKey> mPendingLoads = new ArraySet<>();
+
+    /**
+     * Returns the process wide cache. It stays registered for user changes on the application
+     * context for as long as the process lives, like the avatars it holds.
+     */
+    public static synchronized UserAvatarCache getInstance(@NonNull Context context) {
+        if (sInstance == null) {
+            sInstance = new UserAvatarCache(MAX_CACHE_BYTES,
+                    Executors.newFixedThreadPool(LOADER_THREADS));
+            sInstance.registerUserChangeReceiver(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    @VisibleForTesting
+    UserAvatarCache(int maxBytes, @NonNull Executor loaderExecutor) {
+        mLoaderExecutor = loaderExecutor;
+        mAvatars = new LruCache<AvatarKey, Bitmap>(maxBytes) {
+            @Override
+            protected int sizeOf(AvatarKey key, Bitmap value) {
+                return value.getByteCount();
+            }
+        };
+    }
+
+    /** Returns the cached avatar of the given user, or {@code null} if it is not loaded. */
+    @Nullable
+    public Drawable get(@NonNull Context context, int userId) {
+        final Bitmap bitmap;
+        synchronized (mLock) {
+            bitmap = mAvatars.get(keyLocked(userId, getAvatarSize(context)));
+        }
+        return bitmap == null ? null : new BitmapDrawable(context.getResources(), bitmap);
+    }
+
+    /**
+     * Encircles and caches an icon the caller already holds.
+     *
+     * @return the encircled avatar
+     */
+    @NonNull
+    public Drawable put(@NonNull Context context, int userId, @NonNull Bitmap icon) {
+        final int size = getAvatarSize(context);
+        final Bitmap avatar = encircle(icon, size);
+        synchronized (mLock) {
+            mAvatars.put(keyLocked(userId, size), avatar);
+        }
+        return new BitmapDrawable(context.getResources(), avatar);
+    }
+
+    /** Drops the avatar of the given user, e.g. after their photo was changed. */
+    public void invalidate(int userId) {
+        synchronized (mLock) {
+            mVersions.put(userId, mVersions.get(userId) + 1);
+            // Entries of older versions can no longer be hit, release their memory right away.
+            for (AvatarKey key : mAvatars.snapshot().keySet()) {
+                if (key.mUserId == userId) {
+                    mAvatars.remove(key);
+                }
+            }
+        }
+    }
+
+    /**
+     * Loads the avatars of the given users in parallel, skipping users that are cached or already
+     * being loaded. The listener is called once per loaded user on the main thread.
+     */
+    public void loadAsync(@NonNull Context context, @NonNull List<Integer> userIds,
+            @NonNull OnAvatarLoadedListener listener) {
+        // Only hold on to what the loaders need, not the calling activity.
+        final UserManager userManager = context.getSystemService(UserManager.class);
+        final Resources res = context.getResources();
+        final int size = getAvatarSize(context);
+        for (int userId : userIds) {
+            startLoad(userManager, res, userId, size, listener);
+        }
+    }
+
+    private void startLoad(UserManager userManager, Resources res, int userId, int size,
+            OnAvatarLoadedListener listener) {
+        final AvatarKey key;
+        synchronized (mLock) {
+            key = keyLocked(userId, size);
+            if (mAvatars.get(key) != null || !mPendingLoads.add(key)) {
+                return;
+            }
+        }
+        mLoaderExecutor.execute(() -> loadAvatar(userManager, res, key, listener));
+    }
+
+    private void loadAvatar(UserManager userManager, Resources res, AvatarKey key,
+            OnAvatarLoadedListener listener) {
+        Bitmap avatar = null;
+        try {
+            Bitmap icon = userManager.getUserIcon(key.mUserId);
+            if (icon == null) {
+                icon = UserIcons.convertToBitmapAtUserIconSize(res,
+                        UserIcons.getDefaultUserIcon(res, key.mUserId, false));
+            }
+            avatar = encircle(icon, key.mSize);
+        } catch (RuntimeException e) {
+            Log.w(TAG, "Failed to load avatar of user " + key.mUserId, e);
+        }
+        final boolean current;
+        synchronized (mLock) {
+            mPendingLoads.remove(key);
+            current = key.mVersion == mVersions.get(key.mUserId);
+            if (avatar != null && current) {
+                mAvatars.put(key, avatar);
+            }
+        }
+        if (!current) {
+            // The user changed while loading, load their new avatar instead.
+            startLoad(userManager, res, key.mUserId, key.mSize, listener);
+            return;
+        }
+        if (avatar == null) {
+            return;
+        }
+        final Drawable drawable = new BitmapDrawable(res, avatar);
+        if (ThreadUtils.isMainThread()) {
+            listener.onAvatarLoaded(key.mUserId, drawable);
+        } else {
+            ThreadUtils.postOnMainThread(() -> listener.onAvatarLoaded(key.mUserId, drawable));
+        }
+    }
+
+    @VisibleForTesting
+    int getEntryCount() {
+        synchronized (mLock) {
+            return mAvatars.snapshot().size();
+        }
+    }
+
+    private AvatarKey keyLocked(int userId, int size) {
+        return new AvatarKey(userId, mVersions.get(userId), size);
+    }
+
+    private static int getAvatarSize(Context context) {
+        return context.getResources().getDimensionPixelSize(
+                R.dimen.multiple_users_user_icon_size);
+    }
+
+    /** Renders the circular avatar once so that rows only need to blit the result. */
+    private static Bitmap encircle(Bitmap icon, int size) {
+        final Drawable circle = new CircleFramedDrawable(icon, size);
+        final Bitmap avatar = Bitmap.createBitmap(size, size, Bitmap.Config.ARGB_8888);
+        circle.setBounds(0, 0, size, size);
+        circle.draw(new Canvas(avatar));
+        return avatar;
+    }
+
+    private void registerUserChangeReceiver(Context appContext) {
+        final IntentFilter filter = new IntentFilter(Intent.ACTION_USER_INFO_CHANGED);
+        filter.addAction(Intent.ACTION_USER_REMOVED);
+        appContext.registerReceiverAsUser(new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context context, Intent intent) {
+                final int userId = intent.getIntExtra(Intent.EXTRA_USER_HANDLE,
+                        UserHandle.USER_NULL);
+                if (userId != UserHandle.USER_NULL) {
+                    invalidate(userId);
+                }
+            }
+        }, UserHandle.ALL, filter, /* broadcastPermission= */ null, /* scheduler= */ null);
+    }
+
+    private static final class AvatarKey {
+        final int mUserId;
+        final int mVersion;
+        final int mSize;
+
+        AvatarKey(int userId, int version, int size) {
+            mUserId = userId;
+            mVersion = version;
+            mSize = size;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof AvatarKey)) {
+                return false;
+            }
+            final AvatarKey other = (AvatarKey) o;
+            return mUserId == other.mUserId && mVersion == other.mVersion
+                    && mSize == other.mSize;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(mUserId, mVersion, mSize);
+        }
+    }
+}
@@ -203,7 +203,7 @@ public class UserSettings extends SettingsPreferenceFragment
     @VisibleForTesting
     RestrictedPreference mAddSupervisedUser;
     @VisibleForTesting
-    SparseArray<Bitmap> mUserIcons = new SparseArray<>();
+    UserAvatarCache mAvatarCache;
     private int mRemovingUserId = -1;
     private boolean mAddingUser;
     private boolean mGuestUserAutoCreated;
@@ -266,7 +266,7 @@ public class UserSettings extends SettingsPreferenceFragment
             } else if (intent.getAction().equals(Intent.ACTION_USER_INFO_CHANGED)) {
                 int userHandle = intent.getIntExtra(Intent.EXTRA_USER_HANDLE, -1);
                 if (userHandle != -1) {
-                    mUserIcons.remove(userHandle);
+                    mAvatarCache.invalidate(userHandle);
                 }
             }
             mHandler.sendEmptyMessage(MESSAGE_UPDATE_LIST);
@@ -306,6 +306,9 @@ public class UserSettings extends SettingsPreferenceFragment
         super.onCreate(icicle);
         addPreferencesFromResource(R.xml.user_settings);
         final Activity activity = getActivity();
+        if (mAvatarCache == null) {
+            mAvatarCache = UserAvatarCache.getInstance(activity);
+        }
         if (!WizardManagerHelper.isDeviceProvisioned(activity)) {
             activity.finish();
             return;
@@ -544,8 +547,7 @@ public class UserSettings extends SettingsPreferenceFragment
         int myUserId = UserHandle.myUserId();
         Bitmap b = mUserManager.getUserIcon(myUserId);
         if (b != null) {
-            mMePreference.setIcon(encircleUserIcon(b));
-            mUserIcons.put(myUserId, b);
+            mMePreference.setIcon(mAvatarCache.put(getActivity(), myUserId, b));
         }
     }
 
@@ -1262,12 +1264,13 @@ public class UserSettings extends SettingsPreferenceFragment
                 pref.setSummary(R.string.user_summary_restricted_profile);
             }
             if (user.iconPath != null) {
-                if (mUserIcons.get(user.id) == null) {
+                final Drawable avatar = mAvatarCache.get(context, user.id);
+                if (avatar == null) {
                     // Icon not loaded yet, print a placeholder
                     missingIcons.add(user.id);
                     pref.setIcon(getEncircledDefaultIcon());
                 } else {
-                    setPhotoId(pref, user);
+                    pref.setIcon(avatar);
                 }
             } else {
                 // Icon not available yet, print a placeholder
@@ -1292,7 +1295,7 @@ public class UserSettings extends SettingsPreferenceFragment
 
         // Load the icons
         if (missingIcons.size() > 0) {
-            loadIconsAsync(missingIcons);
+            mAvatarCache.loadAsync(context, missingIcons, this::onUserAvatarLoaded);
         }
 
         // If restricted profiles are supported, mUserListCategory will have a special title
@@ -1547,25 +1550,20 @@ public class UserSettings extends SettingsPreferenceFragment
                 .count();
     }
 
-    private void loadIconsAsync(List<Integer> missingIcons) {
-        new AsyncTask<List<Integer>, Void, Void>() {
-            @Override
-            protected void onPostExecute(Void result) {
-                updateUserList();
-            }
-
-            @Override
-            protected Void doInBackground(List<Integer>... values) {
-                for (int userId : values[0]) {
-                    Bitmap bitmap = mUserManager.getUserIcon(userId);
-                    if (bitmap == null) {
-                        bitmap = getDefaultUserIconAsBitmap(getContext().getResources(), userId);
-                    }
-                    mUserIcons.append(userId, bitmap);
-                }
-                return null;
-            }
-        }.execute(missingIcons);
+    /**
+     * Swaps the placeholder of a single user for their loaded avatar, without rebuilding the rest
+     * of the list.
+     */
+    @VisibleForTesting
+    void onUserAvatarLoaded(int userId, Drawable avatar) {
+        if (getActivity() == null) {
+            return;
+        }
+        final Preference pref = userId == UserHandle.myUserId()
+                ? mMePreference : mUserListCategory.findPreference("id=" + userId);
+        if (pref != null) {
+            pref.setIcon(avatar);
+        }
     }
 
     private Drawable getEncircledDefaultIcon() {
@@ -1576,13 +1574,6 @@ public class UserSettings extends SettingsPreferenceFragment
         return mDefaultIconDrawable;
     }
 
-    private void setPhotoId(Preference pref, UserInfo user) {
-        Bitmap bitmap = mUserIcons.get(user.id);
-        if (bitmap != null) {
-            pref.setIcon(encircleUserIcon(bitmap));
-        }
-    }
-
     @Override
     public boolean onPreferenceClick(Preference pref) {
         mMetricsFeatureProvider.logSettingsTileClick(pref.getKey(), getMetricsCategory());
@@ -0,0 +1,153 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.users;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.pm.UserInfo;
+import android.os.UserManager;
+import android.util.Log;
+import android.util.SparseArray;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Process wide snapshot of the profiles of each user, used by the profile lookups in
+ * {@link com.android.settings.Utils} instead of querying {@link UserManager} on every call.
+ *
+ * <p>The profiles of a user, including disabled ones, are enumerated with a single {@link
+ * UserManager#getProfiles} call the first time they are needed. Each {@link UserInfo} carries the
+ * user type, enabled and quiet mode state, and the profile group of the profile. The snapshot is
+ * dropped whenever a user or profile is added, removed, changed, or enters or leaves quiet mode.
+ *
+ * <p>The cache is only active once {@link #start} has been called, which the Settings
+ * application does on creation. Until then, callers query {@link UserManager} directly.
+ */
+public final class UserTopologyCache {
+
+    private static final String TAG = "UserTopologyCache";
+
+    private static volatile UserTopologyCache sInstance;
+
+    private final Object mLock = new Object();
+    // Profiles of each parent user id, guarded by mLock.
+    private final SparseArray<List<UserInfo>> mProfiles = new SparseArray<>();
+    // Bumped by invalidate() so that an enumeration racing with a change is not kept.
+    private int mGeneration;
+
+    private final BroadcastReceiver mReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            Log.d(TAG, "invalidate on " + intent.getAction());
+            invalidate();
+        }
+    };
+
+    /**
+     * Starts caching the user topology of this process, and listens for user and profile
+     * broadcasts to keep it fresh. Calling it again has no effect.
+     */
+    public static void start(@NonNull Context context) {
+        if (sInstance != null) {
+            return;
+        }
+        synchronized (UserTopologyCache.class) {
+            if (sInstance == null) {
+                final UserTopologyCache cache = new UserTopologyCache();
+                context.getApplicationContext().registerReceiver(
+                        cache.mReceiver, getIntentFilter(), Context.RECEIVER_NOT_EXPORTED);
+                sInstance = cache;
+            }
+        }
+    }
+
+    /** Returns the started cache, or {@code null} if {@link #start} has not been called. */
+    @Nullable
+    public static UserTopologyCache getInstance() {
+        return sInstance;
+    }
+
+    @VisibleForTesting
+    static void setInstance(@Nullable UserTopologyCache cache) {
+        sInstance = cache;
+    }
+
+    @VisibleForTesting
+    UserTopologyCache() {}
+
+    /**
+     * Returns all the profiles of {@code userId}, including disabled ones and the user itself,
+     * like {@link UserManager#getProfiles}. The list must not be modified.
+     */
+    @NonNull
+    public List<UserInfo> getProfiles(@NonNull UserManager userManager, int userId) {
+        final int generation;
+        synchronized (mLock) {
+            final List<UserInfo> profiles = mProfiles.get(userId);
+            if (profiles != null) {
+                return profiles;
+            }
+            generation = mGeneration;
+        }
+        // Enumerates outside of the lock, a concurrent caller at worst enumerates once more.
+        final List<UserInfo> profiles =
+                Collections.unmodifiableList(new ArrayList<>(userManager.getProfiles(userId)));
+        synchronized (mLock) {
+            if (generation == mGeneration) {
+                mProfiles.put(userId, profiles);
+            }
+        }
+        return profiles;
+    }
+
+    /** Drops the snapshot, the next lookup enumerates the profiles again. */
+    public void invalidate() {
+        synchronized (mLock) {
+            mGeneration++;
+            mProfiles.clear();
+        }
+    }
+
+    @VisibleForTesting
+    BroadcastReceiver getReceiver() {
+        return mReceiver;
+    }
+
+    private static IntentFilter getIntentFilter() {
+        final IntentFilter filter = new IntentFilter();
+        filter.addAction(Intent.ACTION_USER_ADDED);
+        filter.addAction(Intent.ACTION_USER_REMOVED);
+        filter.addAction(Intent.ACTION_USER_INFO_CHANGED);
+        filter.addAction(Intent.ACTION_MANAGED_PROFILE_ADDED);
+        filter.addAction(Intent.ACTION_MANAGED_PROFILE_REMOVED);
+        filter.addAction(Intent.ACTION_MANAGED_PROFILE_AVAILABLE);
+        filter.addAction(Intent.ACTION_MANAGED_PROFILE_UNAVAILABLE);
+        filter.addAction(Intent.ACTION_PROFILE_ADDED);
+        filter.addAction(Intent.ACTION_PROFILE_REMOVED);
+        filter.addAction(Intent.ACTION_PROFILE_AVAILABLE);
+        filter.addAction(Intent.ACTION_PROFILE_UNAVAILABLE);
+        return filter;
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.widget;
+
+import android.os.Build;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.VisibleForTesting;
+
+/**
+ * Counts the frames drawn by a custom view and how long they took, for spotting slow chart
+ * drawing on debuggable builds. Does nothing on user builds.
+ *
+ * <p>Call {@link #onFrameStart()} and {@link #onFrameEnd()} around the drawing code. The totals
+ * are logged every {@link #LOG_INTERVAL_FRAMES} frames.
+ */
+public final class FrameTimeCounter {
+
+    @VisibleForTesting
+    static final int LOG_INTERVAL_FRAMES = 120;
+
+    private final String mTag;
+    private final boolean mEnabled;
+
+    private long mFrameStartNanos;
+    private int mFrameCount;
+    private long mTotalFrameNanos;
+    private long mMaxFrameNanos;
+
+    public FrameTimeCounter(String tag) {
+        this(tag, Build.IS_DEBUGGABLE);
+    }
+
+    @VisibleForTesting
+    FrameTimeCounter(String tag, boolean enabled) {
+        mTag = tag;
+        mEnabled = enabled;
+    }
+
+    /** Marks the start of a frame. */
+    public void onFrameStart() {
+        if (mEnabled) {
+            mFrameStartNanos = SystemClock.elapsedRealtimeNanos();
+        }
+    }
+
+    /** Marks the end of the frame started by the last {@link #onFrameStart()}. */
+    public void onFrameEnd() {
+        if (!mEnabled || mFrameStartNanos == 0) {
+            return;
+        }
+        final long frameNanos = SystemClock.elapsedRealtimeNanos() - mFrameStartNanos;
+        mFrameStartNanos = 0;
+        mFrameCount++;
+        mTotalFrameNanos += frameNanos;
+        mMaxFrameNanos = Math.max(mMaxFrameNanos, frameNanos);
+        if (mFrameCount % LOG_INTERVAL_FRAMES == 0) {
+            Log.d(mTag, "frames: " + mFrameCount
+                    + ", average: " + getAverageFrameNanos() / 1000 + "us"
+                    + ", max: " + mMaxFrameNanos / 1000 + "us");
+        }
+    }
+
+    /** Returns the number of frames counted so far. */
+    public int getFrameCount() {
+        return mFrameCount;
+    }
+
+    /** Returns the average time of the counted frames, in nanoseconds. */
+    public long getAverageFrameNanos() {
+        return mFrameCount == 0 ? 0 : mTotalFrameNanos / mFrameCount;
+    }
+
+    /** Returns the time of the slowest counted frame, in nanoseconds. */
+    public long getMaxFrameNanos() {
+        return mMaxFrameNanos;
+    }
+
+    /** Clears the counted frames. */
+    public void reset() {
+        mFrameStartNanos = 0;
+        mFrameCount = 0;
+        mTotalFrameNanos = 0;
+        mMaxFrameNanos = 0;
+    }
+}
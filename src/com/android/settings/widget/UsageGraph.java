@@ -53,7 +53,11 @@ public class UsageGraph extends View {
     private final Drawable mTintedDivider;
     private final int mDividerSize;
 
-    private final Path mPath = new Path();
+    // Paths built from the local coordinates, only rebuilt when the data or the size changes.
+    private final Path mLinePath = new Path();
+    private final Path mFillPath = new Path();
+    private final Path mProjectedPath = new Path();
+    private final FrameTimeCounter mFrameTimeCounter = new FrameTimeCounter(LOG_TAG);
 
     // Paths in coordinates they are passed in.
     private final SparseIntArray mPaths = new SparseIntArray();
@@ -116,6 +120,7 @@ public class UsageGraph extends View {
         mLocalPaths.clear();
         mProjectedPaths.clear();
         mLocalProjectedPaths.clear();
+        updatePaths();
     }
 
     void setMax(int maxX, int maxY) {
@@ -153,6 +158,7 @@ public class UsageGraph extends View {
         // Add a delimiting value immediately after the last point.
         paths.put(points.keyAt(points.size() - 1) + 1, PATH_DELIM);
         calculateLocalPaths(paths, localPaths);
+        updatePaths();
         postInvalidate();
         BatteryUtils.logRuntime(LOG_TAG, "addPathAndUpdate", startTime);
     }
@@ -176,6 +182,7 @@ public class UsageGraph extends View {
     private void calculateLocalPaths() {
         calculateLocalPaths(mPaths, mLocalPaths);
         calculateLocalPaths(mProjectedPaths, mLocalProjectedPaths);
+        updatePaths();
     }
 
     @VisibleForTesting
@@ -246,7 +253,7 @@ public class UsageGraph extends View {
 
     @Override
     protected void onDraw(Canvas canvas) {
-        final long startTime = System.currentTimeMillis();
+        mFrameTimeCounter.onFrameStart();
         // Draw lines across the top, middle, and bottom.
         if (mMiddleDividerLoc != 0) {
             drawDivider(0, canvas, mTopDividerTint);
@@ -257,66 +264,68 @@ public class UsageGraph extends View {
                 mMiddleDividerTint);
         drawDivider(canvas.getHeight() - mDividerSize, canvas, -1);
 
-        if (mLocalPaths.size() == 0 && mLocalProjectedPaths.size() == 0) {
-            return;
+        if (mLocalPaths.size() != 0 || mLocalProjectedPaths.size() != 0) {
+            canvas.save();
+            if (getLayoutDirection() == LAYOUT_DIRECTION_RTL) {
+                // Flip the canvas along the y-axis of the center of itself before drawing paths.
+                canvas.scale(-1, 1, canvas.getWidth() * 0.5f, 0);
+            }
+            canvas.drawPath(mProjectedPath, mDottedPaint);
+            canvas.drawPath(mFillPath, mFillPaint);
+            canvas.drawPath(mLinePath, mLinePaint);
+            canvas.restore();
         }
+        mFrameTimeCounter.onFrameEnd();
+    }
 
-        canvas.save();
-        if (getLayoutDirection() == LAYOUT_DIRECTION_RTL) {
-            // Flip the canvas along the y-axis of the center of itself before drawing paths.
-            canvas.scale(-1, 1, canvas.getWidth() * 0.5f, 0);
-        }
-        drawLinePath(canvas, mLocalProjectedPaths, mDottedPaint);
-        drawFilledPath(canvas, mLocalPaths, mFillPaint);
-        drawLinePath(canvas, mLocalPaths, mLinePaint);
-        canvas.restore();
-        BatteryUtils.logRuntime(LOG_TAG, "onDraw", startTime);
+    private void updatePaths() {
+        buildLinePath(mLocalProjectedPaths, mProjectedPath);
+        buildFilledPath(mLocalPaths, mFillPath);
+        buildLinePath(mLocalPaths, mLinePath);
     }
 
-    private void drawLinePath(Canvas canvas, SparseIntArray localPaths, Paint paint) {
+    private void buildLinePath(SparseIntArray localPaths, Path path) {
+        path.reset();
         if (localPaths.size() == 0) {
             return;
         }
-        mPath.reset();
-        mPath.moveTo(localPaths.keyAt(0), localPaths.valueAt(0));
+        path.moveTo(localPaths.keyAt(0), localPaths.valueAt(0));
         for (int i = 1; i < localPaths.size(); i++) {
             int x = localPaths.keyAt(i);
             int y = localPaths.valueAt(i);
             if (y == PATH_DELIM) {
                 if (++i < localPaths.size()) {
-                    mPath.moveTo(localPaths.keyAt(i), localPaths.valueAt(i));
+                    path.moveTo(localPaths.keyAt(i), localPaths.valueAt(i));
                 }
             } else {
-                mPath.lineTo(x, y);
+                path.lineTo(x, y);
             }
         }
-        canvas.drawPath(mPath, paint);
     }
 
     @VisibleForTesting
-    void drawFilledPath(Canvas canvas, SparseIntArray localPaths, Paint paint) {
+    void buildFilledPath(SparseIntArray localPaths, Path path) {
+        path.reset();
         if (localPaths.size() == 0) {
             return;
         }
-        mPath.reset();
         float lastStartX = localPaths.keyAt(0);
-        mPath.moveTo(localPaths.keyAt(0), localPaths.valueAt(0));
+        path.moveTo(localPaths.keyAt(0), localPaths.valueAt(0));
         for (int i = 1; i < localPaths.size(); i++) {
             int x = localPaths.keyAt(i);
             int y = localPaths.valueAt(i);
             if (y == PATH_DELIM) {
-                mPath.lineTo(localPaths.keyAt(i - 1), getHeight());
-                mPath.lineTo(lastStartX, getHeight());
-                mPath.close();
+                path.lineTo(localPaths.keyAt(i - 1), getHeight());
+                path.lineTo(lastStartX, getHeight());
+                path.close();
                 if (++i < localPaths.size()) {
                     lastStartX = localPaths.keyAt(i);
-                    mPath.moveTo(localPaths.keyAt(i), localPaths.valueAt(i));
+                    path.moveTo(localPaths.keyAt(i), localPaths.valueAt(i));
                 }
             } else {
-                mPath.lineTo(x, y);
+                path.lineTo(x, y);
             }
         }
-        canvas.drawPath(mPath, paint);
     }
 
     private void drawDivider(int y, Canvas canvas, int tintColor) {
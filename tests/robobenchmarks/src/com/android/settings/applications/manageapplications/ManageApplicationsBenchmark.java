@@ -0,0 +1,201 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.applications.manageapplications;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.content.Context;
+import android.content.pm.ApplicationInfo;
+import android.os.UserHandle;
+
+import com.android.settings.benchmark.BenchmarkRule;
+import com.android.settings.benchmark.Fixtures;
+import com.android.settingslib.applications.ApplicationsState;
+import com.android.settingslib.applications.ApplicationsState.AppEntry;
+import com.android.settingslib.applications.ApplicationsState.AppFilter;
+import com.android.settingslib.applications.ApplicationsState.CompoundFilter;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Benchmarks the filtering and sorting of the app lists in {@link ManageApplications}.
+ *
+ * <p>The filters and comparators are combined the same way as in
+ * {@code ManageApplications.ApplicationsAdapter#rebuild()}, and applied the way the
+ * {@link ApplicationsState} session applies them on a rebuild.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class ManageApplicationsBenchmark {
+
+    private static final String FIXTURE = "app_list.json";
+    private static final int FIRST_APP_ID = 10000;
+
+    @Rule
+    public final BenchmarkRule mBenchmarkRule = new BenchmarkRule();
+
+    private Context mContext;
+    private List<AppEntry> mEntries;
+
+    @Before
+    public void setUp() throws Exception {
+        mContext = RuntimeEnvironment.application;
+        mEntries = buildAppEntries(mContext, Fixtures.load(FIXTURE));
+    }
+
+    @Test
+    public void mainList_sortByName() throws Exception {
+        final AppFilter filter = new CompoundFilter(
+                new CompoundFilter(
+                        AppFilterRegistry.getInstance()
+                                .get(AppFilterRegistry.FILTER_APPS_ALL).getFilter(),
+                        ApplicationsState.FILTER_DOWNLOADED_AND_LAUNCHER_AND_INSTANT),
+                ApplicationsState.FILTER_NOT_HIDE);
+
+        final List<AppEntry> result = mBenchmarkRule.measure(FIXTURE,
+                () -> rebuild(filter, ApplicationsState.ALPHA_COMPARATOR));
+
+        assertThat(result).isNotEmpty();
+    }
+
+    @Test
+    public void mainList_showSystem_sortByName() throws Exception {
+        final AppFilter filter = new CompoundFilter(
+                AppFilterRegistry.getInstance()
+                        .get(AppFilterRegistry.FILTER_APPS_ALL).getFilter(),
+                ApplicationsState.FILTER_NOT_HIDE);
+
+        final List<AppEntry> result = mBenchmarkRule.measure(FIXTURE,
+                () -> rebuild(filter, ApplicationsState.ALPHA_COMPARATOR));
+
+        assertThat(result).isNotEmpty();
+    }
+
+    @Test
+    public void storageList_sortBySize() throws Exception {
+        final AppFilter filter = new CompoundFilter(
+                new CompoundFilter(
+                        new CompoundFilter(
+                                AppFilterRegistry.getInstance()
+                                        .get(AppFilterRegistry.FILTER_APPS_ALL).getFilter(),
+                                ManageApplications.getCompositeFilter(
+                                        ManageApplications.LIST_TYPE_STORAGE,
+                                        ManageApplications.STORAGE_TYPE_DEFAULT,
+                                        /* volumeUuid= */ null)),
+                        ApplicationsState.FILTER_DOWNLOADED_AND_LAUNCHER),
+                ApplicationsState.FILTER_NOT_HIDE);
+
+        final List<AppEntry> result = mBenchmarkRule.measure(FIXTURE,
+                () -> rebuild(filter, ApplicationsState.SIZE_COMPARATOR));
+
+        assertThat(result).isNotEmpty();
+    }
+
+    private List<AppEntry> rebuild(AppFilter filter, Comparator<AppEntry> comparator) {
+        filter.init(mContext);
+        final List<AppEntry> filtered = new ArrayList<>();
+        for (AppEntry entry : mEntries) {
+            if (filter.filterApp(entry)) {
+                filtered.add(entry);
+            }
+        }
+        Collections.sort(filtered, comparator);
+        return filtered;
+    }
+
+    /**
+     * Builds the entries of the fixture: the listed downloaded apps, then generated system
+     * packages of which some are updated and some have a launcher entry.
+     */
+    private static List<AppEntry> buildAppEntries(Context context, JSONObject fixture)
+            throws Exception {
+        final Random random = new Random(fixture.getLong("random_seed"));
+        final List<AppEntry> entries = new ArrayList<>();
+        int appId = FIRST_APP_ID;
+
+        final JSONArray userApps = fixture.getJSONArray("user_apps");
+        for (int i = 0; i < userApps.length(); i++) {
+            final JSONObject app = userApps.getJSONObject(i);
+            final ApplicationInfo info = newApplicationInfo(app.getString("package"),
+                    app.optInt("user_id", UserHandle.USER_SYSTEM), appId++,
+                    /* flags= */ 0);
+            info.enabled = app.optBoolean("enabled", true);
+            if (app.optBoolean("instant")) {
+                info.privateFlags |= ApplicationInfo.PRIVATE_FLAG_INSTANT;
+            }
+            entries.add(newAppEntry(context, info, entries.size(), app.getString("label"),
+                    app.getLong("size_kb"), /* hasLauncherEntry= */ true));
+        }
+
+        final JSONObject system = fixture.getJSONObject("system_packages");
+        final int updatedCount = system.getInt("updated_count");
+        final int launcherCount = system.getInt("with_launcher_entry");
+        final int minSize = system.getInt("size_kb_min");
+        final int maxSize = system.getInt("size_kb_max");
+        for (int i = 0; i < system.getInt("count"); i++) {
+            final String packageName = system.getString("package_prefix") + "pkg" + i;
+            int flags = ApplicationInfo.FLAG_SYSTEM;
+            if (i < updatedCount) {
+                flags |= ApplicationInfo.FLAG_UPDATED_SYSTEM_APP;
+            }
+            final boolean hasLauncherEntry = i >= updatedCount
+                    && i < updatedCount + launcherCount;
+            final ApplicationInfo info = newApplicationInfo(packageName, UserHandle.USER_SYSTEM,
+                    appId++, flags);
+            // Most system packages have no label and are listed by package name.
+            final String label = i < updatedCount + launcherCount
+                    ? "System app " + i : packageName;
+            entries.add(newAppEntry(context, info, entries.size(), label,
+                    minSize + random.nextInt(maxSize - minSize), hasLauncherEntry));
+        }
+        // The session holds the entries in no particular order.
+        Collections.shuffle(entries, random);
+        return entries;
+    }
+
+    private static ApplicationInfo newApplicationInfo(String packageName, int userId, int appId,
+            int flags) {
+        final ApplicationInfo info = new ApplicationInfo();
+        info.packageName = packageName;
+        info.uid = UserHandle.getUid(userId, appId);
+        info.flags = flags | ApplicationInfo.FLAG_INSTALLED;
+        info.sourceDir = "/data/app/" + packageName + "/base.apk";
+        info.enabled = true;
+        return info;
+    }
+
+    private static AppEntry newAppEntry(Context context, ApplicationInfo info, long id,
+            String label, long sizeKb, boolean hasLauncherEntry) {
+        final AppEntry entry = new AppEntry(context, info, id);
+        entry.label = label;
+        entry.size = sizeKb * 1024;
+        entry.hasLauncherEntry = hasLauncherEntry;
+        return entry;
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.benchmark;
+
+import android.util.Log;
+
+import androidx.annotation.VisibleForTesting;
+
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Collects the results of a benchmark run and writes them as JSON.
+ *
+ * <p>Results are sorted by name and every field is written in a fixed order, so the reports of
+ * two commits can be compared with a plain diff. The report is rewritten after every result so an
+ * aborted run still leaves the finished benchmarks behind.
+ */
+public final class BenchmarkReport {
+
+    private static final String TAG = "BenchmarkReport";
+    private static final String PROPERTY_OUTPUT = "settings.benchmark.output";
+    private static final String DEFAULT_OUTPUT = "SettingsRoboBenchmarks.json";
+    private static final int FORMAT_VERSION = 1;
+
+    private static final BenchmarkReport sInstance = new BenchmarkReport();
+
+    private final Map<String, Result> mResults = new TreeMap<>();
+
+    /** Timing of one benchmark, in nanoseconds. */
+    public static final class Result {
+        final String mName;
+        final String mFixture;
+        final int mOutputSize;
+        final int mIterations;
+        final long mMinNanos;
+        final long mMedianNanos;
+        final long mP90Nanos;
+        final long mMeanNanos;
+
+        Result(String name, String fixture, int outputSize, int iterations, long minNanos,
+                long medianNanos, long p90Nanos, long meanNanos) {
+            mName = name;
+            mFixture = fixture;
+            mOutputSize = outputSize;
+            mIterations = iterations;
+            mMinNanos = minNanos;
+            mMedianNanos = medianNanos;
+            mP90Nanos = p90Nanos;
+            mMeanNanos = meanNanos;
+        }
+
+        String toJson() {
+            return "{\"name\": " + JSONObject.quote(mName)
+                    + ", \"fixture\": " + JSONObject.quote(mFixture)
+                    + ", \"output_size\": " + mOutputSize
+                    + ", \"iterations\": " + mIterations
+                    + ", \"min_ns\": " + mMinNanos
+                    + ", \"median_ns\": " + mMedianNanos
+                    + ", \"p90_ns\": " + mP90Nanos
+                    + ", \"mean_ns\": " + mMeanNanos
+                    + "}";
+        }
+    }
+
+    /** Returns the report of this run. */
+    public static BenchmarkReport getInstance() {
+        return sInstance;
+    }
+
+    @VisibleForTesting
+    BenchmarkReport() {}
+
+    /** Adds {@code result}, replacing an earlier result of the same name, and saves the report. */
+    public synchronized void add(Result result) {
+        mResults.put(result.mName, result);
+        Log.i(TAG, result.toJson());
+        write(getOutputFile());
+    }
+
+    @VisibleForTesting
+    synchronized String toJson() {
+        final StringBuilder builder = new StringBuilder()
+                .append("{\n  \"format\": ").append(FORMAT_VERSION)
+                .append(",\n  \"benchmarks\": [");
+        boolean first = true;
+        for (Result result : mResults.values()) {
+            builder.append(first ? "\n    " : ",\n    ").append(result.toJson());
+            first = false;
+        }
+        return builder.append(first ? "]\n}\n" : "\n  ]\n}\n").toString();
+    }
+
+    private void write(File file) {
+        final File tmp = new File(file.getPath() + ".tmp");
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(tmp),
+                StandardCharsets.UTF_8)) {
+            writer.write(toJson());
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to write " + tmp, e);
+            return;
+        }
+        if (!tmp.renameTo(file)) {
+            Log.w(TAG, "Failed to replace " + file);
+        }
+    }
+
+    private static File getOutputFile() {
+        final String path = System.getProperty(PROPERTY_OUTPUT);
+        return path != null
+                ? new File(path)
+                : new File(System.getProperty("java.io.tmpdir"), DEFAULT_OUTPUT);
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.benchmark;
+
+import androidx.annotation.NonNull;
+
+import org.junit.rules.TestRule;
+import org.junit.runner.Description;
+import org.junit.runners.model.Statement;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Measures a block of code inside a benchmark test and adds the result to the
+ * {@link BenchmarkReport}.
+ *
+ * <pre>
+ * &#64;Rule public final BenchmarkRule mBenchmarkRule = new BenchmarkRule();
+ *
+ * &#64;Test
+ * public void parse() {
+ *     mBenchmarkRule.measure("pages.json", () -&gt; parser.parse(mInput));
+ * }
+ * </pre>
+ */
+public class BenchmarkRule implements TestRule {
+
+    private static final String PROPERTY_WARMUP = "settings.benchmark.warmup";
+    private static final String PROPERTY_ITERATIONS = "settings.benchmark.iterations";
+    private static final int DEFAULT_WARMUP = 5;
+    private static final int DEFAULT_ITERATIONS = 25;
+
+    /** The code being measured. Its result is used, so the JIT cannot drop the work. */
+    public interface Block<T> {
+        T run() throws Exception;
+    }
+
+    private final int mWarmup;
+    private final int mIterations;
+    private String mName;
+
+    public BenchmarkRule() {
+        this(Integer.getInteger(PROPERTY_WARMUP, DEFAULT_WARMUP),
+                Integer.getInteger(PROPERTY_ITERATIONS, DEFAULT_ITERATIONS));
+    }
+
+    BenchmarkRule(int warmup, int iterations) {
+        if (iterations < 1) {
+            throw new IllegalArgumentException("At least one iteration is needed");
+        }
+        mWarmup = Math.max(warmup, 0);
+        mIterations = iterations;
+    }
+
+    @Override
+    public Statement apply(Statement base, Description description) {
+        return new Statement() {
+            @Override
+            public void evaluate() throws Throwable {
+                mName = description.getTestClass().getSimpleName() + "#"
+                        + description.getMethodName();
+                base.evaluate();
+            }
+        };
+    }
+
+    /**
+     * Runs {@code block} for the warm up and measured iterations and reports the timing.
+     *
+     * @param fixture the fixture the input was built from, kept in the report
+     * @return the result of the last iteration, for the test to check
+     */
+    public <T> T measure(@NonNull String fixture, @NonNull Block<T> block) throws Exception {
+        T result = null;
+        for (int i = 0; i < mWarmup; i++) {
+            result = block.run();
+        }
+        final long[] samples = new long[mIterations];
+        for (int i = 0; i < mIterations; i++) {
+            final long start = System.nanoTime();
+            result = block.run();
+            samples[i] = System.nanoTime() - start;
+        }
+        BenchmarkReport.getInstance().add(
+                createResult(mName, fixture, sizeOf(result), samples));
+        return result;
+    }
+
+    static BenchmarkReport.Result createResult(String name, String fixture, int outputSize,
+            long[] samples) {
+        final long[] sorted = samples.clone();
+        Arrays.sort(sorted);
+        long sum = 0;
+        for (long sample : sorted) {
+            sum += sample;
+        }
+        return new BenchmarkReport.Result(name, fixture, outputSize, sorted.length,
+                sorted[0],
+                sorted[(sorted.length - 1) / 2],
+                sorted[(int) Math.ceil(sorted.length * 0.9) - 1],
+                sum / sorted.length);
+    }
+
+    private static int sizeOf(Object result) {
+        if (result == null) {
+            return 0;
+        }
+        if (result instanceof Collection) {
+            return ((Collection<?>) result).size();
+        }
+        if (result instanceof Map) {
+            return ((Map<?, ?>) result).size();
+        }
+        if (result instanceof Number) {
+            return ((Number) result).intValue();
+        }
+        return 1;
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.benchmark;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/** Reads the recorded seed data in {@code resources/fixtures}. */
+public final class Fixtures {
+
+    private static final String FIXTURE_DIR = "/fixtures/";
+
+    private Fixtures() {}
+
+    /** Returns the fixture {@code name} as a JSON object. */
+    public static JSONObject load(String name) throws IOException, JSONException {
+        try (InputStream in = Fixtures.class.getResourceAsStream(FIXTURE_DIR + name)) {
+            if (in == null) {
+                throw new IOException("Missing fixture " + name);
+            }
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return new JSONObject(out.toString(StandardCharsets.UTF_8.name()));
+        }
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.core;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.content.Context;
+import android.os.Bundle;
+
+import com.android.settings.benchmark.BenchmarkRule;
+import com.android.settings.benchmark.Fixtures;
+import com.android.settings.core.PreferenceXmlParserUtils.MetadataFlag;
+
+import org.json.JSONArray;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.List;
+
+/** Benchmarks the preference XML parsing done for controllers, search and slices. */
+@RunWith(RobolectricTestRunner.class)
+public class PreferenceXmlParserUtilsBenchmark {
+
+    private static final String FIXTURE = "settings_pages.json";
+
+    @Rule
+    public final BenchmarkRule mBenchmarkRule = new BenchmarkRule();
+
+    private Context mContext;
+    private int[] mXmlResIds;
+
+    @Before
+    public void setUp() throws Exception {
+        mContext = RuntimeEnvironment.application;
+        final JSONArray pages = Fixtures.load(FIXTURE).getJSONArray("pages");
+        mXmlResIds = new int[pages.length()];
+        for (int i = 0; i < pages.length(); i++) {
+            final String name = pages.getJSONObject(i).getString("xml");
+            mXmlResIds[i] = mContext.getResources().getIdentifier(name, "xml",
+                    mContext.getPackageName());
+            assertThat(mXmlResIds[i]).isNotEqualTo(0);
+        }
+    }
+
+    /** The flags of {@link PreferenceControllerListHelper#getPreferenceControllersFromXml}. */
+    @Test
+    public void extractMetadata_controllers() throws Exception {
+        final Integer count = mBenchmarkRule.measure(FIXTURE,
+                () -> extractAll(MetadataFlag.FLAG_NEED_KEY
+                        | MetadataFlag.FLAG_NEED_PREF_CONTROLLER
+                        | MetadataFlag.FLAG_INCLUDE_PREF_SCREEN
+                        | MetadataFlag.FLAG_FOR_WORK));
+
+        assertThat(count).isGreaterThan(0);
+    }
+
+    /** The flags of {@code SliceDataConverter}, which reads the most attributes. */
+    @Test
+    public void extractMetadata_slices() throws Exception {
+        final Integer count = mBenchmarkRule.measure(FIXTURE,
+                () -> extractAll(MetadataFlag.FLAG_INCLUDE_PREF_SCREEN
+                        | MetadataFlag.FLAG_NEED_KEY
+                        | MetadataFlag.FLAG_NEED_PREF_CONTROLLER
+                        | MetadataFlag.FLAG_NEED_PREF_TYPE
+                        | MetadataFlag.FLAG_NEED_PREF_TITLE
+                        | MetadataFlag.FLAG_NEED_PREF_ICON
+                        | MetadataFlag.FLAG_NEED_PREF_SUMMARY
+                        | MetadataFlag.FLAG_UNAVAILABLE_SLICE_SUBTITLE
+                        | MetadataFlag.FLAG_NEED_USER_RESTRICTION));
+
+        assertThat(count).isGreaterThan(0);
+    }
+
+    private int extractAll(int flags) throws Exception {
+        int count = 0;
+        for (int xmlResId : mXmlResIds) {
+            final List<Bundle> metadata =
+                    PreferenceXmlParserUtils.extractMetadata(mContext, xmlResId, flags);
+            count += metadata.size();
+        }
+        return count;
+    }
+}
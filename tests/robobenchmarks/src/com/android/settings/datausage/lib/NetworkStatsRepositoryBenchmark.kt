@@ -0,0 +1,128 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.datausage.lib
+
+import android.content.Context
+import android.net.NetworkTemplate
+import android.text.format.DateUtils
+import androidx.test.core.app.ApplicationProvider
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import com.android.settings.benchmark.BenchmarkRule
+import com.android.settings.benchmark.Fixtures
+import com.android.settings.datausage.lib.NetworkStatsRepository.Companion.Bucket
+import com.android.settings.datausage.lib.NetworkStatsRepository.Companion.aggregate
+import com.android.settings.datausage.lib.NetworkStatsRepository.Companion.filterTime
+import com.google.common.truth.Truth.assertThat
+import java.util.Random
+import org.json.JSONObject
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.mockito.kotlin.doReturn
+import org.mockito.kotlin.mock
+
+/** Benchmarks the bucket aggregation behind the data usage cycles and chart. */
+@RunWith(AndroidJUnit4::class)
+class NetworkStatsRepositoryBenchmark {
+    @get:Rule
+    val benchmarkRule = BenchmarkRule()
+
+    private val context: Context = ApplicationProvider.getApplicationContext()
+
+    private val buckets = buildBuckets(Fixtures.load(FIXTURE))
+
+    private val repository = NetworkCycleBucketRepository(
+        context = context,
+        networkTemplate = mock<NetworkTemplate>(),
+        buckets = buckets,
+        networkCycleDataRepository = mock<NetworkCycleDataRepository> {
+            on { getPolicy() } doReturn null
+        },
+    )
+
+    @Test
+    fun aggregate_sixtyDays() {
+        val usage = benchmarkRule.measure(FIXTURE) { buckets.aggregate() }
+
+        assertThat(usage!!.usage).isGreaterThan(0)
+    }
+
+    @Test
+    fun filterTime_lastWeek() {
+        val endTime = buckets.maxOf { it.endTimeStamp }
+        val startTime = endTime - DateUtils.WEEK_IN_MILLIS
+
+        val filtered = benchmarkRule.measure(FIXTURE) { buckets.filterTime(startTime, endTime) }
+
+        assertThat(filtered).isNotEmpty()
+    }
+
+    @Test
+    fun loadCycles_asFourWeeks() {
+        val cycles = benchmarkRule.measure(FIXTURE) { repository.loadCycles() }
+
+        assertThat(cycles).isNotEmpty()
+    }
+
+    @Test
+    fun queryChartData_lastCycle() {
+        val cycle = repository.loadCycles().first()
+
+        val chartData = benchmarkRule.measure(FIXTURE) {
+            repository.queryChartData(cycle).dailyUsage
+        }
+
+        assertThat(chartData).isNotEmpty()
+    }
+
+    private companion object {
+        const val FIXTURE = "network_usage.json"
+
+        /**
+         * Spreads the daily totals of the fixture over buckets, following the hourly profile with
+         * some noise, the way NetworkStatsManager reports them.
+         */
+        fun buildBuckets(fixture: JSONObject): List<Bucket> {
+            val random = Random(fixture.getLong("random_seed"))
+            val startTime = fixture.getLong("start_time")
+            val bucketHours = fixture.getInt("bucket_hours")
+            val profileJson = fixture.getJSONArray("hourly_profile")
+            val profile = DoubleArray(profileJson.length()) { profileJson.getDouble(it) }
+            val profileSum = profile.sum()
+            val uids = fixture.getJSONArray("uids")
+            val buckets = mutableListOf<Bucket>()
+            for (day in 0 until fixture.getInt("days")) {
+                for (hour in 0 until 24 step bucketHours) {
+                    val bucketStart = startTime + day * DateUtils.DAY_IN_MILLIS +
+                        hour * DateUtils.HOUR_IN_MILLIS
+                    val share = (hour until hour + bucketHours).sumOf { profile[it] } / profileSum
+                    for (i in 0 until uids.length()) {
+                        val uid = uids.getJSONObject(i)
+                        val bytes = uid.getLong("daily_bytes") * share * (0.5 + random.nextDouble())
+                        buckets += Bucket(
+                            uid = uid.getInt("uid"),
+                            bytes = bytes.toLong(),
+                            startTimeStamp = bucketStart,
+                            endTimeStamp = bucketStart + bucketHours * DateUtils.HOUR_IN_MILLIS,
+                        )
+                    }
+                }
+            }
+            return buckets
+        }
+    }
+}
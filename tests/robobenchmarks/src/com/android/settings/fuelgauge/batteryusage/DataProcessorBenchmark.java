@@ -0,0 +1,261 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.fuelgauge.batteryusage;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.content.Intent;
+import android.os.BatteryManager;
+import android.text.format.DateUtils;
+import android.util.ArrayMap;
+
+import com.android.settings.benchmark.BenchmarkRule;
+import com.android.settings.benchmark.Fixtures;
+import com.android.settings.testutils.FakeFeatureFactory;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TimeZone;
+
+/** Benchmarks the battery usage aggregation behind the battery usage chart. */
+@RunWith(RobolectricTestRunner.class)
+public class DataProcessorBenchmark {
+
+    private static final String FIXTURE = "battery_history.json";
+
+    @Rule
+    public final BenchmarkRule mBenchmarkRule = new BenchmarkRule();
+
+    private Context mContext;
+    private TimeZone mDefaultTimeZone;
+    private Map<Long, Map<String, BatteryHistEntry>> mBatteryHistoryMap;
+
+    @Before
+    public void setUp() throws Exception {
+        mContext = RuntimeEnvironment.application;
+        FakeFeatureFactory.setupForTest();
+        final JSONObject fixture = Fixtures.load(FIXTURE);
+        mDefaultTimeZone = TimeZone.getDefault();
+        TimeZone.setDefault(TimeZone.getTimeZone(fixture.getString("time_zone")));
+        mContext.sendStickyBroadcast(new Intent(Intent.ACTION_BATTERY_CHANGED)
+                .putExtra(BatteryManager.EXTRA_LEVEL, 66)
+                .putExtra(BatteryManager.EXTRA_SCALE, 100));
+
+        mBatteryHistoryMap = buildBatteryHistoryMap(fixture);
+        long lastTimestamp = 0;
+        for (long timestamp : mBatteryHistoryMap.keySet()) {
+            lastTimestamp = Math.max(lastTimestamp, timestamp);
+        }
+        DataProcessor.sTestCurrentTimeMillis = lastTimestamp + 20 * DateUtils.MINUTE_IN_MILLIS;
+        DataProcessor.sTestSystemAppsPackageNames = Set.of();
+    }
+
+    @After
+    public void tearDown() {
+        DataProcessor.sTestCurrentTimeMillis = 0;
+        DataProcessor.sTestSystemAppsPackageNames = null;
+        TimeZone.setDefault(mDefaultTimeZone);
+    }
+
+    @Test
+    public void historyMapWithExpectedTimestamps_sevenDays() throws Exception {
+        final Map<Long, Map<String, BatteryHistEntry>> result = mBenchmarkRule.measure(FIXTURE,
+                () -> DataProcessor.getHistoryMapWithExpectedTimestamps(
+                        mContext, mBatteryHistoryMap));
+
+        assertThat(result).isNotEmpty();
+    }
+
+    @Test
+    public void batteryDiffDataMap_sevenDays() throws Exception {
+        final Map<Long, Map<String, BatteryHistEntry>> processedHistoryMap =
+                DataProcessor.getHistoryMapWithExpectedTimestamps(mContext, mBatteryHistoryMap);
+        final BatteryLevelData batteryLevelData =
+                DataProcessor.getLevelDataThroughProcessedHistoryMap(
+                        mContext, processedHistoryMap);
+
+        final Map<Long, BatteryDiffData> result = mBenchmarkRule.measure(FIXTURE,
+                () -> DataProcessor.getBatteryDiffDataMap(
+                        mContext,
+                        batteryLevelData.getHourlyBatteryLevelsPerDay(),
+                        processedHistoryMap,
+                        /* appUsagePeriodMap= */ null,
+                        Set.of(),
+                        Set.of()));
+
+        assertThat(result).isNotEmpty();
+    }
+
+    @Test
+    public void batteryUsageMap_sevenDays() throws Exception {
+        final Map<Integer, Map<Integer, BatteryDiffData>> result = mBenchmarkRule.measure(FIXTURE,
+                () -> {
+                    final Map<Long, Map<String, BatteryHistEntry>> processedHistoryMap =
+                            DataProcessor.getHistoryMapWithExpectedTimestamps(
+                                    mContext, mBatteryHistoryMap);
+                    final BatteryLevelData batteryLevelData =
+                            DataProcessor.getLevelDataThroughProcessedHistoryMap(
+                                    mContext, processedHistoryMap);
+                    final Map<Long, BatteryDiffData> batteryDiffDataMap =
+                            DataProcessor.getBatteryDiffDataMap(
+                                    mContext,
+                                    batteryLevelData.getHourlyBatteryLevelsPerDay(),
+                                    processedHistoryMap,
+                                    /* appUsagePeriodMap= */ null,
+                                    Set.of(),
+                                    Set.of());
+                    return DataProcessor.generateBatteryUsageMap(
+                            mContext, batteryDiffDataMap, batteryLevelData);
+                });
+
+        assertThat(result).isNotNull();
+    }
+
+    /**
+     * Expands the hourly rates of the fixture into snapshots like the ones stored by the periodic
+     * job: one snapshot per hour, a few minutes late, with usage accumulated since the last full
+     * charge.
+     */
+    private static Map<Long, Map<String, BatteryHistEntry>> buildBatteryHistoryMap(
+            JSONObject fixture) throws Exception {
+        final Random random = new Random(fixture.getLong("random_seed"));
+        final long startTime = fixture.getLong("start_time");
+        final int hours = fixture.getInt("days") * 24;
+        final int jitterMillis =
+                (int) (fixture.getInt("snapshot_jitter_minutes") * DateUtils.MINUTE_IN_MILLIS);
+        final long userId = fixture.getLong("user_id");
+        final JSONArray levels = fixture.getJSONArray("hourly_levels");
+        final JSONArray apps = fixture.getJSONArray("apps");
+        final JSONArray components = fixture.getJSONArray("system_components");
+
+        // Per app: foreground, background, foreground service and cached power, then the
+        // foreground and background time.
+        final double[][] appPower = new double[apps.length()][4];
+        final long[][] appTime = new long[apps.length()][2];
+        final double[] componentPower = new double[components.length()];
+        final Map<Long, Map<String, BatteryHistEntry>> historyMap = new ArrayMap<>();
+        for (int hour = 0; hour < hours; hour++) {
+            final int level = levels.getInt(hour % levels.length());
+            final int lastLevel = levels.getInt((hour + levels.length() - 1) % levels.length());
+            if (level > lastLevel) {
+                // Usage is counted from the last full charge.
+                for (double[] power : appPower) {
+                    Arrays.fill(power, 0);
+                }
+                for (long[] time : appTime) {
+                    Arrays.fill(time, 0);
+                }
+                Arrays.fill(componentPower, 0);
+            } else {
+                final double activity = Math.max(0.2, (lastLevel - level) / 3.0);
+                for (int i = 0; i < apps.length(); i++) {
+                    final JSONObject app = apps.getJSONObject(i);
+                    final double factor = activity * (0.5 + random.nextDouble());
+                    appPower[i][0] += app.getDouble("foreground_mah") * factor;
+                    appPower[i][1] += app.getDouble("background_mah") * factor;
+                    appPower[i][2] += app.getDouble("foreground_service_mah") * factor;
+                    appPower[i][3] += app.getDouble("cached_mah") * factor;
+                    appTime[i][0] += Math.min(DateUtils.HOUR_IN_MILLIS,
+                            (long) (app.getLong("foreground_ms") * factor));
+                    appTime[i][1] += Math.min(DateUtils.HOUR_IN_MILLIS,
+                            (long) (app.getLong("background_ms") * factor));
+                }
+                for (int i = 0; i < components.length(); i++) {
+                    componentPower[i] += components.getJSONObject(i).getDouble("mah")
+                            * activity * (0.5 + random.nextDouble());
+                }
+            }
+
+            double totalPower = 0;
+            for (double[] power : appPower) {
+                totalPower += power[0] + power[1] + power[2] + power[3];
+            }
+            for (double power : componentPower) {
+                totalPower += power;
+            }
+
+            final long timestamp = startTime + hour * DateUtils.HOUR_IN_MILLIS
+                    + random.nextInt(jitterMillis);
+            final Map<String, BatteryHistEntry> entries = new ArrayMap<>();
+            for (int i = 0; i < apps.length(); i++) {
+                final JSONObject app = apps.getJSONObject(i);
+                final BatteryInformation.Builder builder = newBatteryInformation(
+                        app.getString("label"), level, totalPower,
+                        appPower[i][0] + appPower[i][1] + appPower[i][2] + appPower[i][3])
+                        .setForegroundUsageConsumePower(appPower[i][0])
+                        .setBackgroundUsageConsumePower(appPower[i][1])
+                        .setForegroundServiceUsageConsumePower(appPower[i][2])
+                        .setCachedUsageConsumePower(appPower[i][3])
+                        .setForegroundUsageTimeInMs(appTime[i][0])
+                        .setBackgroundUsageTimeInMs(appTime[i][1]);
+                addEntry(entries, timestamp, app.getString("package"), app.getLong("uid"),
+                        userId, ConvertUtils.CONSUMER_TYPE_UID_BATTERY, builder);
+            }
+            for (int i = 0; i < components.length(); i++) {
+                final JSONObject component = components.getJSONObject(i);
+                final BatteryInformation.Builder builder = newBatteryInformation(
+                        component.getString("label"), level, totalPower, componentPower[i])
+                        .setDrainType(component.getInt("drain_type"));
+                addEntry(entries, timestamp, /* packageName= */ null, /* uid= */ 0, userId,
+                        ConvertUtils.CONSUMER_TYPE_SYSTEM_BATTERY, builder);
+            }
+            historyMap.put(timestamp, entries);
+        }
+        return historyMap;
+    }
+
+    private static BatteryInformation.Builder newBatteryInformation(String label, int level,
+            double totalPower, double consumePower) {
+        return BatteryInformation.newBuilder()
+                .setAppLabel(label)
+                .setZoneId("UTC")
+                .setTotalPower(totalPower)
+                .setConsumePower(consumePower)
+                .setPercentOfTotal(totalPower == 0 ? 0 : consumePower / totalPower * 100)
+                .setDeviceBatteryState(
+                        DeviceBatteryState.newBuilder().setBatteryLevel(level).build());
+    }
+
+    private static void addEntry(Map<String, BatteryHistEntry> entries, long timestamp,
+            String packageName, long uid, long userId, int consumerType,
+            BatteryInformation.Builder batteryInformation) {
+        final ContentValues values = new ContentValues();
+        values.put(BatteryHistEntry.KEY_PACKAGE_NAME, packageName);
+        values.put(BatteryHistEntry.KEY_UID, uid);
+        values.put(BatteryHistEntry.KEY_USER_ID, userId);
+        values.put(BatteryHistEntry.KEY_TIMESTAMP, timestamp);
+        values.put(BatteryHistEntry.KEY_CONSUMER_TYPE, consumerType);
+        values.put(BatteryHistEntry.KEY_BATTERY_INFORMATION,
+                ConvertUtils.convertBatteryInformationToString(batteryInformation.build()));
+        final BatteryHistEntry entry = new BatteryHistEntry(values);
+        entries.put(entry.getKey(), entry);
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.search;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.Mockito.mock;
+
+import android.Manifest;
+import android.content.pm.ProviderInfo;
+import android.database.Cursor;
+import android.provider.SearchIndexablesContract;
+
+import com.android.settings.benchmark.BenchmarkRule;
+import com.android.settings.benchmark.Fixtures;
+import com.android.settings.testutils.FakeFeatureFactory;
+import com.android.settingslib.search.Indexable;
+import com.android.settingslib.search.SearchIndexableData;
+
+import org.json.JSONArray;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.Collection;
+
+/**
+ * Benchmarks the data {@link SettingsSearchIndexablesProvider} hands to the search app when it
+ * indexes Settings.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class SettingsSearchIndexablesProviderBenchmark {
+
+    private static final String FIXTURE = "settings_pages.json";
+    private static final String PROVIDER_FIELD = "SEARCH_INDEX_DATA_PROVIDER";
+
+    @Rule
+    public final BenchmarkRule mBenchmarkRule = new BenchmarkRule();
+
+    private SettingsSearchIndexablesProvider mProvider;
+    private FakeFeatureFactory mFakeFeatureFactory;
+
+    @Before
+    public void setUp() throws Exception {
+        mProvider = new SettingsSearchIndexablesProvider();
+        final ProviderInfo info = new ProviderInfo();
+        info.exported = true;
+        info.grantUriPermissions = true;
+        info.authority = RuntimeEnvironment.application.getPackageName();
+        info.readPermission = Manifest.permission.READ_SEARCH_INDEXABLES;
+        mProvider.attachInfo(RuntimeEnvironment.application, info);
+
+        // Index the real providers of the recorded pages only, so the input does not change
+        // whenever a page is added to Settings.
+        final SearchFeatureProvider featureProvider = new SearchFeatureProviderImpl();
+        final Collection<SearchIndexableData> providers =
+                featureProvider.getSearchIndexableResources().getProviderValues();
+        providers.clear();
+        final JSONArray pages = Fixtures.load(FIXTURE).getJSONArray("pages");
+        for (int i = 0; i < pages.length(); i++) {
+            final Class<?> fragment = Class.forName(pages.getJSONObject(i).getString("fragment"));
+            providers.add(new SearchIndexableData(fragment,
+                    (Indexable.SearchIndexProvider) fragment.getField(PROVIDER_FIELD).get(null)));
+        }
+        mFakeFeatureFactory = FakeFeatureFactory.setupForTest();
+        mFakeFeatureFactory.searchFeatureProvider = featureProvider;
+    }
+
+    @After
+    public void tearDown() {
+        mFakeFeatureFactory.searchFeatureProvider = mock(SearchFeatureProvider.class);
+    }
+
+    @Test
+    public void queryRawData() throws Exception {
+        final Integer rows = mBenchmarkRule.measure(FIXTURE, () -> {
+            try (Cursor cursor = mProvider.queryRawData(
+                    SearchIndexablesContract.INDEXABLES_RAW_COLUMNS)) {
+                return cursor.getCount();
+            }
+        });
+
+        assertThat(rows).isNotNull();
+    }
+
+    @Test
+    public void queryNonIndexableKeys() throws Exception {
+        final Integer rows = mBenchmarkRule.measure(FIXTURE, () -> {
+            try (Cursor cursor = mProvider.queryNonIndexableKeys(
+                    SearchIndexablesContract.NON_INDEXABLES_KEYS_COLUMNS)) {
+                return cursor.getCount();
+            }
+        });
+
+        assertThat(rows).isGreaterThan(0);
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.robolectric.Shadows.shadowOf;
+
+import android.os.Looper;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@RunWith(RobolectricTestRunner.class)
+public class AsyncTaskSidecarTest {
+
+    private final List<Runnable> mPendingTasks = new ArrayList<>();
+    private TestSidecar mSidecar;
+
+    @Before
+    public void setUp() {
+        AsyncTaskSidecar.sExecutor = mPendingTasks::add;
+        mSidecar = new TestSidecar();
+    }
+
+    @After
+    public void tearDown() {
+        AsyncTaskSidecar.sExecutor = null;
+    }
+
+    @Test
+    public void run_completes_deliversResult() {
+        mSidecar.run("param");
+
+        assertThat(mSidecar.getState()).isEqualTo(SidecarFragment.State.RUNNING);
+        runPendingTasks();
+
+        assertThat(mSidecar.mResults).containsExactly("param");
+        assertThat(mSidecar.getState()).isEqualTo(SidecarFragment.State.SUCCESS);
+        assertThat(mSidecar.getLastQueueTimeMillis()).isAtLeast(0L);
+        assertThat(mSidecar.getLastRunTimeMillis()).isAtLeast(0L);
+    }
+
+    @Test
+    public void run_twice_onlyDeliversLatestResult() {
+        mSidecar.run("first");
+        mSidecar.run("second");
+
+        runPendingTasks();
+
+        assertThat(mSidecar.mResults).containsExactly("second");
+    }
+
+    @Test
+    public void onDestroy_whileRunning_doesNotDeliverResult() {
+        mSidecar.run("param");
+
+        mSidecar.onDestroy();
+        runPendingTasks();
+
+        assertThat(mSidecar.mResults).isEmpty();
+    }
+
+    @Test
+    public void run_pastDeadline_timesOutAndDropsResult() {
+        mSidecar.mTimeoutMillis = 1000;
+        mSidecar.run("param");
+
+        shadowOf(Looper.getMainLooper()).idleFor(Duration.ofMillis(1000));
+        runPendingTasks();
+
+        assertThat(mSidecar.getState()).isEqualTo(SidecarFragment.State.ERROR);
+        assertThat(mSidecar.mResults).isEmpty();
+    }
+
+    @Test
+    public void run_withinDeadline_doesNotTimeOut() {
+        mSidecar.mTimeoutMillis = 1000;
+        mSidecar.run("param");
+
+        runPendingTasks();
+        shadowOf(Looper.getMainLooper()).idleFor(Duration.ofMillis(1000));
+
+        assertThat(mSidecar.getState()).isEqualTo(SidecarFragment.State.SUCCESS);
+        assertThat(mSidecar.mResults).containsExactly("param");
+    }
+
+    private void runPendingTasks() {
+        for (Runnable task : mPendingTasks) {
+            task.run();
+        }
+        mPendingTasks.clear();
+        shadowOf(Looper.getMainLooper()).idle();
+    }
+
+    public static class TestSidecar extends AsyncTaskSidecar<String, String> {
+        final List<String> mResults = new ArrayList<>();
+        long mTimeoutMillis;
+
+        @Override
+        protected String doInBackground(String param) {
+            return param;
+        }
+
+        @Override
+        protected void onPostExecute(String result) {
+            mResults.add(result);
+            setState(State.SUCCESS, Substate.UNUSED);
+        }
+
+        @Override
+        protected long getTimeoutMillis() {
+            return mTimeoutMillis;
+        }
+    }
+}
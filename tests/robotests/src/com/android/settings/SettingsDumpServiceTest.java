@@ -28,6 +28,7 @@ import android.content.SharedPreferences;
 import android.content.pm.ActivityInfo;
 import android.content.pm.PackageManager;
 import android.content.pm.ResolveInfo;
+import android.util.IndentingPrintWriter;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -39,6 +40,8 @@ import org.robolectric.RuntimeEnvironment;
 
 import java.io.PrintWriter;
 import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
 
 @RunWith(RobolectricTestRunner.class)
 public class SettingsDumpServiceTest {
@@ -92,6 +95,107 @@ public class SettingsDumpServiceTest {
                 .contains("{\"" + SettingsDumpService.KEY_SERVICE + "\":");
     }
 
+    @Test
+    public void testDump_withSectionArgs_onlyDumpsSelectedSections() {
+        StringWriter stringWriter = new StringWriter();
+        PrintWriter printWriter = new PrintWriter(stringWriter);
+
+        mTestService.dump(null, printWriter,
+                new String[] {SettingsDumpService.KEY_PAGE_LATENCY, "no_such_section"});
+
+        final String output = stringWriter.toString();
+        assertThat(output).contains("{\"" + SettingsDumpService.KEY_PAGE_LATENCY + "\":");
+        assertThat(output).contains(SettingsDumpService.KEY_COLLECTION_MS);
+        assertThat(output).contains("Unknown section: no_such_section");
+        assertThat(output).doesNotContain("\"" + SettingsDumpService.KEY_STORAGE + "\"");
+    }
+
+    @Test
+    public void testDumpSections_slowSection_reportsTimeoutAndOtherSections() {
+        StringWriter stringWriter = new StringWriter();
+        IndentingPrintWriter printWriter = new IndentingPrintWriter(stringWriter, "  ");
+        final SettingsDumpService.DumpSection slow = new SettingsDumpService.DumpSection("slow",
+                () -> {
+                    Thread.sleep(10_000L);
+                    return "never";
+                }, 50L /* timeoutMs */);
+        final SettingsDumpService.DumpSection fast =
+                new SettingsDumpService.DumpSection("fast", () -> "done", 5_000L);
+        // Every read of the clock moves it 30ms forward, so the slow section expires after a
+        // couple of polls without the test waiting for it.
+        final AtomicLong clockMs = new AtomicLong();
+        mTestService.mClockMs = () -> clockMs.getAndAdd(30L);
+
+        mTestService.dumpSections(printWriter, Arrays.asList(slow, fast));
+
+        final String output = stringWriter.toString();
+        assertThat(output).contains("{\"fast\":\"done\"");
+        assertThat(output).contains("timed out after 50ms");
+        assertThat(output).doesNotContain("never");
+    }
+
+    @Test
+    public void testDumpSections_failingSection_reportsError() {
+        StringWriter stringWriter = new StringWriter();
+        IndentingPrintWriter printWriter = new IndentingPrintWriter(stringWriter, "  ");
+        final SettingsDumpService.DumpSection failing = new SettingsDumpService.DumpSection(
+                "failing", () -> {
+                    throw new IllegalStateException("boom");
+                }, 5_000L);
+
+        mTestService.dumpSections(printWriter, Arrays.asList(failing));
+
+        assertThat(stringWriter.toString()).contains("boom");
+    }
+
+    @Test
+    public void testDumpAll_printsOneObjectWithErrorsAndTimings() {
+        StringWriter stringWriter = new StringWriter();
+        IndentingPrintWriter printWriter = new IndentingPrintWriter(stringWriter, "  ");
+        final SettingsDumpService.DumpSection ok =
+                new SettingsDumpService.DumpSection("ok", () -> "value", 5_000L);
+        final SettingsDumpService.DumpSection failing = new SettingsDumpService.DumpSection(
+                "failing", () -> {
+                    throw new IllegalStateException("boom");
+                }, 5_000L);
+
+        mTestService.dumpAll(printWriter, Arrays.asList(ok, failing));
+
+        final String output = stringWriter.toString().trim();
+        assertThat(output.split("\n")).hasLength(1);
+        assertThat(output).startsWith("{\"" + SettingsDumpService.KEY_SERVICE + "\":");
+        assertThat(output).contains("\"ok\":\"value\"");
+        assertThat(output).contains("\"failing\":null");
+        assertThat(output).contains("\"" + SettingsDumpService.KEY_COLLECTION_MS + "\":{");
+        assertThat(output).contains("\"" + SettingsDumpService.KEY_ERROR + "\":{\"failing\":");
+    }
+
+    @Test
+    public void testDumpAll_writesFinishedSectionBeforeSlowSectionCompletes() {
+        StringWriter stringWriter = new StringWriter();
+        IndentingPrintWriter printWriter = new IndentingPrintWriter(stringWriter, "  ");
+        final SettingsDumpService.DumpSection fast =
+                new SettingsDumpService.DumpSection("fast", () -> "done", 5_000L);
+        // Only finishes once the fast section has already been written out.
+        final SettingsDumpService.DumpSection slow = new SettingsDumpService.DumpSection("slow",
+                () -> {
+                    for (int i = 0; i < 500; i++) {
+                        if (stringWriter.toString().contains("\"fast\":\"done\"")) {
+                            return "streamed";
+                        }
+                        Thread.sleep(10L);
+                    }
+                    return "buffered";
+                }, 10_000L);
+
+        mTestService.dumpAll(printWriter, Arrays.asList(slow, fast));
+
+        final String output = stringWriter.toString().trim();
+        assertThat(output.split("\n")).hasLength(1);
+        assertThat(output).contains("\"slow\":\"streamed\"");
+        assertThat(output).endsWith("}");
+    }
+
     /**
      * Test service used to pass in the mock {@link PackageManager}
      */
@@ -59,6 +59,7 @@ import com.android.settingslib.bluetooth.LocalBluetoothManager;
 import com.android.settingslib.search.SearchIndexableRaw;
 import com.android.settingslib.testutils.shadow.ShadowColorDisplayManager;
 
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -79,7 +80,9 @@ import org.xmlpull.v1.XmlPullParserException;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 
 /** Test for {@link AccessibilitySettings}. */
 @RunWith(RobolectricTestRunner.class)
@@ -117,6 +120,7 @@ public class AccessibilitySettingsTest {
 
     @Before
     public void setup() {
+        InstalledServiceListCache.clear();
         mShadowAccessibilityManager = Shadow.extract(AccessibilityManager.getInstance(mContext));
         mShadowAccessibilityManager.setInstalledAccessibilityServiceList(new ArrayList<>());
         mContext.setTheme(androidx.appcompat.R.style.Theme_AppCompat);
@@ -130,6 +134,11 @@ public class AccessibilitySettingsTest {
         mActivityController = ActivityController.of(new SettingsActivity(), intent);
     }
 
+    @After
+    public void tearDown() {
+        InstalledServiceListCache.clear();
+    }
+
     @Test
     public void getNonIndexableKeys_existInXmlLayout() {
         final List<String> niks = AccessibilitySettings.SEARCH_INDEX_DATA_PROVIDER
@@ -409,6 +418,81 @@ public class AccessibilitySettingsTest {
 
     }
 
+    @Test
+    public void onContentChanged_serviceUnchanged_keepsExistingPreference() {
+        mShadowAccessibilityManager.setInstalledAccessibilityServiceList(
+                singletonList(mServiceInfo));
+        setupFragment();
+        final RestrictedPreference preference = mFragment.getPreferenceScreen().findPreference(
+                COMPONENT_NAME.flattenToString());
+
+        mFragment.onContentChanged();
+
+        assertThat(mFragment.getPreferenceScreen().<RestrictedPreference>findPreference(
+                COMPONENT_NAME.flattenToString())).isSameInstanceAs(preference);
+    }
+
+    @Test
+    public void onResume_snapshotCurrent_doesNotReloadServices() {
+        mShadowAccessibilityManager.setInstalledAccessibilityServiceList(
+                singletonList(mServiceInfo));
+        setupFragment();
+        final RestrictedPreference preference = mFragment.getPreferenceScreen().findPreference(
+                COMPONENT_NAME.flattenToString());
+        mShadowAccessibilityManager.setInstalledAccessibilityServiceList(new ArrayList<>());
+
+        mFragment.onPause();
+        mFragment.onResume();
+
+        assertThat(mFragment.getPreferenceScreen().<RestrictedPreference>findPreference(
+                COMPONENT_NAME.flattenToString())).isSameInstanceAs(preference);
+    }
+
+    @Test
+    public void onCreate_snapshotFromEarlierPage_reloadsServices() {
+        mShadowAccessibilityManager.setInstalledAccessibilityServiceList(
+                singletonList(mServiceInfo));
+        InstalledServiceListCache.load(mContext);
+        mShadowAccessibilityManager.setInstalledAccessibilityServiceList(new ArrayList<>());
+
+        setupFragment();
+
+        assertThat(mFragment.getPreferenceScreen().<RestrictedPreference>findPreference(
+                COMPONENT_NAME.flattenToString())).isNull();
+    }
+
+    @Test
+    public void applyServicePreferences_packageChanged_replacesPreference() {
+        mShadowAccessibilityManager.setInstalledAccessibilityServiceList(
+                singletonList(mServiceInfo));
+        setupFragment();
+        final RestrictedPreference preference = mFragment.getPreferenceScreen().findPreference(
+                COMPONENT_NAME.flattenToString());
+        final List<RestrictedPreference> reloaded = new RestrictedPreferenceHelper(
+                mFragment.getPreferenceManager().getContext())
+                .createAccessibilityServicePreferenceList(singletonList(mServiceInfo));
+
+        mFragment.applyServicePreferences(reloaded, Set.of(PACKAGE_NAME));
+
+        assertThat(mFragment.getPreferenceScreen().<RestrictedPreference>findPreference(
+                COMPONENT_NAME.flattenToString())).isSameInstanceAs(reloaded.get(0));
+        assertThat(mFragment.mServicePreferenceToPreferenceCategoryMap)
+                .doesNotContainKey(preference);
+    }
+
+    @Test
+    public void applyServicePreferences_serviceUninstalled_removesPreference() {
+        mShadowAccessibilityManager.setInstalledAccessibilityServiceList(
+                singletonList(mServiceInfo));
+        setupFragment();
+
+        mFragment.applyServicePreferences(Collections.emptyList(), Collections.emptySet());
+
+        assertThat(mFragment.getPreferenceScreen().<RestrictedPreference>findPreference(
+                COMPONENT_NAME.flattenToString())).isNull();
+        assertThat(mFragment.mServicePreferenceToPreferenceCategoryMap).isEmpty();
+    }
+
     @Test
     public void testAccessibilityMenuInSystem_IncludedInInteractionControl() {
         mShadowAccessibilityManager.setInstalledAccessibilityServiceList(
@@ -484,6 +568,8 @@ public class AccessibilitySettingsTest {
         assertThat(fragment).isInstanceOf(AccessibilitySettings.class);
 
         mFragment = (AccessibilitySettings) fragment;
+        // Reload the installed services synchronously.
+        mFragment.setServiceListExecutor(Runnable::run);
     }
 
     private void setShortcutEnabled(ComponentName componentName, boolean enabled) {
@@ -56,6 +56,7 @@ import org.xmlpull.v1.XmlPullParserException;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 /** Test for {@link RestrictedPreferenceHelper}. */
 @RunWith(RobolectricTestRunner.class)
@@ -99,6 +100,18 @@ public class RestrictedPreferenceHelperTest {
         assertThat(preference.getKey()).isEqualTo(key);
     }
 
+    @Test
+    public void createAccessibilityServicePreferenceList_preloadedLabel_usesLabel() {
+        final List<AccessibilityServiceInfo> infoList = new ArrayList<>(
+                singletonList(mServiceInfo));
+
+        final List<RestrictedPreference> preferenceList =
+                mHelper.createAccessibilityServicePreferenceList(infoList,
+                        Map.of(COMPONENT_NAME, "preloaded label"), Map.of());
+
+        assertThat(preferenceList.get(0).getTitle().toString()).isEqualTo("preloaded label");
+    }
+
     @Test
     @RequiresFlagsEnabled(value = {android.security.Flags.FLAG_EXTEND_ECM_TO_ALL_SETTINGS,
             android.permission.flags.Flags.FLAG_ENHANCED_CONFIRMATION_MODE_APIS_ENABLED})
@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.core;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.junit.Assert.assertThrows;
+
+import android.content.Context;
+
+import com.android.settings.slices.FakePreferenceController;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+@RunWith(RobolectricTestRunner.class)
+public class PreferenceControllerFactoriesTest {
+
+    private static final String CONTROLLER_NAME = FakePreferenceController.class.getName();
+    private static final String KEY = "key";
+
+    private Context mContext;
+
+    @Before
+    public void setUp() {
+        mContext = RuntimeEnvironment.application;
+        PreferenceControllerFactories.clear();
+    }
+
+    @After
+    public void tearDown() {
+        PreferenceControllerFactories.clear();
+    }
+
+    @Test
+    public void createInstance_unregistered_resolvesAndKeepsFactory() {
+        final BasePreferenceController controller =
+                BasePreferenceController.createInstance(mContext, CONTROLLER_NAME, KEY);
+
+        assertThat(controller).isInstanceOf(FakePreferenceController.class);
+        assertThat(controller.getPreferenceKey()).isEqualTo(KEY);
+        assertThat(PreferenceControllerFactories.contains(CONTROLLER_NAME)).isTrue();
+    }
+
+    @Test
+    public void createInstance_registered_usesRegisteredFactory() {
+        final int[] calls = new int[1];
+        PreferenceControllerFactories.register(CONTROLLER_NAME,
+                (PreferenceControllerFactories.KeyedFactory) (context, key) -> {
+                    calls[0]++;
+                    return new FakePreferenceController(context, key);
+                });
+
+        BasePreferenceController.createInstance(mContext, CONTROLLER_NAME, KEY);
+        BasePreferenceController.createInstance(mContext, CONTROLLER_NAME, KEY);
+
+        assertThat(calls[0]).isEqualTo(2);
+    }
+
+    @Test
+    public void createInstance_unknownClass_throwsIllegalState() {
+        assertThrows(IllegalStateException.class,
+                () -> BasePreferenceController.createInstance(mContext, "com.example.Unknown",
+                        KEY));
+        assertThat(PreferenceControllerFactories.contains("com.example.Unknown")).isFalse();
+    }
+
+    @Test
+    public void createInstance_noKeylessConstructor_throwsIllegalState() {
+        assertThrows(IllegalStateException.class,
+                () -> BasePreferenceController.createInstance(mContext, CONTROLLER_NAME));
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.settings.core.instrumentation;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import org.json.JSONObject;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+@RunWith(RobolectricTestRunner.class)
+public class PageLatencyTracerTest {
+    private static final String PAGE = "TestPage";
+    private static final long MILLIS = 1_000_000L;
+
+    private PageLatencyTracer mTracer;
+
+    @Before
+    public void setUp() {
+        mTracer = new PageLatencyTracer();
+    }
+
+    @Test
+    public void recordPhase_bucketsByPowerOfTwoMillis() {
+        mTracer.recordPhase(PAGE, PageLatencyTracer.PHASE_INFLATE_XML, 0L);
+        mTracer.recordPhase(PAGE, PageLatencyTracer.PHASE_INFLATE_XML, 3 * MILLIS);
+        mTracer.recordPhase(PAGE, PageLatencyTracer.PHASE_INFLATE_XML, 5000 * MILLIS);
+
+        final PageLatencyTracer.LatencyHistogram histogram =
+                mTracer.getPhaseHistogram(PAGE, PageLatencyTracer.PHASE_INFLATE_XML);
+        assertThat(histogram.getCount()).isEqualTo(3);
+        assertThat(histogram.getBucket(0)).isEqualTo(1);
+        assertThat(histogram.getBucket(2)).isEqualTo(1);
+        assertThat(histogram.getBucket(PageLatencyTracer.LatencyHistogram.BUCKET_COUNT - 1))
+                .isEqualTo(1);
+        assertThat(histogram.getMaxNanos()).isEqualTo(5000 * MILLIS);
+    }
+
+    @Test
+    public void beginEndPhase_recordsSample() {
+        final PageLatencyTracer.Section start =
+                mTracer.beginPhase(PAGE, PageLatencyTracer.PHASE_CREATE_CONTROLLERS);
+        mTracer.endPhase(PAGE, PageLatencyTracer.PHASE_CREATE_CONTROLLERS, start);
+
+        assertThat(mTracer.getPhaseHistogram(PAGE, PageLatencyTracer.PHASE_CREATE_CONTROLLERS)
+                .getCount()).isEqualTo(1);
+        assertThat(mTracer.getPhaseHistogram(PAGE, PageLatencyTracer.PHASE_FIRST_FRAME))
+                .isNull();
+    }
+
+    @Test
+    public void endControllerUpdate_recordsPerController() {
+        final PageLatencyTracer.Section start = mTracer.beginControllerUpdate("FooController");
+        mTracer.endControllerUpdate("FooController", start);
+
+        assertThat(mTracer.getControllerHistogram("FooController").getCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void recordControllerCreation_recordsPerController() throws Exception {
+        mTracer.recordControllerCreation("FooController", 3 * MILLIS);
+
+        assertThat(mTracer.getControllerCreationHistogram("FooController").getCount())
+                .isEqualTo(1);
+        assertThat(mTracer.toJson().getJSONObject("controllerCreation").has("FooController"))
+                .isTrue();
+    }
+
+    @Test
+    public void recordPhase_tooManyPages_dropsNewPages() throws Exception {
+        for (int i = 0; i < PageLatencyTracer.MAX_PAGES; i++) {
+            mTracer.recordPhase(PAGE + i, PageLatencyTracer.PHASE_FIRST_FRAME, MILLIS);
+        }
+
+        mTracer.recordPhase("OneTooMany", PageLatencyTracer.PHASE_FIRST_FRAME, MILLIS);
+
+        assertThat(mTracer.getPhaseHistogram("OneTooMany", PageLatencyTracer.PHASE_FIRST_FRAME))
+                .isNull();
+        assertThat(mTracer.toJson().getInt("dropped")).isEqualTo(1);
+    }
+
+    @Test
+    public void toJson_containsPagesAndControllers() throws Exception {
+        mTracer.recordPhase(PAGE, PageLatencyTracer.PHASE_FIRST_FRAME, 2 * MILLIS);
+        mTracer.endControllerUpdate("FooController",
+                mTracer.beginControllerUpdate("FooController"));
+
+        final JSONObject json = mTracer.toJson();
+
+        assertThat(json.getJSONObject("pages").getJSONObject(PAGE)
+                .getJSONObject("firstFrame").getInt("count")).isEqualTo(1);
+        assertThat(json.getJSONObject("controllers").has("FooController")).isTrue();
+    }
+}
@@ -36,6 +36,7 @@ import com.android.settings.R;
 import com.android.settings.testutils.shadow.ShadowAlertDialogCompat;
 import com.android.settings.testutils.shadow.ShadowUserManager;
 import com.android.settings.widget.SettingsMainSwitchBar;
+import com.android.settingslib.core.AbstractPreferenceController;
 import com.android.settingslib.development.AbstractEnableAdbPreferenceController;
 import com.android.settingslib.development.DevelopmentSettingsEnabler;
 
@@ -290,6 +291,25 @@ public class DevelopmentSettingsDashboardFragmentTest {
         assertThat(mDashboard.shouldSkipForInitialSUW()).isTrue();
     }
 
+    @Test
+    public void timedControllerList_keepsOrderAndReportsControllers() {
+        final AbstractPreferenceController first = mock(AbstractPreferenceController.class);
+        final AbstractPreferenceController second = mock(AbstractPreferenceController.class);
+        when(first.getPreferenceKey()).thenReturn("first_key");
+        when(second.getPreferenceKey()).thenReturn("second_key");
+        final DevelopmentSettingsDashboardFragment.TimedControllerList controllers =
+                new DevelopmentSettingsDashboardFragment.TimedControllerList(true /* timed */);
+
+        controllers.add(first);
+        controllers.add(second);
+
+        assertThat(controllers.finish()).containsExactly(first, second).inOrder();
+        final String report = controllers.getCreationReport();
+        assertThat(report).startsWith("Created 2 controllers");
+        assertThat(report).contains("first_key=");
+        assertThat(report).contains("second_key=");
+    }
+
     @Implements(EnableDevelopmentSettingWarningDialog.class)
     public static class ShadowEnableDevelopmentSettingWarningDialog {
 
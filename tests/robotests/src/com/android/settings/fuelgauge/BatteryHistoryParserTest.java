@@ -0,0 +1,160 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.fuelgauge;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import android.os.BatteryStats.HistoryItem;
+import android.os.BatteryUsageStats;
+
+import com.android.internal.os.BatteryStatsHistoryIterator;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+@RunWith(RobolectricTestRunner.class)
+public class BatteryHistoryParserTest {
+
+    private static final long WALL_TIME = 1_700_000_000_000L;
+
+    @Test
+    public void parse_feedsParsersWithWallClockOffsets() {
+        final RecordingParser recorder = new RecordingParser();
+
+        BatteryHistoryParser.parse(
+                stats(currentTime(0, WALL_TIME), update(1000, 99), update(2000, 98)), recorder);
+
+        assertThat(recorder.mEvents).containsExactly(
+                "start " + WALL_TIME + " " + (WALL_TIME + 2000),
+                "gap",
+                "point 1000 99",
+                "point 2000 98",
+                "done").inOrder();
+    }
+
+    @Test
+    public void parse_commandRecord_reportsGap() {
+        final RecordingParser recorder = new RecordingParser();
+
+        BatteryHistoryParser.parse(stats(currentTime(0, WALL_TIME), update(1000, 99),
+                command(1500, HistoryItem.CMD_START), update(2000, 98)), recorder);
+
+        assertThat(recorder.mEvents).containsExactly(
+                "start " + WALL_TIME + " " + (WALL_TIME + 2000),
+                "gap",
+                "point 1000 99",
+                "gap",
+                "point 2000 98",
+                "done").inOrder();
+    }
+
+    @Test
+    public void parse_recordsAfterLastUpdate_areNotReplayed() {
+        final RecordingParser recorder = new RecordingParser();
+
+        BatteryHistoryParser.parse(stats(currentTime(0, WALL_TIME), update(1000, 99),
+                command(1500, HistoryItem.CMD_START)), recorder);
+
+        assertThat(recorder.mEvents).containsExactly(
+                "start " + WALL_TIME + " " + (WALL_TIME + 1000), "gap", "point 1000 99", "done")
+                .inOrder();
+    }
+
+    @Test
+    public void parse_moreRecordsThanInitialCapacity_feedsEveryRecord() {
+        final HistoryItem[] history = new HistoryItem[1000];
+        history[0] = currentTime(0, WALL_TIME);
+        for (int i = 1; i < history.length; i++) {
+            history[i] = update(i * 1000L, 100 - i % 100);
+        }
+        final RecordingParser recorder = new RecordingParser();
+
+        BatteryHistoryParser.parse(stats(history), recorder);
+
+        // Start, the gap of the current time record, one point per update, and done.
+        assertThat(recorder.mEvents).hasSize(history.length + 2);
+        assertThat(recorder.mEvents.get(history.length)).isEqualTo("point 999000 1");
+    }
+
+    private static BatteryUsageStats stats(HistoryItem... history) {
+        final BatteryUsageStats stats = mock(BatteryUsageStats.class);
+        doAnswer(invocation -> {
+            final BatteryStatsHistoryIterator iterator = mock(BatteryStatsHistoryIterator.class);
+            final HistoryItem[] rest = Arrays.copyOf(
+                    Arrays.copyOfRange(history, 1, history.length), history.length);
+            when(iterator.next()).thenReturn(history[0], rest);
+            return iterator;
+        }).when(stats).iterateBatteryStatsHistory();
+        return stats;
+    }
+
+    private static HistoryItem update(long time, int batteryLevel) {
+        final HistoryItem record = new HistoryItem();
+        record.cmd = HistoryItem.CMD_UPDATE;
+        record.time = time;
+        record.batteryLevel = (byte) batteryLevel;
+        return record;
+    }
+
+    private static HistoryItem command(long time, byte cmd) {
+        final HistoryItem record = new HistoryItem();
+        record.cmd = cmd;
+        record.time = time;
+        return record;
+    }
+
+    private static HistoryItem currentTime(long time, long currentTime) {
+        final HistoryItem record = new HistoryItem();
+        record.cmd = HistoryItem.CMD_CURRENT_TIME;
+        record.time = time;
+        record.currentTime = currentTime;
+        return record;
+    }
+
+    private static class RecordingParser implements BatteryInfo.BatteryDataParser {
+        final List<String> mEvents = new ArrayList<>();
+
+        @Override
+        public void onParsingStarted(long startTime, long endTime) {
+            mEvents.add("start " + startTime + " " + endTime);
+        }
+
+        @Override
+        public void onDataPoint(long time, HistoryItem record) {
+            mEvents.add("point " + time + " " + record.batteryLevel);
+        }
+
+        @Override
+        public void onDataGap() {
+            mEvents.add("gap");
+        }
+
+        @Override
+        public void onParsingDone() {
+            mEvents.add("done");
+        }
+    }
+}
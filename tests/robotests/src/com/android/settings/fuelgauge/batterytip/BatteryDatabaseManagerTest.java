@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.fuelgauge.batterytip;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.content.Context;
+
+import com.android.settings.testutils.DatabaseTestUtils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.List;
+
+@RunWith(RobolectricTestRunner.class)
+public class BatteryDatabaseManagerTest {
+
+    private static final int UID = 10001;
+    private static final int UID_OTHER = 10002;
+    private static final String PACKAGE_NAME = "com.android.app";
+    private static final String PACKAGE_NAME_OTHER = "com.android.app.other";
+    private static final int TYPE = 1;
+    private static final long TIMESTAMP = 1000;
+
+    private Context mContext;
+    private BatteryDatabaseManager mManager;
+
+    @Before
+    public void setUp() {
+        mContext = RuntimeEnvironment.application;
+        mManager = BatteryDatabaseManager.getInstance(mContext);
+    }
+
+    @After
+    public void tearDown() {
+        DatabaseTestUtils.clearDb(mContext);
+    }
+
+    @Test
+    public void queryAllAnomalies_returnsInsertedAnomaliesWithState() {
+        mManager.insertAnomaly(UID, PACKAGE_NAME, TYPE, AnomalyDatabaseHelper.State.NEW,
+                TIMESTAMP);
+        mManager.insertAnomaly(UID_OTHER, PACKAGE_NAME_OTHER, TYPE,
+                AnomalyDatabaseHelper.State.HANDLED, TIMESTAMP);
+
+        final List<AppInfo> appInfos =
+                mManager.queryAllAnomalies(0, AnomalyDatabaseHelper.State.NEW);
+
+        assertThat(appInfos).hasSize(1);
+        assertThat(appInfos.get(0).packageName).isEqualTo(PACKAGE_NAME);
+    }
+
+    @Test
+    public void updateAnomalies_updatesStateOfInsertedAnomalies() {
+        mManager.insertAnomaly(UID, PACKAGE_NAME, TYPE, AnomalyDatabaseHelper.State.NEW,
+                TIMESTAMP);
+        final AppInfo appInfo = new AppInfo.Builder()
+                .setUid(UID)
+                .setPackageName(PACKAGE_NAME)
+                .build();
+
+        mManager.updateAnomalies(List.of(appInfo), AnomalyDatabaseHelper.State.HANDLED);
+
+        assertThat(mManager.queryAllAnomalies(0, AnomalyDatabaseHelper.State.NEW)).isEmpty();
+        assertThat(mManager.queryAllAnomalies(0, AnomalyDatabaseHelper.State.HANDLED))
+                .hasSize(1);
+    }
+}
@@ -19,6 +19,7 @@ package com.android.settings.fuelgauge.batterytip;
 import static com.google.common.truth.Truth.assertThat;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.spy;
 
@@ -26,12 +27,14 @@ import android.content.Context;
 import android.content.Intent;
 import android.os.BatteryUsageStats;
 import android.os.PowerManager;
+import android.os.SystemClock;
 
 import com.android.settings.fuelgauge.BatteryInfo;
 import com.android.settings.fuelgauge.BatteryUtils;
 import com.android.settings.fuelgauge.batterytip.tips.AppLabelPredicate;
 import com.android.settings.fuelgauge.batterytip.tips.AppRestrictionPredicate;
 import com.android.settings.fuelgauge.batterytip.tips.BatteryTip;
+import com.android.settings.testutils.FakeFeatureFactory;
 
 import org.junit.After;
 import org.junit.Before;
@@ -44,6 +47,7 @@ import org.robolectric.RobolectricTestRunner;
 import org.robolectric.RuntimeEnvironment;
 import org.robolectric.util.ReflectionHelpers;
 
+import java.util.ArrayList;
 import java.util.List;
 
 @RunWith(RobolectricTestRunner.class)
@@ -77,10 +81,12 @@ public class BatteryTipLoaderTest {
         doReturn(mBatteryInfo).when(mBatteryUtils).getBatteryInfo(any());
         mBatteryTipLoader = new BatteryTipLoader(mContext, mBatteryUsageStats);
         mBatteryTipLoader.mBatteryUtils = mBatteryUtils;
+        mBatteryTipLoader.setDetectorExecutor(Runnable::run);
     }
 
     @After
     public void tearDown() {
+        BatteryTipLoader.clearLateResults();
         ReflectionHelpers.setStaticField(AppLabelPredicate.class, "sInstance", null);
         ReflectionHelpers.setStaticField(AppRestrictionPredicate.class, "sInstance", null);
     }
@@ -94,4 +100,52 @@ public class BatteryTipLoaderTest {
             assertThat(batteryTips.get(i).getType()).isEqualTo(TIP_ORDER[i]);
         }
     }
+
+    @Test
+    public void testLoadBackground_featureProviderDetectorsGetMergedList() {
+        final List<Integer> seenTypes = new ArrayList<>();
+        final FakeFeatureFactory featureFactory = FakeFeatureFactory.setupForTest();
+        doAnswer(invocation -> {
+            final List<BatteryTip> tips = invocation.getArgument(1);
+            for (BatteryTip tip : tips) {
+                seenTypes.add(tip.getType());
+            }
+            return null;
+        }).when(featureFactory.batterySettingsFeatureProvider)
+                .addBatteryTipDetector(any(), any(), any(), any());
+
+        mBatteryTipLoader.loadInBackground();
+
+        assertThat(seenTypes).containsExactly(BatteryTip.TipType.BATTERY_DEFENDER,
+                BatteryTip.TipType.INCOMPATIBLE_CHARGER, BatteryTip.TipType.HIGH_DEVICE_USAGE);
+    }
+
+    @Test
+    public void testLoadBackground_detectorsMissBudget_tipsMergedOnNextLoad() {
+        final List<Runnable> pendingDetectors = new ArrayList<>();
+        mBatteryTipLoader.setDetectorExecutor(pendingDetectors::add);
+        mBatteryTipLoader.mDetectorBudgetMillis = 1;
+
+        final List<BatteryTip> placeholders = mBatteryTipLoader.loadInBackground();
+        assertThat(placeholders.size()).isEqualTo(TIP_ORDER.length);
+        for (BatteryTip tip : placeholders) {
+            if (tip.getType() != BatteryTip.TipType.LOW_BATTERY) {
+                assertThat(tip.getState()).isEqualTo(BatteryTip.StateType.INVISIBLE);
+            }
+        }
+
+        SystemClock.sleep(2);
+        for (Runnable detector : pendingDetectors) {
+            detector.run();
+        }
+        mBatteryTipLoader.setDetectorExecutor(runnable -> {
+            throw new AssertionError("Late results should be reused");
+        });
+        final List<BatteryTip> batteryTips = mBatteryTipLoader.loadInBackground();
+
+        assertThat(batteryTips.size()).isEqualTo(TIP_ORDER.length);
+        for (int i = 0, size = batteryTips.size(); i < size; i++) {
+            assertThat(batteryTips.get(i).getType()).isEqualTo(TIP_ORDER[i]);
+        }
+    }
 }
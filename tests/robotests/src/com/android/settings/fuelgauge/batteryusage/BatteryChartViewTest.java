@@ -91,4 +91,26 @@ public final class BatteryChartViewTest {
         mBatteryChartView.onClick(mMockView);
         assertThat(selectedIndex[0]).isEqualTo(BatteryChartViewModel.SELECTED_INDEX_ALL);
     }
+
+    @Test
+    public void updateGeometry_laysOutTrapezoidSlotsFromLeftToRight() {
+        mBatteryChartView.setViewModel(
+                new BatteryChartViewModel(
+                        List.of(90, 80, 70, 60),
+                        List.of(0L, 0L, 0L, 0L),
+                        BatteryChartViewModel.AxisLabelPosition.BETWEEN_TRAPEZOIDS,
+                        null));
+        mBatteryChartView.layout(0, 0, 1000, 500);
+
+        mBatteryChartView.updateGeometry();
+
+        final BatteryChartView.TrapezoidSlot[] slots = mBatteryChartView.mTrapezoidSlots;
+        assertThat(slots).hasLength(3);
+        for (int i = 0; i < slots.length; i++) {
+            assertThat(slots[i].mLeft).isLessThan(slots[i].mRight);
+            if (i > 0) {
+                assertThat(slots[i - 1].mRight).isLessThan(slots[i].mLeft);
+            }
+        }
+    }
 }
@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.fuelgauge.batteryusage;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.content.ContentValues;
+import android.content.Context;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@RunWith(RobolectricTestRunner.class)
+public final class SlotUsageTableTest {
+
+    private Context mContext;
+    private SlotUsageTable mTable;
+    private List<BatteryDiffEntry> mAppEntries;
+    private List<BatteryDiffEntry> mSystemEntries;
+
+    @Before
+    public void setUp() {
+        mContext = RuntimeEnvironment.application;
+        mTable = new SlotUsageTable();
+        mAppEntries = new ArrayList<>();
+        mSystemEntries = new ArrayList<>();
+    }
+
+    @Test
+    public void toDiffEntries_copiesMetricsIntoEntries() {
+        addRow("com.app1", /* uid= */ 1001L, /* screenOnTimeInMs= */ 10L, /* consumePower= */ 2.5);
+
+        mTable.toDiffEntries(mContext, 0, 0, mAppEntries, mSystemEntries);
+
+        assertThat(mAppEntries).hasSize(1);
+        final BatteryDiffEntry entry = mAppEntries.get(0);
+        assertThat(entry.getPackageName()).isEqualTo("com.app1");
+        assertThat(entry.mScreenOnTimeInMs).isEqualTo(10L);
+        assertThat(entry.mConsumePower).isEqualTo(2.5);
+        assertThat(mSystemEntries).isEmpty();
+    }
+
+    @Test
+    public void toDiffEntries_belowBothThresholds_skipped() {
+        addRow("com.app1", /* uid= */ 1001L, /* screenOnTimeInMs= */ 10L, /* consumePower= */ 0.5);
+        addRow("com.app2", /* uid= */ 1002L, /* screenOnTimeInMs= */ 10L, /* consumePower= */ 5);
+        addRow("com.app3", /* uid= */ 1003L, /* screenOnTimeInMs= */ 500L, /* consumePower= */ 0);
+
+        mTable.toDiffEntries(mContext, 100, 1, mAppEntries, mSystemEntries);
+
+        assertThat(mAppEntries).hasSize(2);
+        assertThat(mAppEntries.get(0).getPackageName()).isEqualTo("com.app2");
+        assertThat(mAppEntries.get(1).getPackageName()).isEqualTo("com.app3");
+    }
+
+    @Test
+    public void add_beyondInitialCapacity_keepsAllRows() {
+        for (int i = 0; i < 200; i++) {
+            addRow("com.app" + i, 1000L + i, /* screenOnTimeInMs= */ i, /* consumePower= */ i);
+        }
+
+        mTable.toDiffEntries(mContext, 0, 0, mAppEntries, mSystemEntries);
+
+        assertThat(mTable.size()).isEqualTo(200);
+        assertThat(mAppEntries).hasSize(200);
+        assertThat(mAppEntries.get(199).mConsumePower).isEqualTo(199.0);
+    }
+
+    @Test
+    public void clear_removesRows() {
+        addRow("com.app1", /* uid= */ 1001L, /* screenOnTimeInMs= */ 10L, /* consumePower= */ 1);
+
+        mTable.clear();
+        mTable.toDiffEntries(mContext, 0, 0, mAppEntries, mSystemEntries);
+
+        assertThat(mTable.size()).isEqualTo(0);
+        assertThat(mAppEntries).isEmpty();
+    }
+
+    private void addRow(String packageName, long uid, long screenOnTimeInMs, double consumePower) {
+        final ContentValues values = new ContentValues();
+        values.put(BatteryHistEntry.KEY_PACKAGE_NAME, packageName);
+        values.put(BatteryHistEntry.KEY_UID, uid);
+        values.put(BatteryHistEntry.KEY_CONSUMER_TYPE, ConvertUtils.CONSUMER_TYPE_UID_BATTERY);
+        mTable.add(
+                new BatteryHistEntry(values),
+                /* foregroundUsageTimeInMs= */ 0,
+                /* foregroundServiceUsageTimeInMs= */ 0,
+                /* backgroundUsageTimeInMs= */ 0,
+                screenOnTimeInMs,
+                consumePower,
+                /* foregroundUsageConsumePower= */ 0,
+                /* foregroundServiceUsageConsumePower= */ 0,
+                /* backgroundUsageConsumePower= */ 0,
+                /* cachedUsageConsumePower= */ 0);
+    }
+}
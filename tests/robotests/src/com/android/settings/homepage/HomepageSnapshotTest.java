@@ -0,0 +1,133 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.homepage;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.content.Context;
+import android.content.res.Configuration;
+import android.os.LocaleList;
+import android.view.View;
+import android.widget.LinearLayout;
+import android.widget.TextView;
+
+import com.android.settings.R;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.List;
+import java.util.Locale;
+
+@RunWith(RobolectricTestRunner.class)
+public class HomepageSnapshotTest {
+
+    private Context mContext;
+
+    @Before
+    public void setUp() {
+        mContext = RuntimeEnvironment.application;
+        HomepageSnapshot.clear();
+    }
+
+    @After
+    public void tearDown() {
+        HomepageSnapshot.clear();
+    }
+
+    @Test
+    public void load_nothingSaved_returnsEmpty() {
+        assertThat(HomepageSnapshot.load(mContext).mEntries).isEmpty();
+        assertThat(HomepageSnapshot.getEntries(mContext)).isEmpty();
+    }
+
+    @Test
+    public void persist_thenLoad_keepsOrderAndText() {
+        HomepageSnapshot.persist(mContext, List.of(
+                new HomepageSnapshot.Entry("top_level_network", "Network", null, true, 0),
+                new HomepageSnapshot.Entry("injected_tile", "Account", null, false, 0)));
+
+        final List<HomepageSnapshot.Entry> entries = HomepageSnapshot.load(mContext).mEntries;
+
+        assertThat(entries).hasSize(2);
+        assertThat(entries.get(0).mKey).isEqualTo("top_level_network");
+        assertThat(entries.get(0).mTitle.toString()).isEqualTo("Network");
+        assertThat(entries.get(0).mHasSummary).isTrue();
+        assertThat(entries.get(1).mKey).isEqualTo("injected_tile");
+        assertThat(entries.get(1).mSummary.toString()).isEmpty();
+        assertThat(entries.get(1).mHasSummary).isFalse();
+    }
+
+    @Test
+    public void persist_updatesEntriesInMemory() {
+        HomepageSnapshot.persist(mContext, List.of(
+                new HomepageSnapshot.Entry("top_level_network", "Network", null, false, 0)));
+
+        assertThat(HomepageSnapshot.getEntries(mContext)).hasSize(1);
+    }
+
+    @Test
+    public void persist_staticEntry_resolvesIconFromXml() {
+        HomepageSnapshot.persist(mContext, List.of(
+                new HomepageSnapshot.Entry("top_level_network", "Network", null, false, 0)));
+
+        assertThat(HomepageSnapshot.load(mContext).mEntries.get(0).mIconResId)
+                .isEqualTo(R.drawable.ic_settings_wireless);
+    }
+
+    @Test
+    public void persist_sameEntries_doesNotRewrite() {
+        final List<HomepageSnapshot.Entry> entries = List.of(
+                new HomepageSnapshot.Entry("top_level_network", "Network", null, false, 0));
+
+        assertThat(HomepageSnapshot.persist(mContext, entries)).isTrue();
+        assertThat(HomepageSnapshot.persist(mContext, entries)).isFalse();
+    }
+
+    @Test
+    public void getEntries_localeChanged_returnsEmpty() {
+        HomepageSnapshot.persist(mContext, List.of(
+                new HomepageSnapshot.Entry("top_level_network", "Network", null, false, 0)));
+
+        final Configuration config = new Configuration(
+                mContext.getResources().getConfiguration());
+        config.setLocales(new LocaleList(Locale.JAPAN));
+        final Context localizedContext = mContext.createConfigurationContext(config);
+
+        assertThat(HomepageSnapshot.getEntries(localizedContext)).isEmpty();
+    }
+
+    @Test
+    public void render_addsOneRowPerEntry() {
+        final LinearLayout container = new LinearLayout(mContext);
+
+        HomepageSnapshot.render(mContext, container, List.of(
+                new HomepageSnapshot.Entry("a", "First", null, false, 0),
+                new HomepageSnapshot.Entry("b", "Second", "Summary", true, 0),
+                new HomepageSnapshot.Entry("c", "Third", null, true, 0)));
+
+        assertThat(container.getChildCount()).isEqualTo(3);
+        assertThat(((TextView) container.getChildAt(1).findViewById(android.R.id.title))
+                .getText().toString()).isEqualTo("Second");
+        assertThat(container.getChildAt(2).findViewById(android.R.id.summary).getVisibility())
+                .isEqualTo(View.INVISIBLE);
+    }
+}
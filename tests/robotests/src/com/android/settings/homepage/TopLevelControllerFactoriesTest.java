@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.homepage;
+
+import static com.android.settings.core.PreferenceXmlParserUtils.METADATA_CONTROLLER;
+import static com.android.settings.core.PreferenceXmlParserUtils.MetadataFlag.FLAG_NEED_PREF_CONTROLLER;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth.assertWithMessage;
+
+import static org.junit.Assert.assertThrows;
+
+import android.content.Context;
+import android.os.Bundle;
+import android.text.TextUtils;
+
+import com.android.settings.R;
+import com.android.settings.core.BasePreferenceController;
+import com.android.settings.core.PreferenceControllerFactories;
+import com.android.settings.core.PreferenceXmlParserUtils;
+import com.android.settings.fuelgauge.TopLevelBatteryPreferenceController;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.List;
+
+@RunWith(RobolectricTestRunner.class)
+public class TopLevelControllerFactoriesTest {
+
+    private Context mContext;
+
+    @Before
+    public void setUp() {
+        mContext = RuntimeEnvironment.application;
+        TopLevelControllerFactories.register();
+    }
+
+    @Test
+    public void register_everyControllerInTopLevelSettings_hasFactory() throws Exception {
+        final List<Bundle> metadata = PreferenceXmlParserUtils.extractMetadata(mContext,
+                R.xml.top_level_settings, FLAG_NEED_PREF_CONTROLLER);
+
+        for (Bundle bundle : metadata) {
+            final String controller = bundle.getString(METADATA_CONTROLLER);
+            if (TextUtils.isEmpty(controller)) {
+                continue;
+            }
+            assertWithMessage("No factory registered for " + controller)
+                    .that(PreferenceControllerFactories.contains(controller)).isTrue();
+        }
+    }
+
+    @Test
+    public void createInstance_topLevelControllerWithoutKey_throwsIllegalState() {
+        assertThrows(IllegalStateException.class,
+                () -> BasePreferenceController.createInstance(mContext,
+                        TopLevelBatteryPreferenceController.class.getName()));
+    }
+
+    @Test
+    public void createInstance_topLevelController_usesKey() {
+        final BasePreferenceController controller = BasePreferenceController.createInstance(
+                mContext, TopLevelBatteryPreferenceController.class.getName(), "key");
+
+        assertThat(controller).isInstanceOf(TopLevelBatteryPreferenceController.class);
+        assertThat(controller.getPreferenceKey()).isEqualTo("key");
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.location;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.app.settings.SettingsEnums;
+import android.content.Context;
+import android.location.SettingInjectorService;
+import android.os.Bundle;
+import android.os.Message;
+import android.os.Process;
+
+import androidx.preference.Preference;
+
+import com.android.settings.testutils.FakeFeatureFactory;
+import com.android.settingslib.location.InjectedSetting;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+@RunWith(RobolectricTestRunner.class)
+public class AppSettingsInjectorTest {
+
+    private Context mContext;
+    private AppSettingsInjector mInjector;
+    private InjectedSetting mSetting;
+    private Preference mPreference;
+
+    @Before
+    public void setUp() {
+        mContext = RuntimeEnvironment.application;
+        FakeFeatureFactory.setupForTest();
+        mInjector = new AppSettingsInjector(mContext, SettingsEnums.LOCATION);
+        mSetting = new InjectedSetting.Builder()
+                .setPackageName("com.example.location")
+                .setClassName("com.example.location.StatusService")
+                .setTitle("Example")
+                .setSettingsActivity("com.example.location.SettingsActivity")
+                .setUserHandle(Process.myUserHandle())
+                .build();
+        mPreference = mInjector.createPreference(mContext, mSetting);
+    }
+
+    @After
+    public void tearDown() {
+        AppSettingsInjector.clearSummaryCache();
+    }
+
+    @Test
+    public void onStatusReceived_updatesRowAndCache() {
+        mInjector.reloadStatusMessages();
+
+        mInjector.onStatusReceived(newRequest(), statusMessage("On", false), 0L);
+
+        assertThat(mPreference.getSummary().toString()).isEqualTo("On");
+        assertThat(mPreference.isEnabled()).isFalse();
+        assertThat(AppSettingsInjector.getCachedSummary(mSetting).toString()).isEqualTo("On");
+    }
+
+    @Test
+    public void onStatusReceived_fromEarlierReload_isIgnored() {
+        mInjector.reloadStatusMessages();
+        final AppSettingsInjector.StatusRequest staleRequest = newRequest();
+        mInjector.reloadStatusMessages();
+
+        mInjector.onStatusReceived(staleRequest, statusMessage("Stale", true), 0L);
+
+        assertThat(mPreference.getSummary()).isNull();
+        assertThat(AppSettingsInjector.getCachedSummary(mSetting)).isNull();
+    }
+
+    @Test
+    public void onStatusReceived_afterTimeout_isIgnored() {
+        mInjector.reloadStatusMessages();
+        final AppSettingsInjector.StatusRequest request = newRequest();
+        mPreference.setSummary("Cached");
+
+        request.run();
+        mInjector.onStatusReceived(request, statusMessage("Late", true), 0L);
+
+        assertThat(mPreference.getSummary().toString()).isEqualTo("Cached");
+    }
+
+    private AppSettingsInjector.StatusRequest newRequest() {
+        return new AppSettingsInjector.StatusRequest(mPreference, mSetting,
+                mInjector.getGeneration());
+    }
+
+    private static Message statusMessage(String summary, boolean enabled) {
+        final Bundle bundle = new Bundle();
+        bundle.putString(SettingInjectorService.SUMMARY_KEY, summary);
+        bundle.putBoolean(SettingInjectorService.ENABLED_KEY, enabled);
+        final Message msg = Message.obtain();
+        msg.setData(bundle);
+        return msg;
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.media;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import android.content.Context;
+
+import com.android.settingslib.media.LocalMediaManager;
+import com.android.settingslib.media.MediaDevice;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.List;
+
+@RunWith(RobolectricTestRunner.class)
+public class MediaDeviceDiscoveryHubTest {
+
+    private static final String TEST_PACKAGE_NAME = "com.test.music";
+
+    @Mock
+    private LocalMediaManager mLocalMediaManager;
+    @Mock
+    private LocalMediaManager.DeviceCallback mCallback1;
+    @Mock
+    private LocalMediaManager.DeviceCallback mCallback2;
+    @Mock
+    private MediaDevice mMediaDevice;
+
+    private Context mContext;
+    private MediaDeviceDiscoveryHub mHub;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        mContext = RuntimeEnvironment.application;
+        when(mLocalMediaManager.getPackageName()).thenReturn(TEST_PACKAGE_NAME);
+        mHub = new MediaDeviceDiscoveryHub();
+    }
+
+    @Test
+    public void subscribe_twice_startsOneScan() {
+        final LocalMediaManager first =
+                mHub.subscribe(mContext, TEST_PACKAGE_NAME, mCallback1, mLocalMediaManager);
+        final LocalMediaManager second =
+                mHub.subscribe(mContext, TEST_PACKAGE_NAME, mCallback2, null);
+
+        assertThat(first).isSameInstanceAs(mLocalMediaManager);
+        assertThat(second).isSameInstanceAs(mLocalMediaManager);
+        assertThat(mHub.getSubscriberCount(TEST_PACKAGE_NAME)).isEqualTo(2);
+        verify(mLocalMediaManager).startScan();
+    }
+
+    @Test
+    public void unsubscribe_lastSubscriber_stopsScan() {
+        mHub.subscribe(mContext, TEST_PACKAGE_NAME, mCallback1, mLocalMediaManager);
+        mHub.subscribe(mContext, TEST_PACKAGE_NAME, mCallback2, null);
+
+        mHub.unsubscribe(TEST_PACKAGE_NAME, mCallback1);
+        verify(mLocalMediaManager, never()).stopScan();
+
+        mHub.unsubscribe(TEST_PACKAGE_NAME, mCallback2);
+        verify(mLocalMediaManager).stopScan();
+        verify(mLocalMediaManager).unregisterCallback(any(LocalMediaManager.DeviceCallback.class));
+        assertThat(mHub.getSubscriberCount(TEST_PACKAGE_NAME)).isEqualTo(0);
+    }
+
+    @Test
+    public void onDeviceListUpdate_fansOutEveryUpdate() {
+        mHub.subscribe(mContext, TEST_PACKAGE_NAME, mCallback1, mLocalMediaManager);
+        mHub.subscribe(mContext, TEST_PACKAGE_NAME, mCallback2, null);
+        final LocalMediaManager.DeviceCallback hubCallback = captureHubCallback();
+
+        hubCallback.onDeviceListUpdate(List.of(mMediaDevice));
+        hubCallback.onDeviceListUpdate(List.of(mMediaDevice));
+
+        verify(mCallback1, times(2)).onDeviceListUpdate(any());
+        verify(mCallback2, times(2)).onDeviceListUpdate(any());
+    }
+
+    @Test
+    public void subscribe_afterLastUnsubscribe_restartsScan() {
+        mHub.subscribe(mContext, TEST_PACKAGE_NAME, mCallback1, mLocalMediaManager);
+        mHub.unsubscribe(TEST_PACKAGE_NAME, mCallback1);
+
+        mHub.subscribe(mContext, TEST_PACKAGE_NAME, mCallback2, mLocalMediaManager);
+
+        verify(mLocalMediaManager, times(2)).startScan();
+        verify(mLocalMediaManager).stopScan();
+        assertThat(mHub.getSubscriberCount(TEST_PACKAGE_NAME)).isEqualTo(1);
+    }
+
+    @Test
+    public void subscribe_afterDevicesFound_receivesLatestList() {
+        mHub.subscribe(mContext, TEST_PACKAGE_NAME, mCallback1, mLocalMediaManager);
+        captureHubCallback().onDeviceListUpdate(List.of(mMediaDevice));
+
+        mHub.subscribe(mContext, TEST_PACKAGE_NAME, mCallback2, null);
+
+        verify(mCallback2).onDeviceListUpdate(List.of(mMediaDevice));
+    }
+
+    private LocalMediaManager.DeviceCallback captureHubCallback() {
+        final ArgumentCaptor<LocalMediaManager.DeviceCallback> captor =
+                ArgumentCaptor.forClass(LocalMediaManager.DeviceCallback.class);
+        verify(mLocalMediaManager).registerCallback(captor.capture());
+        return captor.getValue();
+    }
+}
@@ -44,6 +44,7 @@ import com.android.settingslib.bluetooth.LocalBluetoothManager;
 import com.android.settingslib.media.LocalMediaManager;
 import com.android.settingslib.media.MediaDevice;
 
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -108,6 +109,11 @@ public class MediaDeviceUpdateWorkerTest {
         doReturn(mResolver).when(mContext).getContentResolver();
     }
 
+    @After
+    public void tearDown() {
+        MediaDeviceDiscoveryHub.getInstance().reset();
+    }
+
     @Test
     public void onDeviceListUpdate_shouldNotifyChange() {
         mMediaDeviceUpdateWorker.onDeviceListUpdate(mMediaDevices);
@@ -42,12 +42,14 @@ import com.android.settings.bluetooth.Utils;
 import com.android.settings.slices.ShadowSliceBackgroundWorker;
 import com.android.settings.testutils.shadow.ShadowBluetoothAdapter;
 import com.android.settings.testutils.shadow.ShadowBluetoothUtils;
+import com.android.settings.testutils.shadow.ShadowThreadUtils;
 import com.android.settingslib.bluetooth.BluetoothEventManager;
 import com.android.settingslib.bluetooth.LocalBluetoothLeBroadcast;
 import com.android.settingslib.bluetooth.LocalBluetoothManager;
 import com.android.settingslib.bluetooth.LocalBluetoothProfileManager;
 import com.android.settingslib.media.LocalMediaManager;
 
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -63,7 +65,7 @@ import java.util.List;
 
 @RunWith(RobolectricTestRunner.class)
 @Config(shadows = {ShadowBluetoothAdapter.class, ShadowBluetoothUtils.class,
-        ShadowSliceBackgroundWorker.class})
+        ShadowSliceBackgroundWorker.class, ShadowThreadUtils.class})
 public class MediaOutputIndicatorWorkerTest {
     private static final Uri URI = Uri.parse("content://com.android.settings.slices/test");
     private static final String TEST_PACKAGE_NAME = "com.android.test";
@@ -112,6 +114,12 @@ public class MediaOutputIndicatorWorkerTest {
         doReturn(mResolver).when(mContext).getContentResolver();
     }
 
+    @After
+    public void tearDown() {
+        ShadowThreadUtils.reset();
+        MediaDeviceDiscoveryHub.getInstance().reset();
+    }
+
     @Test
     public void onSlicePinned_registerCallback() {
         mMediaOutputIndicatorWorker.mLocalMediaManager = mLocalMediaManager;
@@ -125,7 +133,7 @@ public class MediaOutputIndicatorWorkerTest {
 
         verify(mBluetoothEventManager).registerCallback(mMediaOutputIndicatorWorker);
         verify(mContext).registerReceiver(any(BroadcastReceiver.class), any(IntentFilter.class));
-        verify(mLocalMediaManager).registerCallback(mMediaOutputIndicatorWorker);
+        verify(mLocalMediaManager).registerCallback(any(LocalMediaManager.DeviceCallback.class));
         verify(mLocalMediaManager).startScan();
     }
 
@@ -191,7 +199,7 @@ public class MediaOutputIndicatorWorkerTest {
 
         verify(mBluetoothEventManager).unregisterCallback(mMediaOutputIndicatorWorker);
         verify(mContext).unregisterReceiver(any(BroadcastReceiver.class));
-        verify(mLocalMediaManager).unregisterCallback(mMediaOutputIndicatorWorker);
+        verify(mLocalMediaManager).unregisterCallback(any(LocalMediaManager.DeviceCallback.class));
         verify(mLocalMediaManager).stopScan();
     }
 
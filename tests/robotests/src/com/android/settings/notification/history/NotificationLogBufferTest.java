@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.notification.history;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+@RunWith(RobolectricTestRunner.class)
+public class NotificationLogBufferTest {
+
+    private NotificationLogBuffer<String> mBuffer;
+
+    @Before
+    public void setUp() {
+        mBuffer = new NotificationLogBuffer<>(3);
+    }
+
+    @Test
+    public void addFirst_notFull_keepsNewestFirst() {
+        assertThat(mBuffer.addFirst("a", "a1")).isNull();
+        assertThat(mBuffer.addFirst("b", "b1")).isNull();
+
+        assertThat(mBuffer.size()).isEqualTo(2);
+        assertThat(mBuffer.get(0)).isEqualTo("b1");
+        assertThat(mBuffer.get(1)).isEqualTo("a1");
+    }
+
+    @Test
+    public void addFirst_full_evictsOldest() {
+        mBuffer.addFirst("a", "a1");
+        mBuffer.addFirst("b", "b1");
+        mBuffer.addFirst("c", "c1");
+
+        assertThat(mBuffer.addFirst("d", "d1")).isEqualTo("a1");
+
+        assertThat(mBuffer.size()).isEqualTo(3);
+        assertThat(mBuffer.get(0)).isEqualTo("d1");
+        assertThat(mBuffer.get(2)).isEqualTo("b1");
+        assertThat(mBuffer.getNewest("a")).isNull();
+    }
+
+    @Test
+    public void getNewest_repostedKey_returnsLatestEntry() {
+        mBuffer.addFirst("a", "a1");
+        mBuffer.addFirst("b", "b1");
+        mBuffer.addFirst("a", "a2");
+
+        assertThat(mBuffer.getNewest("a")).isEqualTo("a2");
+    }
+
+    @Test
+    public void getNewest_olderEntryWithSameKeyEvicted_keepsNewerEntry() {
+        mBuffer.addFirst("a", "a1");
+        mBuffer.addFirst("b", "b1");
+        mBuffer.addFirst("a", "a2");
+
+        mBuffer.addFirst("c", "c1");
+
+        assertThat(mBuffer.getNewest("a")).isEqualTo("a2");
+    }
+}
@@ -214,6 +214,36 @@ public class PanelSlicesAdapterTest {
         verify(viewHolder).updateActionLabel();
     }
 
+    @Test
+    public void onBindViewHolder_slicePending_bindsPlaceholder() {
+        final LiveData<Slice> liveData = mock(LiveData.class);
+        mData.put(VOLUME_NOTIFICATION_URI, liveData);
+        doReturn(true).when(mPanelFragment).isSlicePending(VOLUME_NOTIFICATION_URI);
+
+        final PanelSlicesAdapter adapter =
+                new PanelSlicesAdapter(mPanelFragment, mData, 0);
+        final ViewGroup view = new FrameLayout(mContext);
+        final SliceRowViewHolder viewHolder = adapter.onCreateViewHolder(view, 0);
+        adapter.onBindViewHolder(viewHolder, 0);
+
+        assertThat(viewHolder.sliceView.getVisibility()).isEqualTo(View.INVISIBLE);
+        assertThat(viewHolder.itemView.getMinimumHeight()).isEqualTo(
+                mContext.getResources().getDimensionPixelSize(
+                        R.dimen.panel_slice_placeholder_height));
+    }
+
+    @Test
+    public void getSlicePosition_sliceRemoved_returnsMinusOne() {
+        addTestLiveData(VOLUME_NOTIFICATION_URI);
+        final PanelSlicesAdapter adapter =
+                new PanelSlicesAdapter(mPanelFragment, mData, 0);
+
+        mData.remove(VOLUME_NOTIFICATION_URI);
+        adapter.setSliceLiveData(mData);
+
+        assertThat(adapter.getSlicePosition(VOLUME_NOTIFICATION_URI)).isEqualTo(-1);
+    }
+
     @Test
     public void onCreateViewHolder_viewTypeSlider_verifyLayout() {
         final PanelSlicesAdapter adapter =
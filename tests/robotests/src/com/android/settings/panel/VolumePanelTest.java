@@ -67,6 +67,13 @@ public class VolumePanelTest {
                 CustomSliceRegistry.VOLUME_ALARM_URI);
     }
 
+    @Test
+    public void getPrioritySlices_includesRemoteMediaSlice() {
+        assertThat(mPanel.getPrioritySlices()).containsExactly(
+                CustomSliceRegistry.REMOTE_MEDIA_SLICE_URI,
+                CustomSliceRegistry.VOLUME_MEDIA_URI);
+    }
+
     @Test
     public void getSeeMoreIntent_notNull() {
         assertThat(mPanel.getSeeMoreIntent()).isNotNull();
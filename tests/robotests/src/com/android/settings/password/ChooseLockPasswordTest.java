@@ -42,6 +42,7 @@ import android.app.admin.DevicePolicyManager.PasswordComplexity;
 import android.app.admin.PasswordMetrics;
 import android.app.admin.PasswordPolicy;
 import android.content.Intent;
+import android.os.Looper;
 import android.os.UserHandle;
 import android.view.View;
 import android.widget.CheckBox;
@@ -69,6 +70,8 @@ import org.robolectric.Shadows;
 import org.robolectric.annotation.Config;
 import org.robolectric.shadows.ShadowDrawable;
 
+import java.time.Duration;
+
 @RunWith(RobolectricTestRunner.class)
 @Config(shadows = {
         SettingsShadowResources.class,
@@ -515,6 +518,48 @@ public class ChooseLockPasswordTest {
         assertThat(pinAutoConfirmOption.isChecked()).isFalse();
     }
 
+    @Test
+    public void updateUi_passwordInHistory_checkedInBackgroundAfterTypingPauses() {
+        ShadowLockPatternUtils.setPasswordInHistory(true);
+        ChooseLockPassword passwordActivity = setupActivityWithPinTypeAndDefaultPolicy();
+        ChooseLockPasswordFragment fragment = getChooseLockPasswordFragment(passwordActivity);
+        fragment.setPasswordHistoryExecutor(Runnable::run);
+        ScrollToParentEditText passwordEntry = passwordActivity.findViewById(R.id.password_entry);
+
+        passwordEntry.setText("123456");
+        fragment.updateUi();
+        assertThat(ShadowLockPatternUtils.getPasswordHistoryCheckCount()).isEqualTo(0);
+
+        Shadows.shadowOf(Looper.getMainLooper()).idleFor(Duration.ofMillis(
+                ChooseLockPasswordFragment.PASSWORD_HISTORY_CHECK_DELAY_MILLIS));
+        assertThat(ShadowLockPatternUtils.getPasswordHistoryCheckCount()).isEqualTo(1);
+
+        // The final check reuses the verdict instead of asking again.
+        assertThat(fragment.validatePassword(LockscreenCredential.createPin("123456")))
+                .isFalse();
+        assertThat(ShadowLockPatternUtils.getPasswordHistoryCheckCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void updateUi_typingContinues_onlyChecksLatestPassword() {
+        ChooseLockPassword passwordActivity = setupActivityWithPinTypeAndDefaultPolicy();
+        ChooseLockPasswordFragment fragment = getChooseLockPasswordFragment(passwordActivity);
+        fragment.setPasswordHistoryExecutor(Runnable::run);
+        ScrollToParentEditText passwordEntry = passwordActivity.findViewById(R.id.password_entry);
+
+        passwordEntry.setText("123456");
+        fragment.updateUi();
+        passwordEntry.setText("1234567");
+        fragment.updateUi();
+        Shadows.shadowOf(Looper.getMainLooper()).idleFor(Duration.ofMillis(
+                ChooseLockPasswordFragment.PASSWORD_HISTORY_CHECK_DELAY_MILLIS));
+
+        assertThat(ShadowLockPatternUtils.getPasswordHistoryCheckCount()).isEqualTo(1);
+        assertThat(fragment.validatePassword(LockscreenCredential.createPin("1234567")))
+                .isTrue();
+        assertThat(ShadowLockPatternUtils.getPasswordHistoryCheckCount()).isEqualTo(1);
+    }
+
     private ChooseLockPassword setupActivityWithPinTypeAndDefaultPolicy() {
         PasswordPolicy policy = new PasswordPolicy();
         policy.quality = PASSWORD_QUALITY_UNSPECIFIED;
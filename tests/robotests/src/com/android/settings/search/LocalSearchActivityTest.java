@@ -0,0 +1,59 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.search;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.content.Context;
+import android.content.Intent;
+
+import com.android.settings.SettingsActivity;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+@RunWith(RobolectricTestRunner.class)
+public class LocalSearchActivityTest {
+
+    private final Context mContext = RuntimeEnvironment.application;
+
+    @Test
+    public void buildResultIntent_fragmentResult_goesThroughTrampoline() {
+        final Intent intent = LocalSearchActivity.buildResultIntent(mContext,
+                new LocalSearchIndex.Document("key", "Title", null, null, null,
+                        "com.example.Fragment", null, null, null, 0, false));
+
+        assertThat(intent.getComponent().getClassName())
+                .isEqualTo(SearchResultTrampoline.class.getName());
+        assertThat(intent.getStringExtra(SettingsActivity.EXTRA_SHOW_FRAGMENT))
+                .isEqualTo("com.example.Fragment");
+        assertThat(intent.getStringExtra(SettingsActivity.EXTRA_FRAGMENT_ARG_KEY))
+                .isEqualTo("key");
+    }
+
+    @Test
+    public void buildResultIntent_intentResult_targetsClass() {
+        final Intent intent = LocalSearchActivity.buildResultIntent(mContext,
+                new LocalSearchIndex.Document("key", "Title", null, null, null, null,
+                        "com.example.ACTION", "com.example", "com.example.Activity", 0, false));
+
+        assertThat(intent.getAction()).isEqualTo("com.example.ACTION");
+        assertThat(intent.getComponent().getClassName()).isEqualTo("com.example.Activity");
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.search;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+@RunWith(RobolectricTestRunner.class)
+public class LocalSearchIndexTest {
+
+    private LocalSearchIndex mIndex;
+
+    @Before
+    public void setUp() {
+        mIndex = LocalSearchIndex.build(List.of(
+                document("wifi", "Wi-Fi", "Connect to networks", "wireless internet"),
+                document("bluetooth", "Bluetooth", "Pair new device", null),
+                document("brightness", "Brightness level", "Adjust the screen", null),
+                document("display", "Display", "Brightness, dark theme", null),
+                document("accent", "Café mode", null, null)));
+    }
+
+    @Test
+    public void tokenize_lowerCasesAndStripsAccents() {
+        final List<String> tokens = new ArrayList<>();
+
+        LocalSearchIndex.tokenize("Café, Wi-Fi!", tokens);
+
+        assertThat(tokens).containsExactly("cafe", "wi", "fi").inOrder();
+    }
+
+    @Test
+    public void query_prefix_matches() {
+        assertThat(keys(mIndex.query("blue", 10))).containsExactly("bluetooth");
+    }
+
+    @Test
+    public void query_keyword_matches() {
+        assertThat(keys(mIndex.query("internet", 10))).containsExactly("wifi");
+    }
+
+    @Test
+    public void query_typo_matchesFuzzily() {
+        assertThat(keys(mIndex.query("bluetoth", 10))).containsExactly("bluetooth");
+    }
+
+    @Test
+    public void query_accentInsensitive() {
+        assertThat(keys(mIndex.query("cafe", 10))).containsExactly("accent");
+    }
+
+    @Test
+    public void query_everyTokenMustMatch() {
+        assertThat(keys(mIndex.query("brightness screen", 10))).containsExactly("brightness");
+    }
+
+    @Test
+    public void query_titleMatch_ranksAboveSummaryMatch() {
+        assertThat(keys(mIndex.query("brightness", 10)))
+                .containsExactly("brightness", "display").inOrder();
+    }
+
+    @Test
+    public void query_hiddenKey_isSkipped() {
+        mIndex.setHiddenKeys(Set.of("brightness"));
+
+        assertThat(keys(mIndex.query("brightness", 10))).containsExactly("display");
+    }
+
+    @Test
+    public void query_chineseText_matchesInsideWords() {
+        final LocalSearchIndex index = LocalSearchIndex.build(List.of(
+                document("bluetooth", "打开蓝牙设备", null, null)));
+
+        assertThat(keys(index.query("蓝牙", 10))).containsExactly("bluetooth");
+    }
+
+    @Test
+    public void query_withDynamicIndex_searchesBothIndexes() {
+        final LocalSearchIndex index = mIndex.withDynamicIndex(LocalSearchIndex.build(List.of(
+                document("bluetooth_device", "Bluetooth headset", null, null))));
+
+        assertThat(keys(index.query("bluetooth", 10)))
+                .containsExactly("bluetooth", "bluetooth_device").inOrder();
+        assertThat(index.getDocuments()).isSameInstanceAs(mIndex.getDocuments());
+    }
+
+    @Test
+    public void query_withDynamicIndex_hidesKeysOfBothIndexes() {
+        final LocalSearchIndex index = mIndex.withDynamicIndex(LocalSearchIndex.build(List.of(
+                document("bluetooth_device", "Bluetooth headset", null, null))));
+
+        index.setHiddenKeys(Set.of("bluetooth", "bluetooth_device"));
+
+        assertThat(index.query("bluetooth", 10)).isEmpty();
+        assertThat(keys(mIndex.query("bluetooth", 10))).containsExactly("bluetooth");
+    }
+
+    @Test
+    public void query_emptyQuery_returnsNothing() {
+        assertThat(mIndex.query("  ", 10)).isEmpty();
+    }
+
+    @Test
+    public void writeTo_readFrom_keepsDocumentsAndPostingsOnly() throws IOException {
+        mIndex.setHiddenKeys(Set.of("display"));
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        mIndex.writeTo(new DataOutputStream(bytes));
+
+        final LocalSearchIndex index = LocalSearchIndex.readFrom(
+                new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        assertThat(index.getDocuments()).hasSize(mIndex.getDocuments().size());
+        assertThat(index.getHiddenKeys()).isEmpty();
+        assertThat(keys(index.query("bright", 10))).containsExactly("brightness");
+        assertThat(index.query("bluetooth", 10).get(0).mSummary).isEqualTo("Pair new device");
+    }
+
+    @Test
+    public void editDistance_stopsAboveMax() {
+        assertThat(LocalSearchIndex.editDistance("display", "dispaly", 2)).isEqualTo(2);
+        assertThat(LocalSearchIndex.editDistance("display", "sound", 1)).isEqualTo(2);
+    }
+
+    private static LocalSearchIndex.Document document(String key, String title, String summary,
+            String keywords) {
+        return new LocalSearchIndex.Document(key, title, summary, keywords,
+                /* screenTitle= */ null, "com.example.Fragment", /* intentAction= */ null,
+                /* intentTargetPackage= */ null, /* intentTargetClass= */ null,
+                /* iconResId= */ 0, /* dynamic= */ false);
+    }
+
+    private static List<String> keys(List<LocalSearchIndex.Document> documents) {
+        final List<String> keys = new ArrayList<>();
+        for (LocalSearchIndex.Document document : documents) {
+            keys.add(document.mKey);
+        }
+        return keys;
+    }
+}
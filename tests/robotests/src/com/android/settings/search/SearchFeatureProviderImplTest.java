@@ -89,7 +89,7 @@ public class SearchFeatureProviderImplTest {
 
     @Test
     @Config(shadows = ShadowUtils.class)
-    public void initSearchToolbar_noResolvedInfo_shouldNotStartActivity() {
+    public void initSearchToolbar_noResolvedInfo_shouldStartLocalSearch() {
         final Toolbar toolbar = new Toolbar(mActivity);
         // This ensures navigationView is created.
         toolbar.setNavigationContentDescription("test");
@@ -97,7 +97,9 @@ public class SearchFeatureProviderImplTest {
 
         toolbar.performClick();
 
-        assertThat(Shadows.shadowOf(mActivity).getNextStartedActivity()).isNull();
+        final Intent launchIntent = Shadows.shadowOf(mActivity).getNextStartedActivity();
+        assertThat(launchIntent.getComponent().getClassName())
+                .isEqualTo(LocalSearchActivity.class.getName());
     }
 
     @Test
@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.slices;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.net.Uri;
+import android.os.SystemClock;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+@RunWith(RobolectricTestRunner.class)
+public class PinnedSliceStoreTest {
+
+    private PinnedSliceStore mStore;
+
+    @Before
+    public void setUp() {
+        mStore = new PinnedSliceStore(RuntimeEnvironment.application);
+    }
+
+    @Test
+    public void add_persistsAcrossInstances() {
+        mStore.add(uri(0));
+
+        assertThat(new PinnedSliceStore(RuntimeEnvironment.application).getUris())
+                .containsExactly(uri(0));
+    }
+
+    @Test
+    public void add_sameUriTwice_keepsOneEntry() {
+        mStore.add(uri(0));
+        mStore.add(uri(0));
+
+        assertThat(mStore.getUris()).containsExactly(uri(0));
+    }
+
+    @Test
+    public void add_overLimit_dropsLeastRecentlyPinned() {
+        for (int i = 0; i <= PinnedSliceStore.MAX_URIS; i++) {
+            mStore.add(uri(i));
+            SystemClock.sleep(1);
+        }
+
+        assertThat(mStore.getUris()).hasSize(PinnedSliceStore.MAX_URIS);
+        assertThat(mStore.contains(uri(0))).isFalse();
+        assertThat(mStore.contains(uri(PinnedSliceStore.MAX_URIS))).isTrue();
+    }
+
+    @Test
+    public void add_pinnedRecently_keepsStoredTime() {
+        mStore.add(uri(0));
+        final long pinnedTime = getPrefs().getLong(uri(0).toString(), 0);
+
+        SystemClock.sleep(1000);
+        mStore.add(uri(0));
+
+        assertThat(getPrefs().getLong(uri(0).toString(), 0)).isEqualTo(pinnedTime);
+    }
+
+    @Test
+    public void add_pinnedLongAgo_updatesStoredTime() {
+        mStore.add(uri(0));
+        final long pinnedTime = getPrefs().getLong(uri(0).toString(), 0);
+
+        SystemClock.sleep(PinnedSliceStore.REFRESH_INTERVAL_MS);
+        mStore.add(uri(0));
+
+        assertThat(getPrefs().getLong(uri(0).toString(), 0)).isGreaterThan(pinnedTime);
+    }
+
+    private static SharedPreferences getPrefs() {
+        return RuntimeEnvironment.application.getSharedPreferences(PinnedSliceStore.PREFS_NAME,
+                Context.MODE_PRIVATE);
+    }
+
+    private static Uri uri(int index) {
+        return Uri.parse("content://" + SettingsSliceProvider.SLICE_AUTHORITY + "/action/key"
+                + index);
+    }
+}
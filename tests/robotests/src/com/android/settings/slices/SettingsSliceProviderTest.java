@@ -33,6 +33,7 @@ import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -149,7 +150,8 @@ public class SettingsSliceProviderTest {
 
         mProvider = spy(new SettingsSliceProvider());
         ShadowStrictMode.reset();
-        mProvider.mSliceWeakDataCache = new HashMap<>();
+        mProvider.mSliceDataCache = new HashMap<>();
+        mProvider.mPinnedSliceStore = new PinnedSliceStore(mContext);
         mProvider.mSlicesDatabaseAccessor = new SlicesDatabaseAccessor(mContext);
         when(mProvider.getContext()).thenReturn(mContext);
 
@@ -185,7 +187,7 @@ public class SettingsSliceProviderTest {
         SliceTestUtils.insertSliceToDb(mContext, KEY);
 
         mProvider.loadSlice(INTENT_SLICE_URI);
-        SliceData data = mProvider.mSliceWeakDataCache.get(INTENT_SLICE_URI);
+        SliceData data = mProvider.mSliceDataCache.get(INTENT_SLICE_URI);
 
         assertThat(data.getKey()).isEqualTo(KEY);
         assertThat(data.getTitle()).isEqualTo(SliceTestUtils.FAKE_TITLE);
@@ -216,15 +218,72 @@ public class SettingsSliceProviderTest {
     }
 
     @Test
-    public void testLoadSlice_cachedEntryRemovedOnUnpinned() {
+    public void testLoadSlice_cachedEntryKeptOnUnpinned() {
         SliceData data = getMockData();
-        mProvider.mSliceWeakDataCache.put(data.getUri(), data);
+        mProvider.mSliceDataCache.put(data.getUri(), data);
+        mProvider.mLoadedUris.add(data.getUri());
         mProvider.onSliceUnpinned(data.getUri());
-        SliceTestUtils.insertSliceToDb(mContext, data.getKey());
 
-        SliceData cachedData = mProvider.mSliceWeakDataCache.get(data.getUri());
+        assertThat(mProvider.mSliceDataCache.get(data.getUri())).isEqualTo(data);
+        assertThat(mProvider.mLoadedUris).doesNotContain(data.getUri());
+    }
+
+    @Test
+    public void loadSlice_cachedButNotLoaded_registersIntentFilterAgain() {
+        SliceTestUtils.insertSliceToDb(mContext, KEY);
+        mProvider.loadSlice(INTENT_SLICE_URI);
+        mProvider.onSliceUnpinned(INTENT_SLICE_URI);
+
+        mProvider.loadSlice(INTENT_SLICE_URI);
+
+        verify(mProvider, times(2))
+                .registerIntentToUri(eq(FakeToggleController.INTENT_FILTER), eq(INTENT_SLICE_URI));
+    }
+
+    @Test
+    public void onSlicePinned_rememberedInPinnedSliceStore() {
+        SliceTestUtils.insertSliceToDb(mContext, KEY);
+
+        mProvider.onSlicePinned(INTENT_SLICE_URI);
 
-        assertThat(cachedData).isNull();
+        assertThat(new PinnedSliceStore(mContext).contains(INTENT_SLICE_URI)).isTrue();
+    }
+
+    @Test
+    public void warmUpPinnedSlices_loadsSliceDataOfPinnedSlices() {
+        SliceTestUtils.insertSliceToDb(mContext, KEY);
+        mProvider.mPinnedSliceStore.add(INTENT_SLICE_URI);
+
+        mProvider.warmUpPinnedSlices();
+
+        assertThat(mProvider.mSliceDataCache.get(INTENT_SLICE_URI).getKey()).isEqualTo(KEY);
+        assertThat(mProvider.mLoadedUris).isEmpty();
+    }
+
+    @Test
+    public void clearSliceDataCacheIfStale_indexRebuilt_clearsCache() {
+        mProvider.clearSliceDataCacheIfStale();
+        final SliceData data = getMockData();
+        mProvider.mSliceDataCache.put(data.getUri(), data);
+
+        mProvider.clearSliceDataCacheIfStale();
+        assertThat(mProvider.mSliceDataCache).isNotEmpty();
+
+        SlicesDatabaseHelper.getInstance(mContext).setIndexedState();
+        mProvider.clearSliceDataCacheIfStale();
+        assertThat(mProvider.mSliceDataCache).isEmpty();
+    }
+
+    @Test
+    public void onBindSlice_backgroundThreadPinnedBefore_returnsFullSlice() {
+        ShadowThreadUtils.setIsMainThread(false);
+        SliceTestUtils.insertSliceToDb(mContext, KEY);
+        mProvider.mPinnedSliceStore.add(INTENT_SLICE_URI);
+
+        final Slice slice = mProvider.onBindSlice(INTENT_SLICE_URI);
+
+        assertThat(slice.getUri()).isEqualTo(INTENT_SLICE_URI);
+        assertThat(slice.getItems()).isNotEmpty();
     }
 
     @Test
@@ -232,7 +291,7 @@ public class SettingsSliceProviderTest {
         ShadowThreadUtils.setIsMainThread(true);
         final StrictMode.ThreadPolicy oldThreadPolicy = StrictMode.getThreadPolicy();
         SliceData data = getMockData();
-        mProvider.mSliceWeakDataCache.put(data.getUri(), data);
+        mProvider.mSliceDataCache.put(data.getUri(), data);
         mProvider.onBindSlice(data.getUri());
 
         final StrictMode.ThreadPolicy newThreadPolicy = StrictMode.getThreadPolicy();
@@ -246,7 +305,7 @@ public class SettingsSliceProviderTest {
         ShadowThreadUtils.setIsMainThread(false);
 
         SliceData data = getMockData();
-        mProvider.mSliceWeakDataCache.put(data.getUri(), data);
+        mProvider.mSliceDataCache.put(data.getUri(), data);
         mProvider.onBindSlice(data.getUri());
 
         assertThat(ShadowStrictMode.isThreadPolicyOverridden()).isTrue();
@@ -274,7 +333,7 @@ public class SettingsSliceProviderTest {
     public void onBindSlice_nightModeChanged_shouldReloadTheme() {
         mContext.getResources().getConfiguration().uiMode = UI_MODE_NIGHT_NO;
         final SliceData data = getMockData();
-        mProvider.mSliceWeakDataCache.put(data.getUri(), data);
+        mProvider.mSliceDataCache.put(data.getUri(), data);
         mProvider.onBindSlice(data.getUri());
 
         mContext.getResources().getConfiguration().uiMode = UI_MODE_NIGHT_YES;
@@ -287,7 +346,7 @@ public class SettingsSliceProviderTest {
     public void onBindSlice_nightModeNotChanged_shouldNotReloadTheme() {
         mContext.getResources().getConfiguration().uiMode = UI_MODE_NIGHT_NO;
         SliceData data = getMockData();
-        mProvider.mSliceWeakDataCache.put(data.getUri(), data);
+        mProvider.mSliceDataCache.put(data.getUri(), data);
         mProvider.onBindSlice(data.getUri());
 
         mContext.getResources().getConfiguration().uiMode = UI_MODE_NIGHT_NO;
@@ -0,0 +1,152 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.users;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.drawable.Drawable;
+import android.os.UserManager;
+
+import com.android.settings.R;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@RunWith(RobolectricTestRunner.class)
+public class UserAvatarCacheTest {
+
+    private static final int USER_ID = 10;
+
+    private Context mContext;
+    private UserManager mUserManager;
+    private UserAvatarCache mCache;
+
+    @Before
+    public void setUp() {
+        mContext = spy(RuntimeEnvironment.application);
+        mUserManager = mock(UserManager.class);
+        doReturn(mUserManager).when(mContext).getSystemService(UserManager.class);
+        doReturn(createIcon()).when(mUserManager).getUserIcon(anyInt());
+        mCache = new UserAvatarCache(UserAvatarCache.MAX_CACHE_BYTES, Runnable::run);
+    }
+
+    @Test
+    public void get_notLoaded_returnsNull() {
+        assertThat(mCache.get(mContext, USER_ID)).isNull();
+    }
+
+    @Test
+    public void put_returnsAvatarAndCachesIt() {
+        final Drawable avatar = mCache.put(mContext, USER_ID, createIcon());
+
+        assertThat(avatar).isNotNull();
+        assertThat(mCache.get(mContext, USER_ID)).isNotNull();
+    }
+
+    @Test
+    public void invalidate_dropsCachedAvatar() {
+        mCache.put(mContext, USER_ID, createIcon());
+
+        mCache.invalidate(USER_ID);
+
+        assertThat(mCache.get(mContext, USER_ID)).isNull();
+        assertThat(mCache.getEntryCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void loadAsync_missingAvatar_loadsAndNotifiesPerUser() {
+        final UserAvatarCache.OnAvatarLoadedListener listener =
+                mock(UserAvatarCache.OnAvatarLoadedListener.class);
+
+        mCache.loadAsync(mContext, List.of(USER_ID, USER_ID + 1), listener);
+
+        verify(listener).onAvatarLoaded(eq(USER_ID), any(Drawable.class));
+        verify(listener).onAvatarLoaded(eq(USER_ID + 1), any(Drawable.class));
+        assertThat(mCache.get(mContext, USER_ID)).isNotNull();
+    }
+
+    @Test
+    public void loadAsync_cachedAvatar_doesNotReload() {
+        mCache.put(mContext, USER_ID, createIcon());
+        final UserAvatarCache.OnAvatarLoadedListener listener =
+                mock(UserAvatarCache.OnAvatarLoadedListener.class);
+
+        mCache.loadAsync(mContext, List.of(USER_ID), listener);
+
+        verify(mUserManager, never()).getUserIcon(USER_ID);
+        verify(listener, never()).onAvatarLoaded(anyInt(), any(Drawable.class));
+    }
+
+    @Test
+    public void loadAsync_invalidatedWhileLoading_loadsNewAvatar() {
+        final UserAvatarCache.OnAvatarLoadedListener listener =
+                mock(UserAvatarCache.OnAvatarLoadedListener.class);
+        final List<Runnable> pending = new ArrayList<>();
+        final UserAvatarCache cache = new UserAvatarCache(UserAvatarCache.MAX_CACHE_BYTES,
+                pending::add);
+        cache.loadAsync(mContext, List.of(USER_ID), listener);
+
+        cache.invalidate(USER_ID);
+        pending.remove(0).run();
+
+        // The stale avatar is dropped and the load started again.
+        verify(listener, never()).onAvatarLoaded(anyInt(), any(Drawable.class));
+        assertThat(cache.get(mContext, USER_ID)).isNull();
+        assertThat(pending).hasSize(1);
+
+        pending.remove(0).run();
+
+        verify(listener).onAvatarLoaded(eq(USER_ID), any(Drawable.class));
+        assertThat(cache.get(mContext, USER_ID)).isNotNull();
+    }
+
+    @Test
+    public void put_overBudget_evictsLeastRecentlyUsed() {
+        final Bitmap icon = createIcon();
+        final int size = mContext.getResources().getDimensionPixelSize(
+                R.dimen.multiple_users_user_icon_size);
+        // Room for exactly one ARGB_8888 avatar.
+        final UserAvatarCache cache = new UserAvatarCache(size * size * 4, Runnable::run);
+
+        cache.put(mContext, USER_ID, icon);
+        cache.put(mContext, USER_ID + 1, icon);
+
+        assertThat(cache.get(mContext, USER_ID)).isNull();
+        assertThat(cache.get(mContext, USER_ID + 1)).isNotNull();
+    }
+
+    private static Bitmap createIcon() {
+        return Bitmap.createBitmap(100, 100, Bitmap.Config.ARGB_8888);
+    }
+}
@@ -45,6 +45,8 @@ import android.content.pm.PackageManager;
 import android.content.pm.ResolveInfo;
 import android.content.pm.UserInfo;
 import android.graphics.Bitmap;
+import android.graphics.Color;
+import android.graphics.drawable.ColorDrawable;
 import android.graphics.drawable.Drawable;
 import android.os.Bundle;
 import android.os.Looper;
@@ -194,6 +196,8 @@ public class UserSettingsTest {
         mFragment.mGuestCategory = mock(PreferenceCategory.class);
         mFragment.mGuestResetPreference = mock(Preference.class);
         mFragment.mGuestExitPreference = mock(Preference.class);
+        mFragment.mAvatarCache = new UserAvatarCache(UserAvatarCache.MAX_CACHE_BYTES,
+                Runnable::run);
     }
 
     @After
@@ -700,7 +704,7 @@ public class UserSettingsTest {
         UserInfo currentUser = getAdminUser(true);
         currentUser.iconPath = "/data/system/users/0/photo.png";
         givenUsers(currentUser);
-        mFragment.mUserIcons.put(ACTIVE_USER_ID,
+        mFragment.mAvatarCache.put(mActivity, ACTIVE_USER_ID,
                 Bitmap.createBitmap(100, 200, Bitmap.Config.ARGB_8888));
 
         mFragment.updateUserList();
@@ -716,8 +720,9 @@ public class UserSettingsTest {
         UserInfo currentUser = getAdminUser(true);
         currentUser.iconPath = "/data/system/users/0/photo.png";
         givenUsers(currentUser);
-        // create a non-empty sparsearray
-        mFragment.mUserIcons.put(5, Bitmap.createBitmap(100, 200, Bitmap.Config.ARGB_8888));
+        // create a non-empty cache
+        mFragment.mAvatarCache.put(mActivity, 5,
+                Bitmap.createBitmap(100, 200, Bitmap.Config.ARGB_8888));
         Bitmap userIcon = Bitmap.createBitmap(100, 200, Bitmap.Config.ARGB_8888);
         doReturn(userIcon).when(mUserManager).getUserIcon(ACTIVE_USER_ID);
 
@@ -725,8 +730,30 @@ public class UserSettingsTest {
         shadowOf(Looper.getMainLooper()).idle();
 
         verify(mUserManager).getUserIcon(ACTIVE_USER_ID);
-        // updateUserList should be called another time after loading the icons
-        verify(mUserManager, times(2)).getAliveUsers();
+        // only the affected preference is updated, the list is not rebuilt
+        verify(mUserManager).getAliveUsers();
+    }
+
+    @Test
+    public void onUserAvatarLoaded_otherUser_updatesOnlyThatPreference() {
+        final UserPreference otherUser = mock(UserPreference.class);
+        doReturn(otherUser).when(mFragment.mUserListCategory).findPreference("id=" + 5);
+        final Drawable avatar = new ColorDrawable(Color.RED);
+
+        mFragment.onUserAvatarLoaded(5, avatar);
+
+        verify(otherUser).setIcon(avatar);
+        verify(mMePreference, never()).setIcon(any(Drawable.class));
+        verify(mUserManager, never()).getAliveUsers();
+    }
+
+    @Test
+    public void onUserAvatarLoaded_currentUser_updatesMePreference() {
+        final Drawable avatar = new ColorDrawable(Color.RED);
+
+        mFragment.onUserAvatarLoaded(UserHandle.myUserId(), avatar);
+
+        verify(mMePreference).setIcon(avatar);
     }
 
     @Test
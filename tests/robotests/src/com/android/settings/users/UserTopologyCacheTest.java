@@ -0,0 +1,110 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.users;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import android.content.Context;
+import android.content.Intent;
+import android.content.pm.UserInfo;
+import android.os.UserHandle;
+import android.os.UserManager;
+
+import com.android.settings.Utils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.List;
+
+@RunWith(RobolectricTestRunner.class)
+public class UserTopologyCacheTest {
+
+    private static final int PARENT_ID = UserHandle.USER_SYSTEM;
+    private static final int WORK_ID = 10;
+
+    private Context mContext;
+    private UserManager mUserManager;
+    private UserTopologyCache mCache;
+
+    @Before
+    public void setUp() {
+        mContext = RuntimeEnvironment.application;
+        mUserManager = mock(UserManager.class);
+        when(mUserManager.getProcessUserId()).thenReturn(PARENT_ID);
+        when(mUserManager.getProfiles(PARENT_ID)).thenReturn(List.of(
+                new UserInfo(PARENT_ID, "Owner", UserInfo.FLAG_PRIMARY),
+                new UserInfo(WORK_ID, "Work", UserInfo.FLAG_MANAGED_PROFILE)));
+        mCache = new UserTopologyCache();
+        UserTopologyCache.setInstance(mCache);
+    }
+
+    @After
+    public void tearDown() {
+        UserTopologyCache.setInstance(null);
+    }
+
+    @Test
+    public void getProfiles_calledTwice_enumeratesOnce() {
+        mCache.getProfiles(mUserManager, PARENT_ID);
+        final List<UserInfo> profiles = mCache.getProfiles(mUserManager, PARENT_ID);
+
+        assertThat(profiles).hasSize(2);
+        verify(mUserManager, times(1)).getProfiles(PARENT_ID);
+    }
+
+    @Test
+    public void onReceive_profileChanged_enumeratesAgain() {
+        mCache.getProfiles(mUserManager, PARENT_ID);
+
+        mCache.getReceiver().onReceive(mContext, new Intent(Intent.ACTION_MANAGED_PROFILE_ADDED));
+        mCache.getProfiles(mUserManager, PARENT_ID);
+
+        verify(mUserManager, times(2)).getProfiles(PARENT_ID);
+    }
+
+    @Test
+    public void utilsProfileLookups_shareOneEnumeration() {
+        assertThat(Utils.getManagedProfile(mUserManager)).isEqualTo(UserHandle.of(WORK_ID));
+        assertThat(Utils.getManagedProfileId(mUserManager, PARENT_ID)).isEqualTo(WORK_ID);
+        assertThat(Utils.getManagedProfileWithDisabled(mUserManager))
+                .isEqualTo(UserHandle.of(WORK_ID));
+
+        verify(mUserManager, times(1)).getProfiles(PARENT_ID);
+    }
+
+    @Test
+    public void getManagedProfile_disabledProfile_returnsNull() {
+        when(mUserManager.getProfiles(PARENT_ID)).thenReturn(List.of(
+                new UserInfo(PARENT_ID, "Owner", UserInfo.FLAG_PRIMARY),
+                new UserInfo(WORK_ID, "Work",
+                        UserInfo.FLAG_MANAGED_PROFILE | UserInfo.FLAG_DISABLED)));
+
+        assertThat(Utils.getManagedProfile(mUserManager)).isNull();
+        assertThat(Utils.getManagedProfileWithDisabled(mUserManager))
+                .isEqualTo(UserHandle.of(WORK_ID));
+    }
+}
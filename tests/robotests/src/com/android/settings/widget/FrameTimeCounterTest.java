@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.widget;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.os.SystemClock;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.concurrent.TimeUnit;
+
+@RunWith(RobolectricTestRunner.class)
+public class FrameTimeCounterTest {
+
+    private static final String TAG = "FrameTimeCounterTest";
+
+    @Test
+    public void onFrameEnd_enabled_countsFrameTimes() {
+        final FrameTimeCounter counter = new FrameTimeCounter(TAG, /* enabled= */ true);
+
+        counter.onFrameStart();
+        SystemClock.sleep(2);
+        counter.onFrameEnd();
+        counter.onFrameStart();
+        SystemClock.sleep(4);
+        counter.onFrameEnd();
+
+        assertThat(counter.getFrameCount()).isEqualTo(2);
+        assertThat(counter.getAverageFrameNanos()).isEqualTo(TimeUnit.MILLISECONDS.toNanos(3));
+        assertThat(counter.getMaxFrameNanos()).isEqualTo(TimeUnit.MILLISECONDS.toNanos(4));
+    }
+
+    @Test
+    public void onFrameEnd_withoutStart_isIgnored() {
+        final FrameTimeCounter counter = new FrameTimeCounter(TAG, /* enabled= */ true);
+
+        counter.onFrameEnd();
+
+        assertThat(counter.getFrameCount()).isEqualTo(0);
+        assertThat(counter.getAverageFrameNanos()).isEqualTo(0);
+    }
+
+    @Test
+    public void onFrameEnd_disabled_countsNothing() {
+        final FrameTimeCounter counter = new FrameTimeCounter(TAG, /* enabled= */ false);
+
+        counter.onFrameStart();
+        SystemClock.sleep(2);
+        counter.onFrameEnd();
+
+        assertThat(counter.getFrameCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void reset_clearsCountedFrames() {
+        final FrameTimeCounter counter = new FrameTimeCounter(TAG, /* enabled= */ true);
+        counter.onFrameStart();
+        SystemClock.sleep(2);
+        counter.onFrameEnd();
+
+        counter.reset();
+
+        assertThat(counter.getFrameCount()).isEqualTo(0);
+        assertThat(counter.getMaxFrameNanos()).isEqualTo(0);
+    }
+}
@@ -53,6 +53,8 @@ public class ShadowLockPatternUtils {
     private static Map<Integer, Integer> sKeyguardStoredPasswordQualityMap = new HashMap<>();
 
     private static boolean sIsUserOwnsFrpCredential;
+    private static boolean sPasswordInHistory;
+    private static int sPasswordHistoryCheckCount;
 
     @Resetter
     public static void reset() {
@@ -68,6 +70,8 @@ public class ShadowLockPatternUtils {
         sDeviceEncryptionEnabled = false;
         sIsUserOwnsFrpCredential = false;
         sKeyguardStoredPasswordQualityMap.clear();
+        sPasswordInHistory = false;
+        sPasswordHistoryCheckCount = 0;
     }
 
     @Implementation
@@ -124,7 +128,16 @@ public class ShadowLockPatternUtils {
 
     @Implementation
     protected boolean checkPasswordHistory(byte[] passwordToCheck, byte[] hashFactor, int userId) {
-        return false;
+        sPasswordHistoryCheckCount++;
+        return sPasswordInHistory;
+    }
+
+    public static void setPasswordInHistory(boolean passwordInHistory) {
+        sPasswordInHistory = passwordInHistory;
+    }
+
+    public static int getPasswordHistoryCheckCount() {
+        return sPasswordHistoryCheckCount;
     }
 
     @Implementation
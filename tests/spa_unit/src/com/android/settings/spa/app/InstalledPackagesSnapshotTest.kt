@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.spa.app
+
+import android.content.BroadcastReceiver
+import android.content.Context
+import android.content.Intent
+import android.content.pm.PackageInfo
+import android.content.pm.PackageManager
+import android.content.pm.PackageManager.PackageInfoFlags
+import android.net.Uri
+import androidx.test.core.app.ApplicationProvider
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import com.android.settingslib.spa.testutils.firstWithTimeoutOrNull
+import com.google.common.truth.Truth.assertThat
+import kotlinx.coroutines.flow.filter
+import kotlinx.coroutines.runBlocking
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.mockito.kotlin.any
+import org.mockito.kotlin.anyOrNull
+import org.mockito.kotlin.doAnswer
+import org.mockito.kotlin.doReturn
+import org.mockito.kotlin.eq
+import org.mockito.kotlin.inOrder
+import org.mockito.kotlin.mock
+import org.mockito.kotlin.spy
+import org.mockito.kotlin.stub
+
+@RunWith(AndroidJUnit4::class)
+class InstalledPackagesSnapshotTest {
+    private var receiver: BroadcastReceiver? = null
+
+    private val installedPackages = listOf(PackageInfo().apply { packageName = PACKAGE_NAME })
+
+    private val mockPackageManager = mock<PackageManager> {
+        on {
+            getInstalledPackagesAsUser(any<PackageInfoFlags>(), eq(USER_ID))
+        } doReturn installedPackages
+    }
+
+    private val context: Context = spy(ApplicationProvider.getApplicationContext()) {
+        on { packageManager } doReturn mockPackageManager
+        on {
+            registerReceiverAsUser(any(), any(), any(), anyOrNull(), anyOrNull(), any())
+        } doAnswer {
+            receiver = it.arguments[0] as BroadcastReceiver
+            null
+        }
+    }
+
+    private val snapshot = InstalledPackagesSnapshot(context)
+
+    @Test
+    fun packagesFlow_loadsInstalledPackages() = runBlocking {
+        val packages = snapshot.packagesFlow(USER_ID).firstWithTimeoutOrNull()
+
+        assertThat(packages?.keys).containsExactly(PACKAGE_NAME)
+    }
+
+    @Test
+    fun packagesFlow_registersReceiverBeforeLoading() = runBlocking {
+        snapshot.packagesFlow(USER_ID).firstWithTimeoutOrNull()
+
+        inOrder(context, mockPackageManager) {
+            verify(context).registerReceiverAsUser(
+                any(), any(), any(), anyOrNull(), anyOrNull(), any())
+            verify(mockPackageManager).getInstalledPackagesAsUser(
+                any<PackageInfoFlags>(), eq(USER_ID))
+        }
+    }
+
+    @Test
+    fun packagesFlow_packageAddedWhileLoading_isNotMissed() = runBlocking {
+        val newPackage = PackageInfo().apply { packageName = NEW_PACKAGE_NAME }
+        // The broadcast arrives while the installed packages are queried, and the query result
+        // does not include the new package yet.
+        mockPackageManager.stub {
+            on { getInstalledPackagesAsUser(any<PackageInfoFlags>(), eq(USER_ID)) } doAnswer {
+                receiver?.onReceive(context, packageIntent(Intent.ACTION_PACKAGE_ADDED))
+                installedPackages
+            }
+            on {
+                getPackageInfoAsUser(eq(NEW_PACKAGE_NAME), any<PackageInfoFlags>(), eq(USER_ID))
+            } doReturn newPackage
+        }
+
+        val packages = snapshot.packagesFlow(USER_ID)
+            .filter { NEW_PACKAGE_NAME in it }
+            .firstWithTimeoutOrNull()
+
+        assertThat(packages?.keys).containsExactly(PACKAGE_NAME, NEW_PACKAGE_NAME)
+    }
+
+    @Test
+    fun packagesFlow_packageRemoved_dropsPackage() = runBlocking {
+        val flow = snapshot.packagesFlow(USER_ID)
+        flow.firstWithTimeoutOrNull()
+
+        receiver?.onReceive(context, packageIntent(Intent.ACTION_PACKAGE_REMOVED, PACKAGE_NAME))
+
+        assertThat(flow.filter { PACKAGE_NAME !in it }.firstWithTimeoutOrNull()).isEmpty()
+    }
+
+    private fun packageIntent(action: String, packageName: String = NEW_PACKAGE_NAME) =
+        Intent(action, Uri.fromParts("package", packageName, null))
+
+    private companion object {
+        const val USER_ID = 0
+        const val PACKAGE_NAME = "package.name"
+        const val NEW_PACKAGE_NAME = "new.package.name"
+    }
+}
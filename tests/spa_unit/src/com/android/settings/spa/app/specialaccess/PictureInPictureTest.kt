@@ -27,6 +27,7 @@ import android.os.DeadSystemRuntimeException
 import androidx.test.core.app.ApplicationProvider
 import androidx.test.ext.junit.runners.AndroidJUnit4
 import com.android.settings.R
+import com.android.settings.spa.app.InstalledPackagesSnapshot
 import com.android.settingslib.spaprivileged.model.app.AppOpsController
 import com.google.common.truth.Truth.assertThat
 import kotlinx.coroutines.flow.first
@@ -40,6 +41,8 @@ import org.mockito.Mock
 import org.mockito.Mockito.any
 import org.mockito.Mockito.anyInt
 import org.mockito.Mockito.eq
+import org.mockito.Mockito.times
+import org.mockito.Mockito.verify
 import org.mockito.Spy
 import org.mockito.junit.MockitoJUnit
 import org.mockito.junit.MockitoRule
@@ -63,7 +66,7 @@ class PictureInPictureTest {
         whenever(context.packageManager).thenReturn(packageManager)
         whenever(packageManager.getInstalledPackagesAsUser(any<PackageInfoFlags>(), anyInt()))
             .thenReturn(emptyList())
-        listModel = PictureInPictureListModel(context)
+        listModel = PictureInPictureListModel(context, InstalledPackagesSnapshot(context))
     }
 
     @Test
@@ -107,6 +110,42 @@ class PictureInPictureTest {
         assertThat(record.isSupport).isFalse()
     }
 
+    @Test
+    fun transform_bulkQueryWithActivitiesThrowsException_loadsPackagesOneByOne() = runTest {
+        whenever(packageManager.getInstalledPackagesAsUser(any<PackageInfoFlags>(), anyInt()))
+            .thenAnswer {
+                val flags = it.getArgument<PackageInfoFlags>(0)
+                if (flags.value and PackageManager.GET_ACTIVITIES.toLong() != 0L) {
+                    throw DeadSystemRuntimeException()
+                }
+                listOf(PackageInfo().apply { packageName = PICTURE_IN_PICTURE_PACKAGE_NAME })
+            }
+        whenever(
+            packageManager.getPackageInfoAsUser(
+                eq(PICTURE_IN_PICTURE_PACKAGE_NAME), any<PackageInfoFlags>(), eq(USER_ID)
+            )
+        ).thenReturn(PICTURE_IN_PICTURE_PACKAGE_INFO)
+
+        val recordList = listModel.transform(
+            userIdFlow = flowOf(USER_ID),
+            appListFlow = flowOf(listOf(PICTURE_IN_PICTURE_APP)),
+        ).first()
+
+        assertThat(recordList.single().isSupport).isTrue()
+    }
+
+    @Test
+    fun transform_sameSnapshot_packagesQueriedOnce() = runTest {
+        val snapshot = InstalledPackagesSnapshot(context)
+        val appListFlow = flowOf(listOf(PICTURE_IN_PICTURE_APP))
+
+        PictureInPictureListModel(context, snapshot).transform(flowOf(USER_ID), appListFlow).first()
+        PictureInPictureListModel(context, snapshot).transform(flowOf(USER_ID), appListFlow).first()
+
+        verify(packageManager, times(1))
+            .getInstalledPackagesAsUser(any<PackageInfoFlags>(), eq(USER_ID))
+    }
+
     @Test
     fun transformItem() {
         whenever(
@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.spa.app.storage
+
+import android.content.Context
+import android.content.pm.ApplicationInfo
+import androidx.test.core.app.ApplicationProvider
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import com.google.common.truth.Truth.assertThat
+import org.junit.Test
+import org.junit.runner.RunWith
+
+@RunWith(AndroidJUnit4::class)
+class AppStorageSizeCacheTest {
+    private val context: Context = ApplicationProvider.getApplicationContext()
+
+    private val cache = AppStorageSizeCache(context)
+
+    @Test
+    fun get_notCached_returnsNull() {
+        assertThat(cache.get(APP)).isNull()
+    }
+
+    @Test
+    fun get_afterPutAll_returnsSize() {
+        cache.putAll(mapOf(APP to 42L))
+
+        assertThat(cache.get(APP)).isEqualTo(42L)
+    }
+
+    @Test
+    fun get_otherUser_returnsNull() {
+        cache.putAll(mapOf(APP to 42L))
+
+        assertThat(cache.get(APP_OTHER_USER)).isNull()
+    }
+
+    @Test
+    fun get_reinstalledElsewhere_returnsNull() {
+        cache.putAll(mapOf(APP to 42L))
+
+        assertThat(cache.get(APP_UPDATED)).isNull()
+    }
+
+    @Test
+    fun putAll_withInstalledApps_dropsUninstalledPackagesOfTheSameUser() {
+        cache.putAll(mapOf(APP to 42L, APP_OTHER_USER to 7L))
+
+        cache.putAll(emptyMap(), installedApps = listOf(APP2))
+
+        assertThat(cache.get(APP)).isNull()
+        assertThat(cache.get(APP_OTHER_USER)).isEqualTo(7L)
+    }
+
+    private companion object {
+        const val PACKAGE_NAME = "package.name"
+        val APP = ApplicationInfo().apply {
+            packageName = PACKAGE_NAME
+            uid = 10_001
+        }
+        val APP_OTHER_USER = ApplicationInfo().apply {
+            packageName = PACKAGE_NAME
+            uid = 1_010_001
+        }
+        val APP_UPDATED = ApplicationInfo().apply {
+            packageName = PACKAGE_NAME
+            uid = 10_001
+            sourceDir = "/data/app/~~updated/package.name/base.apk"
+        }
+        val APP2 = ApplicationInfo().apply {
+            packageName = "package.name2"
+            uid = 10_002
+        }
+    }
+}
@@ -25,6 +25,7 @@ import com.android.settingslib.spa.testutils.firstWithTimeoutOrNull
 import com.android.settingslib.spaprivileged.model.app.AppEntry
 import com.google.common.truth.Truth.assertThat
 import kotlinx.coroutines.flow.flowOf
+import kotlinx.coroutines.flow.toList
 import kotlinx.coroutines.test.runTest
 import org.junit.Test
 import org.junit.runner.RunWith
@@ -53,6 +54,49 @@ class StorageAppListTest {
         assertThat(recordList.first().size).isEqualTo(0L)
     }
 
+    @Test
+    fun transform_cachedSize_emittedBeforeFreshSize() = runTest {
+        AppStorageSizeCache(context).putAll(mapOf(APP to 3L))
+        val listModel = StorageAppListModel(context, StorageType.Apps, calculateSize = { 5L })
+
+        val recordLists = listModel.transform(flowOf(0), flowOf(listOf(APP))).toList()
+
+        assertThat(recordLists.first().single().size).isEqualTo(3L)
+        assertThat(recordLists.last().single().size).isEqualTo(5L)
+    }
+
+    @Test
+    fun transform_freshSizes_persisted() = runTest {
+        val listModel = StorageAppListModel(context, StorageType.Apps, calculateSize = { 7L })
+
+        listModel.transform(flowOf(0), flowOf(listOf(APP, APP2))).toList()
+
+        val cache = AppStorageSizeCache(context)
+        assertThat(cache.get(APP)).isEqualTo(7L)
+        assertThat(cache.get(APP2)).isEqualTo(7L)
+    }
+
+    @Test
+    fun transform_sizeLookupFailed_keepsCachedSize() = runTest {
+        AppStorageSizeCache(context).putAll(mapOf(APP to 3L))
+        val listModel = StorageAppListModel(context, StorageType.Apps, calculateSize = { null })
+
+        val recordLists = listModel.transform(flowOf(0), flowOf(listOf(APP))).toList()
+
+        assertThat(recordLists.last().single().size).isEqualTo(3L)
+        assertThat(AppStorageSizeCache(context).get(APP)).isEqualTo(3L)
+    }
+
+    @Test
+    fun transform_sizeUnchanged_emitsOnce() = runTest {
+        AppStorageSizeCache(context).putAll(mapOf(APP to 3L))
+        val listModel = StorageAppListModel(context, StorageType.Apps, calculateSize = { 3L })
+
+        val recordLists = listModel.transform(flowOf(0), flowOf(listOf(APP))).toList()
+
+        assertThat(recordLists).hasSize(1)
+    }
+
     @Test
     fun filter_apps_appWithoutGame() = runTest {
         val listModel = StorageAppListModel(context, StorageType.Apps)
@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.spa.notification
+
+import android.app.usage.UsageEvents
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import com.google.common.truth.Truth.assertThat
+import org.junit.Test
+import org.junit.runner.RunWith
+
+@RunWith(AndroidJUnit4::class)
+class NotificationSentAggregatorTest {
+    private val aggregator = NotificationSentAggregator(WINDOW)
+
+    private val queriedRanges = mutableListOf<Pair<Long, Long>>()
+
+    @Test
+    fun aggregate_firstCall_queriesWholeWindow() {
+        val sentStates = aggregator.aggregate(USER_ID, 1_000L, queryReturning(notification(990L)))
+
+        assertThat(queriedRanges).containsExactly(1_000L - WINDOW to 1_000L)
+        assertThat(sentStates).containsExactly(
+            PACKAGE_NAME, NotificationSentState(lastSent = 990L, sentCount = 1),
+        )
+    }
+
+    @Test
+    fun aggregate_secondCall_queriesOnlySincePreviousCall() {
+        aggregator.aggregate(USER_ID, 1_000L, queryReturning(notification(990L)))
+
+        val sentStates = aggregator.aggregate(USER_ID, 1_010L, queryReturning(notification(1_005L)))
+
+        assertThat(queriedRanges.last()).isEqualTo(1_000L to 1_010L)
+        assertThat(sentStates).containsExactly(
+            PACKAGE_NAME, NotificationSentState(lastSent = 1_005L, sentCount = 2),
+        )
+    }
+
+    @Test
+    fun aggregate_eventLeavesWindow_dropped() {
+        aggregator.aggregate(USER_ID, 1_000L, queryReturning(notification(950L)))
+
+        val sentStates = aggregator.aggregate(USER_ID, 950L + WINDOW + 1, queryReturning())
+
+        assertThat(sentStates).isEmpty()
+    }
+
+    @Test
+    fun aggregate_eventInOldestBucket_droppedWithWholeBucket() {
+        aggregator.aggregate(USER_ID, 1_100L, queryReturning(notification(1_050L)))
+
+        val kept = aggregator.aggregate(USER_ID, 1_699L, queryReturning())
+        val dropped = aggregator.aggregate(USER_ID, 1_700L, queryReturning())
+
+        assertThat(kept).containsExactly(
+            PACKAGE_NAME, NotificationSentState(lastSent = 1_050L, sentCount = 1),
+        )
+        assertThat(dropped).isEmpty()
+    }
+
+    @Test
+    fun aggregate_queryFailed_retriesFromSameStart() {
+        aggregator.aggregate(USER_ID, 1_000L, queryReturning(notification(990L)))
+        aggregator.aggregate(USER_ID, 1_010L) { startTime, endTime ->
+            queriedRanges += startTime to endTime
+            null
+        }
+
+        aggregator.aggregate(USER_ID, 1_020L, queryReturning())
+
+        assertThat(queriedRanges.last()).isEqualTo(1_000L to 1_020L)
+    }
+
+    @Test
+    fun aggregate_otherUser_keptSeparately() {
+        aggregator.aggregate(USER_ID, 1_000L, queryReturning(notification(990L)))
+
+        val sentStates = aggregator.aggregate(USER_ID + 1, 1_000L, queryReturning())
+
+        assertThat(sentStates).isEmpty()
+    }
+
+    private fun queryReturning(vararg events: UsageEvents.Event) =
+        { startTime: Long, endTime: Long ->
+            queriedRanges += startTime to endTime
+            UsageEvents(events.toList(), arrayOf())
+        }
+
+    private fun notification(timeStamp: Long) = UsageEvents.Event().apply {
+        mEventType = UsageEvents.Event.NOTIFICATION_INTERRUPTION
+        mPackage = PACKAGE_NAME
+        mTimeStamp = timeStamp
+    }
+
+    private companion object {
+        const val USER_ID = 0
+        const val PACKAGE_NAME = "package.name"
+        // Seven buckets of 100ms each.
+        const val WINDOW = 700L
+    }
+}
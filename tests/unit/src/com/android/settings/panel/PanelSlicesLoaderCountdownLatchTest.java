@@ -29,6 +29,8 @@ import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
+import java.util.Arrays;
+
 @RunWith(AndroidJUnit4.class)
 public class PanelSlicesLoaderCountdownLatchTest {
 
@@ -89,4 +91,25 @@ public class PanelSlicesLoaderCountdownLatchTest {
         // Verify the second call returns false without external state change
         assertThat(mSliceCountdownLatch.isPanelReadyToLoad()).isFalse();
     }
+
+    @Test
+    public void isPanelReadyToLoad_prioritySlicesLoaded_returnsTrue() {
+        mSliceCountdownLatch =
+                new PanelSlicesLoaderCountdownLatch(URIS.length, Arrays.asList(URIS[0]));
+
+        mSliceCountdownLatch.markSliceLoaded(URIS[0]);
+
+        assertThat(mSliceCountdownLatch.isPanelReadyToLoad()).isTrue();
+    }
+
+    @Test
+    public void isPanelReadyToLoad_onlyOtherSlicesLoaded_returnsFalse() {
+        mSliceCountdownLatch =
+                new PanelSlicesLoaderCountdownLatch(URIS.length, Arrays.asList(URIS[0]));
+
+        mSliceCountdownLatch.markSliceLoaded(URIS[1]);
+        mSliceCountdownLatch.markSliceLoaded(URIS[2]);
+
+        assertThat(mSliceCountdownLatch.isPanelReadyToLoad()).isFalse();
+    }
 }